@@ -38,8 +38,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
@@ -94,7 +97,15 @@ import javax.annotation.Nullable;
  * as it would break parsing of the configuration property.
  * </p>
  *
+ * <p>Optionally, the values of a set of columns can be copied into the index rows, configured with
+ * {@link #INDEX_COVERED_COLUMNS_CONF_KEY} in the same format. Reads by index that only ask for covered columns,
+ * through {@link #readByIndex(byte[], byte[], byte[][])} or {@link #scanByIndex(byte[], byte[], byte[], byte[][])},
+ * are then served from the index table without reading the data table. Writes to covered columns need to
+ * update the index rows of the data row, hence read-less increments are not supported on covered columns either.
+ * </p>
+ *
  * @see #INDEX_COLUMNS_CONF_KEY
+ * @see #INDEX_COVERED_COLUMNS_CONF_KEY
  */
 public class IndexedTable extends AbstractDataset implements Table {
   private static final Logger LOG = LoggerFactory.getLogger(IndexedTable.class);
@@ -105,18 +116,36 @@ public class IndexedTable extends AbstractDataset implements Table {
    */
   public static final String INDEX_COLUMNS_CONF_KEY = "columnsToIndex";
 
+  /**
+   * Configuration key for defining column names whose values are copied into the index rows, in the same format as
+   * {@link #INDEX_COLUMNS_CONF_KEY}. It is optional, and cannot be changed once the dataset is created.
+   */
+  public static final String INDEX_COVERED_COLUMNS_CONF_KEY = "columnsToCover";
+
   /**
    * Column key used to store the existence of a row in the secondary index.
    */
   private static final byte[] IDX_COL = {'r'};
   private static final byte DELIMITER_BYTE = 0;
   private static final byte[] KEY_DELIMITER = new byte[] { DELIMITER_BYTE };
+  /**
+   * Prefix of the column keys used to store the values of covered columns in the secondary index.
+   */
+  private static final byte[] COVERED_COL_PREFIX = {'c', DELIMITER_BYTE};
+  /**
+   * Maximum number of data rows read from the data table in one multi-get when reading by index.
+   */
+  private static final int INDEX_SCAN_BATCH_SIZE = 100;
 
   private final boolean hasColumnWithDelimiter;
   // the two underlying tables
   private Table table, index;
   // the secondary index column
   private SortedSet<byte[]> indexedColumns;
+  // the columns copied into the index rows
+  private SortedSet<byte[]> coveredColumns;
+  // the indexed and the covered columns, which are read before a write to maintain the covered values in the index
+  private byte[][] maintainedColumns;
 
   /**
    * Configuration time constructor.
@@ -127,10 +156,29 @@ public class IndexedTable extends AbstractDataset implements Table {
    * @param columnsToIndex the names of the data columns to index
    */
   public IndexedTable(String name, Table table, Table index, SortedSet<byte[]> columnsToIndex) {
+    this(name, table, index, columnsToIndex, new TreeSet<>(Bytes.BYTES_COMPARATOR));
+  }
+
+  /**
+   * Configuration time constructor.
+   *
+   * @param name the name of the table
+   * @param table table to use as the table
+   * @param index table to use as the index
+   * @param columnsToIndex the names of the data columns to index
+   * @param columnsToCover the names of the data columns whose values are copied into the index
+   */
+  public IndexedTable(String name, Table table, Table index,
+                      SortedSet<byte[]> columnsToIndex, SortedSet<byte[]> columnsToCover) {
     super(name, table, index);
     this.table = table;
     this.index = index;
     this.indexedColumns = columnsToIndex;
+    this.coveredColumns = columnsToCover;
+    SortedSet<byte[]> maintained = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    maintained.addAll(columnsToIndex);
+    maintained.addAll(columnsToCover);
+    this.maintainedColumns = maintained.toArray(new byte[maintained.size()][]);
     this.hasColumnWithDelimiter = hasDelimiterByte(columnsToIndex);
   }
 
@@ -212,11 +260,27 @@ public class IndexedTable extends AbstractDataset implements Table {
    */
   @ReadOnly
   public Scanner readByIndex(byte[] column, byte[] value) {
+    return readByIndex(column, value, null);
+  }
+
+  /**
+   * Reads the given columns of the table rows by the given secondary index key. If all the given columns are
+   * covered by the index, the rows are read from the index only.
+   *
+   * @param column the column to use for the index lookup
+   * @param value the value of the column to look up
+   * @param columns the columns to read from the matching rows, or {@code null} to read all columns
+   * @return a Scanner returning rows from the data table, with the given columns only, whose stored value for the
+   *         given column matches the given value.
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  @ReadOnly
+  public Scanner readByIndex(byte[] column, byte[] value, @Nullable byte[][] columns) {
     assertIndexedColumn(column);
     byte[] rowKeyPrefix = Bytes.concat(column, KEY_DELIMITER, value, KEY_DELIMITER);
     byte[] stopRow = Bytes.stopKeyForPrefix(rowKeyPrefix);
     Scanner indexScan = index.scan(rowKeyPrefix, stopRow);
-    return new IndexScanner(indexScan, column, value);
+    return new IndexScanner(indexScan, column, columns, value);
   }
 
   /**
@@ -234,6 +298,26 @@ public class IndexedTable extends AbstractDataset implements Table {
    */
   @ReadOnly
   public Scanner scanByIndex(byte[] column, @Nullable byte[] startValue, @Nullable byte[] endValue) {
+    return scanByIndex(column, startValue, endValue, null);
+  }
+
+  /**
+   * Reads the given columns of the table rows within the given secondary index key range. If all the given columns
+   * are covered by the index, the rows are read from the index only.
+   *
+   * @param column the column to use for the index lookup
+   * @param startValue the inclusive start of the range for which rows must fall within to be returned in the scan.
+   *                   {@code null} means start from first row of the table
+   * @param endValue the exclusive end of the range for which rows must fall within to be returned in the scan
+   *                 {@code null} means end with the last row of the table
+   * @param columns the columns to read from the matching rows, or {@code null} to read all columns
+   * @return a Scanner returning rows from the data table, with the given columns only, whose stored value for the
+   *         given column is within the the given range.
+   * @throws java.lang.IllegalArgumentException if the given column is not configured for indexing.
+   */
+  @ReadOnly
+  public Scanner scanByIndex(byte[] column, @Nullable byte[] startValue, @Nullable byte[] endValue,
+                             @Nullable byte[][] columns) {
     assertIndexedColumn(column);
     // KEY_DELIMITER is not used at the end of the rowKeys, because they are used for a range scan,
     // instead of a fixed-match lookup
@@ -242,7 +326,7 @@ public class IndexedTable extends AbstractDataset implements Table {
     byte[] stopRow = endValue == null ? Bytes.stopKeyForPrefix(Bytes.concat(column, KEY_DELIMITER)) :
       Bytes.concat(column, KEY_DELIMITER, endValue);
     Scanner indexScan = index.scan(startRow, stopRow);
-    return new IndexRangeScanner(indexScan, column, startValue, endValue);
+    return new IndexRangeScanner(indexScan, column, columns, startValue, endValue);
   }
 
   private void assertIndexedColumn(byte[] column) {
@@ -265,6 +349,21 @@ public class IndexedTable extends AbstractDataset implements Table {
     byte[] dataRow = put.getRow();
     // find which values need to be indexed
     Map<byte[], byte[]> putColumns = put.getValues();
+    if (!coveredColumns.isEmpty()) {
+      if (hasMaintainedColumn(putColumns.keySet())) {
+        NavigableMap<byte[], byte[]> existingValues = getMaintainedValues(dataRow);
+        NavigableMap<byte[], byte[]> newValues = new TreeMap<>(existingValues);
+        for (byte[] column : maintainedColumns) {
+          if (putColumns.containsKey(column)) {
+            newValues.put(column, putColumns.get(column));
+          }
+        }
+        updateIndex(dataRow, existingValues, newValues);
+      }
+      table.put(put);
+      return;
+    }
+
     Set<byte[]> colsToIndex = new TreeSet<>(Bytes.BYTES_COMPARATOR);
     for (Map.Entry<byte[], byte[]> putEntry : putColumns.entrySet()) {
       if (indexedColumns.contains(putEntry.getKey())) {
@@ -298,6 +397,80 @@ public class IndexedTable extends AbstractDataset implements Table {
     return Bytes.concat(column, KEY_DELIMITER, value, KEY_DELIMITER, row);
   }
 
+  private byte[] createCoveredColumn(byte[] column) {
+    return Bytes.concat(COVERED_COL_PREFIX, column);
+  }
+
+  private void deleteIndexEntry(byte[] indexKey) {
+    if (coveredColumns.isEmpty()) {
+      index.delete(indexKey, IDX_COL);
+    } else {
+      // the index row also stores the covered values
+      index.delete(indexKey);
+    }
+  }
+
+  private boolean hasMaintainedColumn(Collection<byte[]> columns) {
+    for (byte[] column : columns) {
+      if (indexedColumns.contains(column) || coveredColumns.contains(column)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reads the values of the indexed and the covered columns of the given data row.
+   */
+  private NavigableMap<byte[], byte[]> getMaintainedValues(byte[] row) {
+    NavigableMap<byte[], byte[]> values = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    values.putAll(table.get(row, maintainedColumns).getColumns());
+    return values;
+  }
+
+  /**
+   * Updates the index entries of a data row, including the covered values stored in them, from the values of the
+   * indexed and covered columns before and after a write. Columns missing in the maps have no value.
+   */
+  private void updateIndex(byte[] row, Map<byte[], byte[]> oldValues, Map<byte[], byte[]> newValues) {
+    boolean coveredChanged = false;
+    List<byte[]> removedCoveredColumns = new ArrayList<>();
+    for (byte[] column : coveredColumns) {
+      byte[] newValue = newValues.get(column);
+      if (!Arrays.equals(oldValues.get(column), newValue)) {
+        coveredChanged = true;
+        if (newValue == null) {
+          removedCoveredColumns.add(createCoveredColumn(column));
+        }
+      }
+    }
+
+    for (byte[] column : indexedColumns) {
+      byte[] oldValue = oldValues.get(column);
+      byte[] newValue = newValues.get(column);
+      boolean changed = !Arrays.equals(oldValue, newValue);
+      if (changed && oldValue != null) {
+        deleteIndexEntry(createIndexKey(row, column, oldValue));
+      }
+      if (newValue == null || !(changed || coveredChanged)) {
+        continue;
+      }
+
+      byte[] indexKey = createIndexKey(row, column, newValue);
+      Put indexPut = new Put(indexKey, IDX_COL, row);
+      for (byte[] coveredColumn : coveredColumns) {
+        byte[] coveredValue = newValues.get(coveredColumn);
+        if (coveredValue != null) {
+          indexPut.add(createCoveredColumn(coveredColumn), coveredValue);
+        }
+      }
+      index.put(indexPut);
+      if (!changed && !removedCoveredColumns.isEmpty()) {
+        index.delete(indexKey, removedCoveredColumns.toArray(new byte[removedCoveredColumns.size()][]));
+      }
+    }
+  }
+
   @WriteOnly
   @Override
   public void put(byte[] row, byte[] column, byte[] value) {
@@ -363,8 +536,18 @@ public class IndexedTable extends AbstractDataset implements Table {
       return;
     }
 
-    // delete all index entries
-    deleteIndexEntries(existingRow);
+    if (hasCoveredColumn(columns)) {
+      // update the covered values in the index entries of the remaining indexed values
+      NavigableMap<byte[], byte[]> existingValues = getMaintainedValues(row);
+      NavigableMap<byte[], byte[]> newValues = new TreeMap<>(existingValues);
+      for (byte[] column : columns) {
+        newValues.remove(column);
+      }
+      updateIndex(row, existingValues, newValues);
+    } else {
+      // delete all index entries
+      deleteIndexEntries(existingRow);
+    }
 
     // delete the row's columns
     table.delete(row, columns);
@@ -374,9 +557,18 @@ public class IndexedTable extends AbstractDataset implements Table {
     byte[] row = existingRow.getRow();
     for (Map.Entry<byte[], byte[]> entry : existingRow.getColumns().entrySet()) {
       if (indexedColumns.contains(entry.getKey())) {
-        index.delete(createIndexKey(row, entry.getKey(), entry.getValue()), IDX_COL);
+        deleteIndexEntry(createIndexKey(row, entry.getKey(), entry.getValue()));
+      }
+    }
+  }
+
+  private boolean hasCoveredColumn(byte[][] columns) {
+    for (byte[] column : columns) {
+      if (coveredColumns.contains(column)) {
+        return true;
       }
     }
+    return false;
   }
 
   /**
@@ -389,6 +581,23 @@ public class IndexedTable extends AbstractDataset implements Table {
   @ReadWrite
   @Override
   public boolean compareAndSwap(byte[] row, byte[] column, byte[] expected, byte[] newValue) {
+    if (coveredColumns.contains(column) ||
+      (!coveredColumns.isEmpty() && indexedColumns.contains(column) && !Arrays.equals(expected, newValue))) {
+      // the index entries need to be updated with the new covered value
+      NavigableMap<byte[], byte[]> existingValues = getMaintainedValues(row);
+      if (!table.compareAndSwap(row, column, expected, newValue)) {
+        return false;
+      }
+      NavigableMap<byte[], byte[]> newValues = new TreeMap<>(existingValues);
+      if (newValue == null) {
+        newValues.remove(column);
+      } else {
+        newValues.put(column, newValue);
+      }
+      updateIndex(row, existingValues, newValues);
+      return true;
+    }
+
     // if the swap is on a column other than the column key, then
     // the index is not affected - just execute the swap.
     // also, if the swap is on the index column, but the old value
@@ -459,6 +668,12 @@ public class IndexedTable extends AbstractDataset implements Table {
       throw new IllegalArgumentException("Size of columns and amounts arguments must match");
     }
 
+    // with covered columns, the index entries are updated from all the indexed and covered values
+    NavigableMap<byte[], byte[]> existingValues = null;
+    if (!coveredColumns.isEmpty() && hasMaintainedColumn(Arrays.asList(columns))) {
+      existingValues = getMaintainedValues(row);
+    }
+
     Row existingRow = table.get(row, columns);
     byte[][] updatedValues = new byte[columns.length][];
     NavigableMap<byte[], byte[]> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
@@ -473,17 +688,27 @@ public class IndexedTable extends AbstractDataset implements Table {
                                             " column: " + Bytes.toStringBinary(columns[i]));
         }
         existingValue = Bytes.toLong(existingBytes);
-        if (indexedColumns.contains(columns[i])) {
+        if (existingValues == null && indexedColumns.contains(columns[i])) {
           index.delete(createIndexKey(row, columns[i], existingBytes), IDX_COL);
         }
       }
       updatedValues[i] = Bytes.toBytes(existingValue + amounts[i]);
       result.put(columns[i], updatedValues[i]);
-      if (indexedColumns.contains(columns[i])) {
+      if (existingValues == null && indexedColumns.contains(columns[i])) {
         index.put(createIndexKey(row, columns[i], updatedValues[i]), IDX_COL, row);
       }
     }
 
+    if (existingValues != null) {
+      NavigableMap<byte[], byte[]> newValues = new TreeMap<>(existingValues);
+      for (int i = 0; i < columns.length; i++) {
+        if (indexedColumns.contains(columns[i]) || coveredColumns.contains(columns[i])) {
+          newValues.put(columns[i], updatedValues[i]);
+        }
+      }
+      updateIndex(row, existingValues, newValues);
+    }
+
     table.put(row, columns, updatedValues);
     return new Result(row, result);
   }
@@ -514,43 +739,40 @@ public class IndexedTable extends AbstractDataset implements Table {
 
   /**
    * Increments (atomically) the specified row and column by the specified amount, without returning the new value.
-   * Note that performing this operation on an indexed column throws {@link java.lang.IllegalArgumentException}.
+   * Note that performing this operation on an indexed or covered column throws
+   * {@link java.lang.IllegalArgumentException}.
    *
    * @see Table#increment(byte[], byte[], long)
    */
   @WriteOnly
   @Override
   public void increment(byte[] row, byte[] column, long amount) {
-    // read-less increments should not be used on indexed columns
-    if (indexedColumns.contains(column)) {
-      throw new IllegalArgumentException("Read-less increment is not supported on indexed column '"
-                                           + Bytes.toStringBinary(column) + "'");
-    }
+    // read-less increments should not be used on indexed or covered columns
+    assertReadlessIncrementSupported(column);
     table.increment(row, column, amount);
   }
 
   /**
    * Increments (atomically) the specified row and columns by the specified amounts, without returning the new values.
-   * Note that performing this operation on an indexed column throws {@link java.lang.IllegalArgumentException}.
+   * Note that performing this operation on an indexed or covered column throws
+   * {@link java.lang.IllegalArgumentException}.
    *
    * @see Table#increment(byte[], byte[][], long[])
    */
   @WriteOnly
   @Override
   public void increment(byte[] row, byte[][] columns, long[] amounts) {
-    // read-less increments should not be used on indexed columns
+    // read-less increments should not be used on indexed or covered columns
     for (byte[] col : columns) {
-      if (indexedColumns.contains(col)) {
-        throw new IllegalArgumentException("Read-less increment is not supported on indexed column '"
-                                             + Bytes.toStringBinary(col) + "'");
-      }
+      assertReadlessIncrementSupported(col);
     }
     table.increment(row, columns, amounts);
   }
 
   /**
    * Increments (atomically) the specified row and columns by the specified amounts, without returning the new values.
-   * Note that performing this operation on an indexed column throws {@link java.lang.IllegalArgumentException}.
+   * Note that performing this operation on an indexed or covered column throws
+   * {@link java.lang.IllegalArgumentException}.
    *
    * @see Table#increment(Increment)
    */
@@ -558,14 +780,22 @@ public class IndexedTable extends AbstractDataset implements Table {
   @Override
   public void increment(Increment increment) {
     for (byte[] col : increment.getValues().keySet()) {
-      if (indexedColumns.contains(col)) {
-        throw new IllegalArgumentException("Read-less increment is not supported on indexed column '"
-                                             + Bytes.toStringBinary(col) + "'");
-      }
+      assertReadlessIncrementSupported(col);
     }
     table.increment(increment);
   }
 
+  private void assertReadlessIncrementSupported(byte[] column) {
+    if (indexedColumns.contains(column)) {
+      throw new IllegalArgumentException("Read-less increment is not supported on indexed column '"
+                                           + Bytes.toStringBinary(column) + "'");
+    }
+    if (coveredColumns.contains(column)) {
+      throw new IllegalArgumentException("Read-less increment is not supported on covered column '"
+                                           + Bytes.toStringBinary(column) + "'");
+    }
+  }
+
   @ReadOnly
   @Override
   public Scanner scan(@Nullable byte[] startRow, @Nullable byte[] stopRow) {
@@ -625,10 +855,47 @@ public class IndexedTable extends AbstractDataset implements Table {
     // scanner over index table
     private final Scanner baseScanner;
     private final byte[] column;
-
-    AbstractIndexScanner(Scanner baseScanner, byte[] column) {
+    // columns to read from the data rows, null to read all columns
+    private final byte[][] columns;
+    // columns to read from the data table, which also include the index column if the rows need to be verified
+    private final byte[][] getColumns;
+    // whether the rows are read from the covered values in the index table
+    private final boolean indexOnly;
+    // data rows read ahead
+    private final Deque<Row> rows;
+    private boolean indexExhausted;
+
+    AbstractIndexScanner(Scanner baseScanner, byte[] column, @Nullable byte[][] columns) {
       this.baseScanner = baseScanner;
       this.column = column;
+      this.columns = columns;
+      this.indexOnly = columns != null && isCovered(columns);
+      if (columns != null && hasColumnWithDelimiter && !contains(columns, column)) {
+        this.getColumns = Arrays.copyOf(columns, columns.length + 1);
+        this.getColumns[columns.length] = column;
+      } else {
+        this.getColumns = columns;
+      }
+      this.rows = new ArrayDeque<>();
+    }
+
+    private boolean contains(byte[][] columns, byte[] column) {
+      for (byte[] col : columns) {
+        if (Bytes.equals(col, column)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean isCovered(byte[][] columns) {
+      for (byte[] col : columns) {
+        if (!coveredColumns.contains(col)) {
+          return false;
+        }
+      }
+      // Need the value of the index column to verify the rows
+      return !hasColumnWithDelimiter || coveredColumns.contains(column);
     }
 
     /**
@@ -642,9 +909,27 @@ public class IndexedTable extends AbstractDataset implements Table {
     @Nullable
     @Override
     public Row next() {
-      // TODO: retrieve results in batches to minimize RPC overhead (requires multi-get support in table)
-      // keep going until we hit a non-null, non-empty data row, or we exhaust the index
-      for (Row indexRow = baseScanner.next(); indexRow != null; indexRow = baseScanner.next()) {
+      // keep going until we hit a data row, or we exhaust the index
+      while (rows.isEmpty() && !indexExhausted) {
+        readRows();
+      }
+      return rows.poll();
+    }
+
+    /**
+     * Reads the next batch of matching rows, with one multi-get on the data table.
+     */
+    private void readRows() {
+      List<Get> gets = new ArrayList<>();
+      List<byte[]> columnValues = new ArrayList<>();
+      int indexRows = 0;
+      while (indexRows < INDEX_SCAN_BATCH_SIZE) {
+        Row indexRow = baseScanner.next();
+        if (indexRow == null) {
+          // end of index
+          indexExhausted = true;
+          break;
+        }
         byte[] rowkey = indexRow.get(IDX_COL);
         if (rowkey == null) {
           LOG.warn("Row of Indexed table '{}' is missing index column. Row key: {}", getName(), indexRow.getRow());
@@ -655,19 +940,53 @@ public class IndexedTable extends AbstractDataset implements Table {
                                                 indexRow.getRow().length - rowkey.length - 1);
         // Verify that datarow matches the expected row key to avoid issues with column name or value
         // containing the delimiter used. This is a sufficient check, as long as columns don't contain the null byte.
-        if (matches(columnValue)) {
-          Row row = table.get(rowkey);
-          // If a column has null byte (the key delimiter) in it, then we need to check against the data row's column
-          // to be sure this row isn't a false positive in the scan.
-          // For reference, take a look at IndexedTableTest#testIndexKeyDelimiterAmbiguity
-          if (hasColumnWithDelimiter && !Bytes.equals(row.get(column), columnValue)) {
+        if (!matches(columnValue)) {
+          continue;
+        }
+        indexRows++;
+        if (indexOnly) {
+          if (hasColumnWithDelimiter && !Bytes.equals(indexRow.get(createCoveredColumn(column)), columnValue)) {
             continue;
           }
-          return row;
+          rows.add(createCoveredRow(rowkey, indexRow));
+        } else {
+          gets.add(getColumns == null ? new Get(rowkey) : new Get(rowkey, getColumns));
+          columnValues.add(columnValue);
         }
       }
-      // end of index
-      return null;
+
+      if (gets.isEmpty()) {
+        return;
+      }
+      List<Row> dataRows = table.get(gets);
+      for (int i = 0; i < dataRows.size(); i++) {
+        Row row = dataRows.get(i);
+        // If a column has null byte (the key delimiter) in it, then we need to check against the data row's column
+        // to be sure this row isn't a false positive in the scan.
+        // For reference, take a look at IndexedTableTest#testIndexKeyDelimiterAmbiguity
+        if (hasColumnWithDelimiter && !Bytes.equals(row.get(column), columnValues.get(i))) {
+          continue;
+        }
+        rows.add(getColumns == columns ? row : removeColumn(row, column));
+      }
+    }
+
+    private Row createCoveredRow(byte[] rowkey, Row indexRow) {
+      Map<byte[], byte[]> values = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      for (byte[] col : columns) {
+        byte[] value = indexRow.get(createCoveredColumn(col));
+        if (value != null) {
+          values.put(col, value);
+        }
+      }
+      return new Result(rowkey, values);
+    }
+
+    private Row removeColumn(Row row, byte[] column) {
+      Map<byte[], byte[]> values = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      values.putAll(row.getColumns());
+      values.remove(column);
+      return new Result(row.getRow(), values);
     }
 
     @Override
@@ -680,8 +999,8 @@ public class IndexedTable extends AbstractDataset implements Table {
   private class IndexScanner extends AbstractIndexScanner {
     private final byte[] value;
 
-    IndexScanner(Scanner baseScanner, byte[] column, byte[] value) {
-      super(baseScanner, column);
+    IndexScanner(Scanner baseScanner, byte[] column, @Nullable byte[][] columns, byte[] value) {
+      super(baseScanner, column, columns);
       this.value = value;
     }
 
@@ -696,8 +1015,9 @@ public class IndexedTable extends AbstractDataset implements Table {
     private final byte[] start;
     private final byte[] end;
 
-    IndexRangeScanner(Scanner baseScanner, byte[] column, @Nullable byte[] start, @Nullable byte[] end) {
-      super(baseScanner, column);
+    IndexRangeScanner(Scanner baseScanner, byte[] column, @Nullable byte[][] columns,
+                      @Nullable byte[] start, @Nullable byte[] end) {
+      super(baseScanner, column, columns);
       this.start = start;
       this.end = end;
     }
@@ -30,6 +30,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import javax.annotation.Nullable;
 
 /**
  * DatasetDefinition for {@link IndexedTable}.
@@ -74,6 +75,14 @@ public class IndexedTableDefinition
                                                             oldColumnsToIndex, columnNamesToIndex));
       }
     }
+
+    // the existing index rows would not have the values of newly covered columns
+    String columnNamesToCover = newProperties.getProperties().get(IndexedTable.INDEX_COVERED_COLUMNS_CONF_KEY);
+    String oldColumnsToCover = currentSpec.getProperty(IndexedTable.INDEX_COVERED_COLUMNS_CONF_KEY);
+    if (!parseOptionalColumns(columnNamesToCover).equals(parseOptionalColumns(oldColumnsToCover))) {
+      throw new IncompatibleUpdateException(String.format("Attempt to change columns to cover from '%s' to '%s'",
+                                                          oldColumnsToCover, columnNamesToCover));
+    }
     return super.reconfigure(instanceName, newProperties, currentSpec);
   }
 
@@ -82,11 +91,13 @@ public class IndexedTableDefinition
                                  Map<String, String> arguments, ClassLoader classLoader) throws IOException {
 
     SortedSet<byte[]> columnsToIndex = parseColumns(spec.getProperty(IndexedTable.INDEX_COLUMNS_CONF_KEY));
+    SortedSet<byte[]> columnsToCover =
+      parseOptionalColumns(spec.getProperty(IndexedTable.INDEX_COVERED_COLUMNS_CONF_KEY));
 
     Table table = getDataset(datasetContext, "d", spec, arguments, classLoader);
     Table index = getDataset(datasetContext, "i", spec, arguments, classLoader);
 
-    return new IndexedTable(spec.getName(), table, index, columnsToIndex);
+    return new IndexedTable(spec.getName(), table, index, columnsToIndex, columnsToCover);
   }
 
   /**
@@ -100,4 +111,14 @@ public class IndexedTableDefinition
     }
     return columnsToIndex;
   }
+
+  /**
+   * Helper method to parse an optional list of column names, comma-separated.
+   */
+  private SortedSet<byte[]> parseOptionalColumns(@Nullable String value) {
+    if (value == null || value.isEmpty()) {
+      return new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    }
+    return parseColumns(value);
+  }
 }
@@ -23,5 +23,11 @@ import co.cask.cdap.api.annotation.Beta;
 @Beta
 public enum MeasureType {
   COUNTER,
-  GAUGE
+  GAUGE,
+  /**
+   * Histogram buckets of a value distribution, stored together in a single cell per timestamp. The value of such a
+   * {@link Measurement} is a bucket index and a count packed into a long: the bucket index in the upper 16 bits and the
+   * count in the lower 48 bits. Counts of the same bucket are summed up.
+   */
+  DISTRIBUTION
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.dataset.table;
+
+import co.cask.cdap.api.annotation.Beta;
+import co.cask.cdap.api.common.Bytes;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Filter} that selects the rows of a {@link Scan} by the value of one column. Rows that don't have the
+ * column never match. The filter is evaluated by the storage when possible, so that rows that don't match are not
+ * returned to the client. Filters can be combined with {@link FilterList}.
+ */
+@Beta
+public final class ColumnValueFilter implements Filter {
+
+  /**
+   * The comparison done on the column value.
+   */
+  public enum Operator {
+    /**
+     * The value is equal to the given value.
+     */
+    EQUAL,
+
+    /**
+     * The value is within the given range, start inclusive and stop exclusive.
+     */
+    RANGE,
+
+    /**
+     * The value starts with the given prefix.
+     */
+    PREFIX
+  }
+
+  private final byte[] column;
+  private final Operator operator;
+  @Nullable
+  private final byte[] start;
+  @Nullable
+  private final byte[] stop;
+
+  private ColumnValueFilter(byte[] column, Operator operator, @Nullable byte[] start, @Nullable byte[] stop) {
+    if (column == null) {
+      throw new IllegalArgumentException("Column must not be null");
+    }
+    this.column = column;
+    this.operator = operator;
+    this.start = start;
+    this.stop = stop;
+  }
+
+  /**
+   * Creates a filter that matches rows where the given column has the given value.
+   */
+  public static ColumnValueFilter equalTo(byte[] column, byte[] value) {
+    if (value == null) {
+      throw new IllegalArgumentException("Value must not be null");
+    }
+    return new ColumnValueFilter(column, Operator.EQUAL, value, null);
+  }
+
+  /**
+   * Creates a filter that matches rows where the value of the given column is within the given range.
+   *
+   * @param column the column to filter on
+   * @param start the smallest value, inclusive; {@code null} means no lower bound
+   * @param stop the largest value, exclusive; {@code null} means no upper bound
+   */
+  public static ColumnValueFilter range(byte[] column, @Nullable byte[] start, @Nullable byte[] stop) {
+    return new ColumnValueFilter(column, Operator.RANGE, start, stop);
+  }
+
+  /**
+   * Creates a filter that matches rows where the value of the given column starts with the given prefix.
+   */
+  public static ColumnValueFilter prefix(byte[] column, byte[] prefix) {
+    if (prefix == null) {
+      throw new IllegalArgumentException("Prefix must not be null");
+    }
+    return new ColumnValueFilter(column, Operator.PREFIX, prefix, null);
+  }
+
+  public byte[] getColumn() {
+    return column;
+  }
+
+  public Operator getOperator() {
+    return operator;
+  }
+
+  /**
+   * @return the value for {@link Operator#EQUAL}, the prefix for {@link Operator#PREFIX} or the start of the range
+   *         for {@link Operator#RANGE}
+   */
+  @Nullable
+  public byte[] getStart() {
+    return start;
+  }
+
+  /**
+   * @return the stop of the range for {@link Operator#RANGE}; {@code null} for other operators
+   */
+  @Nullable
+  public byte[] getStop() {
+    return stop;
+  }
+
+  /**
+   * Evaluates this filter on the value of the column.
+   *
+   * @param value the value of the column, or {@code null} if the row does not have the column
+   * @return {@code true} if the value matches this filter
+   */
+  public boolean matches(@Nullable byte[] value) {
+    if (value == null) {
+      return false;
+    }
+    switch (operator) {
+      case EQUAL:
+        return Bytes.equals(value, start);
+      case PREFIX:
+        return Bytes.startsWith(value, start);
+      case RANGE:
+        return (start == null || Bytes.compareTo(value, start) >= 0)
+          && (stop == null || Bytes.compareTo(value, stop) < 0);
+      default:
+        throw new IllegalStateException("Unknown operator " + operator);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnValueFilter{" +
+      "column=" + Bytes.toStringBinary(column) +
+      ", operator=" + operator +
+      ", start=" + Bytes.toStringBinary(start) +
+      ", stop=" + Bytes.toStringBinary(stop) +
+      '}';
+  }
+}
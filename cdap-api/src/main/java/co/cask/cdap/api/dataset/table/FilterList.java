@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.dataset.table;
+
+import co.cask.cdap.api.annotation.Beta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link Filter} that combines other filters, either requiring all of them to match or at least one of them.
+ * The filters in the list can be {@link ColumnValueFilter}s or other {@link FilterList}s.
+ */
+@Beta
+public final class FilterList implements Filter {
+
+  /**
+   * How the filters in the list are combined.
+   */
+  public enum Operator {
+    /**
+     * A row matches if it matches all filters in the list.
+     */
+    MUST_PASS_ALL,
+
+    /**
+     * A row matches if it matches at least one filter in the list.
+     */
+    MUST_PASS_ONE
+  }
+
+  private final Operator operator;
+  private final List<Filter> filters;
+
+  public FilterList(Operator operator, Filter... filters) {
+    this(operator, Arrays.asList(filters));
+  }
+
+  public FilterList(Operator operator, List<? extends Filter> filters) {
+    if (filters.isEmpty()) {
+      throw new IllegalArgumentException("The list of filters must not be empty");
+    }
+    for (Filter filter : filters) {
+      if (!(filter instanceof ColumnValueFilter || filter instanceof FilterList)) {
+        throw new IllegalArgumentException("Unsupported filter in list: " + filter);
+      }
+    }
+    this.operator = operator;
+    this.filters = Collections.unmodifiableList(new ArrayList<>(filters));
+  }
+
+  public Operator getOperator() {
+    return operator;
+  }
+
+  public List<Filter> getFilters() {
+    return filters;
+  }
+
+  @Override
+  public String toString() {
+    return "FilterList{" +
+      "operator=" + operator +
+      ", filters=" + filters +
+      '}';
+  }
+}
@@ -19,6 +19,7 @@ package co.cask.cdap.api.dataset.table;
 import co.cask.cdap.api.annotation.Beta;
 import co.cask.cdap.api.common.Bytes;
 
+import java.util.Arrays;
 import javax.annotation.Nullable;
 
 /**
@@ -32,6 +33,10 @@ public class Scan {
   private final byte[] stopRow;
   @Nullable
   private final Filter filter;
+  @Nullable
+  private final byte[][] columns;
+  @Nullable
+  private final byte[] columnPrefix;
 
   /**
    * Creates {@link Scan} for a given start and stop row keys.
@@ -49,9 +54,43 @@ public class Scan {
    * @param filter filter to be used on scan
    */
   public Scan(@Nullable byte[] startRow, @Nullable byte[] stopRow, @Nullable Filter filter) {
+    this(startRow, stopRow, filter, null, null);
+  }
+
+  private Scan(@Nullable byte[] startRow, @Nullable byte[] stopRow, @Nullable Filter filter,
+               @Nullable byte[][] columns, @Nullable byte[] columnPrefix) {
     this.startRow = startRow;
     this.stopRow = stopRow;
     this.filter = filter;
+    this.columns = columns;
+    this.columnPrefix = columnPrefix;
+  }
+
+  /**
+   * Creates a copy of this {@link Scan} that only returns the given columns of each row. Rows that have none of
+   * the columns are not returned. Columns used by the filter need not be in the returned columns, since the filter
+   * is always evaluated on the stored row.
+   *
+   * @param columns the columns to return, at least one
+   * @return a new {@link Scan} with the column projection
+   */
+  public Scan withColumns(byte[]... columns) {
+    if (columns.length == 0) {
+      throw new IllegalArgumentException("At least one column must be given");
+    }
+    return new Scan(startRow, stopRow, filter, Arrays.copyOf(columns, columns.length), columnPrefix);
+  }
+
+  /**
+   * Creates a copy of this {@link Scan} that only returns the columns starting with the given prefix. Rows that
+   * have no such column are not returned. If combined with {@link #withColumns(byte[]...)}, only the given columns
+   * that start with the prefix are returned.
+   *
+   * @param columnPrefix the prefix of the columns to return
+   * @return a new {@link Scan} with the column prefix projection
+   */
+  public Scan withColumnPrefix(byte[] columnPrefix) {
+    return new Scan(startRow, stopRow, filter, columns, columnPrefix);
   }
 
   @Nullable
@@ -69,12 +108,41 @@ public class Scan {
     return filter;
   }
 
+  /**
+   * @return the columns to return, or {@code null} if the scan is not limited to a set of columns
+   */
+  @Nullable
+  public byte[][] getColumns() {
+    return columns;
+  }
+
+  /**
+   * @return the prefix of the columns to return, or {@code null} if the scan is not limited to a column prefix
+   */
+  @Nullable
+  public byte[] getColumnPrefix() {
+    return columnPrefix;
+  }
+
   @Override
   public String toString() {
     return "Scan{" +
       "startRow=" + Bytes.toStringBinary(startRow) +
       ", stopRow=" + Bytes.toStringBinary(stopRow) +
       ", filter=" + filter +
+      (columns == null ? "" : ", columns=" + toStringBinary(columns)) +
+      (columnPrefix == null ? "" : ", columnPrefix=" + Bytes.toStringBinary(columnPrefix)) +
       '}';
   }
+
+  private static String toStringBinary(byte[][] columns) {
+    StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        builder.append(", ");
+      }
+      builder.append(Bytes.toStringBinary(columns[i]));
+    }
+    return builder.append(']').toString();
+  }
 }
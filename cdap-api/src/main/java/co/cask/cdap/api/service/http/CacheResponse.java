@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.service.http;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotates a {@code GET} handler method of a {@link HttpServiceHandler} to have its successful responses cached
+ * in memory by each instance of the service. While a response is cached, requests from the same user with the same
+ * path, query string and values of the {@link #varyHeaders() vary headers} are answered from the cache, without
+ * calling the handler method and without starting a transaction. Cached responses are never shared between users.
+ * Cached responses carry an {@code ETag} header, and a request with a matching {@code If-None-Match} header is
+ * answered with {@code 304 Not Modified}.
+ * <p>
+ * Only responses with status {@code 200} that are not produced by a {@link HttpContentProducer} are cached.
+ * Cached responses can be invalidated through {@link HttpServiceContext#invalidateResponseCache(String)}.
+ * Since each service instance has its own cache, an invalidation only affects the instance it is called on,
+ * and other instances can serve a stale response for up to {@link #maxAgeSeconds()}.
+ *
+ * <pre><code>
+ * {@literal @}GET
+ * {@literal @}Path("/users/{id}")
+ * {@literal @}CacheResponse(maxAgeSeconds = 60)
+ * public void getUser(HttpServiceRequest request, HttpServiceResponder responder,
+ *                     {@literal @}PathParam("id") String id) {
+ *   ...
+ * }
+ * </code></pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheResponse {
+
+  /**
+   * Maximum number of seconds a response is cached.
+   */
+  int maxAgeSeconds();
+
+  /**
+   * Names of the request headers whose values are part of the cache key, in addition to the user, the request path
+   * and the query string.
+   */
+  String[] varyHeaders() default { };
+}
@@ -46,4 +46,14 @@ public interface HttpServiceContext extends RuntimeContext, DatasetContext, Serv
    * @return instance id of this handler.
    */
   int getInstanceId();
+
+  /**
+   * Invalidates the responses of this handler cached by this instance of the service for methods annotated with
+   * {@link CacheResponse}.
+   *
+   * @param pathPrefix only responses for request paths that start with this prefix are invalidated. The path is
+   *                   relative to the service, the same as the handler method {@code @Path}. An empty string
+   *                   invalidates all cached responses of this handler.
+   */
+  void invalidateResponseCache(String pathPrefix);
 }
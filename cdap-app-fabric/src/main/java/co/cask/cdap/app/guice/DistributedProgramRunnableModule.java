@@ -96,7 +96,7 @@ public class DistributedProgramRunnableModule {
     return Modules.override(combined).with(new AbstractModule() {
       @Override
       protected void configure() {
-        bind(LineageWriter.class).to(RemoteLineageWriter.class);
+        bind(LineageWriter.class).to(RemoteLineageWriter.class).in(Scopes.SINGLETON);
         bind(RuntimeUsageRegistry.class).to(RemoteRuntimeUsageRegistry.class).in(Scopes.SINGLETON);
       }
     });
@@ -37,6 +37,15 @@ public interface PreviewStore {
    */
   void put(ApplicationId applicationId, String tracerName, String propertyName, Object value);
 
+  /**
+   * Add a batch of preview data in a single write. The properties are stored in the order of the list.
+   *
+   * @param applicationId the id of the program which is logging the preview data
+   * @param tracerName the name of the logger used to put the preview data
+   * @param properties the list of property name and value pairs to be added
+   */
+  void putAll(ApplicationId applicationId, String tracerName, List<? extends Map.Entry<String, ?>> properties);
+
   /**
    * Get the preview data associated with the given application id.
    *
@@ -16,19 +16,29 @@
 
 package co.cask.cdap.gateway.handlers.meta;
 
+import co.cask.cdap.common.BadRequestException;
 import co.cask.cdap.common.internal.remote.MethodArgument;
 import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.data2.metadata.lineage.DataAccess;
+import co.cask.cdap.data2.metadata.lineage.LineageStoreWriter;
 import co.cask.cdap.data2.metadata.writer.LineageWriter;
+import co.cask.cdap.proto.codec.EntityIdTypeAdapter;
 import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.NamespacedEntityId;
 import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.cdap.proto.id.StreamId;
 import co.cask.http.HttpResponder;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 
+import java.lang.reflect.Type;
 import java.util.Iterator;
+import java.util.List;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 
@@ -38,11 +48,19 @@ import javax.ws.rs.Path;
 @Path(AbstractRemoteSystemOpsHandler.VERSION + "/execute")
 public class RemoteLineageWriterHandler extends AbstractRemoteSystemOpsHandler {
 
+  private static final Gson GSON = new GsonBuilder()
+    .registerTypeAdapter(EntityId.class, new EntityIdTypeAdapter())
+    .registerTypeAdapter(NamespacedEntityId.class, new EntityIdTypeAdapter())
+    .create();
+  private static final Type DATA_ACCESS_LIST_TYPE = new TypeToken<List<DataAccess>>() { }.getType();
+
   private final LineageWriter lineageWriter;
+  private final LineageStoreWriter lineageStoreWriter;
 
   @Inject
-  RemoteLineageWriterHandler(LineageWriter lineageWriter) {
+  RemoteLineageWriterHandler(LineageWriter lineageWriter, LineageStoreWriter lineageStoreWriter) {
     this.lineageWriter = lineageWriter;
+    this.lineageStoreWriter = lineageStoreWriter;
   }
 
   @POST
@@ -72,4 +90,22 @@ public class RemoteLineageWriterHandler extends AbstractRemoteSystemOpsHandler {
 
     responder.sendStatus(HttpResponseStatus.OK);
   }
+
+  @POST
+  @Path("/addAccesses")
+  public void addAccesses(HttpRequest request, HttpResponder responder) throws Exception {
+    Iterator<MethodArgument> arguments = parseArguments(request);
+
+    // The accesses already carry the access time and are deduplicated by the caller, hence written directly
+    String accessesJson = deserializeNext(arguments);
+    List<DataAccess> accesses = GSON.fromJson(accessesJson, DATA_ACCESS_LIST_TYPE);
+    for (DataAccess access : accesses) {
+      if (!(access.getData() instanceof DatasetId) && !(access.getData() instanceof StreamId)) {
+        throw new BadRequestException("Data accessed must be either a dataset or a stream: " + access.getData());
+      }
+    }
+    lineageStoreWriter.addAccesses(accesses);
+
+    responder.sendStatus(HttpResponseStatus.OK);
+  }
 }
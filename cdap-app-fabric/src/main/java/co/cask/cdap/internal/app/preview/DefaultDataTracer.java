@@ -15,28 +15,92 @@
  */
 package co.cask.cdap.internal.app.preview;
 
+import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.preview.DataTracer;
 import co.cask.cdap.app.store.preview.PreviewStore;
+import co.cask.cdap.internal.io.SchemaTypeAdapter;
 import co.cask.cdap.proto.id.ApplicationId;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.concurrent.ThreadSafe;
 
 /**
- * Default implementation of {@link DataTracer}, the data are preserved using {@link PreviewStore}
+ * Default implementation of {@link DataTracer}, the data are preserved using {@link PreviewStore}.
+ * <p/>
+ * Traced values are serialized when they are traced and buffered in memory. A full buffer is written to the
+ * {@link PreviewStore} as one batch by the given {@link Executor}, which must run the writes in submission order.
+ * The tracer stops capturing once it has traced the maximum number of records.
  */
+@ThreadSafe
 class DefaultDataTracer implements DataTracer {
 
+  private static final Logger LOG = LoggerFactory.getLogger(DefaultDataTracer.class);
+  private static final Gson GSON = new GsonBuilder()
+    .registerTypeAdapter(Schema.class, new SchemaTypeAdapter()).create();
+
   private final String tracerName;
   private final ApplicationId applicationId;
   private final PreviewStore previewStore;
+  private final int maxRecords;
+  private final int batchSize;
+  private final Executor writeExecutor;
+  private final AtomicInteger records;
+  private List<Map.Entry<String, JsonElement>> buffer;
 
-  DefaultDataTracer(ApplicationId applicationId, String tracerName, PreviewStore previewStore) {
+  DefaultDataTracer(ApplicationId applicationId, String tracerName, PreviewStore previewStore,
+                    int maxRecords, int batchSize, Executor writeExecutor) {
     this.tracerName = tracerName;
     this.applicationId = applicationId;
     this.previewStore = previewStore;
+    this.maxRecords = maxRecords;
+    this.batchSize = Math.max(1, batchSize);
+    this.writeExecutor = writeExecutor;
+    this.records = new AtomicInteger();
+    this.buffer = new ArrayList<>();
   }
 
   @Override
   public void info(String propertyName, Object propertyValue) {
-    previewStore.put(applicationId, tracerName, propertyName, propertyValue);
+    // Check before increment so that the counter stays close to the limit once it is reached
+    if (records.get() >= maxRecords || records.incrementAndGet() > maxRecords) {
+      return;
+    }
+
+    // Serialize now, since the value can be modified by the caller after this method returns
+    Map.Entry<String, JsonElement> entry = Maps.immutableEntry(propertyName, GSON.toJsonTree(propertyValue));
+    final List<Map.Entry<String, JsonElement>> batch;
+    synchronized (this) {
+      buffer.add(entry);
+      if (buffer.size() < batchSize) {
+        return;
+      }
+      batch = buffer;
+      buffer = new ArrayList<>();
+    }
+
+    try {
+      writeExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          write(batch);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // The executor is shutdown, write it in the caller thread instead
+      write(batch);
+    }
   }
 
   @Override
@@ -46,6 +110,32 @@ class DefaultDataTracer implements DataTracer {
 
   @Override
   public boolean isEnabled() {
-    return true;
+    return records.get() < maxRecords;
+  }
+
+  /**
+   * Writes the buffered records to the {@link PreviewStore}. This method must be called from the write executor
+   * in order to preserve the order of the records.
+   */
+  void flush() {
+    List<Map.Entry<String, JsonElement>> batch;
+    synchronized (this) {
+      if (buffer.isEmpty()) {
+        return;
+      }
+      batch = buffer;
+      buffer = new ArrayList<>();
+    }
+    write(batch);
+  }
+
+  private void write(List<Map.Entry<String, JsonElement>> batch) {
+    try {
+      previewStore.putAll(applicationId, tracerName, Collections.unmodifiableList(batch));
+    } catch (Exception e) {
+      // Preview data is best effort, don't fail the program because of it
+      LOG.warn("Failed to write {} records of tracer '{}' for preview '{}'",
+               batch.size(), tracerName, applicationId, e);
+    }
   }
 }
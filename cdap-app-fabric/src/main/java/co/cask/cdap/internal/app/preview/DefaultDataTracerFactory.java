@@ -18,23 +18,133 @@ package co.cask.cdap.internal.app.preview;
 import co.cask.cdap.api.preview.DataTracer;
 import co.cask.cdap.app.preview.DataTracerFactory;
 import co.cask.cdap.app.store.preview.PreviewStore;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.proto.id.ApplicationId;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Table;
 import com.google.inject.Inject;
+import org.apache.twill.common.Threads;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Default implementation of {@link DataTracerFactory}
+ * Default implementation of {@link DataTracerFactory}. Tracers with the same name share the same buffer and record
+ * limit. Buffered records are written to the {@link PreviewStore} by a single background thread, either when a
+ * tracer buffer is full or periodically.
  */
-public class DefaultDataTracerFactory implements DataTracerFactory {
+public class DefaultDataTracerFactory implements DataTracerFactory, Flushable, Closeable {
 
   private final PreviewStore previewStore;
+  private final int maxRecords;
+  private final int batchSize;
+  private final long flushIntervalMillis;
+  private final Table<ApplicationId, String, DefaultDataTracer> tracers;
+  private final Runnable flushTask;
+  private ScheduledExecutorService executor;
+  private boolean closed;
 
   @Inject
-  public DefaultDataTracerFactory(PreviewStore previewStore) {
+  public DefaultDataTracerFactory(CConfiguration cConf, PreviewStore previewStore) {
+    this(previewStore, cConf.getInt(Constants.Preview.TRACER_MAX_RECORDS),
+         cConf.getInt(Constants.Preview.TRACER_BATCH_SIZE), cConf.getLong(Constants.Preview.TRACER_FLUSH_INTERVAL_MS));
+  }
+
+  @VisibleForTesting
+  DefaultDataTracerFactory(PreviewStore previewStore, int maxRecords, int batchSize, long flushIntervalMillis) {
     this.previewStore = previewStore;
+    this.maxRecords = maxRecords;
+    this.batchSize = batchSize;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.tracers = HashBasedTable.create();
+    this.flushTask = new Runnable() {
+      @Override
+      public void run() {
+        for (DefaultDataTracer tracer : getTracers()) {
+          tracer.flush();
+        }
+      }
+    };
   }
 
   @Override
-  public DataTracer getDataTracer(ApplicationId applicationId, String tracerName) {
-    return new DefaultDataTracer(applicationId, tracerName, previewStore);
+  public synchronized DataTracer getDataTracer(ApplicationId applicationId, String tracerName) {
+    DefaultDataTracer tracer = tracers.get(applicationId, tracerName);
+    if (tracer == null) {
+      // Once closed, records are written by the tracing thread
+      Executor writeExecutor = closed ? Threads.SAME_THREAD_EXECUTOR : getExecutor();
+      tracer = new DefaultDataTracer(applicationId, tracerName, previewStore, maxRecords, batchSize, writeExecutor);
+      tracers.put(applicationId, tracerName, tracer);
+    }
+    return tracer;
+  }
+
+  /**
+   * Writes the records buffered by all tracers to the {@link PreviewStore}, and waits for the writes to complete.
+   */
+  @Override
+  public void flush() throws IOException {
+    ScheduledExecutorService executor;
+    synchronized (this) {
+      if (closed) {
+        flushTask.run();
+        return;
+      }
+      executor = getExecutor();
+    }
+    try {
+      executor.submit(flushTask).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while flushing preview data");
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to flush preview data", e.getCause());
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    ScheduledExecutorService executor;
+    synchronized (this) {
+      closed = true;
+      executor = this.executor;
+      this.executor = null;
+    }
+    if (executor == null) {
+      return;
+    }
+    // Writes submitted before close are executed before the final flush
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushTask.run();
+  }
+
+  private synchronized List<DefaultDataTracer> getTracers() {
+    return ImmutableList.copyOf(tracers.values());
+  }
+
+  private synchronized ScheduledExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newSingleThreadScheduledExecutor(Threads.createDaemonThreadFactory("preview-tracer"));
+      if (flushIntervalMillis > 0) {
+        executor.scheduleWithFixedDelay(flushTask, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+      }
+    }
+    return executor;
   }
 }
@@ -48,6 +48,7 @@ import co.cask.cdap.proto.id.ApplicationId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.ProgramRunId;
+import com.google.common.io.Closeables;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.Service;
@@ -58,6 +59,9 @@ import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -177,6 +181,7 @@ public class DefaultPreviewRunner extends AbstractIdleService implements Preview
 
       @Override
       public void completed() {
+        flushDataTracers();
         setStatus(new PreviewStatus(PreviewStatus.Status.COMPLETED, null, status.getStartTime(),
                                     System.currentTimeMillis()));
         shutDownUnrequiredServices();
@@ -184,6 +189,7 @@ public class DefaultPreviewRunner extends AbstractIdleService implements Preview
 
       @Override
       public void killed() {
+        flushDataTracers();
         if (!killedByTimer) {
           setStatus(new PreviewStatus(PreviewStatus.Status.KILLED, null, status.getStartTime(),
                                       System.currentTimeMillis()));
@@ -196,6 +202,7 @@ public class DefaultPreviewRunner extends AbstractIdleService implements Preview
 
       @Override
       public void error(Throwable cause) {
+        flushDataTracers();
         setStatus(new PreviewStatus(PreviewStatus.Status.RUN_FAILED, new BasicThrowable(cause), status.getStartTime(),
                                     System.currentTimeMillis()));
         shutDownUnrequiredServices();
@@ -204,6 +211,20 @@ public class DefaultPreviewRunner extends AbstractIdleService implements Preview
     runId = controller.getProgramRunId();
   }
 
+  /**
+   * Writes the data buffered by the tracers to the {@link PreviewStore}, so that it is available once the status
+   * of the preview changes to a terminal state.
+   */
+  private void flushDataTracers() {
+    if (dataTracerFactory instanceof Flushable) {
+      try {
+        ((Flushable) dataTracerFactory).flush();
+      } catch (IOException e) {
+        LOG.warn("Failed to flush the preview data for program {}", programId, e);
+      }
+    }
+  }
+
   private void setStatus(PreviewStatus status) {
     this.status = status;
   }
@@ -269,6 +290,9 @@ public class DefaultPreviewRunner extends AbstractIdleService implements Preview
   @Override
   protected void shutDown() throws Exception {
     shutDownUnrequiredServices();
+    if (dataTracerFactory instanceof Closeable) {
+      Closeables.closeQuietly((Closeable) dataTracerFactory);
+    }
     datasetService.stopAndWait();
     if (messagingService instanceof Service) {
       ((Service) messagingService).stopAndWait();
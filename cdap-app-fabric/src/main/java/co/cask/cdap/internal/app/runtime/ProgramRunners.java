@@ -22,6 +22,8 @@ import co.cask.cdap.app.runtime.ProgramOptions;
 import co.cask.cdap.app.runtime.ProgramRunner;
 import co.cask.cdap.common.app.RunIds;
 import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.data2.metadata.writer.LineageWriter;
+import co.cask.cdap.proto.id.ProgramId;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.io.ByteStreams;
@@ -31,9 +33,11 @@ import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.twill.api.RunId;
 import org.apache.twill.filesystem.Location;
 import org.slf4j.ILoggerFactory;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -49,6 +53,26 @@ import javax.annotation.Nullable;
  */
 public final class ProgramRunners {
 
+  private static final Logger LOG = LoggerFactory.getLogger(ProgramRunners.class);
+
+  /**
+   * Writes all lineage accesses buffered by the given {@link LineageWriter}. It should be called when a program run
+   * completes, before the run is recorded as stopped, so that the lineage of a stopped run is complete.
+   *
+   * @param lineageWriter the {@link LineageWriter} to flush
+   * @param programId the program that completed
+   * @param runId the run id of the program run that completed
+   */
+  public static void flushLineage(LineageWriter lineageWriter, ProgramId programId, String runId) {
+    if (lineageWriter instanceof Flushable) {
+      try {
+        ((Flushable) lineageWriter).flush();
+      } catch (IOException e) {
+        LOG.warn("Failed to write lineage accesses for program {} with run id {}", programId, runId, e);
+      }
+    }
+  }
+
   /**
    * Impersonates as the given user to start a guava service
    *
@@ -21,10 +21,7 @@ import co.cask.cdap.app.runtime.ProgramClassLoaderProvider;
 import co.cask.cdap.app.runtime.ProgramRunner;
 import co.cask.cdap.app.runtime.ProgramRunnerFactory;
 import co.cask.cdap.common.conf.CConfiguration;
-import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.lang.FilterClassLoader;
-import co.cask.cdap.common.lang.jar.BundleJarUtil;
-import co.cask.cdap.common.utils.DirUtils;
 import co.cask.cdap.internal.app.runtime.ProgramClassLoader;
 import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.security.impersonation.EntityImpersonator;
@@ -40,21 +37,40 @@ import java.io.IOException;
 import java.util.concurrent.Callable;
 
 /**
- * Given an artifact, creates a {@link CloseableClassLoader} from it. Takes care of unpacking the artifact and
- * cleaning up the directory when the classloader is closed.
+ * Given an artifact, creates a {@link CloseableClassLoader} from it. Takes care of unpacking the artifact through
+ * the {@link ArtifactUnpackCache} and releasing the directory when the classloader is closed.
  */
-final class ArtifactClassLoaderFactory {
+final class ArtifactClassLoaderFactory implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(ArtifactClassLoaderFactory.class);
 
   private final CConfiguration cConf;
   private final ProgramRunnerFactory programRunnerFactory;
-  private final File tmpDir;
+  private final ArtifactUnpackCache unpackCache;
 
   ArtifactClassLoaderFactory(CConfiguration cConf, ProgramRunnerFactory programRunnerFactory) {
+    this(cConf, programRunnerFactory, new ArtifactUnpackCache(cConf));
+  }
+
+  ArtifactClassLoaderFactory(CConfiguration cConf, ProgramRunnerFactory programRunnerFactory,
+                             ArtifactUnpackCache unpackCache) {
     this.cConf = cConf;
     this.programRunnerFactory = programRunnerFactory;
-    this.tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
-                           cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
+    this.unpackCache = unpackCache;
+  }
+
+  /**
+   * Returns the {@link ArtifactUnpackCache} used for expanding artifacts.
+   */
+  ArtifactUnpackCache getUnpackCache() {
+    return unpackCache;
+  }
+
+  /**
+   * Closes the {@link ArtifactUnpackCache}, which deletes all the expanded artifacts.
+   */
+  @Override
+  public void close() {
+    unpackCache.close();
   }
 
   /**
@@ -103,35 +119,39 @@ final class ArtifactClassLoaderFactory {
   }
 
   /**
-   * Unpack the given {@code artifactLocation} to a temporary directory and call
-   * {@link #createClassLoader(File)} to create the {@link ClassLoader}.
+   * Acquire the expanded directory of the given {@code artifactLocation} from the {@link ArtifactUnpackCache} and call
+   * {@link #createClassLoader(File)} to create the {@link ClassLoader}. Class loaders of the same artifact share
+   * the same expanded directory.
    *
    * @param artifactLocation the location of the artifact to create the classloader from
    * @return a closeable classloader based off the specified artifact; on closing the returned {@link ClassLoader},
-   *         all temporary resources created for the classloader will be removed
+   *         the expanded directory will be released to the cache
    * @throws IOException if there was an error copying or unpacking the artifact
    * @see #createClassLoader(File)
    */
   CloseableClassLoader createClassLoader(final Location artifactLocation,
                                          EntityImpersonator entityImpersonator) throws IOException {
     try {
-      final File unpackDir = entityImpersonator.impersonate(new Callable<File>() {
-        @Override
-        public File call() throws IOException {
-          return BundleJarUtil.unJar(artifactLocation, DirUtils.createTempDir(tmpDir));
-        }
-      });
+      final ArtifactUnpackCache.Entry unpackEntry = entityImpersonator.impersonate(
+        new Callable<ArtifactUnpackCache.Entry>() {
+          @Override
+          public ArtifactUnpackCache.Entry call() throws IOException {
+            return unpackCache.acquire(artifactLocation);
+          }
+        });
 
-      final CloseableClassLoader classLoader = createClassLoader(unpackDir);
+      final CloseableClassLoader classLoader;
+      try {
+        classLoader = createClassLoader(unpackEntry.getDirectory());
+      } catch (IOException | RuntimeException e) {
+        unpackEntry.close();
+        throw e;
+      }
       return new CloseableClassLoader(classLoader, new Closeable() {
         @Override
-        public void close() throws IOException {
-          try {
-            Closeables.closeQuietly(classLoader);
-            DirUtils.deleteDirectoryContents(unpackDir);
-          } catch (IOException e) {
-            LOG.warn("Failed to delete directory {}", unpackDir, e);
-          }
+        public void close() {
+          Closeables.closeQuietly(classLoader);
+          unpackEntry.close();
         }
       });
     } catch (Exception e) {
@@ -42,15 +42,12 @@ import co.cask.cdap.common.utils.DirUtils;
 import co.cask.cdap.internal.app.runtime.plugin.PluginInstantiator;
 import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
 import co.cask.cdap.proto.Id;
-import com.google.common.base.Function;
-import com.google.common.base.Predicate;
-import com.google.common.base.Throwables;
-import com.google.common.collect.AbstractIterator;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterators;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Primitives;
 import com.google.common.reflect.TypeToken;
+import org.apache.twill.common.Threads;
 import org.apache.twill.filesystem.Location;
 import org.objectweb.asm.AnnotationVisitor;
 import org.objectweb.asm.ClassReader;
@@ -75,10 +72,13 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -91,14 +91,33 @@ import javax.annotation.Nullable;
 final class ArtifactInspector {
   private static final Logger LOG = LoggerFactory.getLogger(ArtifactInspector.class);
 
+  // Maximum number of inspection results remembered
+  private static final int MAX_INSPECTED_ARTIFACTS = 100;
+  // Minimum number of class files in a package for scanning them for plugins in parallel
+  private static final int MIN_PARALLEL_SCAN_CLASSES = 64;
+
   private final CConfiguration cConf;
   private final ArtifactClassLoaderFactory artifactClassLoaderFactory;
   private final ReflectionSchemaGenerator schemaGenerator;
+  // Inspection results keyed by the content hash of the artifact and its parent artifact
+  private final Cache<String, ArtifactClasses> inspectedArtifacts;
 
   ArtifactInspector(CConfiguration cConf, ArtifactClassLoaderFactory artifactClassLoaderFactory) {
     this.cConf = cConf;
     this.artifactClassLoaderFactory = artifactClassLoaderFactory;
     this.schemaGenerator = new ReflectionSchemaGenerator(false);
+    this.inspectedArtifacts = CacheBuilder.newBuilder().maximumSize(MAX_INSPECTED_ARTIFACTS).build();
+  }
+
+  /**
+   * Inspect the given artifact to determine the classes contained in the artifact. Same as calling
+   * {@link #inspectArtifact(Id.Artifact, File, ClassLoader, Location)} without the location of the parent artifact,
+   * hence the result is only reused if there is no parent classloader.
+   */
+  ArtifactClasses inspectArtifact(Id.Artifact artifactId, File artifactFile,
+                                  @Nullable ClassLoader parentClassLoader) throws IOException,
+                                                                                  InvalidArtifactException {
+    return inspectArtifact(artifactId, artifactFile, parentClassLoader, null);
   }
 
   /**
@@ -108,12 +127,40 @@ final class ArtifactInspector {
    * @param artifactFile the artifact file
    * @param parentClassLoader the parent classloader to use when inspecting plugins contained in the artifact.
    *                          For example, a ProgramClassLoader created from the artifact the input artifact extends
+   * @param parentLocation the location of the artifact that the parent classloader is created from. Inspection
+   *                       results are remembered by the content of the artifact and its parent artifact, so that
+   *                       the same artifact is not inspected again. If it is {@code null} while there is a parent
+   *                       classloader, the result is not remembered
    * @return metadata about the classes contained in the artifact
    * @throws IOException if there was an exception opening the jar file
    * @throws InvalidArtifactException if the artifact is invalid. For example, if the application main class is not
    *                                  actually an Application.
    */
   ArtifactClasses inspectArtifact(Id.Artifact artifactId, File artifactFile,
+                                  @Nullable ClassLoader parentClassLoader,
+                                  @Nullable Location parentLocation) throws IOException, InvalidArtifactException {
+    String inspectionKey = null;
+    if (parentClassLoader == null || parentLocation != null) {
+      ArtifactUnpackCache unpackCache = artifactClassLoaderFactory.getUnpackCache();
+      inspectionKey = unpackCache.getHash(Locations.toLocation(artifactFile));
+      if (parentClassLoader != null) {
+        inspectionKey += "/" + unpackCache.getHash(parentLocation);
+      }
+      ArtifactClasses artifactClasses = inspectedArtifacts.getIfPresent(inspectionKey);
+      if (artifactClasses != null) {
+        LOG.debug("Reusing inspection result of artifact {} with the same content", artifactId);
+        return artifactClasses;
+      }
+    }
+
+    ArtifactClasses artifactClasses = inspect(artifactId, artifactFile, parentClassLoader);
+    if (inspectionKey != null) {
+      inspectedArtifacts.put(inspectionKey, artifactClasses);
+    }
+    return artifactClasses;
+  }
+
+  private ArtifactClasses inspect(Id.Artifact artifactId, File artifactFile,
                                   @Nullable ClassLoader parentClassLoader) throws IOException,
                                                                                   InvalidArtifactException {
     Path tmpDir = Paths.get(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
@@ -123,16 +170,16 @@ final class ArtifactInspector {
 
     Path stageDir = Files.createTempDirectory(tmpDir, artifactFile.getName());
     try {
-      File unpackedDir = BundleJarUtil.unJar(artifactLocation,
-                                             Files.createTempDirectory(stageDir, "unpacked-").toFile());
-
-      try (CloseableClassLoader artifactClassLoader = artifactClassLoaderFactory.createClassLoader(unpackedDir)) {
+      ArtifactUnpackCache unpackCache = artifactClassLoaderFactory.getUnpackCache();
+      try (ArtifactUnpackCache.Entry unpackEntry = unpackCache.acquire(artifactLocation);
+           CloseableClassLoader artifactClassLoader =
+             artifactClassLoaderFactory.createClassLoader(unpackEntry.getDirectory())) {
         ArtifactClasses.Builder builder = inspectApplications(artifactId, ArtifactClasses.builder(),
                                                               artifactLocation, artifactClassLoader);
 
         try (PluginInstantiator pluginInstantiator =
                new PluginInstantiator(cConf, parentClassLoader == null ? artifactClassLoader : parentClassLoader,
-                                      Files.createTempDirectory(stageDir, "plugins-").toFile())) {
+                                      Files.createTempDirectory(stageDir, "plugins-").toFile(), unpackCache)) {
           pluginInstantiator.addArtifact(artifactLocation, artifactId.toArtifactId());
           inspectPlugins(builder, artifactFile, artifactId.toArtifactId(), pluginInstantiator);
         }
@@ -232,7 +279,8 @@ final class ArtifactInspector {
 
     try {
       ClassLoader pluginClassLoader = pluginInstantiator.getArtifactClassLoader(artifactId);
-      for (Class<?> cls : getPluginClasses(exportPackages, pluginClassLoader)) {
+      for (String className : getPluginClassNames(exportPackages, pluginClassLoader)) {
+        Class<?> cls = pluginClassLoader.loadClass(className);
         Plugin pluginAnnotation = cls.getAnnotation(Plugin.class);
         if (pluginAnnotation == null) {
           continue;
@@ -269,77 +317,69 @@ final class ArtifactInspector {
   }
 
   /**
-   * Returns an {@link Iterable} of class name that are under the given list of package names that are loadable
-   * through the plugin ClassLoader.
+   * Returns the names of the classes annotated with {@link Plugin} that are under the given list of package names
+   * and are loadable through the plugin ClassLoader. Classes are inspected at the bytecode level without being
+   * loaded, in parallel if there are many of them.
    */
-  private Iterable<Class<?>> getPluginClasses(final Iterable<String> packages, final ClassLoader pluginClassLoader) {
-    return new Iterable<Class<?>>() {
-      @Override
-      public Iterator<Class<?>> iterator() {
-        final Iterator<String> packageIterator = packages.iterator();
+  private List<String> getPluginClassNames(Iterable<String> packages,
+                                           final ClassLoader pluginClassLoader) throws Exception {
+    List<String> classNames = new ArrayList<>();
+    for (String packageName : packages) {
+      // Gets all package resource URL for the given package
+      String resourceName = packageName.replace('.', File.separatorChar);
+      Enumeration<URL> resources = pluginClassLoader.getResources(resourceName);
+      // Go though all available resources and collect all class names.
+      while (resources.hasMoreElements()) {
+        URL packageResource = resources.nextElement();
+
+        // Only inspect classes in the top level jar file for Plugins.
+        // The jar manifest may have packages in Export-Package that are loadable from the bundled jar files,
+        // which is for classloading purpose. Those classes won't be inspected for plugin classes.
+        // There should be exactly one of resource that match, because it maps to a directory on the FS.
+        if (packageResource.getProtocol().equals("file")) {
+          for (String classFile : DirUtils.list(new File(packageResource.toURI()), "class")) {
+            classNames.add(getClassName(packageName, classFile));
+          }
+        }
+      }
+    }
 
-        return new AbstractIterator<Class<?>>() {
-          Iterator<String> classIterator = ImmutableList.<String>of().iterator();
-          String currentPackage;
+    int threads = Math.min(Runtime.getRuntime().availableProcessors(), classNames.size() / MIN_PARALLEL_SCAN_CLASSES);
+    if (threads <= 1) {
+      List<String> pluginClassNames = new ArrayList<>();
+      for (String className : classNames) {
+        if (isPlugin(className, pluginClassLoader)) {
+          pluginClassNames.add(className);
+        }
+      }
+      return pluginClassNames;
+    }
 
+    ExecutorService executor = Executors.newFixedThreadPool(
+      threads, Threads.createDaemonThreadFactory("artifact-inspector-%d"));
+    try {
+      List<Future<String>> futures = new ArrayList<>(classNames.size());
+      for (final String className : classNames) {
+        futures.add(executor.submit(new Callable<String>() {
           @Override
-          protected Class<?> computeNext() {
-            while (!classIterator.hasNext()) {
-              if (!packageIterator.hasNext()) {
-                return endOfData();
-              }
-              currentPackage = packageIterator.next();
-
-              try {
-                // Gets all package resource URL for the given package
-                String resourceName = currentPackage.replace('.', File.separatorChar);
-                Enumeration<URL> resources = pluginClassLoader.getResources(resourceName);
-                List<Iterator<String>> iterators = new ArrayList<>();
-                // Go though all available resources and collect all class names that are plugin classes.
-                while (resources.hasMoreElements()) {
-                  URL packageResource = resources.nextElement();
-
-                  // Only inspect classes in the top level jar file for Plugins.
-                  // The jar manifest may have packages in Export-Package that are loadable from the bundled jar files,
-                  // which is for classloading purpose. Those classes won't be inspected for plugin classes.
-                  // There should be exactly one of resource that match, because it maps to a directory on the FS.
-                  if (packageResource.getProtocol().equals("file")) {
-                    Iterator<String> classFiles = DirUtils.list(new File(packageResource.toURI()), "class").iterator();
-
-                    // Transform class file into class name and filter by @Plugin class only
-                    iterators.add(Iterators.filter(
-                      Iterators.transform(classFiles, new Function<String, String>() {
-                        @Override
-                        public String apply(String input) {
-                          return getClassName(currentPackage, input);
-                        }
-                      }), new Predicate<String>() {
-                        @Override
-                        public boolean apply(String className) {
-                          return isPlugin(className, pluginClassLoader);
-                        }
-                      }));
-                  }
-                }
-                if (!iterators.isEmpty()) {
-                  classIterator = Iterators.concat(iterators.iterator());
-                }
-              } catch (Exception e) {
-                // Cannot happen
-                throw Throwables.propagate(e);
-              }
-            }
-
-            try {
-              return pluginClassLoader.loadClass(classIterator.next());
-            } catch (ClassNotFoundException | NoClassDefFoundError e) {
-              // Cannot happen, since the class name is from the list of the class files under the classloader.
-              throw Throwables.propagate(e);
-            }
+          public String call() {
+            return isPlugin(className, pluginClassLoader) ? className : null;
           }
-        };
+        }));
       }
-    };
+
+      // Collect in the order of the class files
+      List<String> pluginClassNames = new ArrayList<>();
+      for (Future<String> future : futures) {
+        String className = future.get();
+        if (className != null) {
+          pluginClassNames.add(className);
+        }
+      }
+      return pluginClassNames;
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
   /**
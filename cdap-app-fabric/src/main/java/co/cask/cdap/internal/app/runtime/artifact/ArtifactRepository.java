@@ -70,6 +70,7 @@ import org.apache.twill.filesystem.Location;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -88,7 +89,7 @@ import javax.annotation.Nullable;
  * metadata for the artifact.
  */
 @Singleton
-public class ArtifactRepository {
+public class ArtifactRepository implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(ArtifactRepository.class);
   private final ArtifactStore artifactStore;
   private final ArtifactClassLoaderFactory artifactClassLoaderFactory;
@@ -142,6 +143,22 @@ public class ArtifactRepository {
     return artifactClassLoaderFactory.createClassLoader(artifactLocation, entityImpersonator);
   }
 
+  /**
+   * Returns the {@link ArtifactUnpackCache} shared by the artifact classloaders created by this repository.
+   */
+  public ArtifactUnpackCache getUnpackCache() {
+    return artifactClassLoaderFactory.getUnpackCache();
+  }
+
+  /**
+   * Deletes the artifacts expanded by this repository. It should be called when the process owning the repository
+   * shuts down.
+   */
+  @Override
+  public void close() {
+    artifactClassLoaderFactory.close();
+  }
+
   /**
    * Clear all artifacts in the given namespace. This method is only intended to be called by unit tests, and
    * when a namespace is being deleted.
@@ -511,14 +528,17 @@ public class ArtifactRepository {
 
     parentArtifacts = parentArtifacts == null ? Collections.<ArtifactRange>emptySet() : parentArtifacts;
     CloseableClassLoader parentClassLoader = null;
+    Location parentLocation = null;
     EntityImpersonator entityImpersonator = new EntityImpersonator(artifactId.toEntityId(),
                                                                    impersonator);
     if (!parentArtifacts.isEmpty()) {
       validateParentSet(artifactId, parentArtifacts);
-      parentClassLoader = createParentClassLoader(artifactId, parentArtifacts, entityImpersonator);
+      parentLocation = getParentLocation(artifactId, parentArtifacts);
+      parentClassLoader = createArtifactClassLoader(parentLocation, entityImpersonator);
     }
     try {
-      ArtifactClasses artifactClasses = inspectArtifact(artifactId, artifactFile, additionalPlugins, parentClassLoader);
+      ArtifactClasses artifactClasses = inspectArtifact(artifactId, artifactFile, additionalPlugins,
+                                                        parentClassLoader, parentLocation);
       ArtifactMeta meta = new ArtifactMeta(artifactClasses, parentArtifacts, properties);
       ArtifactDetail artifactDetail =
         artifactStore.write(artifactId, meta, Files.newInputStreamSupplier(artifactFile), entityImpersonator);
@@ -626,9 +646,11 @@ public class ArtifactRepository {
 
   private ArtifactClasses inspectArtifact(Id.Artifact artifactId, File artifactFile,
                                           @Nullable Set<PluginClass> additionalPlugins,
-                                          @Nullable  ClassLoader parentClassLoader) throws IOException,
-                                                                                           InvalidArtifactException {
-    ArtifactClasses artifactClasses = artifactInspector.inspectArtifact(artifactId, artifactFile, parentClassLoader);
+                                          @Nullable ClassLoader parentClassLoader,
+                                          @Nullable Location parentLocation) throws IOException,
+                                                                                    InvalidArtifactException {
+    ArtifactClasses artifactClasses = artifactInspector.inspectArtifact(artifactId, artifactFile,
+                                                                        parentClassLoader, parentLocation);
     validatePluginSet(artifactClasses.getPlugins());
     if (additionalPlugins == null || additionalPlugins.isEmpty()) {
       return artifactClasses;
@@ -876,17 +898,16 @@ public class ArtifactRepository {
   }
 
   /**
-   * Create a parent classloader using an artifact from one of the artifacts in the specified parents.
+   * Returns the location of one of the artifacts in the specified parents, for creating the parent classloader.
    *
    * @param artifactId the id of the artifact to create the parent classloader for
    * @param parentArtifacts the ranges of parents to create the classloader from
-   * @return a classloader based off a parent artifact
+   * @return the location of a parent artifact
    * @throws ArtifactRangeNotFoundException if none of the parents could be found
    * @throws InvalidArtifactException if one of the parents also has parents
    * @throws IOException if there was some error reading from the store
    */
-  private CloseableClassLoader createParentClassLoader(Id.Artifact artifactId, Set<ArtifactRange> parentArtifacts,
-                                                       EntityImpersonator entityImpersonator)
+  private Location getParentLocation(Id.Artifact artifactId, Set<ArtifactRange> parentArtifacts)
     throws ArtifactRangeNotFoundException, IOException, InvalidArtifactException {
 
     List<ArtifactDetail> parents = new ArrayList<>();
@@ -924,9 +945,7 @@ public class ArtifactRepository {
     }
 
     // assumes any of the parents will do
-    Location parentLocation = parents.get(0).getDescriptor().getLocation();
-
-    return createArtifactClassLoader(parentLocation, entityImpersonator);
+    return parents.get(0).getDescriptor().getLocation();
   }
 
   private void addAppSummaries(List<ApplicationClassSummary> summaries, NamespaceId namespace) {
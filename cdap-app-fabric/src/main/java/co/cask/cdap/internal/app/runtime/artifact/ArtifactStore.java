@@ -41,7 +41,6 @@ import co.cask.cdap.common.ArtifactNotFoundException;
 import co.cask.cdap.common.ArtifactRangeNotFoundException;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.namespace.NamespacedLocationFactory;
-import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
 import co.cask.cdap.data2.datafabric.dataset.DatasetsUtil;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
@@ -60,10 +59,14 @@ import co.cask.cdap.security.impersonation.Impersonator;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Splitter;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -85,6 +88,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -95,6 +99,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 
 /**
@@ -149,6 +154,10 @@ import javax.annotation.Nullable;
  *
  * With this schema we can perform a scan to look up AppClasses, a scan to look up plugins that extend a specific
  * artifact, and a scan to look up artifacts.
+ *
+ * Plugins that extend a parent artifact are also indexed in memory by plugin type and name, with the index of a parent
+ * artifact loaded by a single scan on first use. As all artifact changes go through this class, the index is
+ * invalidated whenever an artifact is added or deleted.
  */
 public class ArtifactStore {
   private static final String ARTIFACTS_PATH = "artifacts";
@@ -158,6 +167,8 @@ public class ArtifactStore {
   private static final DatasetId META_ID = NamespaceId.SYSTEM.dataset("artifact.meta");
   private static final DatasetProperties META_PROPERTIES =
     TableProperties.builder().setConflictDetection(ConflictDetection.COLUMN).build();
+  // Maximum number of parent artifacts to keep the plugin index for
+  private static final int PLUGIN_INDEX_MAX_SIZE = 1000;
 
   private static final Gson GSON = new GsonBuilder()
     .registerTypeAdapter(Schema.class, new SchemaTypeAdapter())
@@ -169,6 +180,8 @@ public class ArtifactStore {
   private final DatasetFramework datasetFramework;
   private final Transactional transactional;
   private final Impersonator impersonator;
+  private final Cache<ArtifactKey, PluginIndex> pluginIndexes;
+  private final AtomicLong pluginIndexVersion;
 
   @Inject
   ArtifactStore(DatasetFramework datasetFramework,
@@ -187,6 +200,8 @@ public class ArtifactStore {
       RetryStrategies.retryOnConflict(20, 100)
     );
     this.impersonator = impersonator;
+    this.pluginIndexes = CacheBuilder.newBuilder().maximumSize(PLUGIN_INDEX_MAX_SIZE).build();
+    this.pluginIndexVersion = new AtomicLong();
   }
 
   /**
@@ -489,6 +504,9 @@ public class ArtifactStore {
                                                                           final Id.Artifact parentArtifactId)
     throws ArtifactNotFoundException, IOException {
 
+    // Acquire the version before the transaction starts, so that an index loaded from a snapshot older than an
+    // artifact change is not kept
+    final long indexVersion = pluginIndexVersion.get();
     try {
       return Transactions.execute(transactional, new TxCallable<SortedMap<ArtifactDescriptor, Set<PluginClass>>>() {
         @Override
@@ -500,13 +518,8 @@ public class ArtifactStore {
             throw new ArtifactNotFoundException(parentArtifactId.toEntityId());
           }
 
-          // should be able to scan by column prefix as well... instead, we have to filter out by namespace
-          try (Scanner scanner = metaTable.scan(scanPlugins(parentArtifactId))) {
-            Row row;
-            while ((row = scanner.next()) != null) {
-              addPluginsToMap(namespace, parentArtifactId, plugins, row);
-            }
-          }
+          PluginIndex pluginIndex = getPluginIndex(metaTable, new ArtifactKey(parentArtifactId), indexVersion);
+          addPluginsToMap(namespace, parentArtifactId, plugins, pluginIndex.getEntries(null));
           return Collections.unmodifiableSortedMap(plugins);
         }
       });
@@ -531,6 +544,9 @@ public class ArtifactStore {
                                                                           final String type)
     throws IOException, ArtifactNotFoundException {
 
+    // Acquire the version before the transaction starts, so that an index loaded from a snapshot older than an
+    // artifact change is not kept
+    final long indexVersion = pluginIndexVersion.get();
     try {
       return Transactions.execute(transactional, new TxCallable<SortedMap<ArtifactDescriptor, Set<PluginClass>>>() {
         @Override
@@ -548,12 +564,8 @@ public class ArtifactStore {
             throw new ArtifactNotFoundException(parentArtifactId.toEntityId());
           }
 
-          try (Scanner scanner = metaTable.scan(scanPlugins(parentArtifactId, type))) {
-            Row row;
-            while ((row = scanner.next()) != null) {
-              addPluginsToMap(namespace, parentArtifactId, plugins, row);
-            }
-          }
+          PluginIndex pluginIndex = getPluginIndex(metaTable, new ArtifactKey(parentArtifactId), indexVersion);
+          addPluginsToMap(namespace, parentArtifactId, plugins, pluginIndex.getEntries(type));
 
           return Collections.unmodifiableSortedMap(plugins);
         }
@@ -608,6 +620,9 @@ public class ArtifactStore {
     final NamespaceId namespace, final ArtifactRange parentArtifactRange, final String type, final String name,
     @Nullable final Predicate<co.cask.cdap.proto.id.ArtifactId> pluginRange, final int limit,
     final ArtifactSortOrder order) throws IOException, ArtifactNotFoundException, PluginNotExistsException {
+    // Acquire the version before the transaction starts, so that an index loaded from a snapshot older than an
+    // artifact change is not kept
+    final long indexVersion = pluginIndexVersion.get();
     try {
       SortedMap<ArtifactDescriptor, PluginClass> result =
         Transactions.execute(transactional, new TxCallable<SortedMap<ArtifactDescriptor, PluginClass>>() {
@@ -639,12 +654,10 @@ public class ArtifactStore {
                 }
               }
             }
-            PluginKey pluginKey = new PluginKey(parentArtifactRange.getNamespace(),
-                                                parentArtifactRange.getName(), type, name);
-            Row row = metaTable.get(pluginKey.getRowKey());
-            if (!row.isEmpty()) {
-              addPluginsInRangeToMap(namespace, parentArtifacts, row.getColumns(), plugins, pluginRange, limit);
-            }
+            ArtifactKey parentKey = new ArtifactKey(parentArtifactRange.getNamespace(), parentArtifactRange.getName());
+            PluginIndex pluginIndex = getPluginIndex(metaTable, parentKey, indexVersion);
+            addPluginsInRangeToMap(namespace, parentArtifacts, pluginIndex.getEntries(type, name),
+                                   plugins, pluginRange, limit);
             return Collections.unmodifiableSortedMap(plugins);
           }
         });
@@ -766,6 +779,7 @@ public class ArtifactStore {
           writeMeta(metaTable, artifactId, data);
         }
       });
+      invalidatePluginIndexes();
 
       return new ArtifactDetail(new ArtifactDescriptor(artifactId.toArtifactId(), destination), artifactMeta);
     } catch (TransactionConflictException e) {
@@ -827,6 +841,8 @@ public class ArtifactStore {
       });
     } catch (TransactionFailureException e) {
       throw Transactions.propagate(e, IOException.class, ArtifactNotFoundException.class);
+    } finally {
+      invalidatePluginIndexes();
     }
   }
 
@@ -894,6 +910,8 @@ public class ArtifactStore {
       });
     } catch (TransactionFailureException e) {
       throw Transactions.propagate(e, IOException.class);
+    } finally {
+      invalidatePluginIndexes();
     }
   }
 
@@ -1026,54 +1044,31 @@ public class ArtifactStore {
     }
   }
 
-  // this method examines all plugins in the given row and checks if they extend the given parent artifact
+  // this method examines the given plugins and checks if they extend the given parent artifact
   // and are from an artifact in the given namespace.
   // if so, information about the plugin artifact and the plugin details are added to the given map.
   private void addPluginsToMap(NamespaceId namespace, Id.Artifact parentArtifactId,
                                SortedMap<ArtifactDescriptor, Set<PluginClass>> map,
-                               Row row) throws IOException {
-    // column is the artifact namespace, name, and version. value is the serialized PluginData
-    for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
-      ImmutablePair<ArtifactDescriptor, PluginClass> pluginEntry = getPluginEntry(namespace, parentArtifactId, column);
-      if (pluginEntry != null) {
-        ArtifactDescriptor artifactDescriptor = pluginEntry.getFirst();
+                               Iterable<PluginEntry> pluginEntries) {
+    for (PluginEntry pluginEntry : pluginEntries) {
+      Id.Namespace artifactNamespace = pluginEntry.artifactId.getNamespace();
+      // filter out plugins whose artifacts are not in the system namespace and not in this namespace
+      if (!Id.Namespace.SYSTEM.equals(artifactNamespace) && !artifactNamespace.equals(namespace.toId())) {
+        continue;
+      }
+      // filter out plugins that don't extend this version of the parent artifact
+      if (pluginEntry.data.usableBy.versionIsInRange(parentArtifactId.getVersion())) {
+        ArtifactDescriptor artifactDescriptor = pluginEntry.getDescriptor();
         if (!map.containsKey(artifactDescriptor)) {
           map.put(artifactDescriptor, Sets.<PluginClass>newHashSet());
         }
-        map.get(artifactDescriptor).add(pluginEntry.getSecond());
+        map.get(artifactDescriptor).add(pluginEntry.data.pluginClass);
       }
     }
   }
 
-  /**
-   * Decode the PluginClass from the table column if it is from an artifact in the given namespace and
-   * extends the given parent artifact. If the plugin's artifact is not in the given namespace, or it does not
-   * extend the given parent artifact, return null.
-   */
-  private ImmutablePair<ArtifactDescriptor, PluginClass> getPluginEntry(NamespaceId namespace,
-                                                                        Id.Artifact parentArtifactId,
-                                                                        Map.Entry<byte[], byte[]> column) {
-    // column is the artifact namespace, name, and version. value is the serialized PluginData
-    ArtifactColumn artifactColumn = ArtifactColumn.parse(column.getKey());
-    Id.Namespace artifactNamespace = artifactColumn.artifactId.getNamespace();
-    // filter out plugins whose artifacts are not in the system namespace and not in this namespace
-    if (!Id.Namespace.SYSTEM.equals(artifactNamespace) && !artifactNamespace.equals(namespace.toId())) {
-      return null;
-    }
-    PluginData pluginData = GSON.fromJson(Bytes.toString(column.getValue()), PluginData.class);
-
-    // filter out plugins that don't extend this version of the parent artifact
-    if (pluginData.usableBy.versionIsInRange(parentArtifactId.getVersion())) {
-      ArtifactDescriptor artifactDescriptor = new ArtifactDescriptor(
-        artifactColumn.artifactId.toArtifactId(),
-        Locations.getLocationFromAbsolutePath(locationFactory, pluginData.getArtifactLocationPath()));
-      return ImmutablePair.of(artifactDescriptor, pluginData.pluginClass);
-    }
-    return null;
-  }
-
   private void addPluginsInRangeToMap(final NamespaceId namespace, List<Id.Artifact> parentArtifacts,
-                                      Map<byte[], byte[]> columns,
+                                      Iterable<PluginEntry> pluginEntries,
                                       SortedMap<ArtifactDescriptor, PluginClass> plugins,
                                       @Nullable Predicate<co.cask.cdap.proto.id.ArtifactId> range,
                                       int limit) {
@@ -1086,22 +1081,15 @@ public class ArtifactStore {
       }
     };
 
-    for (Map.Entry<byte[], byte[]> column : columns.entrySet()) {
-      // column is the artifact namespace, name, and version. value is the serialized PluginData
-      ArtifactColumn artifactColumn = ArtifactColumn.parse(column.getKey());
-
-      if (!range.apply(artifactColumn.artifactId.toEntityId())) {
+    for (PluginEntry pluginEntry : pluginEntries) {
+      if (!range.apply(pluginEntry.artifactId.toEntityId())) {
         continue;
       }
-      PluginData pluginData = GSON.fromJson(Bytes.toString(column.getValue()), PluginData.class);
 
       // filter out plugins that don't extend this version of the parent artifact
       for (Id.Artifact parentArtifactId : parentArtifacts) {
-        if (pluginData.usableBy.versionIsInRange(parentArtifactId.getVersion())) {
-          plugins.put(new ArtifactDescriptor(
-            artifactColumn.artifactId.toArtifactId(),
-            Locations.getLocationFromAbsolutePath(locationFactory, pluginData.getArtifactLocationPath())),
-                      pluginData.pluginClass);
+        if (pluginEntry.data.usableBy.versionIsInRange(parentArtifactId.getVersion())) {
+          plugins.put(pluginEntry.getDescriptor(), pluginEntry.data.pluginClass);
           break;
         }
       }
@@ -1111,28 +1099,55 @@ public class ArtifactStore {
     }
   }
 
+  /**
+   * Returns the {@link PluginIndex} of plugins that extend the given parent artifact. If the index is not in memory,
+   * it is loaded from the meta table and kept if there was no artifact change since the given version, which must be
+   * acquired before the transaction of the given table is started.
+   */
+  private PluginIndex getPluginIndex(Table metaTable, ArtifactKey parentKey, long indexVersion) {
+    PluginIndex pluginIndex = pluginIndexes.getIfPresent(parentKey);
+    if (pluginIndex != null) {
+      return pluginIndex;
+    }
+
+    List<PluginEntry> entries = new ArrayList<>();
+    try (Scanner scanner = metaTable.scan(scanPlugins(parentKey))) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        // column is the artifact namespace, name, and version. value is the serialized PluginData
+        for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
+          ArtifactColumn artifactColumn = ArtifactColumn.parse(column.getKey());
+          PluginData pluginData = GSON.fromJson(Bytes.toString(column.getValue()), PluginData.class);
+          entries.add(new PluginEntry(artifactColumn.artifactId, pluginData));
+        }
+      }
+    }
+    pluginIndex = new PluginIndex(entries);
+    synchronized (pluginIndexes) {
+      if (pluginIndexVersion.get() == indexVersion) {
+        pluginIndexes.put(parentKey, pluginIndex);
+      }
+    }
+    return pluginIndex;
+  }
+
+  private void invalidatePluginIndexes() {
+    synchronized (pluginIndexes) {
+      pluginIndexVersion.incrementAndGet();
+      pluginIndexes.invalidateAll();
+    }
+  }
+
   private Scan scanArtifacts(NamespaceId namespace) {
     return new Scan(
       Bytes.toBytes(String.format("%s:%s:", ARTIFACT_PREFIX, namespace.getNamespace())),
       Bytes.toBytes(String.format("%s:%s;", ARTIFACT_PREFIX, namespace.getNamespace())));
   }
 
-  private Scan scanPlugins(Id.Artifact parentArtifactId) {
+  private Scan scanPlugins(ArtifactKey parentKey) {
     return new Scan(
-      Bytes.toBytes(String.format("%s:%s:%s:",
-                                  PLUGIN_PREFIX, parentArtifactId.getNamespace().getId(), parentArtifactId.getName())),
-      Bytes.toBytes(String.format("%s:%s:%s;",
-                                  PLUGIN_PREFIX, parentArtifactId.getNamespace().getId(), parentArtifactId.getName())));
-  }
-
-  private Scan scanPlugins(Id.Artifact parentArtifactId, String type) {
-    return new Scan(
-      Bytes.toBytes(String.format("%s:%s:%s:%s:",
-                                  PLUGIN_PREFIX, parentArtifactId.getNamespace().getId(),
-                                  parentArtifactId.getName(), type)),
-      Bytes.toBytes(String.format("%s:%s:%s:%s;",
-                                  PLUGIN_PREFIX, parentArtifactId.getNamespace().getId(),
-                                  parentArtifactId.getName(), type)));
+      Bytes.toBytes(String.format("%s:%s:%s:", PLUGIN_PREFIX, parentKey.namespace, parentKey.name)),
+      Bytes.toBytes(String.format("%s:%s:%s;", PLUGIN_PREFIX, parentKey.namespace, parentKey.name)));
   }
 
   private Scan scanAppClasses(NamespaceId namespace) {
@@ -1206,6 +1221,10 @@ public class ArtifactStore {
       this.name = name;
     }
 
+    private ArtifactKey(Id.Artifact artifactId) {
+      this(artifactId.getNamespace().getId(), artifactId.getName());
+    }
+
     private byte[] getRowKey() {
       return Bytes.toBytes(Joiner.on(':').join(ARTIFACT_PREFIX, namespace, name));
     }
@@ -1218,6 +1237,23 @@ public class ArtifactStore {
       // next is namespace, then name
       return new ArtifactKey(parts.next(), parts.next());
     }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      ArtifactKey other = (ArtifactKey) o;
+      return namespace.equals(other.namespace) && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(namespace, name);
+    }
   }
 
   private static class ArtifactCell {
@@ -1268,6 +1304,61 @@ public class ArtifactStore {
     }
   }
 
+  // A plugin that extends a parent artifact, with the id of the artifact that contains the plugin.
+  private final class PluginEntry {
+    private final Id.Artifact artifactId;
+    private final PluginData data;
+    private final ArtifactDescriptor descriptor;
+
+    PluginEntry(Id.Artifact artifactId, PluginData data) {
+      this.artifactId = artifactId;
+      this.data = data;
+      this.descriptor = new ArtifactDescriptor(
+        artifactId.toArtifactId(), Locations.getLocationFromAbsolutePath(locationFactory,
+                                                                         data.getArtifactLocationPath()));
+    }
+
+    ArtifactDescriptor getDescriptor() {
+      return descriptor;
+    }
+  }
+
+  // All plugins that extend a parent artifact, indexed by plugin type and name.
+  private static final class PluginIndex {
+    private final com.google.common.collect.Table<String, String, List<PluginEntry>> entries;
+
+    PluginIndex(Iterable<PluginEntry> pluginEntries) {
+      com.google.common.collect.Table<String, String, List<PluginEntry>> table = HashBasedTable.create();
+      for (PluginEntry entry : pluginEntries) {
+        String type = entry.data.pluginClass.getType();
+        String name = entry.data.pluginClass.getName();
+        List<PluginEntry> list = table.get(type, name);
+        if (list == null) {
+          list = new ArrayList<>();
+          table.put(type, name, list);
+        }
+        list.add(entry);
+      }
+      this.entries = table;
+    }
+
+    /**
+     * Returns all plugins of the given type, or all plugins if the type is {@code null}.
+     */
+    Iterable<PluginEntry> getEntries(@Nullable String type) {
+      Collection<List<PluginEntry>> lists = type == null ? entries.values() : entries.row(type).values();
+      return Iterables.concat(lists);
+    }
+
+    /**
+     * Returns all plugins of the given type and name.
+     */
+    Iterable<PluginEntry> getEntries(String type, String name) {
+      List<PluginEntry> list = entries.get(type, name);
+      return list == null ? Collections.<PluginEntry>emptyList() : list;
+    }
+  }
+
   // Data that will be stored for an application class.
   private static class AppData {
     private final ApplicationClass appClass;
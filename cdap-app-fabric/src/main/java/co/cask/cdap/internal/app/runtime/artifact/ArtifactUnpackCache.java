@@ -0,0 +1,337 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.artifact;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.common.lang.jar.BundleJarUtil;
+import co.cask.cdap.common.utils.DirUtils;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A node local cache of expanded artifact jars, keyed by the hash of the jar content, so that class loaders created
+ * for the same artifact share one expanded directory instead of each expanding the jar into a new directory.
+ * <p/>
+ * Expanded directories are reference counted. A directory that is no longer referenced stays in the cache and
+ * is only deleted when the total size of the cache is over the configured limit, least recently used first.
+ * Directories in use are never deleted, hence the cache can temporarily grow over the limit. Callers must treat
+ * the expanded directory as read only.
+ * <p/>
+ * If the size limit is zero, the cache is disabled and every {@link #acquire(Location)} expands the jar into a new
+ * directory, which is deleted when the returned {@link Entry} is closed.
+ * <p/>
+ * All directories live under a base directory created for the cache, which is deleted when the cache is closed.
+ */
+@ThreadSafe
+public final class ArtifactUnpackCache implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ArtifactUnpackCache.class);
+  // Maximum number of jar hashes remembered by location, so that unchanged jars don't need to be hashed again
+  private static final int MAX_HASHES = 1000;
+
+  private final File baseDir;
+  private final long maxSize;
+  // Access ordered, hence iteration goes from the least recently used entry
+  private final LinkedHashMap<String, CacheEntry> entries;
+  private final Map<JarIdentity, String> hashes;
+  private long totalSize;
+  private boolean closed;
+
+  public ArtifactUnpackCache(CConfiguration cConf) {
+    this(new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR), cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile(),
+         cConf.getLong(Constants.AppFabric.ARTIFACT_UNPACK_CACHE_MAX_SIZE_MB) * 1024 * 1024);
+  }
+
+  @VisibleForTesting
+  ArtifactUnpackCache(File tmpDir, long maxSize) {
+    this.baseDir = DirUtils.createTempDir(tmpDir);
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    this.hashes = new LinkedHashMap<JarIdentity, String>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<JarIdentity, String> eldest) {
+        return size() > MAX_HASHES;
+      }
+    };
+  }
+
+  /**
+   * Acquires the expanded directory of the given jar, expanding the jar if it is not in the cache.
+   *
+   * @param jarLocation location of the jar
+   * @return an {@link Entry} that gives the expanded directory. It must be closed when the directory is no longer used
+   * @throws IOException if failed to read or expand the jar
+   */
+  public Entry acquire(Location jarLocation) throws IOException {
+    synchronized (this) {
+      if (closed) {
+        throw new IOException("Artifact unpack cache is closed");
+      }
+    }
+    if (maxSize <= 0) {
+      final File unpackDir = BundleJarUtil.unJar(jarLocation, DirUtils.createTempDir(baseDir));
+      return new Entry(unpackDir, new Runnable() {
+        @Override
+        public void run() {
+          deleteQuietly(unpackDir);
+        }
+      });
+    }
+
+    String hash = getHash(jarLocation);
+    final CacheEntry cacheEntry;
+    synchronized (this) {
+      CacheEntry entry = entries.get(hash);
+      if (entry == null) {
+        entry = new CacheEntry(hash);
+        entries.put(hash, entry);
+      }
+      // Take the reference before expanding, so that the entry won't get evicted by other threads
+      entry.references++;
+      cacheEntry = entry;
+    }
+
+    // Expansion is done outside of the cache lock, so that different jars can be expanded concurrently
+    try {
+      cacheEntry.unpack(jarLocation);
+    } catch (IOException | RuntimeException e) {
+      release(cacheEntry);
+      throw e;
+    }
+    return new Entry(cacheEntry.directory, new Runnable() {
+      @Override
+      public void run() {
+        release(cacheEntry);
+      }
+    });
+  }
+
+  /**
+   * Closes the cache and deletes the base directory with all the expanded directories in it. Directories of
+   * {@link Entry Entries} that are not closed yet get deleted as well.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      entries.clear();
+      totalSize = 0;
+    }
+    LOG.debug("Deleting artifact unpack directory {}", baseDir);
+    deleteQuietly(baseDir);
+  }
+
+  /**
+   * Returns the total size in bytes of the expanded directories in the cache.
+   */
+  @VisibleForTesting
+  synchronized long getTotalSize() {
+    return totalSize;
+  }
+
+  private synchronized void added(long size) {
+    totalSize += size;
+  }
+
+  private void release(CacheEntry cacheEntry) {
+    List<File> evicted = new ArrayList<>();
+    synchronized (this) {
+      cacheEntry.references--;
+      Iterator<CacheEntry> iterator = entries.values().iterator();
+      while (totalSize > maxSize && iterator.hasNext()) {
+        CacheEntry entry = iterator.next();
+        if (entry.references == 0) {
+          iterator.remove();
+          if (!entry.unpacked) {
+            continue;
+          }
+          totalSize -= entry.size;
+          // Move the directory out of the way, so that the same jar can be expanded again while it is being deleted
+          File evictedDir = new File(baseDir, entry.directory.getName() + ".evicted." + System.nanoTime());
+          evicted.add(entry.directory.renameTo(evictedDir) ? evictedDir : entry.directory);
+        }
+      }
+    }
+
+    // The evicted directories are not referenced and no longer reachable from the cache, hence safe to delete
+    for (File dir : evicted) {
+      LOG.debug("Deleting evicted artifact directory {}", dir);
+      deleteQuietly(dir);
+    }
+  }
+
+  /**
+   * Returns the hash of the content of the given jar, which is the key of its expanded directory in the cache.
+   * Hashes are remembered by the location, size and modification time of the jar, so that the same jar is only
+   * read once.
+   */
+  String getHash(Location jarLocation) throws IOException {
+    JarIdentity identity = new JarIdentity(jarLocation);
+    synchronized (hashes) {
+      String hash = hashes.get(identity);
+      if (hash != null) {
+        return hash;
+      }
+    }
+    String hash = ByteStreams.hash(Locations.newInputSupplier(jarLocation), Hashing.sha256()).toString();
+    synchronized (hashes) {
+      hashes.put(identity, hash);
+    }
+    return hash;
+  }
+
+  private static void deleteQuietly(File dir) {
+    if (!dir.exists()) {
+      // Already deleted when the cache was closed
+      return;
+    }
+    try {
+      DirUtils.deleteDirectoryContents(dir);
+    } catch (IOException e) {
+      LOG.warn("Failed to delete directory {}", dir, e);
+    }
+  }
+
+  private static long sizeOf(File file) {
+    if (!file.isDirectory()) {
+      return file.length();
+    }
+    long size = 0;
+    for (File child : DirUtils.listFiles(file)) {
+      size += sizeOf(child);
+    }
+    return size;
+  }
+
+  /**
+   * An expanded jar acquired from the cache. Closing it releases the directory.
+   */
+  public static final class Entry implements Closeable {
+
+    private final File directory;
+    private final Runnable releaser;
+    private final AtomicBoolean closed;
+
+    private Entry(File directory, Runnable releaser) {
+      this.directory = directory;
+      this.releaser = releaser;
+      this.closed = new AtomicBoolean();
+    }
+
+    /**
+     * Returns the directory where the jar is expanded.
+     */
+    public File getDirectory() {
+      return directory;
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        releaser.run();
+      }
+    }
+  }
+
+  /**
+   * A reference counted expanded directory in the cache. The reference count is guarded by the cache lock.
+   */
+  private final class CacheEntry {
+
+    private final File directory;
+    private int references;
+    private volatile long size;
+    private volatile boolean unpacked;
+
+    private CacheEntry(String hash) {
+      this.directory = new File(baseDir, hash);
+    }
+
+    private synchronized void unpack(Location jarLocation) throws IOException {
+      if (unpacked) {
+        return;
+      }
+      // Expand to a temporary directory first, so that a failed expansion never leaves a partial directory behind
+      File tmpDir = DirUtils.createTempDir(baseDir);
+      try {
+        BundleJarUtil.unJar(jarLocation, tmpDir);
+        if (!tmpDir.renameTo(directory)) {
+          throw new IOException("Failed to rename " + tmpDir + " to " + directory);
+        }
+      } catch (IOException e) {
+        deleteQuietly(tmpDir);
+        throw e;
+      }
+      size = sizeOf(directory);
+      unpacked = true;
+      added(size);
+    }
+  }
+
+  /**
+   * Identifies a jar by its location, size and modification time.
+   */
+  private static final class JarIdentity {
+    private final String uri;
+    private final long length;
+    private final long lastModified;
+
+    JarIdentity(Location location) throws IOException {
+      this.uri = location.toURI().toString();
+      this.length = location.length();
+      this.lastModified = location.lastModified();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      JarIdentity other = (JarIdentity) o;
+      return length == other.length && lastModified == other.lastModified && uri.equals(other.uri);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(uri, length, lastModified);
+    }
+  }
+}
@@ -38,6 +38,7 @@ import co.cask.cdap.common.service.Retries;
 import co.cask.cdap.common.service.RetryStrategies;
 import co.cask.cdap.data.ProgramContextAware;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.metadata.writer.LineageWriter;
 import co.cask.cdap.data2.transaction.stream.StreamAdmin;
 import co.cask.cdap.internal.app.runtime.AbstractProgramRunnerWithPlugin;
 import co.cask.cdap.internal.app.runtime.BasicProgramContext;
@@ -103,6 +104,7 @@ public class MapReduceProgramRunner extends AbstractProgramRunnerWithPlugin {
   private final AuthorizationEnforcer authorizationEnforcer;
   private final AuthenticationContext authenticationContext;
   private final MessagingService messagingService;
+  private final LineageWriter lineageWriter;
 
   @Inject
   public MapReduceProgramRunner(Injector injector, CConfiguration cConf, Configuration hConf,
@@ -115,7 +117,7 @@ public class MapReduceProgramRunner extends AbstractProgramRunnerWithPlugin {
                                 SecureStore secureStore, SecureStoreManager secureStoreManager,
                                 AuthorizationEnforcer authorizationEnforcer,
                                 AuthenticationContext authenticationContext,
-                                MessagingService messagingService) {
+                                MessagingService messagingService, LineageWriter lineageWriter) {
     super(cConf);
     this.injector = injector;
     this.cConf = cConf;
@@ -132,6 +134,7 @@ public class MapReduceProgramRunner extends AbstractProgramRunnerWithPlugin {
     this.authorizationEnforcer = authorizationEnforcer;
     this.authenticationContext = authenticationContext;
     this.messagingService = messagingService;
+    this.lineageWriter = lineageWriter;
   }
 
   @Override
@@ -259,6 +262,7 @@ public class MapReduceProgramRunner extends AbstractProgramRunnerWithPlugin {
       @Override
       public void terminated(Service.State from) {
         closeAllQuietly(closeables);
+        ProgramRunners.flushLineage(lineageWriter, programId, runId.getId());
         ProgramRunStatus runStatus = ProgramController.State.COMPLETED.getRunStatus();
         if (from == Service.State.STOPPING) {
           // Service was killed
@@ -279,6 +283,7 @@ public class MapReduceProgramRunner extends AbstractProgramRunnerWithPlugin {
       @Override
       public void failed(Service.State from, @Nullable final Throwable failure) {
         closeAllQuietly(closeables);
+        ProgramRunners.flushLineage(lineageWriter, programId, runId.getId());
         Retries.supplyWithRetries(new Supplier<Void>() {
           @Override
           public Void get() {
@@ -27,6 +27,7 @@ import co.cask.cdap.app.program.ProgramDescriptor;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.data.ProgramContextAware;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.metadata.writer.LineageWriter;
 import co.cask.cdap.internal.app.runtime.BasicProgramContext;
 import co.cask.cdap.internal.app.runtime.ProgramRunners;
 import co.cask.cdap.internal.app.runtime.workflow.NameMappedDatasetFramework;
@@ -53,6 +54,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
 import javax.annotation.Nullable;
@@ -109,6 +112,15 @@ public class MapReduceTaskContextProvider extends AbstractIdleService {
         LOG.warn("Exception when closing context {}", context, e);
       }
     }
+    // Lineage accesses are written in batches, make sure all of them are written before the task exits
+    LineageWriter lineageWriter = injector.getInstance(LineageWriter.class);
+    if (lineageWriter instanceof Flushable) {
+      try {
+        ((Flushable) lineageWriter).flush();
+      } catch (IOException e) {
+        LOG.warn("Failed to write lineage accesses", e);
+      }
+    }
   }
 
   /**
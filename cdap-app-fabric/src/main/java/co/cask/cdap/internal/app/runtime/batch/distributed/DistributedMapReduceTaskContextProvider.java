@@ -21,6 +21,7 @@ import co.cask.cdap.app.guice.DistributedProgramRunnableModule;
 import co.cask.cdap.app.runtime.Arguments;
 import co.cask.cdap.app.runtime.ProgramOptions;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
 import co.cask.cdap.internal.app.runtime.SystemArguments;
 import co.cask.cdap.internal.app.runtime.batch.MapReduceClassLoader;
@@ -28,6 +29,7 @@ import co.cask.cdap.internal.app.runtime.batch.MapReduceContextConfig;
 import co.cask.cdap.internal.app.runtime.batch.MapReduceTaskContextProvider;
 import co.cask.cdap.logging.appender.LogAppenderInitializer;
 import com.google.common.base.Preconditions;
+import com.google.common.io.Closeables;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -36,6 +38,7 @@ import org.apache.twill.internal.Services;
 import org.apache.twill.kafka.client.KafkaClientService;
 import org.apache.twill.zookeeper.ZKClientService;
 
+import java.io.Closeable;
 import java.util.List;
 
 /**
@@ -50,6 +53,7 @@ public final class DistributedMapReduceTaskContextProvider extends MapReduceTask
   private final MetricsCollectionService metricsCollectionService;
   private final MapReduceContextConfig mapReduceContextConfig;
   private final LogAppenderInitializer logAppenderInitializer;
+  private final DatasetFramework datasetFramework;
 
   public DistributedMapReduceTaskContextProvider(CConfiguration cConf, Configuration hConf) {
     super(createInjector(cConf, hConf));
@@ -61,6 +65,7 @@ public final class DistributedMapReduceTaskContextProvider extends MapReduceTask
     this.metricsCollectionService = injector.getInstance(MetricsCollectionService.class);
     this.logAppenderInitializer = injector.getInstance(LogAppenderInitializer.class);
     this.mapReduceContextConfig = new MapReduceContextConfig(hConf);
+    this.datasetFramework = injector.getInstance(DatasetFramework.class);
   }
 
   @Override
@@ -92,6 +97,10 @@ public final class DistributedMapReduceTaskContextProvider extends MapReduceTask
   @Override
   protected void shutDown() throws Exception {
     super.shutDown();
+    // Stops the background threads of the dataset framework, such as the metadata cache invalidation
+    if (datasetFramework instanceof Closeable) {
+      Closeables.closeQuietly((Closeable) datasetFramework);
+    }
     Exception failure = null;
     try {
       logAppenderInitializer.close();
@@ -30,6 +30,8 @@ import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.logging.common.UncaughtExceptionHandler;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
+import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.metadata.writer.LineageWriter;
 import co.cask.cdap.internal.app.ApplicationSpecificationAdapter;
 import co.cask.cdap.internal.app.runtime.AbstractListener;
 import co.cask.cdap.internal.app.runtime.BasicArguments;
@@ -79,6 +81,7 @@ import org.slf4j.bridge.SLF4JBridgeHandler;
 
 import java.io.Closeable;
 import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
 import java.io.Reader;
 import java.lang.reflect.ParameterizedType;
@@ -115,6 +118,8 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
   private CConfiguration cConf;
   private List<Service> coreServices;
   private LogAppenderInitializer logAppenderInitializer;
+  private LineageWriter lineageWriter;
+  private DatasetFramework datasetFramework;
   private CountDownLatch runLatch;
 
   /**
@@ -190,6 +195,9 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
       logAppenderInitializer = injector.getInstance(LogAppenderInitializer.class);
       logAppenderInitializer.initialize();
 
+      lineageWriter = injector.getInstance(LineageWriter.class);
+      datasetFramework = injector.getInstance(DatasetFramework.class);
+
       // Create the ProgramRunner
       programRunner = createProgramRunner(injector);
 
@@ -337,6 +345,14 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
       if (programRunner instanceof Closeable) {
         Closeables.closeQuietly((Closeable) programRunner);
       }
+      // Lineage accesses are written in batches, make sure all of them are written before the program exits
+      if (lineageWriter instanceof Flushable) {
+        try {
+          ((Flushable) lineageWriter).flush();
+        } catch (IOException e) {
+          LOG.warn("Failed to write lineage accesses for {}", name, e);
+        }
+      }
       // Always unblock the handleCommand method if it is not unblocked before (e.g if program failed to start).
       // The controller state will make sure the corresponding command will be handled correctly in the correct state.
       runLatch.countDown();
@@ -357,6 +373,10 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
                            services.subList(1, services.size()).toArray(new Service[services.size() - 1])));
       LOG.debug("Runnable stopped: {}", name);
     } finally {
+      // Stops the background threads of the dataset framework, such as the metadata cache invalidation
+      if (datasetFramework instanceof Closeable) {
+        Closeables.closeQuietly((Closeable) datasetFramework);
+      }
       if (logAppenderInitializer != null) {
         logAppenderInitializer.close();
       }
@@ -32,6 +32,7 @@ import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.lang.InstantiatorFactory;
 import co.cask.cdap.common.lang.jar.BundleJarUtil;
 import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.internal.app.runtime.artifact.ArtifactUnpackCache;
 import co.cask.cdap.internal.app.runtime.artifact.Artifacts;
 import co.cask.cdap.internal.lang.FieldVisitor;
 import co.cask.cdap.internal.lang.Fields;
@@ -66,6 +67,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import javax.annotation.Nullable;
 
@@ -95,8 +97,22 @@ public class PluginInstantiator implements Closeable {
   private final File tmpDir;
   private final File pluginDir;
   private final ClassLoader parentClassLoader;
+  private final ArtifactUnpackCache unpackCache;
+  private final Map<ArtifactId, ArtifactUnpackCache.Entry> unpackEntries;
 
   public PluginInstantiator(CConfiguration cConf, ClassLoader parentClassLoader, File pluginDir) {
+    this(cConf, parentClassLoader, pluginDir, null);
+  }
+
+  /**
+   * Creates a new instance that expands plugin artifact jars through the given {@link ArtifactUnpackCache}, so that
+   * plugin ClassLoaders of the same artifact share the same expanded directory.
+   * If the cache is {@code null}, plugin artifact jars are expanded into temporary directories of this instance.
+   */
+  public PluginInstantiator(CConfiguration cConf, ClassLoader parentClassLoader, File pluginDir,
+                            @Nullable ArtifactUnpackCache unpackCache) {
+    this.unpackCache = unpackCache;
+    this.unpackEntries = new ConcurrentHashMap<>();
     this.instantiatorFactory = new InstantiatorFactory(false);
     File tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
                            cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
@@ -354,17 +370,29 @@ public class PluginInstantiator implements Closeable {
 
     @Override
     public ClassLoader load(ArtifactId artifactId) throws Exception {
-      File unpackedDir = DirUtils.createTempDir(tmpDir);
       File artifact = new File(pluginDir, Artifacts.getFileName(artifactId));
-      BundleJarUtil.unJar(Locations.toLocation(artifact), unpackedDir);
-      return new PluginClassLoader(unpackedDir, parentClassLoader);
+      if (unpackCache == null) {
+        File unpackedDir = DirUtils.createTempDir(tmpDir);
+        BundleJarUtil.unJar(Locations.toLocation(artifact), unpackedDir);
+        return new PluginClassLoader(unpackedDir, parentClassLoader);
+      }
+
+      ArtifactUnpackCache.Entry unpackEntry = unpackCache.acquire(Locations.toLocation(artifact));
+      try {
+        ClassLoader classLoader = new PluginClassLoader(unpackEntry.getDirectory(), parentClassLoader);
+        unpackEntries.put(artifactId, unpackEntry);
+        return classLoader;
+      } catch (Exception e) {
+        unpackEntry.close();
+        throw e;
+      }
     }
   }
 
   /**
-   * A RemovalListener for closing plugin ClassLoader.
+   * A RemovalListener for closing plugin ClassLoader and releasing its expanded directory.
    */
-  private static final class ClassLoaderRemovalListener implements RemovalListener<ArtifactId, ClassLoader> {
+  private final class ClassLoaderRemovalListener implements RemovalListener<ArtifactId, ClassLoader> {
 
     @Override
     public void onRemoval(RemovalNotification<ArtifactId, ClassLoader> notification) {
@@ -372,6 +400,10 @@ public class PluginInstantiator implements Closeable {
       if (cl instanceof Closeable) {
         Closeables.closeQuietly((Closeable) cl);
       }
+      ArtifactUnpackCache.Entry unpackEntry = unpackEntries.remove(notification.getKey());
+      if (unpackEntry != null) {
+        unpackEntry.close();
+      }
     }
   }
 
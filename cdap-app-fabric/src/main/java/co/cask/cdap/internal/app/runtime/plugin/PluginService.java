@@ -190,7 +190,8 @@ public class PluginService extends AbstractIdleService {
 
     private void addInstantiatorAndAddArtifact(ArtifactDetail artifactDetail,
                                                ArtifactId artifactId) throws IOException {
-      PluginInstantiator instantiator = new PluginInstantiator(cConf, parentClassLoader, pluginDir);
+      PluginInstantiator instantiator = new PluginInstantiator(cConf, parentClassLoader, pluginDir,
+                                                                   artifactRepository.getUnpackCache());
       instantiatorInfoMap.put(artifactDetail.getDescriptor(),
                               new InstantiatorInfo(artifactDetail.getDescriptor().getLocation(), instantiator));
       instantiator.addArtifact(artifactDetail.getDescriptor().getLocation(), artifactId);
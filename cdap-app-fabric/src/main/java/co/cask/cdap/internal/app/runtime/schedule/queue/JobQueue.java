@@ -88,6 +88,11 @@ public interface JobQueue {
    */
   int getNumPartitions();
 
+  /**
+   * @return the partition of the JobQueue that the jobs of the given schedule belong to
+   */
+  int getPartition(ScheduleId scheduleId);
+
   /**
    * @param partition the partition of the JobQueue to get Jobs from
    * @param lastJobProcessed the job to start the scan from (exclusive), or null to indicate scanning from the start
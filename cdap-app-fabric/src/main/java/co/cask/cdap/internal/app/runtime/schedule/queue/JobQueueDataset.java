@@ -36,7 +36,6 @@ import co.cask.cdap.internal.schedule.constraint.Constraint;
 import co.cask.cdap.internal.schedule.trigger.Trigger;
 import co.cask.cdap.proto.Notification;
 import co.cask.cdap.proto.id.ScheduleId;
-import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.hash.Hashing;
@@ -286,8 +285,8 @@ public class JobQueueDataset extends AbstractDataset implements JobQueue {
     return Bytes.concat(getJobRowPrefix(getPartition(scheduleId)), scheduleIdBytes, ROW_KEY_SEPARATOR);
   }
 
-  @VisibleForTesting
-  int getPartition(ScheduleId scheduleId) {
+  @Override
+  public int getPartition(ScheduleId scheduleId) {
     // Similar to ScheduleId#hashCode, but that is not consistent across runtimes due to how Enum#hashCode works.
     // Ensure that the hash won't change across runtimes:
     int hash = Hashing.murmur3_32().newHasher()
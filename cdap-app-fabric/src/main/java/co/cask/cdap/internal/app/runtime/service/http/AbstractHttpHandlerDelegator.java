@@ -16,6 +16,7 @@
 
 package co.cask.cdap.internal.app.runtime.service.http;
 
+import co.cask.cdap.api.annotation.TransactionControl;
 import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.api.service.http.AbstractHttpServiceHandler;
 import co.cask.cdap.api.service.http.HttpContentConsumer;
@@ -30,14 +31,19 @@ import co.cask.http.BodyProducer;
 import co.cask.http.HandlerContext;
 import co.cask.http.HttpHandler;
 import co.cask.http.HttpResponder;
+import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import org.apache.tephra.TransactionContext;
 import org.apache.tephra.TransactionFailureException;
 import org.apache.twill.common.Cancellable;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * An abstract base class for all {@link HttpHandler} generated through the {@link HttpHandlerGenerator}.
@@ -135,6 +141,71 @@ public abstract class AbstractHttpHandlerDelegator<T extends HttpServiceHandler>
     }, (TransactionalHttpServiceContext) serviceContext, collector);
   }
 
+  /**
+   * Returns a new instance of {@link DelayedHttpServiceResponder} in streaming mode that wraps around the given
+   * {@link HttpResponder} object. It is used for handler methods with {@link TransactionControl#EXPLICIT}, since
+   * their responses don't depend on the commit of an implicit transaction.
+   * This method is called from handler class generated by {@link HttpHandlerGenerator}.
+   */
+  @SuppressWarnings("unused")
+  protected final DelayedHttpServiceResponder wrapStreamingResponder(HttpResponder responder) {
+    DelayedHttpServiceResponder wrappedResponder = wrapResponder(responder);
+    wrappedResponder.enableStreaming();
+    return wrappedResponder;
+  }
+
+  /**
+   * Returns a new instance of {@link DelayedHttpServiceResponder} for handler methods annotated with
+   * {@link co.cask.cdap.api.service.http.CacheResponse}. If there is a cached response for the request, it is
+   * sent and {@code null} is returned, in which case the handler method shouldn't be called.
+   * This method is called from handler class generated by {@link HttpHandlerGenerator}.
+   *
+   * @param request the request being handled
+   * @param responder the responder for the request
+   * @param pathPrefix the prefix of the request path added by the service
+   * @param maxAgeSeconds maximum number of seconds to cache the response
+   * @param varyHeaders names of the request headers that are part of the cache key
+   */
+  @SuppressWarnings("unused")
+  @Nullable
+  protected final DelayedHttpServiceResponder wrapCachingResponder(HttpRequest request, HttpResponder responder,
+                                                                   String pathPrefix, int maxAgeSeconds,
+                                                                   String[] varyHeaders) {
+    DelayedHttpServiceResponder wrappedResponder = wrapResponder(responder);
+    HttpServiceContext serviceContext = context.getServiceContext();
+    HttpResponseCache responseCache = ((TransactionalHttpServiceContext) serviceContext).getResponseCache();
+    if (responseCache == null || !responseCache.isEnabled() || maxAgeSeconds <= 0
+      || serviceContext.getSpecification() == null) {
+      return wrappedResponder;
+    }
+
+    String uri = request.getUri();
+    int idx = uri.indexOf('?');
+    String path = idx < 0 ? uri : uri.substring(0, idx);
+    String query = idx < 0 ? "" : uri.substring(idx + 1);
+    if (path.startsWith(pathPrefix)) {
+      path = path.substring(pathPrefix.length());
+    }
+    List<String> varyValues = new ArrayList<>(varyHeaders.length);
+    for (String header : varyHeaders) {
+      varyValues.add(String.valueOf(request.getHeaders(header)));
+    }
+    // The caller is always part of the key, so that a response is never served to a different user
+    String principal = Joiner.on('\n').useForNull("").join(request.getHeader(Constants.Security.Headers.USER_ID),
+                                                             request.getHeader(HttpHeaders.Names.AUTHORIZATION));
+    HttpResponseCache.Key key = new HttpResponseCache.Key(serviceContext.getSpecification().getName(),
+                                                          path, query, principal, varyValues);
+    String ifNoneMatch = request.getHeader(HttpHeaders.Names.IF_NONE_MATCH);
+
+    HttpResponseCache.Entry entry = responseCache.get(key);
+    if (entry != null) {
+      wrappedResponder.sendCached(entry, ifNoneMatch);
+      return null;
+    }
+    wrappedResponder.enableCaching(responseCache, key, responseCache.getVersion(), maxAgeSeconds, ifNoneMatch);
+    return wrappedResponder;
+  }
+
   /**
    * Returns a new instance of {@link BodyConsumer} that wraps around the given {@link HttpContentConsumer}
    * and {@link DelayedHttpServiceResponder}.
@@ -19,16 +19,20 @@ package co.cask.cdap.internal.app.runtime.service.http;
 import co.cask.cdap.api.service.http.HttpContentProducer;
 import co.cask.cdap.api.service.http.HttpServiceResponder;
 import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
 import com.google.gson.Gson;
 import org.apache.twill.filesystem.Location;
 import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
@@ -53,8 +57,7 @@ public abstract class AbstractHttpServiceResponder implements HttpServiceRespond
 
   @Override
   public final void sendJson(int status, Object object, Type type, Gson gson) {
-    doSend(status, "application/json",
-           ChannelBuffers.wrappedBuffer(Charsets.UTF_8.encode(gson.toJson(object, type))), null, null);
+    doSendJson(status, object, type, gson);
   }
 
   @Override
@@ -147,6 +150,26 @@ public abstract class AbstractHttpServiceResponder implements HttpServiceRespond
                                  @Nullable HttpContentProducer contentProducer,
                                  @Nullable Multimap<String, String> headers);
 
+  /**
+   * Sends a JSON response. By default the object is serialized directly into a buffer, which is then sent through
+   * {@link #doSend(int, String, ChannelBuffer, HttpContentProducer, Multimap)}.
+   *
+   * @param status response status code
+   * @param object the object to serialize
+   * @param type type of the object
+   * @param gson the {@link Gson} for serializing the object
+   */
+  protected void doSendJson(int status, Object object, Type type, Gson gson) {
+    ChannelBuffer content = ChannelBuffers.dynamicBuffer();
+    try (Writer writer = new OutputStreamWriter(new ChannelBufferOutputStream(content), Charsets.UTF_8)) {
+      gson.toJson(object, type, writer);
+    } catch (IOException e) {
+      // Shouldn't happen since writing to ChannelBuffer doesn't throw IOException
+      throw Throwables.propagate(e);
+    }
+    doSend(status, "application/json", content, null, null);
+  }
+
   /**
    * Creates a {@link Multimap} from an {@link Iterable} of {@link Map.Entry}.
    */
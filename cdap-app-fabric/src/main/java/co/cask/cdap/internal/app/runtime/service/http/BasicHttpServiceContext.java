@@ -57,6 +57,7 @@ public class BasicHttpServiceContext extends AbstractContext implements Transact
   private final AtomicInteger instanceCount;
   private final DefaultArtifactManager defaultArtifactManager;
   private final NamespaceId namespaceId;
+  private final HttpResponseCache responseCache;
 
   /**
    * Creates a BasicHttpServiceContext for the given HttpServiceHandlerSpecification.
@@ -72,6 +73,8 @@ public class BasicHttpServiceContext extends AbstractContext implements Transact
    * @param txClient txClient to do transaction operations.
    * @param pluginInstantiator {@link PluginInstantiator}
    * @param secureStore
+   * @param responseCache the {@link HttpResponseCache} shared by all handlers of the service instance,
+   *                      or {@code null} if response caching is not supported
    */
   public BasicHttpServiceContext(Program program, ProgramOptions programOptions, CConfiguration cConf,
                                  @Nullable HttpServiceHandlerSpecification spec,
@@ -81,7 +84,8 @@ public class BasicHttpServiceContext extends AbstractContext implements Transact
                                  TransactionSystemClient txClient, @Nullable PluginInstantiator pluginInstantiator,
                                  SecureStore secureStore, SecureStoreManager secureStoreManager,
                                  MessagingService messagingService,
-                                 DefaultArtifactManager defaultArtifactManager) {
+                                 DefaultArtifactManager defaultArtifactManager,
+                                 @Nullable HttpResponseCache responseCache) {
     super(program, programOptions, cConf, spec == null ? Collections.<String>emptySet() : spec.getDatasets(),
           dsFramework, txClient, discoveryServiceClient, false,
           metricsCollectionService, createMetricsTags(spec, instanceId),
@@ -91,6 +95,7 @@ public class BasicHttpServiceContext extends AbstractContext implements Transact
     this.instanceCount = instanceCount;
     this.defaultArtifactManager = defaultArtifactManager;
     this.namespaceId = program.getId().getNamespaceId();
+    this.responseCache = responseCache;
   }
 
   private static Map<String, String> createMetricsTags(@Nullable HttpServiceHandlerSpecification spec,
@@ -140,6 +145,19 @@ public class BasicHttpServiceContext extends AbstractContext implements Transact
     return super.getDefaultTxTimeout();
   }
 
+  @Nullable
+  @Override
+  public HttpResponseCache getResponseCache() {
+    return responseCache;
+  }
+
+  @Override
+  public void invalidateResponseCache(String pathPrefix) {
+    if (responseCache != null && spec != null) {
+      responseCache.invalidate(spec.getName(), pathPrefix);
+    }
+  }
+
   @Override
   public List<ArtifactInfo> listArtifacts() throws IOException {
     return Retries.callWithRetries(new Retries.Callable<List<ArtifactInfo>, IOException>() {
@@ -17,11 +17,9 @@
 package co.cask.cdap.internal.app.runtime.service.http;
 
 import co.cask.cdap.api.service.http.HttpServiceRequest;
-import com.google.common.collect.ImmutableList;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 
 import java.nio.ByteBuffer;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -34,23 +32,17 @@ import java.util.Map;
 final class DefaultHttpServiceRequest implements HttpServiceRequest {
 
   private final HttpRequest request;
-  private final ByteBuffer content;
-  private final Map<String, List<String>> headers;
+  private ByteBuffer content;
+  private Map<String, List<String>> headers;
 
   /**
-   * Instantiates the class from a {@link HttpRequest}
+   * Instantiates the class from a {@link HttpRequest}. The request content and headers are only accessed
+   * when they are requested.
    *
    * @param request the request which will be bound to.
    */
   DefaultHttpServiceRequest(HttpRequest request) {
     this.request = request;
-    this.content = request.getContent().toByteBuffer();
-
-    Map<String, List<String>> headers = new HashMap<>();
-    for (String name : request.getHeaderNames()) {
-      headers.put(name, ImmutableList.copyOf(request.getHeaders(name)));
-    }
-    this.headers = Collections.unmodifiableMap(headers);
   }
 
   /**
@@ -74,11 +66,22 @@ final class DefaultHttpServiceRequest implements HttpServiceRequest {
    */
   @Override
   public ByteBuffer getContent() {
-    return content.duplicate().asReadOnlyBuffer();
+    // The ByteBuffer shares the memory of the ChannelBuffer if it is backed by a single buffer
+    if (content == null) {
+      content = request.getContent().toByteBuffer();
+    }
+    return content.asReadOnlyBuffer();
   }
 
   @Override
   public Map<String, List<String>> getAllHeaders() {
+    if (headers == null) {
+      Map<String, List<String>> headers = new HashMap<>();
+      for (String name : request.getHeaderNames()) {
+        headers.put(name, Collections.unmodifiableList(request.getHeaders(name)));
+      }
+      this.headers = Collections.unmodifiableMap(headers);
+    }
     return headers;
   }
 
@@ -90,8 +93,7 @@ final class DefaultHttpServiceRequest implements HttpServiceRequest {
    */
   @Override
   public List<String> getHeaders(String key) {
-    List<String> values = headers.get(key);
-    return values == null ? ImmutableList.<String>of() : values;
+    return Collections.unmodifiableList(request.getHeaders(key));
   }
 
   /**
@@ -103,7 +105,6 @@ final class DefaultHttpServiceRequest implements HttpServiceRequest {
    */
   @Override
   public String getHeader(String key) {
-    Collection<String> values = getHeaders(key);
-    return values.isEmpty() ? null : values.iterator().next();
+    return request.getHeader(key);
   }
 }
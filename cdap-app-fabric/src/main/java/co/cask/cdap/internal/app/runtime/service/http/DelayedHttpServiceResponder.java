@@ -19,6 +19,7 @@ package co.cask.cdap.internal.app.runtime.service.http;
 import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.api.service.http.HttpContentProducer;
 import co.cask.cdap.api.service.http.HttpServiceResponder;
+import co.cask.http.ChunkResponder;
 import co.cask.http.HttpResponder;
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
@@ -26,6 +27,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
+import com.google.gson.Gson;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
@@ -34,6 +36,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
 import javax.annotation.Nullable;
 
 /**
@@ -45,12 +52,24 @@ import javax.annotation.Nullable;
 public class DelayedHttpServiceResponder extends AbstractHttpServiceResponder implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(DelayedHttpServiceResponder.class);
 
+  // JSON responses larger than this size are sent in chunks in streaming mode
+  private static final int STREAMING_CHUNK_SIZE = 64 * 1024;
+
   private final HttpResponder responder;
   private final BodyProducerFactory bodyProducerFactory;
   private final TransactionalHttpServiceContext serviceContext;
   private final MetricsContext metricsContext;
   private BufferedResponse bufferedResponse;
   private boolean closed;
+  private boolean streaming;
+  private boolean committed;
+
+  // Only set for handler methods with response caching enabled
+  private HttpResponseCache responseCache;
+  private HttpResponseCache.Key cacheKey;
+  private long cacheVersion;
+  private int cacheMaxAgeSeconds;
+  private String ifNoneMatch;
 
   /**
    * Instantiates the class from a {@link HttpResponder}
@@ -82,17 +101,58 @@ public class DelayedHttpServiceResponder extends AbstractHttpServiceResponder im
                         @Nullable ChannelBuffer content,
                         @Nullable HttpContentProducer contentProducer,
                         @Nullable Multimap<String, String> headers) {
-    Preconditions.checkState(!closed,
-     "Responder is already closed. " +
-       "This may due to either using a HttpServiceResponder inside HttpContentProducer or " +
-       "not using HttpServiceResponder provided to the HttpContentConsumer onFinish/onError method.");
-
+    checkNotClosed();
+    if (committed) {
+      LOG.warn("Response has already been streamed to the client. Ignoring the new response.");
+      return;
+    }
     if (bufferedResponse != null) {
       LOG.warn("Multiple calls to one of the 'send*' methods has been made. Only the last response will be sent.");
     }
     bufferedResponse = new BufferedResponse(status, contentType, content, contentProducer, headers);
   }
 
+  @Override
+  protected void doSendJson(int status, Object object, Type type, Gson gson) {
+    if (!streaming) {
+      super.doSendJson(status, object, type, gson);
+      return;
+    }
+
+    checkNotClosed();
+    if (committed) {
+      LOG.warn("Response has already been streamed to the client. Ignoring the new response.");
+      return;
+    }
+
+    // Serialize directly to chunks, so that a large JSON response is never fully held in memory
+    StreamingOutputStream output = new StreamingOutputStream(status, "application/json");
+    Writer writer = new OutputStreamWriter(output, Charsets.UTF_8);
+    boolean succeeded = false;
+    try {
+      gson.toJson(object, type, writer);
+      writer.flush();
+      output.finish();
+      succeeded = true;
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    } finally {
+      if (!succeeded) {
+        output.abort();
+      }
+    }
+  }
+
+  /**
+   * Enables streaming mode. In streaming mode, a JSON response larger than {@link #STREAMING_CHUNK_SIZE} is
+   * sent to the client in chunks while it is being serialized, instead of being buffered until
+   * {@link #execute()} is called. Once a response is streamed, it cannot be replaced by another response.
+   * Streaming mode should only be used if the response doesn't depend on a transaction commit.
+   */
+  void enableStreaming() {
+    this.streaming = true;
+  }
+
   /**
    * Returns {@code true} if there is a buffered response. This means any of the send methods was called.
    */
@@ -113,6 +173,10 @@ public class DelayedHttpServiceResponder extends AbstractHttpServiceResponder im
    */
   public void setTransactionFailureResponse(Throwable t) {
     LOG.error("Exception occurred while handling request:", t);
+    if (committed) {
+      // Nothing can be done since the response has already been streamed to the client
+      return;
+    }
     @SuppressWarnings("ThrowableResultOfMethodCallIgnored")
     ChannelBuffer content = ChannelBuffers.copiedBuffer("Exception occurred while handling request: "
                                                           + Throwables.getRootCause(t).getMessage(), Charsets.UTF_8);
@@ -122,6 +186,41 @@ public class DelayedHttpServiceResponder extends AbstractHttpServiceResponder im
                                             content, null, null);
   }
 
+  /**
+   * Enables caching of the response sent through this responder.
+   *
+   * @param responseCache the cache to store the response in
+   * @param cacheKey the key of the response
+   * @param cacheVersion version of the cache acquired before the handler method is called
+   * @param maxAgeSeconds maximum number of seconds to cache the response
+   * @param ifNoneMatch value of the {@code If-None-Match} request header
+   */
+  void enableCaching(HttpResponseCache responseCache, HttpResponseCache.Key cacheKey, long cacheVersion,
+                     int maxAgeSeconds, @Nullable String ifNoneMatch) {
+    this.responseCache = responseCache;
+    this.cacheKey = cacheKey;
+    this.cacheVersion = cacheVersion;
+    this.cacheMaxAgeSeconds = maxAgeSeconds;
+    this.ifNoneMatch = ifNoneMatch;
+  }
+
+  /**
+   * Sends the given cached response, or a {@code 304 Not Modified} response if the given {@code If-None-Match}
+   * header value matches the ETag of the cached response.
+   */
+  void sendCached(HttpResponseCache.Entry entry, @Nullable String ifNoneMatch) {
+    Multimap<String, String> headers = LinkedListMultimap.create(entry.getHeaders());
+    headers.put(HttpHeaders.Names.ETAG, entry.getETag());
+    if (entry.matches(ifNoneMatch)) {
+      bufferedResponse = new BufferedResponse(HttpResponseStatus.NOT_MODIFIED.getCode(), entry.getContentType(),
+                                              null, null, headers);
+    } else {
+      bufferedResponse = new BufferedResponse(entry.getStatus(), entry.getContentType(),
+                                              ChannelBuffers.wrappedBuffer(entry.getBody()), null, headers);
+    }
+    execute();
+  }
+
   /**
    * Same as calling {@link #execute(boolean) execute(true)}.
    */
@@ -140,6 +239,12 @@ public class DelayedHttpServiceResponder extends AbstractHttpServiceResponder im
                              "Can not call execute before one of the other responder methods are called.");
 
     try {
+      if (committed) {
+        serviceContext.dismissTransactionContext();
+        emitMetrics(bufferedResponse.getStatus());
+        return;
+      }
+
       HttpContentProducer contentProducer = bufferedResponse.getContentProducer();
 
       if (contentProducer == null) {
@@ -157,21 +262,59 @@ public class DelayedHttpServiceResponder extends AbstractHttpServiceResponder im
         headers.put(HttpHeaders.Names.CONTENT_TYPE, bufferedResponse.getContentType());
       }
 
+      int status = bufferedResponse.getStatus();
       if (contentProducer != null) {
-        responder.sendContent(HttpResponseStatus.valueOf(bufferedResponse.getStatus()),
+        responder.sendContent(HttpResponseStatus.valueOf(status),
                               bodyProducerFactory.create(contentProducer, serviceContext),
                               headers);
       } else {
-        responder.sendContent(HttpResponseStatus.valueOf(bufferedResponse.getStatus()),
-                              bufferedResponse.getContentBuffer(),
-                              bufferedResponse.getContentType(), headers);
+        ChannelBuffer content = bufferedResponse.getContentBuffer();
+        if (responseCache != null && status == HttpResponseStatus.OK.getCode()) {
+          HttpResponseCache.Entry entry = cacheResponse(content);
+          if (entry != null) {
+            headers.put(HttpHeaders.Names.ETAG, entry.getETag());
+            if (entry.matches(ifNoneMatch)) {
+              status = HttpResponseStatus.NOT_MODIFIED.getCode();
+              content = null;
+            }
+          }
+        }
+        responder.sendContent(HttpResponseStatus.valueOf(status), content, bufferedResponse.getContentType(), headers);
       }
-      emitMetrics(bufferedResponse.getStatus());
+      emitMetrics(status);
     } finally {
       close();
     }
   }
 
+  /**
+   * Stores the buffered response in the response cache.
+   *
+   * @return the cached {@link HttpResponseCache.Entry} or {@code null} if the response is not cacheable
+   */
+  @Nullable
+  private HttpResponseCache.Entry cacheResponse(@Nullable ChannelBuffer content) {
+    byte[] body = new byte[content == null ? 0 : content.readableBytes()];
+    if (content != null) {
+      content.getBytes(content.readerIndex(), body);
+    }
+    HttpResponseCache.Entry entry = new HttpResponseCache.Entry(bufferedResponse.getStatus(),
+                                                                bufferedResponse.getContentType(), body,
+                                                                bufferedResponse.getHeaders(), cacheMaxAgeSeconds);
+    if (!entry.isCacheable()) {
+      return null;
+    }
+    responseCache.put(cacheKey, entry, cacheVersion);
+    return entry;
+  }
+
+  private void checkNotClosed() {
+    Preconditions.checkState(!closed,
+     "Responder is already closed. " +
+       "This may due to either using a HttpServiceResponder inside HttpContentProducer or " +
+       "not using HttpServiceResponder provided to the HttpContentConsumer onFinish/onError method.");
+  }
+
   private void emitMetrics(int status) {
     StringBuilder builder = new StringBuilder(50);
     builder.append("response.");
@@ -201,6 +344,84 @@ public class DelayedHttpServiceResponder extends AbstractHttpServiceResponder im
     closed = true;
   }
 
+  /**
+   * An {@link OutputStream} that buffers up to {@link #STREAMING_CHUNK_SIZE} bytes. If the content is larger than
+   * that, a chunked response is started and the content is written in chunks; otherwise the content is sent as
+   * a buffered response when the stream is finished.
+   */
+  private final class StreamingOutputStream extends OutputStream {
+
+    private final int status;
+    private final String contentType;
+    private ChannelBuffer buffer;
+    private ChunkResponder chunkResponder;
+
+    StreamingOutputStream(int status, String contentType) {
+      this.status = status;
+      this.contentType = contentType;
+      this.buffer = ChannelBuffers.dynamicBuffer(STREAMING_CHUNK_SIZE);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      buffer.writeByte(b);
+      flushIfFull();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      buffer.writeBytes(b, off, len);
+      flushIfFull();
+    }
+
+    private void flushIfFull() throws IOException {
+      if (buffer.readableBytes() < STREAMING_CHUNK_SIZE) {
+        return;
+      }
+      if (chunkResponder == null) {
+        if (bufferedResponse != null) {
+          LOG.warn("Multiple calls to one of the 'send*' methods has been made. " +
+                     "Only the last response will be sent.");
+        }
+        Multimap<String, String> headers = LinkedListMultimap.create();
+        headers.put(HttpHeaders.Names.CONTENT_TYPE, contentType);
+        chunkResponder = responder.sendChunkStart(HttpResponseStatus.valueOf(status), headers);
+        bufferedResponse = new BufferedResponse(status, contentType, null, null, null);
+        committed = true;
+      }
+      chunkResponder.sendChunk(buffer);
+      buffer = ChannelBuffers.dynamicBuffer(STREAMING_CHUNK_SIZE);
+    }
+
+    /**
+     * Sends the remaining content and completes the response.
+     */
+    void finish() throws IOException {
+      if (chunkResponder == null) {
+        doSend(status, contentType, buffer, null, null);
+        return;
+      }
+      if (buffer.readable()) {
+        chunkResponder.sendChunk(buffer);
+      }
+      chunkResponder.close();
+    }
+
+    /**
+     * Terminates a streamed response after failure. The client will receive an incomplete response.
+     */
+    void abort() {
+      if (chunkResponder == null) {
+        return;
+      }
+      try {
+        chunkResponder.close();
+      } catch (IOException e) {
+        LOG.debug("Failed to close chunked response", e);
+      }
+    }
+  }
+
   private static final class BufferedResponse {
 
     private final int status;
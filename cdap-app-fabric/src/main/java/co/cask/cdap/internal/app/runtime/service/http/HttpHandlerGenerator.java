@@ -19,6 +19,7 @@ package co.cask.cdap.internal.app.runtime.service.http;
 import co.cask.cdap.api.annotation.TransactionControl;
 import co.cask.cdap.api.annotation.TransactionPolicy;
 import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.service.http.CacheResponse;
 import co.cask.cdap.api.service.http.HttpContentConsumer;
 import co.cask.cdap.api.service.http.HttpServiceHandler;
 import co.cask.cdap.api.service.http.HttpServiceRequest;
@@ -116,6 +117,7 @@ final class HttpHandlerGenerator {
 
   private static final Type TX_POLICY_TYPE = Type.getType(TransactionPolicy.class);
   private static final Type TX_CONTROL_TYPE = Type.getType(TransactionControl.class);
+  private static final Type CACHE_RESPONSE_TYPE = Type.getType(CacheResponse.class);
 
   /**
    * Generates a new class that implements {@link HttpHandler} by copying methods signatures from the given
@@ -230,7 +232,7 @@ final class HttpHandlerGenerator {
             return mv;
           }
           return new HandlerMethodVisitor(delegateType, mv, desc, signature, access, name,
-                                          exceptions, classType, classWriter, preservedClasses);
+                                          exceptions, classType, classWriter, preservedClasses, pathPrefix);
         }
       }, ClassReader.SKIP_DEBUG);
     }
@@ -327,6 +329,7 @@ final class HttpHandlerGenerator {
     private final Type classType;
     private final ClassWriter classWriter;
     private final List<Class<?>> preservedClasses;
+    private final String pathPrefix;
 
     /**
      * Constructs a {@link HandlerMethodVisitor}.
@@ -342,10 +345,12 @@ final class HttpHandlerGenerator {
      * @param classWriter Writer for generating bytecode
      * @param preservedClasses List for storing classes that needs to be preserved for correct class loading.
      *                         See {@link ClassDefinition} for details.
+     * @param pathPrefix prefix for all {@code @PATH} annotation
      */
     HandlerMethodVisitor(TypeToken<?> delegateType, MethodVisitor mv, String desc,
                          String signature, int access, String name, String[] exceptions,
-                         Type classType, ClassWriter classWriter, List<Class<?>> preservedClasses) {
+                         Type classType, ClassWriter classWriter, List<Class<?>> preservedClasses,
+                         String pathPrefix) {
       super(Opcodes.ASM5, mv);
       this.delegateType = delegateType;
       this.desc = desc;
@@ -358,6 +363,7 @@ final class HttpHandlerGenerator {
       this.classType = classType;
       this.classWriter = classWriter;
       this.preservedClasses = preservedClasses;
+      this.pathPrefix = pathPrefix;
     }
 
     @Override
@@ -388,10 +394,27 @@ final class HttpHandlerGenerator {
       // If any annotations of the method is one of those HttpMethod,
       // this is a handler process, hence need to copy.
       boolean handlerMethod = false;
+      boolean getMethod = false;
       TransactionControl txCtrl = TransactionControl.IMPLICIT;
+      int cacheMaxAgeSeconds = 0;
+      List<String> cacheVaryHeaders = Lists.newArrayList();
       for (AnnotationNode annotation : annotations) {
         if (isHandlerMethod(Type.getType(annotation.desc))) {
           handlerMethod = true;
+          getMethod = getMethod || Type.getType(GET.class).equals(Type.getType(annotation.desc));
+        } else if (CACHE_RESPONSE_TYPE.equals(Type.getType(annotation.desc)) && annotation.values != null) {
+          // Values are stored as a list of name and value pairs. Array value is stored as a List.
+          List list = annotation.values;
+          for (int i = 0; i + 1 < list.size(); i += 2) {
+            Object value = list.get(i + 1);
+            if ("maxAgeSeconds".equals(list.get(i)) && value instanceof Integer) {
+              cacheMaxAgeSeconds = (Integer) value;
+            } else if ("varyHeaders".equals(list.get(i)) && value instanceof List) {
+              for (Object header : (List) value) {
+                cacheVaryHeaders.add(header.toString());
+              }
+            }
+          }
         } else if (TX_POLICY_TYPE.equals(Type.getType(annotation.desc))) {
           List list = annotation.values;
           for (Iterator iter = list.iterator(); iter.hasNext(); ) {
@@ -460,8 +483,13 @@ final class HttpHandlerGenerator {
         annotation.accept(mg.visitParameterAnnotation(entry.getKey(), annotation.desc, true));
       }
 
+      // Response caching is only supported for GET methods that don't return HttpContentConsumer
+      if (!getMethod || returnType.getSort() != Type.VOID) {
+        cacheMaxAgeSeconds = 0;
+      }
+
       // Each request method is wrapped by a transaction lifecycle.
-      generateTransactionalDelegateBody(mg, new Method(name, desc), txCtrl);
+      generateTransactionalDelegateBody(mg, new Method(name, desc), txCtrl, cacheMaxAgeSeconds, cacheVaryHeaders);
 
       super.visitEnd();
     }
@@ -537,7 +565,14 @@ final class HttpHandlerGenerator {
      *   public void|BodyConsumer handle(HttpRequest request, HttpResponder responder, ...) {
      *     T handler = getHandler();
      *     HttpContentConsumer contentConsumer = null;
+     *     // wrapStreamingResponder(responder) is called instead if transaction control is EXPLICIT
      *     DelayedHttpServiceResponder wrappedResponder = wrapResponder(responder);
+     *     // Instead of the above line, generates the following if response caching is enabled
+     *     DelayedHttpServiceResponder wrappedResponder = wrapCachingResponder(request, responder, pathPrefix,
+     *                                                                         maxAgeSeconds, varyHeaders);
+     *     if (wrappedResponder == null) {
+     *       return;
+     *     }
      *     try {
      *       // only start tx if transaction control is IMPLICIT
      *       TransactionContext txContext = startTransactionContext();
@@ -578,7 +613,8 @@ final class HttpHandlerGenerator {
      * }
      * </pre>
      */
-    private void generateTransactionalDelegateBody(GeneratorAdapter mg, Method method, TransactionControl txCtrl) {
+    private void generateTransactionalDelegateBody(GeneratorAdapter mg, Method method, TransactionControl txCtrl,
+                                                   int cacheMaxAgeSeconds, List<String> cacheVaryHeaders) {
       Type handlerType = Type.getType(delegateType.getRawType());
       Type txContextType = Type.getType(TransactionContext.class);
       Type txFailureExceptionType = Type.getType(TransactionFailureException.class);
@@ -617,13 +653,47 @@ final class HttpHandlerGenerator {
       mg.visitInsn(Opcodes.ACONST_NULL);
       mg.storeLocal(contentConsumer, httpContentConsumerType);
 
-      // DelayedHttpServiceResponder wrappedResponder = wrapResponder(responder);;
       int wrappedResponder = mg.newLocal(delayedHttpServiceResponderType);
-      mg.loadThis();
-      mg.loadArg(1);
-      mg.invokeVirtual(classType,
-                       Methods.getMethod(DelayedHttpServiceResponder.class, "wrapResponder", HttpResponder.class));
-      mg.storeLocal(wrappedResponder, delayedHttpServiceResponderType);
+      if (cacheMaxAgeSeconds > 0) {
+        // DelayedHttpServiceResponder wrappedResponder = wrapCachingResponder(request, responder, pathPrefix,
+        //                                                                     maxAgeSeconds, varyHeaders);
+        Type stringType = Type.getType(String.class);
+        mg.loadThis();
+        mg.loadArg(0);
+        mg.loadArg(1);
+        mg.push(pathPrefix);
+        mg.push(cacheMaxAgeSeconds);
+        mg.push(cacheVaryHeaders.size());
+        mg.newArray(stringType);
+        for (int i = 0; i < cacheVaryHeaders.size(); i++) {
+          mg.dup();
+          mg.push(i);
+          mg.push(cacheVaryHeaders.get(i));
+          mg.arrayStore(stringType);
+        }
+        mg.invokeVirtual(classType,
+                         Methods.getMethod(DelayedHttpServiceResponder.class, "wrapCachingResponder",
+                                           HttpRequest.class, HttpResponder.class, String.class,
+                                           int.class, String[].class));
+        mg.storeLocal(wrappedResponder, delayedHttpServiceResponderType);
+
+        // if (wrappedResponder == null) { return; }
+        Label notCached = mg.newLabel();
+        mg.loadLocal(wrappedResponder);
+        mg.ifNonNull(notCached);
+        mg.returnValue();
+        mg.mark(notCached);
+      } else {
+        // DelayedHttpServiceResponder wrappedResponder = wrapResponder(responder);
+        // or, if transaction control is EXPLICIT
+        // DelayedHttpServiceResponder wrappedResponder = wrapStreamingResponder(responder);
+        String wrapMethod = TransactionControl.EXPLICIT == txCtrl ? "wrapStreamingResponder" : "wrapResponder";
+        mg.loadThis();
+        mg.loadArg(1);
+        mg.invokeVirtual(classType,
+                         Methods.getMethod(DelayedHttpServiceResponder.class, wrapMethod, HttpResponder.class));
+        mg.storeLocal(wrappedResponder, delayedHttpServiceResponderType);
+      }
 
       // try {  // Outer try for transaction failure
       mg.mark(txTryBegin);
@@ -0,0 +1,256 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.service.http;
+
+import co.cask.cdap.api.service.http.CacheResponse;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.hash.Hashing;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An in-memory cache of responses of user service handler methods annotated with {@link CacheResponse}.
+ * One instance is shared by all handlers of a service instance, with the total size of cached bodies bounded.
+ * <p/>
+ * Each invalidation bumps a version. A response is only cached if no invalidation happened since the request
+ * started, so that a response computed from data older than an invalidation doesn't get cached.
+ */
+@ThreadSafe
+public final class HttpResponseCache {
+
+  private final Cache<Key, Entry> cache;
+  private final AtomicLong version;
+  private final boolean enabled;
+
+  /**
+   * Creates a cache that holds up to the given number of bytes of response bodies. A non-positive size disables
+   * caching.
+   */
+  public HttpResponseCache(long maxBytes) {
+    this.enabled = maxBytes > 0;
+    this.cache = CacheBuilder.newBuilder()
+      .maximumWeight(Math.max(1L, maxBytes))
+      .weigher(new Weigher<Key, Entry>() {
+        @Override
+        public int weigh(Key key, Entry entry) {
+          return entry.getBody().length;
+        }
+      })
+      .build();
+    this.version = new AtomicLong();
+  }
+
+  boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the current version of the cache. It should be acquired before computing a response to be cached.
+   */
+  long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Returns the cached {@link Entry} for the given key or {@code null} if there is no cached response or the cached
+   * response has expired.
+   */
+  @Nullable
+  Entry get(Key key) {
+    if (!enabled) {
+      return null;
+    }
+    Entry entry = cache.getIfPresent(key);
+    if (entry == null) {
+      return null;
+    }
+    if (entry.getExpireTime() <= System.currentTimeMillis()) {
+      cache.asMap().remove(key, entry);
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * Caches the given {@link Entry} if there was no invalidation since the given version.
+   */
+  void put(Key key, Entry entry, long requestVersion) {
+    if (!enabled) {
+      return;
+    }
+    synchronized (this) {
+      if (version.get() == requestVersion) {
+        cache.put(key, entry);
+      }
+    }
+  }
+
+  /**
+   * Invalidates cached responses of the given handler for request paths that start with the given prefix.
+   */
+  synchronized void invalidate(String handlerName, String pathPrefix) {
+    version.incrementAndGet();
+    Iterator<Key> iterator = cache.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      Key key = iterator.next();
+      if (key.handlerName.equals(handlerName) && key.path.startsWith(pathPrefix)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Key of a cached response.
+   */
+  static final class Key {
+    private final String handlerName;
+    private final String path;
+    private final String query;
+    private final String principal;
+    private final List<String> varyValues;
+
+    /**
+     * Creates a key.
+     *
+     * @param handlerName name of the handler
+     * @param path request path relative to the service
+     * @param query the request query string, or empty string if there is none
+     * @param principal identifies the caller of the request, so that responses are never shared between callers
+     * @param varyValues values of the request headers that are part of the key
+     */
+    Key(String handlerName, String path, String query, String principal, List<String> varyValues) {
+      this.handlerName = handlerName;
+      this.path = path;
+      this.query = query;
+      this.principal = principal;
+      this.varyValues = varyValues;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key other = (Key) o;
+      return handlerName.equals(other.handlerName) && path.equals(other.path)
+        && query.equals(other.query) && principal.equals(other.principal) && varyValues.equals(other.varyValues);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(handlerName, path, query, principal, varyValues);
+    }
+  }
+
+  /**
+   * A cached response.
+   */
+  static final class Entry {
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+    private final Multimap<String, String> headers;
+    private final String etag;
+    private final long expireTime;
+
+    Entry(int status, String contentType, byte[] body, Multimap<String, String> headers, int maxAgeSeconds) {
+      this.status = status;
+      this.contentType = contentType;
+      this.body = body;
+      this.headers = ImmutableMultimap.copyOf(headers);
+      this.etag = "\"" + Hashing.murmur3_128().hashBytes(body).toString() + "\"";
+      this.expireTime = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(maxAgeSeconds);
+    }
+
+    int getStatus() {
+      return status;
+    }
+
+    String getContentType() {
+      return contentType;
+    }
+
+    byte[] getBody() {
+      return body;
+    }
+
+    Multimap<String, String> getHeaders() {
+      return headers;
+    }
+
+    String getETag() {
+      return etag;
+    }
+
+    long getExpireTime() {
+      return expireTime;
+    }
+
+    /**
+     * Returns {@code true} if the response can be cached, based on the headers set by the handler.
+     */
+    boolean isCacheable() {
+      for (Map.Entry<String, String> header : headers.entries()) {
+        String name = header.getKey();
+        if (HttpHeaders.Names.SET_COOKIE.equalsIgnoreCase(name)) {
+          return false;
+        }
+        if (HttpHeaders.Names.CACHE_CONTROL.equalsIgnoreCase(name)
+          && (header.getValue().contains(HttpHeaders.Values.NO_STORE)
+          || header.getValue().contains(HttpHeaders.Values.NO_CACHE)
+          || header.getValue().contains(HttpHeaders.Values.PRIVATE))) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Returns {@code true} if the given {@code If-None-Match} header value matches the ETag of this response.
+     */
+    boolean matches(@Nullable String ifNoneMatch) {
+      if (ifNoneMatch == null) {
+        return false;
+      }
+      for (String tag : ifNoneMatch.split(",")) {
+        tag = tag.trim();
+        if (tag.startsWith("W/")) {
+          tag = tag.substring(2);
+        }
+        if (tag.equals("*") || tag.equals(etag)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -20,6 +20,8 @@ import co.cask.cdap.api.service.http.HttpServiceContext;
 import org.apache.tephra.TransactionContext;
 import org.apache.tephra.TransactionFailureException;
 
+import javax.annotation.Nullable;
+
 /**
  * Defines a {@link HttpServiceContext} that supports transactions.
  */
@@ -40,4 +42,10 @@ public interface TransactionalHttpServiceContext extends HttpServiceContext {
    * @return the default transaction timeout.
    */
   int getDefaultTxTimeout();
+
+  /**
+   * @return the {@link HttpResponseCache} for caching handler responses, or {@code null} if caching is not supported.
+   */
+  @Nullable
+  HttpResponseCache getResponseCache();
 }
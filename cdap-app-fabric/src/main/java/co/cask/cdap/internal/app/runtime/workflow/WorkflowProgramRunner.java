@@ -35,6 +35,7 @@ import co.cask.cdap.common.service.Retries;
 import co.cask.cdap.common.service.RetryStrategies;
 import co.cask.cdap.data.ProgramContextAware;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.metadata.writer.LineageWriter;
 import co.cask.cdap.internal.app.runtime.AbstractListener;
 import co.cask.cdap.internal.app.runtime.AbstractProgramRunnerWithPlugin;
 import co.cask.cdap.internal.app.runtime.BasicProgramContext;
@@ -82,6 +83,7 @@ public class WorkflowProgramRunner extends AbstractProgramRunnerWithPlugin {
   private final SecureStore secureStore;
   private final SecureStoreManager secureStoreManager;
   private final MessagingService messagingService;
+  private final LineageWriter lineageWriter;
   private final CConfiguration cConf;
 
   @Inject
@@ -90,7 +92,8 @@ public class WorkflowProgramRunner extends AbstractProgramRunnerWithPlugin {
                                MetricsCollectionService metricsCollectionService, DatasetFramework datasetFramework,
                                DiscoveryServiceClient discoveryServiceClient, TransactionSystemClient txClient,
                                RuntimeStore runtimeStore, CConfiguration cConf, SecureStore secureStore,
-                               SecureStoreManager secureStoreManager, MessagingService messagingService) {
+                               SecureStoreManager secureStoreManager, MessagingService messagingService,
+                               LineageWriter lineageWriter) {
     super(cConf);
     this.programRunnerFactory = programRunnerFactory;
     this.serviceAnnouncer = serviceAnnouncer;
@@ -103,6 +106,7 @@ public class WorkflowProgramRunner extends AbstractProgramRunnerWithPlugin {
     this.secureStore = secureStore;
     this.secureStoreManager = secureStoreManager;
     this.messagingService = messagingService;
+    this.lineageWriter = lineageWriter;
     this.cConf = cConf;
   }
 
@@ -181,6 +185,7 @@ public class WorkflowProgramRunner extends AbstractProgramRunnerWithPlugin {
         @Override
         public void completed() {
           LOG.debug("Program {} with run id {} completed successfully.", program.getId(), runId.getId());
+          ProgramRunners.flushLineage(lineageWriter, program.getId(), runId.getId());
           Retries.supplyWithRetries(new Supplier<Void>() {
             @Override
             public Void get() {
@@ -195,6 +200,7 @@ public class WorkflowProgramRunner extends AbstractProgramRunnerWithPlugin {
         @Override
         public void killed() {
           LOG.debug("Program {} with run id {} killed.", program.getId(), runId.getId());
+          ProgramRunners.flushLineage(lineageWriter, program.getId(), runId.getId());
           Retries.supplyWithRetries(new Supplier<Void>() {
             @Override
             public Void get() {
@@ -234,6 +240,7 @@ public class WorkflowProgramRunner extends AbstractProgramRunnerWithPlugin {
         public void error(final Throwable cause) {
           LOG.info("Program {} with run id {} stopped because of error {}.", program.getId(), runId.getId(), cause);
           closeAllQuietly(closeables);
+          ProgramRunners.flushLineage(lineageWriter, program.getId(), runId.getId());
           Retries.supplyWithRetries(new Supplier<Void>() {
             @Override
             public Void get() {
@@ -30,6 +30,7 @@ import co.cask.cdap.common.metrics.MetricsReporterHook;
 import co.cask.cdap.common.namespace.NamespaceAdmin;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
 import co.cask.cdap.internal.app.namespace.DefaultNamespaceEnsurer;
+import co.cask.cdap.internal.app.runtime.artifact.ArtifactRepository;
 import co.cask.cdap.internal.app.runtime.artifact.SystemArtifactLoader;
 import co.cask.cdap.internal.app.runtime.plugin.PluginService;
 import co.cask.cdap.notifications.service.NotificationService;
@@ -84,6 +85,7 @@ public class AppFabricServer extends AbstractIdleService {
   private final StreamCoordinatorClient streamCoordinatorClient;
   private final ProgramLifecycleService programLifecycleService;
   private final SystemArtifactLoader systemArtifactLoader;
+  private final ArtifactRepository artifactRepository;
   private final PluginService pluginService;
   private final CoreSchedulerService coreSchedulerService;
   private final AppVersionUpgradeService appVersionUpgradeService;
@@ -116,6 +118,7 @@ public class AppFabricServer extends AbstractIdleService {
                          @Named("appfabric.handler.hooks") Set<String> handlerHookNames,
                          NamespaceAdmin namespaceAdmin,
                          SystemArtifactLoader systemArtifactLoader,
+                         ArtifactRepository artifactRepository,
                          PluginService pluginService,
                          @Nullable AppVersionUpgradeService appVersionUpgradeService,
                          RouteStore routeStore,
@@ -134,6 +137,7 @@ public class AppFabricServer extends AbstractIdleService {
     this.streamCoordinatorClient = streamCoordinatorClient;
     this.programLifecycleService = programLifecycleService;
     this.systemArtifactLoader = systemArtifactLoader;
+    this.artifactRepository = artifactRepository;
     this.pluginService = pluginService;
     this.appVersionUpgradeService = appVersionUpgradeService;
     this.routeStore = routeStore;
@@ -280,6 +284,8 @@ public class AppFabricServer extends AbstractIdleService {
     if (appVersionUpgradeService != null) {
       appVersionUpgradeService.stopAndWait();
     }
+    // Delete the expanded artifacts once nothing uses the artifact classloaders anymore
+    artifactRepository.close();
   }
 
   private static String generateRandomPassword() {
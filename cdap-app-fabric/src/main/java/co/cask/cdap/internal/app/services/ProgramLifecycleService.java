@@ -40,10 +40,12 @@ import co.cask.cdap.common.security.AuthEnforce;
 import co.cask.cdap.common.service.Retries;
 import co.cask.cdap.common.service.RetryStrategies;
 import co.cask.cdap.config.PreferencesStore;
+import co.cask.cdap.data2.metadata.writer.LineageWriter;
 import co.cask.cdap.internal.app.ApplicationSpecificationAdapter;
 import co.cask.cdap.internal.app.runtime.AbstractListener;
 import co.cask.cdap.internal.app.runtime.BasicArguments;
 import co.cask.cdap.internal.app.runtime.ProgramOptionConstants;
+import co.cask.cdap.internal.app.runtime.ProgramRunners;
 import co.cask.cdap.internal.app.runtime.SimpleProgramOptions;
 import co.cask.cdap.internal.app.runtime.schedule.ProgramSchedule;
 import co.cask.cdap.internal.app.runtime.schedule.ProgramScheduleStatus;
@@ -124,12 +126,14 @@ public class ProgramLifecycleService extends AbstractIdleService {
   private final AuthorizationEnforcer authorizationEnforcer;
   private final AuthenticationContext authenticationContext;
   private final Scheduler scheduler;
+  private final LineageWriter lineageWriter;
 
   @Inject
   ProgramLifecycleService(Store store, NamespaceStore nsStore, ProgramRuntimeService runtimeService,
                           CConfiguration cConf, PropertiesResolver propertiesResolver,
                           PreferencesStore preferencesStore, AuthorizationEnforcer authorizationEnforcer,
-                          AuthenticationContext authenticationContext, Scheduler scheduler) {
+                          AuthenticationContext authenticationContext, Scheduler scheduler,
+                          LineageWriter lineageWriter) {
     this.store = store;
     this.nsStore = nsStore;
     this.runtimeService = runtimeService;
@@ -140,6 +144,7 @@ public class ProgramLifecycleService extends AbstractIdleService {
     this.authorizationEnforcer = authorizationEnforcer;
     this.authenticationContext = authenticationContext;
     this.scheduler = scheduler;
+    this.lineageWriter = lineageWriter;
   }
 
   @Override
@@ -365,6 +370,7 @@ public class ProgramLifecycleService extends AbstractIdleService {
         @Override
         public void completed() {
           LOG.debug("Program {} completed successfully.", programId);
+          ProgramRunners.flushLineage(lineageWriter, programId, runId);
           Retries.supplyWithRetries(new Supplier<Void>() {
             @Override
             public Void get() {
@@ -378,6 +384,7 @@ public class ProgramLifecycleService extends AbstractIdleService {
         @Override
         public void killed() {
           LOG.debug("Program {} killed.", programId);
+          ProgramRunners.flushLineage(lineageWriter, programId, runId);
           Retries.supplyWithRetries(new Supplier<Void>() {
             @Override
             public Void get() {
@@ -415,6 +422,7 @@ public class ProgramLifecycleService extends AbstractIdleService {
         @Override
         public void error(final Throwable cause) {
           LOG.info("Program stopped with error {}, {}", programId, runId, cause);
+          ProgramRunners.flushLineage(lineageWriter, programId, runId);
           Retries.supplyWithRetries(new Supplier<Void>() {
             @Override
             public Void get() {
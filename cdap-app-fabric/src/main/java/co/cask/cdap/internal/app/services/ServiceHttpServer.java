@@ -43,6 +43,7 @@ import co.cask.cdap.internal.app.runtime.plugin.PluginInstantiator;
 import co.cask.cdap.internal.app.runtime.service.http.BasicHttpServiceContext;
 import co.cask.cdap.internal.app.runtime.service.http.DelegatorContext;
 import co.cask.cdap.internal.app.runtime.service.http.HttpHandlerFactory;
+import co.cask.cdap.internal.app.runtime.service.http.HttpResponseCache;
 import co.cask.cdap.internal.lang.Reflections;
 import co.cask.cdap.logging.context.UserServiceLoggingContext;
 import co.cask.cdap.messaging.MessagingService;
@@ -220,6 +221,9 @@ public class ServiceHttpServer extends AbstractIdleService {
                                                               final SecureStoreManager secureStoreManager,
                                                               final MessagingService messagingService,
                                                               final DefaultArtifactManager defaultArtifactManager) {
+    // All handlers of this service instance share the same response cache
+    final HttpResponseCache responseCache =
+      new HttpResponseCache(cConf.getLong(Constants.AppFabric.SERVICE_RESPONSE_CACHE_MAX_BYTES));
     return new BasicHttpServiceContextFactory() {
       @Override
       public BasicHttpServiceContext create(@Nullable HttpServiceHandlerSpecification spec) {
@@ -227,7 +231,7 @@ public class ServiceHttpServer extends AbstractIdleService {
                                            metricsCollectionService, datasetFramework, discoveryServiceClient,
                                            txClient, pluginInstantiator, secureStore, secureStoreManager,
                                            messagingService,
-                                           defaultArtifactManager);
+                                           defaultArtifactManager, responseCache);
       }
     };
   }
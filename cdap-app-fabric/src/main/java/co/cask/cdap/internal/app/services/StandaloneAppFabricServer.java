@@ -24,6 +24,7 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.conf.SConfiguration;
 import co.cask.cdap.common.namespace.NamespaceAdmin;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
+import co.cask.cdap.internal.app.runtime.artifact.ArtifactRepository;
 import co.cask.cdap.internal.app.runtime.artifact.SystemArtifactLoader;
 import co.cask.cdap.internal.app.runtime.flow.FlowUtils;
 import co.cask.cdap.internal.app.runtime.plugin.PluginService;
@@ -66,13 +67,14 @@ public class StandaloneAppFabricServer extends AppFabricServer {
                                    NamespaceAdmin namespaceAdmin,
                                    MetricStore metricStore,
                                    SystemArtifactLoader systemArtifactLoader,
+                                   ArtifactRepository artifactRepository,
                                    PluginService pluginService,
                                    RouteStore routeStore,
                                    CoreSchedulerService coreSchedulerService) {
     super(cConf, sConf, discoveryService, notificationService, hostname, handlers,
           metricsCollectionService, programRuntimeService, applicationLifecycleService,
           programLifecycleService, streamCoordinatorClient, servicesNames, handlerHookNames, namespaceAdmin,
-          systemArtifactLoader, pluginService, null, routeStore, coreSchedulerService);
+          systemArtifactLoader, artifactRepository, pluginService, null, routeStore, coreSchedulerService);
     this.metricStore = metricStore;
   }
 
@@ -28,6 +28,7 @@ import co.cask.cdap.proto.id.ApplicationId;
 import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.NamespaceId;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
@@ -35,9 +36,12 @@ import com.google.inject.Inject;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -48,6 +52,9 @@ public class DefaultPreviewStore implements PreviewStore {
   private static final byte[] TRACER = Bytes.toBytes("t");
   private static final byte[] PROPERTY = Bytes.toBytes("p");
   private static final byte[] VALUE = Bytes.toBytes("v");
+  // Gson is thread safe, hence it is shared by all operations
+  private static final Gson GSON = new GsonBuilder()
+    .registerTypeAdapter(Schema.class, new SchemaTypeAdapter()).create();
 
   private final AtomicLong counter = new AtomicLong(0L);
 
@@ -67,26 +74,40 @@ public class DefaultPreviewStore implements PreviewStore {
 
   @Override
   public void put(ApplicationId applicationId, String tracerName, String propertyName, Object value) {
-    // PreviewStore is a singleton and we have to create gson for each operation since gson is not thread safe.
-    Gson gson = new GsonBuilder().registerTypeAdapter(Schema.class, new SchemaTypeAdapter()).create();
-    MDSKey mdsKey = new MDSKey.Builder().add(applicationId.getNamespace())
-      .add(applicationId.getApplication()).add(tracerName).add(counter.getAndIncrement()).build();
+    putAll(applicationId, tracerName, Collections.singletonList(Maps.immutableEntry(propertyName, value)));
+  }
+
+  @Override
+  public void putAll(ApplicationId applicationId, String tracerName,
+                     List<? extends Map.Entry<String, ?>> properties) {
+    if (properties.isEmpty()) {
+      return;
+    }
+    byte[] tracer = Bytes.toBytes(tracerName);
+    long id = counter.getAndAdd(properties.size());
+    NavigableMap<byte[], NavigableMap<byte[], byte[]>> rows = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<String, ?> property : properties) {
+      MDSKey mdsKey = new MDSKey.Builder().add(applicationId.getNamespace())
+        .add(applicationId.getApplication()).add(tracerName).add(id++).build();
+      NavigableMap<byte[], byte[]> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      columns.put(TRACER, tracer);
+      columns.put(PROPERTY, Bytes.toBytes(property.getKey()));
+      columns.put(VALUE, Bytes.toBytes(GSON.toJson(property.getValue())));
+      rows.put(mdsKey.getKey(), columns);
+    }
 
     try {
-      table.put(mdsKey.getKey(), TRACER, Bytes.toBytes(tracerName), 1L);
-      table.put(mdsKey.getKey(), PROPERTY, Bytes.toBytes(propertyName), 1L);
-      table.put(mdsKey.getKey(), VALUE, Bytes.toBytes(gson.toJson(value)), 1L);
+      // All rows are written in one batch
+      table.persist(rows, 1L);
     } catch (IOException e) {
-      String message = String.format("Error while putting property '%s' for application '%s' and tracer '%s' in" +
-                                       " preview table.", propertyName, applicationId, tracerName);
+      String message = String.format("Error while putting %d properties for application '%s' and tracer '%s' in" +
+                                       " preview table.", properties.size(), applicationId, tracerName);
       throw new RuntimeException(message, e);
     }
   }
 
   @Override
   public Map<String, List<JsonElement>> get(ApplicationId applicationId, String tracerName) {
-    // PreviewStore is a singleton and we have to create gson for each operation since gson is not thread safe.
-    Gson gson = new GsonBuilder().registerTypeAdapter(Schema.class, new SchemaTypeAdapter()).create();
     byte[] startRowKey = new MDSKey.Builder().add(applicationId.getNamespace())
       .add(applicationId.getApplication()).add(tracerName).build().getKey();
     byte[] stopRowKey = new MDSKey(Bytes.stopKeyForPrefix(startRowKey)).getKey();
@@ -97,7 +118,7 @@ public class DefaultPreviewStore implements PreviewStore {
       while ((indexRow = scanner.next()) != null) {
         Map<byte[], byte[]> columns = indexRow.getColumns();
         String propertyName = Bytes.toString(columns.get(PROPERTY));
-        JsonElement value = gson.fromJson(Bytes.toString(columns.get(VALUE)), JsonElement.class);
+        JsonElement value = GSON.fromJson(Bytes.toString(columns.get(VALUE)), JsonElement.class);
         List<JsonElement> values = result.get(propertyName);
         if (values == null) {
           values = new ArrayList<>();
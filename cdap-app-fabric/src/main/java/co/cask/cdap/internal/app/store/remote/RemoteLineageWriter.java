@@ -16,67 +16,61 @@
 
 package co.cask.cdap.internal.app.store.remote;
 
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.internal.remote.RemoteOpsClient;
-import co.cask.cdap.data2.metadata.lineage.AccessType;
-import co.cask.cdap.data2.metadata.writer.BasicLineageWriter;
-import co.cask.cdap.data2.metadata.writer.LineageWriter;
-import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.data2.metadata.lineage.DataAccess;
+import co.cask.cdap.data2.metadata.writer.AbstractLineageWriter;
+import co.cask.cdap.proto.codec.EntityIdTypeAdapter;
+import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.NamespacedEntityId;
-import co.cask.cdap.proto.id.ProgramRunId;
-import co.cask.cdap.proto.id.StreamId;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
 import org.apache.twill.discovery.DiscoveryServiceClient;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import javax.annotation.Nullable;
+import java.lang.reflect.Type;
+import java.util.List;
 
 /**
  * Implementation of LineageWriter, which uses an HTTP Client to execute the actual lineage writing in a remote
- * server.
+ * server. Each batch of accesses is written with one remote call.
  */
-public class RemoteLineageWriter extends RemoteOpsClient implements LineageWriter {
+public class RemoteLineageWriter extends AbstractLineageWriter {
 
-  private final ConcurrentMap<BasicLineageWriter.DataAccessKey, Boolean> registered = new ConcurrentHashMap<>();
+  private static final Gson GSON = new GsonBuilder()
+    .registerTypeAdapter(EntityId.class, new EntityIdTypeAdapter())
+    .registerTypeAdapter(NamespacedEntityId.class, new EntityIdTypeAdapter())
+    .create();
+  private static final Type DATA_ACCESS_LIST_TYPE = new TypeToken<List<DataAccess>>() { }.getType();
 
-  @Inject
-  RemoteLineageWriter(DiscoveryServiceClient discoveryClient) {
-    super(discoveryClient, Constants.Service.REMOTE_SYSTEM_OPERATION);
-  }
+  private final LineageOpsClient client;
 
-  @Override
-  public void addAccess(ProgramRunId run, DatasetId datasetInstance, AccessType accessType) {
-    // delegates on client side; so corresponding method is not required to be implemented on server side
-    addAccess(run, datasetInstance, accessType, null);
+  @Inject
+  RemoteLineageWriter(CConfiguration cConf, DiscoveryServiceClient discoveryClient) {
+    super(cConf);
+    this.client = new LineageOpsClient(discoveryClient);
   }
 
   @Override
-  public void addAccess(ProgramRunId run, DatasetId datasetInstance, AccessType accessType,
-                        @Nullable NamespacedEntityId component) {
-    if (alreadyRegistered(run, datasetInstance, accessType, component)) {
-      return;
-    }
-    executeRequest("addDatasetAccess", run, datasetInstance, accessType, component);
+  protected void write(List<DataAccess> accesses) {
+    client.addAccesses(accesses);
   }
 
-  @Override
-  public void addAccess(ProgramRunId run, StreamId stream, AccessType accessType) {
-    // delegates on client side; so corresponding method is not required to be implemented on server side
-    addAccess(run, stream, accessType, null);
-  }
+  /**
+   * The {@link RemoteOpsClient} for writing accesses.
+   */
+  private static final class LineageOpsClient extends RemoteOpsClient {
 
-  @Override
-  public void addAccess(ProgramRunId run, StreamId stream, AccessType accessType,
-                        @Nullable NamespacedEntityId component) {
-    if (alreadyRegistered(run, stream, accessType, component)) {
-      return;
+    LineageOpsClient(DiscoveryServiceClient discoveryClient) {
+      super(discoveryClient, Constants.Service.REMOTE_SYSTEM_OPERATION);
     }
-    executeRequest("addStreamAccess", run, stream, accessType, component);
-  }
 
-  private boolean alreadyRegistered(ProgramRunId run, NamespacedEntityId data, AccessType accessType,
-                                    @Nullable NamespacedEntityId component) {
-    return registered.putIfAbsent(new BasicLineageWriter.DataAccessKey(run, data, accessType, component), true) != null;
+    void addAccesses(List<DataAccess> accesses) {
+      // The data and component of the accesses can be of different entity types, which the EntityIdTypeAdapter
+      // tells apart on deserialization by the entity field
+      executeRequest("addAccesses", GSON.toJson(accesses, DATA_ACCESS_LIST_TYPE));
+    }
   }
 }
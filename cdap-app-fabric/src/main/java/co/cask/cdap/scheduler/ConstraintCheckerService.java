@@ -22,6 +22,7 @@ import co.cask.cdap.api.dataset.lib.CloseableIterator;
 import co.cask.cdap.app.store.Store;
 import co.cask.cdap.common.NotFoundException;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.namespace.NamespaceQueryAdmin;
 import co.cask.cdap.common.service.RetryStrategy;
 import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
@@ -34,12 +35,15 @@ import co.cask.cdap.internal.app.runtime.schedule.constraint.CheckableConstraint
 import co.cask.cdap.internal.app.runtime.schedule.constraint.ConstraintContext;
 import co.cask.cdap.internal.app.runtime.schedule.constraint.ConstraintResult;
 import co.cask.cdap.internal.app.runtime.schedule.queue.Job;
+import co.cask.cdap.internal.app.runtime.schedule.queue.JobKey;
+import co.cask.cdap.internal.app.runtime.schedule.queue.JobQueue;
 import co.cask.cdap.internal.app.runtime.schedule.queue.JobQueueDataset;
 import co.cask.cdap.internal.app.runtime.schedule.store.Schedulers;
 import co.cask.cdap.internal.app.services.ProgramLifecycleService;
 import co.cask.cdap.internal.app.services.PropertiesResolver;
 import co.cask.cdap.internal.schedule.constraint.Constraint;
 import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.ScheduleId;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.AbstractIdleService;
@@ -47,6 +51,7 @@ import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import org.apache.tephra.RetryStrategies;
 import org.apache.tephra.TransactionFailureException;
 import org.apache.tephra.TransactionSystemClient;
@@ -54,16 +59,35 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Polls the JobQueue, checks the jobs for constraint satisfaction, and launches them.
+ * Checks the jobs in the JobQueue for constraint satisfaction, and launches them.
+ * <p/>
+ * Each partition of the JobQueue is handled by one thread. Jobs whose constraints are not yet satisfied are indexed
+ * in a {@link TimerWheel} by the next time they could be satisfied, and are only re-checked when that time arrives.
+ * Jobs of schedules updated by the {@link NotificationSubscriberService} are checked as soon as they are updated.
+ * A full scan of each partition is done periodically to pick up any other change to the JobQueue.
  */
+@Singleton
 class ConstraintCheckerService extends AbstractIdleService {
   private static final Logger LOG = LoggerFactory.getLogger(ConstraintCheckerService.class);
+  private static final int TIMER_WHEEL_SIZE = 512;
+  // Put into the queue of updated schedules just to wake up a checker thread. Compared by identity.
+  private static final ScheduleId WAKE_UP = NamespaceId.SYSTEM.app("constraint-checker").schedule("wake-up");
 
   private final Transactional transactional;
   private final DatasetFramework datasetFramework;
@@ -73,8 +97,13 @@ class ConstraintCheckerService extends AbstractIdleService {
   private final PropertiesResolver propertiesResolver;
   private final NamespaceQueryAdmin namespaceQueryAdmin;
   private final CConfiguration cConf;
+  private final long tickMillis;
+  private final long scanIntervalMillis;
   private ScheduleTaskRunner taskRunner;
   private ListeningExecutorService taskExecutorService;
+  private JobQueue partitionJobQueue;
+  // Set once all threads are started, so that schedulesUpdated can be called concurrently with startUp
+  private volatile List<ConstraintCheckerThread> checkerThreads = Collections.emptyList();
   private volatile boolean stopping = false;
 
   @Inject
@@ -97,6 +126,8 @@ class ConstraintCheckerService extends AbstractIdleService {
       RetryStrategies.retryOnConflict(20, 100)
     );
     this.datasetFramework = datasetFramework;
+    this.tickMillis = Math.max(1L, cConf.getLong(Constants.Scheduler.CONSTRAINT_CHECKER_TICK_MS));
+    this.scanIntervalMillis = cConf.getLong(Constants.Scheduler.CONSTRAINT_CHECKER_SCAN_INTERVAL_MS);
   }
 
   @Override
@@ -107,10 +138,15 @@ class ConstraintCheckerService extends AbstractIdleService {
     taskRunner = new ScheduleTaskRunner(lifecycleService, propertiesResolver,
                                         taskExecutorService, namespaceQueryAdmin, cConf);
 
-    int numPartitions = Schedulers.getJobQueue(multiThreadDatasetCache, datasetFramework).getNumPartitions();
+    partitionJobQueue = Schedulers.getJobQueue(multiThreadDatasetCache, datasetFramework);
+    int numPartitions = partitionJobQueue.getNumPartitions();
+    List<ConstraintCheckerThread> threads = new ArrayList<>(numPartitions);
     for (int partition = 0; partition < numPartitions; partition++) {
-      taskExecutorService.submit(new ConstraintCheckerThread(partition));
+      ConstraintCheckerThread checkerThread = new ConstraintCheckerThread(partition);
+      threads.add(checkerThread);
+      taskExecutorService.submit(checkerThread);
     }
+    checkerThreads = threads;
     LOG.info("Started ConstraintCheckerService. state: " + state());
   }
 
@@ -118,6 +154,9 @@ class ConstraintCheckerService extends AbstractIdleService {
   protected void shutDown() throws Exception {
     stopping = true;
     LOG.info("Stopping ConstraintCheckerService.");
+    for (ConstraintCheckerThread checkerThread : checkerThreads) {
+      checkerThread.wakeUp();
+    }
     try {
       taskExecutorService.awaitTermination(5, TimeUnit.SECONDS);
     } catch (InterruptedException ie) {
@@ -130,12 +169,36 @@ class ConstraintCheckerService extends AbstractIdleService {
     LOG.info("Stopped ConstraintCheckerService.");
   }
 
+  /**
+   * Notifies that jobs of the given schedules have been updated in the JobQueue, so that they get checked without
+   * waiting for the next full scan. This method should only be called after the update is committed.
+   */
+  void schedulesUpdated(Collection<ScheduleId> scheduleIds) {
+    List<ConstraintCheckerThread> threads = checkerThreads;
+    if (threads.isEmpty()) {
+      return;
+    }
+    for (ScheduleId scheduleId : scheduleIds) {
+      threads.get(partitionJobQueue.getPartition(scheduleId)).scheduleUpdated(scheduleId);
+    }
+  }
+
   private class ConstraintCheckerThread implements Runnable {
     private final RetryStrategy scheduleStrategy;
     private final int partition;
     private final Deque<Job> readyJobs = new ArrayDeque<>();
+    private final BlockingQueue<ScheduleId> updatedSchedules = new LinkedBlockingQueue<>();
+    // Schedules and jobs to check. They are only cleared after the check is committed.
+    private final Set<ScheduleId> pendingSchedules = new LinkedHashSet<>();
+    private final Set<JobKey> dueJobs = new LinkedHashSet<>();
+    private final TimerWheel<JobKey> timerWheel;
+    // The time of the next check of each job in the timer wheel. The wheel can hold stale entries of a job,
+    // which are ignored when they expire.
+    private final Map<JobKey, Long> checkTimes = new HashMap<>();
+    private final List<JobKey> expiredJobs = new ArrayList<>();
     private JobQueueDataset jobQueue;
     private Job lastConsumed;
+    private long nextScanTime;
     private int failureCount;
 
     ConstraintCheckerThread(int partition) {
@@ -143,6 +206,15 @@ class ConstraintCheckerService extends AbstractIdleService {
       scheduleStrategy =
         co.cask.cdap.common.service.RetryStrategies.exponentialDelay(100, 30000, TimeUnit.MILLISECONDS);
       this.partition = partition;
+      this.timerWheel = new TimerWheel<>(tickMillis, TIMER_WHEEL_SIZE, System.currentTimeMillis());
+    }
+
+    void scheduleUpdated(ScheduleId scheduleId) {
+      updatedSchedules.add(scheduleId);
+    }
+
+    void wakeUp() {
+      updatedSchedules.add(WAKE_UP);
     }
 
     @Override
@@ -153,9 +225,11 @@ class ConstraintCheckerService extends AbstractIdleService {
       while (!stopping) {
         try {
           long sleepTime = checkJobQueue();
-          // Don't sleep if sleepTime returned is 0
-          if (sleepTime > 0) {
-            TimeUnit.MILLISECONDS.sleep(sleepTime);
+          // Don't sleep if sleepTime returned is 0. Updates of schedules wake up the thread.
+          ScheduleId scheduleId = sleepTime > 0
+            ? updatedSchedules.poll(sleepTime, TimeUnit.MILLISECONDS) : updatedSchedules.poll();
+          if (scheduleId != null && scheduleId != WAKE_UP) {
+            pendingSchedules.add(scheduleId);
           }
         } catch (InterruptedException e) {
           // sleep is interrupted, just exit without doing anything
@@ -166,17 +240,42 @@ class ConstraintCheckerService extends AbstractIdleService {
     /**
      * Check jobs in job queue for constraint satisfaction.
      *
-     * @return sleep time in milliseconds before next fetch
+     * @return sleep time in milliseconds before next check
      */
     private long checkJobQueue() {
-      boolean emptyFetch = false;
       try {
-        emptyFetch = Transactions.execute(transactional, new TxCallable<Boolean>() {
-          @Override
-          public Boolean call(DatasetContext context) throws Exception {
-            return checkJobConstraints();
+        ScheduleId scheduleId = updatedSchedules.poll();
+        while (scheduleId != null) {
+          if (scheduleId != WAKE_UP) {
+            pendingSchedules.add(scheduleId);
+          }
+          scheduleId = updatedSchedules.poll();
+        }
+        collectDueJobs(System.currentTimeMillis());
+
+        if (!pendingSchedules.isEmpty() || !dueJobs.isEmpty()) {
+          Transactions.execute(transactional, new TxCallable<Void>() {
+            @Override
+            public Void call(DatasetContext context) throws Exception {
+              checkUpdatedJobs();
+              return null;
+            }
+          });
+          pendingSchedules.clear();
+          dueJobs.clear();
+        }
+
+        if (System.currentTimeMillis() >= nextScanTime) {
+          boolean scanCompleted = Transactions.execute(transactional, new TxCallable<Boolean>() {
+            @Override
+            public Boolean call(DatasetContext context) throws Exception {
+              return checkJobConstraints();
+            }
+          });
+          if (scanCompleted) {
+            nextScanTime = System.currentTimeMillis() + scanIntervalMillis;
           }
-        });
+        }
 
         // run any ready jobs
         runReadyJobs();
@@ -192,28 +291,73 @@ class ConstraintCheckerService extends AbstractIdleService {
         return scheduleStrategy.nextRetry(failureCount, 0);
       }
 
-      // Sleep for 2 seconds if there's no jobs in the queue
-      return emptyFetch && readyJobs.isEmpty() ? 2000L : 0L;
+      // Retry soon if some ready jobs failed to launch
+      if (!readyJobs.isEmpty()) {
+        return Math.min(tickMillis, 1000L);
+      }
+      // Sleep until the next scan or the next job in the timer wheel is due
+      long wakeupTime = Math.min(nextScanTime, timerWheel.getNextExpirationTime());
+      return Math.max(0L, wakeupTime - System.currentTimeMillis());
     }
 
-    private boolean checkJobConstraints() throws Exception {
-      boolean emptyScan = true;
+    /**
+     * Collects the jobs in the timer wheel that are due by the given time into {@link #dueJobs}.
+     */
+    private void collectDueJobs(long now) {
+      timerWheel.advance(now, expiredJobs);
+      for (JobKey jobKey : expiredJobs) {
+        Long checkTime = checkTimes.get(jobKey);
+        // The wheel expires entries up to one tick early
+        if (checkTime != null && checkTime <= now + tickMillis) {
+          checkTimes.remove(jobKey);
+          dueJobs.add(jobKey);
+        }
+      }
+      expiredJobs.clear();
+    }
+
+    /**
+     * Checks the jobs of the updated schedules and the jobs that are due in the timer wheel.
+     */
+    private void checkUpdatedJobs() {
+      for (ScheduleId scheduleId : pendingSchedules) {
+        try (CloseableIterator<Job> jobs = jobQueue.getJobsForSchedule(scheduleId)) {
+          while (jobs.hasNext() && !stopping) {
+            checkAndUpdateJob(jobQueue, jobs.next());
+          }
+        }
+      }
+      for (JobKey jobKey : dueJobs) {
+        if (stopping) {
+          return;
+        }
+        Job job = jobQueue.getJob(jobKey);
+        if (job != null) {
+          checkAndUpdateJob(jobQueue, job);
+        }
+      }
+    }
 
+    /**
+     * Scans a batch of the partition.
+     *
+     * @return {@code true} if the scan reached the end of the partition
+     */
+    private boolean checkJobConstraints() throws Exception {
       try (CloseableIterator<Job> jobQueueIter = jobQueue.getJobs(partition, lastConsumed)) {
         Stopwatch stopWatch = new Stopwatch().start();
         // limit the batches of the scan to 1000ms
         while (!stopping && stopWatch.elapsedMillis() < 1000) {
           if (!jobQueueIter.hasNext()) {
             lastConsumed = null;
-            return emptyScan;
+            return true;
           }
           Job job = jobQueueIter.next();
           lastConsumed = job;
-          emptyScan = false;
           checkAndUpdateJob(jobQueue, job);
         }
       }
-      return emptyScan;
+      return false;
     }
 
     private void checkAndUpdateJob(JobQueueDataset jobQueue, Job job) {
@@ -229,23 +373,31 @@ class ConstraintCheckerService extends AbstractIdleService {
           (job.getState() == Job.State.PENDING_TRIGGER &&
             now - job.getDeleteTimeMillis() > 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS))) {
           jobQueue.deleteJob(job);
+        } else if (job.getState() == Job.State.PENDING_TRIGGER) {
+          scheduleCheck(job, job.getDeleteTimeMillis() + 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS + 1, now);
         }
         return;
       }
-      if (now - job.getCreationTime() >= job.getSchedule().getTimeoutMillis() +
-        2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS) {
+      long timeoutTime = job.getCreationTime() + job.getSchedule().getTimeoutMillis() +
+        2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS;
+      if (now >= timeoutTime) {
         LOG.info("Deleted job {}, due to timeout value of {}.", job.getJobKey(), job.getSchedule().getTimeoutMillis());
         jobQueue.deleteJob(job);
         return;
       }
       if (job.getState() != Job.State.PENDING_CONSTRAINT) {
+        if (job.getState() == Job.State.PENDING_TRIGGER) {
+          // Updates of the job wake up the check, but it still needs to be deleted on timeout
+          scheduleCheck(job, timeoutTime, now);
+        }
         return;
       }
-      ConstraintResult.SatisfiedState satisfiedState = constraintsSatisfied(job, now);
-      if (satisfiedState == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
+      ConstraintResult result = constraintsSatisfied(job, now);
+      if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
+        scheduleCheck(job, Math.min(timeoutTime, result.getNextCheckTime()), now);
         return;
       }
-      if (satisfiedState == ConstraintResult.SatisfiedState.NEVER_SATISFIED) {
+      if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NEVER_SATISFIED) {
         jobQueue.deleteJob(job);
         return;
       }
@@ -253,6 +405,24 @@ class ConstraintCheckerService extends AbstractIdleService {
       readyJobs.add(job);
     }
 
+    /**
+     * Schedules the given job to be checked again at the given time. The check is at least one tick later than now.
+     */
+    private void scheduleCheck(Job job, long checkTime, long now) {
+      JobKey jobKey = job.getJobKey();
+      checkTime = Math.max(checkTime, now + tickMillis);
+      Long scheduledTime = checkTimes.get(jobKey);
+      if (scheduledTime != null && scheduledTime <= checkTime) {
+        // The job will be checked earlier anyway
+        return;
+      }
+      if (timerWheel.add(jobKey, checkTime)) {
+        checkTimes.put(jobKey, checkTime);
+      } else {
+        dueJobs.add(jobKey);
+      }
+    }
+
     private void runReadyJobs() {
       final Iterator<Job> readyJobsIter = readyJobs.iterator();
       while (readyJobsIter.hasNext() && !stopping) {
@@ -303,8 +473,10 @@ class ConstraintCheckerService extends AbstractIdleService {
       return true;
     }
 
-    private ConstraintResult.SatisfiedState constraintsSatisfied(Job job, long now) {
+    private ConstraintResult constraintsSatisfied(Job job, long now) {
       ConstraintResult.SatisfiedState satisfiedState = ConstraintResult.SatisfiedState.SATISFIED;
+      // The job can only be satisfied when all of its constraints are satisfied
+      long nextCheckTime = now;
 
       ConstraintContext constraintContext = new ConstraintContext(job, now, store);
       for (Constraint constraint : job.getSchedule().getConstraints()) {
@@ -317,13 +489,17 @@ class ConstraintCheckerService extends AbstractIdleService {
         ConstraintResult result = abstractConstraint.check(job.getSchedule(), constraintContext);
         if (result.getSatisfiedState() == ConstraintResult.NEVER_SATISFIED.getSatisfiedState()) {
           // if any of the constraints are NEVER_SATISFIED, return NEVER_SATISFIED
-          return ConstraintResult.NEVER_SATISFIED.getSatisfiedState();
+          return ConstraintResult.NEVER_SATISFIED;
         }
         if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
           satisfiedState = ConstraintResult.SatisfiedState.NOT_SATISFIED;
+          nextCheckTime = Math.max(nextCheckTime, result.getNextCheckTime());
         }
       }
-      return satisfiedState;
+      if (satisfiedState == ConstraintResult.SatisfiedState.SATISFIED) {
+        return ConstraintResult.SATISFIED;
+      }
+      return new ConstraintResult(satisfiedState, nextCheckTime);
     }
 
   }
@@ -76,6 +76,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
   private final Service internalService;
   private final DatasetFramework datasetFramework;
   private final SchedulerService scheduler;
+  private final NotificationSubscriberService notificationSubscriberService;
 
   @Inject
   CoreSchedulerService(TransactionSystemClient txClient, final DatasetFramework datasetFramework,
@@ -92,6 +93,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
       Transactions.createTransactional(datasetCache), RetryStrategies.retryOnConflict(10, 100L));
 
     this.scheduler = schedulerService;
+    this.notificationSubscriberService = notificationSubscriberService;
     // Use a retry on failure service to make it resilience to transient service unavailability during startup
     this.internalService = new RetryOnStartFailureService(new Supplier<Service>() {
       @Override
@@ -231,7 +233,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
         return null;
       }
     }, AlreadyExistsException.class);
-
+    notificationSubscriberService.schedulesChanged();
   }
 
   @Override
@@ -273,6 +275,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
           return null;
         }
       }, Exception.class);
+      notificationSubscriberService.schedulesChanged();
     } catch (NotFoundException | ConflictException e) {
       throw e;
     } catch (SchedulerException e) {
@@ -300,6 +303,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
           return null;
         }
       }, Exception.class);
+      notificationSubscriberService.schedulesChanged();
     } catch (NotFoundException | ConflictException e) {
       throw e;
     } catch (SchedulerException e) {
@@ -355,6 +359,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
         return null;
       }
     }, NotFoundException.class);
+    notificationSubscriberService.schedulesChanged();
   }
 
   @Override
@@ -371,6 +376,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
         return null;
       }
     }, RuntimeException.class);
+    notificationSubscriberService.schedulesChanged();
   }
 
   @Override
@@ -387,6 +393,7 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
         return null;
       }
     }, RuntimeException.class);
+    notificationSubscriberService.schedulesChanged();
   }
 
   @Override
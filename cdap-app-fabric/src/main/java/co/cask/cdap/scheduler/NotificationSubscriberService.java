@@ -63,8 +63,13 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
@@ -76,12 +81,18 @@ class NotificationSubscriberService extends AbstractIdleService {
   // Sampling log only log once per 10000
   private static final Logger SAMPLING_LOG = Loggers.sampling(LOG, LogSamplers.limitRate(10000));
   private static final Gson GSON = new Gson();
+  // Polling delay when there is no new notification. It starts small to pick up new notifications quickly after
+  // a period of activity, and grows to the max while the topic stays idle.
+  private static final long MIN_IDLE_SLEEP_MILLIS = 100L;
+  private static final long MAX_IDLE_SLEEP_MILLIS = 2000L;
 
   private final Transactional transactional;
   private final MultiThreadMessagingContext messagingContext;
   private final DatasetFramework datasetFramework;
   private final MultiThreadDatasetCache multiThreadDatasetCache;
   private final CConfiguration cConf;
+  private final ConstraintCheckerService constraintCheckerService;
+  private final TriggerIndex triggerIndex;
   private ListeningExecutorService taskExecutorService;
   private volatile boolean stopping = false;
 
@@ -90,8 +101,11 @@ class NotificationSubscriberService extends AbstractIdleService {
   NotificationSubscriberService(MessagingService messagingService,
                                 CConfiguration cConf,
                                 DatasetFramework datasetFramework,
-                                TransactionSystemClient txClient) {
+                                TransactionSystemClient txClient,
+                                ConstraintCheckerService constraintCheckerService) {
     this.cConf = cConf;
+    this.constraintCheckerService = constraintCheckerService;
+    this.triggerIndex = new TriggerIndex();
     this.messagingContext = new MultiThreadMessagingContext(messagingService);
     this.multiThreadDatasetCache = new MultiThreadDatasetCache(
       new SystemDatasetInstantiator(datasetFramework), txClient,
@@ -116,6 +130,14 @@ class NotificationSubscriberService extends AbstractIdleService {
     taskExecutorService.submit(new DataEventNotificationSubscriberThread());
   }
 
+  /**
+   * Invalidates the schedules looked up by the subscriber. This method should be called after a change to
+   * the schedules is committed.
+   */
+  void schedulesChanged() {
+    triggerIndex.invalidate();
+  }
+
   @Override
   protected void shutDown() {
     stopping = true;
@@ -136,8 +158,13 @@ class NotificationSubscriberService extends AbstractIdleService {
     private final String topic;
     private final RetryStrategy scheduleStrategy;
     private int failureCount;
+    private long idleSleepMillis = MIN_IDLE_SLEEP_MILLIS;
     private String messageId;
     JobQueueDataset jobQueue;
+    // Schedules whose jobs are updated in the current transaction
+    final Set<ScheduleId> updatedSchedules = new HashSet<>();
+    // Version of the trigger index when the current transaction started
+    long triggerIndexVersion;
 
 
     NotificationSubscriberThread(String topic) {
@@ -188,13 +215,22 @@ class NotificationSubscriberService extends AbstractIdleService {
       boolean emptyFetch = false;
       try {
         final MessageFetcher fetcher = messagingContext.getMessageFetcher();
+        // Acquire the version before the transaction starts, so that a schedule change committed in between
+        // prevents indexing schedules read from the transaction snapshot
+        triggerIndexVersion = triggerIndex.getVersion();
         emptyFetch = Transactions.execute(transactional, new TxCallable<Boolean>() {
           @Override
           public Boolean call(DatasetContext context) throws Exception {
+            updatedSchedules.clear();
             return fetchAndProcessNotifications(context, fetcher);
           }
         });
         failureCount = 0;
+        // Let the constraint checker check the updated jobs right away instead of waiting for its next scan
+        if (!updatedSchedules.isEmpty()) {
+          constraintCheckerService.schedulesUpdated(updatedSchedules);
+          updatedSchedules.clear();
+        }
       } catch (Exception e) {
         LOG.warn("Failed to get and process notifications. Will retry in next run", e);
         failureCount++;
@@ -207,8 +243,14 @@ class NotificationSubscriberService extends AbstractIdleService {
         return scheduleStrategy.nextRetry(failureCount, 0);
       }
 
-      // Sleep for 2 seconds if there's no notification, otherwise don't sleep
-      return emptyFetch ? 2000L : 0L;
+      // Back off up to 2 seconds while there's no notification, otherwise don't sleep
+      if (!emptyFetch) {
+        idleSleepMillis = MIN_IDLE_SLEEP_MILLIS;
+        return 0L;
+      }
+      long sleepMillis = idleSleepMillis;
+      idleSleepMillis = Math.min(MAX_IDLE_SLEEP_MILLIS, idleSleepMillis * 2);
+      return sleepMillis;
     }
 
     private boolean fetchAndProcessNotifications(DatasetContext context, MessageFetcher fetcher) throws Exception {
@@ -216,6 +258,7 @@ class NotificationSubscriberService extends AbstractIdleService {
       try (CloseableIterator<Message> iterator = fetcher.fetch(NamespaceId.SYSTEM.getNamespace(),
                                                                topic, 100, messageId)) {
         LOG.trace("Fetch with messageId = {}", messageId);
+        List<Notification> notifications = new ArrayList<>();
         while (iterator.hasNext() && !stopping) {
           emptyFetch = false;
           Message message = iterator.next();
@@ -228,9 +271,13 @@ class NotificationSubscriberService extends AbstractIdleService {
             messageId = message.getId(); // update messageId to skip this message in next fetch
             continue;
           }
-          updateJobQueue(context, notification);
+          notifications.add(notification);
           messageId = message.getId();
         }
+        // Process the notifications as a batch, so that schedules are looked up once per batch
+        if (!notifications.isEmpty()) {
+          updateJobQueue(context, notifications);
+        }
 
         if (!emptyFetch) {
           jobQueue.persistSubscriberState(topic, messageId);
@@ -242,7 +289,7 @@ class NotificationSubscriberService extends AbstractIdleService {
       return emptyFetch;
     }
 
-    abstract void updateJobQueue(DatasetContext context, Notification notification) throws Exception;
+    abstract void updateJobQueue(DatasetContext context, List<Notification> notifications) throws Exception;
   }
 
   private class SchedulerEventNotificationSubscriberThread extends NotificationSubscriberThread {
@@ -252,26 +299,42 @@ class NotificationSubscriberService extends AbstractIdleService {
     }
 
     @Override
-    protected void updateJobQueue(DatasetContext context, Notification notification)
-      throws IOException, DatasetManagementException, NotFoundException {
-
-      Map<String, String> properties = notification.getProperties();
-      String scheduleIdString = properties.get(ProgramOptionConstants.SCHEDULE_ID);
-      if (scheduleIdString == null) {
-        LOG.warn("Cannot find schedule id in the notification with properties {}. Skipping current notification.",
-                 properties);
-        return;
+    protected void updateJobQueue(DatasetContext context, List<Notification> notifications)
+      throws IOException, DatasetManagementException {
+
+      // Group the notifications by schedule to look up each schedule once
+      Map<ScheduleId, List<Notification>> scheduleNotifications = new LinkedHashMap<>();
+      for (Notification notification : notifications) {
+        Map<String, String> properties = notification.getProperties();
+        String scheduleIdString = properties.get(ProgramOptionConstants.SCHEDULE_ID);
+        if (scheduleIdString == null) {
+          LOG.warn("Cannot find schedule id in the notification with properties {}. Skipping current notification.",
+                   properties);
+          continue;
+        }
+        ScheduleId scheduleId = ScheduleId.fromString(scheduleIdString);
+        List<Notification> group = scheduleNotifications.get(scheduleId);
+        if (group == null) {
+          group = new ArrayList<>();
+          scheduleNotifications.put(scheduleId, group);
+        }
+        group.add(notification);
       }
-      ScheduleId scheduleId = ScheduleId.fromString(scheduleIdString);
-      ProgramScheduleRecord record;
-      try {
-        record = Schedulers.getScheduleStore(context, datasetFramework).getScheduleRecord(scheduleId);
-      } catch (NotFoundException e) {
-        LOG.warn("Cannot find schedule {}. Skipping current notification with properties {}.",
-                 scheduleId, properties, e);
-        return;
+
+      for (Map.Entry<ScheduleId, List<Notification>> entry : scheduleNotifications.entrySet()) {
+        ScheduleId scheduleId = entry.getKey();
+        ProgramScheduleRecord record;
+        try {
+          record = Schedulers.getScheduleStore(context, datasetFramework).getScheduleRecord(scheduleId);
+        } catch (NotFoundException e) {
+          LOG.warn("Cannot find schedule {}. Skipping {} notifications.", scheduleId, entry.getValue().size(), e);
+          continue;
+        }
+        for (Notification notification : entry.getValue()) {
+          jobQueue.addNotification(record, notification);
+        }
+        updatedSchedules.add(scheduleId);
       }
-      jobQueue.addNotification(record, notification);
     }
   }
 
@@ -282,24 +345,47 @@ class NotificationSubscriberService extends AbstractIdleService {
     }
 
     @Override
-    protected void updateJobQueue(DatasetContext context, Notification notification)
+    protected void updateJobQueue(DatasetContext context, List<Notification> notifications)
       throws IOException, DatasetManagementException {
-      String datasetIdString = notification.getProperties().get("datasetId");
-      if (datasetIdString == null) {
-        return;
+
+      // Group the notifications by trigger key to look up the schedules once per trigger key
+      Map<String, List<Notification>> triggerNotifications = new LinkedHashMap<>();
+      for (Notification notification : notifications) {
+        String datasetIdString = notification.getProperties().get("datasetId");
+        if (datasetIdString == null) {
+          continue;
+        }
+        String triggerKey = Schedulers.triggerKeyForPartition(DatasetId.fromString(datasetIdString));
+        List<Notification> group = triggerNotifications.get(triggerKey);
+        if (group == null) {
+          group = new ArrayList<>();
+          triggerNotifications.put(triggerKey, group);
+        }
+        group.add(notification);
       }
-      DatasetId datasetId = DatasetId.fromString(datasetIdString);
-      for (ProgramScheduleRecord schedule : getSchedules(context, Schedulers.triggerKeyForPartition(datasetId))) {
-        // ignore disabled schedules
-        if (ProgramScheduleStatus.SCHEDULED.equals(schedule.getMeta().getStatus())) {
-          jobQueue.addNotification(schedule, notification);
+
+      for (Map.Entry<String, List<Notification>> entry : triggerNotifications.entrySet()) {
+        for (ProgramScheduleRecord schedule : getSchedules(context, entry.getKey(), triggerIndexVersion)) {
+          // ignore disabled schedules
+          if (ProgramScheduleStatus.SCHEDULED.equals(schedule.getMeta().getStatus())) {
+            for (Notification notification : entry.getValue()) {
+              jobQueue.addNotification(schedule, notification);
+            }
+            updatedSchedules.add(schedule.getSchedule().getScheduleId());
+          }
         }
       }
     }
   }
 
-  private Collection<ProgramScheduleRecord> getSchedules(DatasetContext context, String triggerKey)
+  private Collection<ProgramScheduleRecord> getSchedules(DatasetContext context, String triggerKey,
+                                                         long triggerIndexVersion)
     throws IOException, DatasetManagementException {
-    return Schedulers.getScheduleStore(context, datasetFramework).findSchedules(triggerKey);
+    Collection<ProgramScheduleRecord> schedules = triggerIndex.get(triggerKey);
+    if (schedules == null) {
+      schedules = Schedulers.getScheduleStore(context, datasetFramework).findSchedules(triggerKey);
+      triggerIndex.put(triggerKey, schedules, triggerIndexVersion);
+    }
+    return schedules;
   }
 }
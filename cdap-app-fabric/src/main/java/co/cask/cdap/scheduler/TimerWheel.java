@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.scheduler;
+
+import com.google.common.base.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A hierarchical timer wheel. Each wheel has a fixed number of buckets, with each bucket covering one tick.
+ * Items that expire beyond the time span of a wheel are kept in an overflow wheel whose tick is the time
+ * span of the lower wheel, and are moved down as time advances. Adding an item and expiring items are
+ * amortized constant time, independent of the number of items in the wheel.
+ *
+ * @param <T> type of items in the wheel
+ */
+@NotThreadSafe
+final class TimerWheel<T> {
+
+  private final long tickMillis;
+  private final int wheelSize;
+  private final long intervalMillis;
+  private final List<List<Entry<T>>> buckets;
+  private long currentTime;
+  private TimerWheel<T> overflowWheel;
+  private int size;
+
+  /**
+   * Creates a new wheel.
+   *
+   * @param tickMillis the time span of each bucket
+   * @param wheelSize the number of buckets in each level of the wheel
+   * @param startTime the start time of the wheel
+   */
+  TimerWheel(long tickMillis, int wheelSize, long startTime) {
+    Preconditions.checkArgument(tickMillis > 0, "Tick must be positive: %s", tickMillis);
+    Preconditions.checkArgument(wheelSize > 0, "Wheel size must be positive: %s", wheelSize);
+    this.tickMillis = tickMillis;
+    this.wheelSize = wheelSize;
+    this.intervalMillis = tickMillis * wheelSize;
+    this.buckets = new ArrayList<>(wheelSize);
+    for (int i = 0; i < wheelSize; i++) {
+      buckets.add(new ArrayList<Entry<T>>());
+    }
+    this.currentTime = startTime - (startTime % tickMillis);
+  }
+
+  /**
+   * Adds an item to the wheel.
+   *
+   * @return {@code true} if the item is added; {@code false} if the item already expired by the current time of
+   *         the wheel, in which case the item should be processed by the caller
+   */
+  boolean add(T item, long expireTime) {
+    return add(new Entry<>(item, expireTime));
+  }
+
+  /**
+   * Advances the wheel to the given time and collects all items that expire by that time.
+   *
+   * @param now the current time
+   * @param expired collection for adding the expired items
+   */
+  void advance(long now, Collection<T> expired) {
+    for (Entry<T> entry : advanceBuckets(now)) {
+      expired.add(entry.item);
+    }
+    for (Entry<T> entry : advanceOverflow(now)) {
+      if (!add(entry)) {
+        expired.add(entry.item);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of items in the wheel.
+   */
+  int size() {
+    return size + (overflowWheel == null ? 0 : overflowWheel.size());
+  }
+
+  /**
+   * Returns the earliest time at which {@link #advance(long, Collection)} could expire an item, or
+   * {@link Long#MAX_VALUE} if the wheel is empty.
+   */
+  long getNextExpirationTime() {
+    // Buckets of the overflow wheel can be released before the last bucket of this wheel expires,
+    // since the overflow wheel starts from the beginning of its coarser tick
+    long nextTime = overflowWheel == null ? Long.MAX_VALUE : overflowWheel.getNextExpirationTime();
+    long currentTick = currentTime / tickMillis;
+    if (size > 0) {
+      for (int i = 1; i < wheelSize; i++) {
+        if (!buckets.get((int) ((currentTick + i) % wheelSize)).isEmpty()) {
+          return Math.min(nextTime, (currentTick + i) * tickMillis);
+        }
+      }
+    }
+    return nextTime;
+  }
+
+  private boolean add(Entry<T> entry) {
+    if (entry.expireTime < currentTime + tickMillis) {
+      return false;
+    }
+    if (entry.expireTime < currentTime + intervalMillis) {
+      buckets.get((int) ((entry.expireTime / tickMillis) % wheelSize)).add(entry);
+      size++;
+      return true;
+    }
+    if (overflowWheel == null) {
+      overflowWheel = new TimerWheel<>(intervalMillis, wheelSize, currentTime);
+    }
+    return overflowWheel.add(entry);
+  }
+
+  /**
+   * Moves the current time of this wheel to the tick of the given time and removes the entries of all buckets
+   * from the one after the previous tick up to the one of the new tick.
+   *
+   * @return the removed entries
+   */
+  private List<Entry<T>> advanceBuckets(long now) {
+    long newTime = now - (now % tickMillis);
+    if (newTime <= currentTime) {
+      return Collections.emptyList();
+    }
+    List<Entry<T>> entries = new ArrayList<>();
+    if (size > 0) {
+      long ticks = Math.min(wheelSize, (newTime - currentTime) / tickMillis);
+      long currentTick = currentTime / tickMillis;
+      for (long i = 1; i <= ticks; i++) {
+        List<Entry<T>> bucket = buckets.get((int) ((currentTick + i) % wheelSize));
+        entries.addAll(bucket);
+        size -= bucket.size();
+        bucket.clear();
+      }
+    }
+    currentTime = newTime;
+    return entries;
+  }
+
+  /**
+   * Advances the overflow wheel. Since the tick of the overflow wheel is the time span of this wheel, the
+   * entries removed from the overflow wheel either fit into this wheel or have expired.
+   *
+   * @return entries removed from the overflow wheel (and its overflow wheels) that need to be added to this wheel
+   */
+  private List<Entry<T>> advanceOverflow(long now) {
+    if (overflowWheel == null) {
+      return Collections.emptyList();
+    }
+    List<Entry<T>> entries = new ArrayList<>(overflowWheel.advanceBuckets(now));
+    for (Entry<T> entry : overflowWheel.advanceOverflow(now)) {
+      if (!overflowWheel.add(entry)) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * An item in the wheel with its expiration time.
+   */
+  private static final class Entry<T> {
+    private final T item;
+    private final long expireTime;
+
+    Entry(T item, long expireTime) {
+      this.item = item;
+      this.expireTime = expireTime;
+    }
+  }
+}
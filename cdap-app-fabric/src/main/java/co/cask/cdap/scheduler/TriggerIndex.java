@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.scheduler;
+
+import co.cask.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
+import com.google.common.collect.ImmutableList;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An in-memory index from trigger key to the schedules with that trigger key, loaded lazily from the schedule store.
+ * Trigger keys without any schedule are indexed as well, since most data events don't trigger any schedule.
+ * <p/>
+ * The index is invalidated as a whole whenever schedules are added, deleted or change status. Each invalidation
+ * bumps a version, and schedules looked up in a transaction are only indexed if there was no invalidation since
+ * the version was acquired before the transaction started, so that schedules read from a snapshot older than a
+ * change don't get indexed.
+ */
+@ThreadSafe
+final class TriggerIndex {
+
+  private final Map<String, Collection<ProgramScheduleRecord>> schedules = new ConcurrentHashMap<>();
+  private final AtomicLong version = new AtomicLong();
+
+  /**
+   * Returns the current version of the index. It must be acquired before starting the transaction that looks up
+   * the schedules, since a change committed after the transaction snapshot is taken but before the version is
+   * acquired would otherwise go unnoticed.
+   */
+  long getVersion() {
+    return version.get();
+  }
+
+  /**
+   * Returns the schedules of the given trigger key, or {@code null} if the trigger key is not indexed.
+   */
+  @Nullable
+  Collection<ProgramScheduleRecord> get(String triggerKey) {
+    return schedules.get(triggerKey);
+  }
+
+  /**
+   * Indexes the schedules of the given trigger key if there was no invalidation since the given version.
+   */
+  synchronized void put(String triggerKey, Collection<ProgramScheduleRecord> records, long lookupVersion) {
+    if (version.get() == lookupVersion) {
+      schedules.put(triggerKey, ImmutableList.copyOf(records));
+    }
+  }
+
+  /**
+   * Invalidates the index. This method should be called after a change to the schedules is committed.
+   */
+  synchronized void invalidate() {
+    version.incrementAndGet();
+    schedules.clear();
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.preview;
+
+import co.cask.cdap.api.preview.DataTracer;
+import co.cask.cdap.app.store.preview.PreviewStore;
+import co.cask.cdap.proto.id.ApplicationId;
+import co.cask.cdap.proto.id.NamespaceId;
+import com.google.common.collect.Maps;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link DefaultDataTracerFactory}.
+ */
+public class DefaultDataTracerFactoryTest {
+
+  @Test
+  public void testBatchAndLimit() throws Exception {
+    RecordingPreviewStore store = new RecordingPreviewStore();
+    ApplicationId appId = NamespaceId.DEFAULT.app("preview");
+    DefaultDataTracerFactory factory = new DefaultDataTracerFactory(store, 5, 2, 0L);
+    try {
+      // Tracers with the same name share the buffer and the limit
+      DataTracer tracer = factory.getDataTracer(appId, "tracer");
+      Assert.assertSame(tracer, factory.getDataTracer(appId, "tracer"));
+
+      for (int i = 0; i < 10; i++) {
+        Assert.assertEquals(i < 5, tracer.isEnabled());
+        tracer.info("key", i);
+      }
+      Assert.assertFalse(tracer.isEnabled());
+
+      // Records are written in batches, the last one is only written on flush
+      factory.flush();
+      Assert.assertEquals(3, store.getBatches());
+      List<JsonElement> expected = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        expected.add(new JsonPrimitive(i));
+      }
+      Assert.assertEquals(expected, store.get(appId, "tracer").get("key"));
+    } finally {
+      factory.close();
+    }
+
+    // Tracers created after close write in the caller thread
+    DataTracer tracer = factory.getDataTracer(appId, "another");
+    tracer.info("key", "value");
+    tracer.info("key", "value");
+    Assert.assertEquals(Arrays.<JsonElement>asList(new JsonPrimitive("value"), new JsonPrimitive("value")),
+                        store.get(appId, "another").get("key"));
+  }
+
+  /**
+   * A {@link PreviewStore} that keeps the data in memory and counts the number of batches written.
+   */
+  private static final class RecordingPreviewStore implements PreviewStore {
+
+    private final Map<String, Map<String, List<JsonElement>>> data = new HashMap<>();
+    private int batches;
+
+    @Override
+    public void put(ApplicationId applicationId, String tracerName, String propertyName, Object value) {
+      putAll(applicationId, tracerName,
+             Collections.singletonList(Maps.immutableEntry(propertyName, value)));
+    }
+
+    @Override
+    public synchronized void putAll(ApplicationId applicationId, String tracerName,
+                                    List<? extends Map.Entry<String, ?>> properties) {
+      batches++;
+      Map<String, List<JsonElement>> tracerData = get(applicationId, tracerName);
+      for (Map.Entry<String, ?> property : properties) {
+        List<JsonElement> values = tracerData.get(property.getKey());
+        if (values == null) {
+          values = new ArrayList<>();
+          tracerData.put(property.getKey(), values);
+        }
+        values.add((JsonElement) property.getValue());
+      }
+    }
+
+    @Override
+    public synchronized Map<String, List<JsonElement>> get(ApplicationId applicationId, String tracerName) {
+      String key = applicationId + ":" + tracerName;
+      Map<String, List<JsonElement>> tracerData = data.get(key);
+      if (tracerData == null) {
+        tracerData = new HashMap<>();
+        data.put(key, tracerData);
+      }
+      return tracerData;
+    }
+
+    @Override
+    public synchronized void remove(ApplicationId applicationId) {
+      data.clear();
+    }
+
+    synchronized int getBatches() {
+      return batches;
+    }
+  }
+}
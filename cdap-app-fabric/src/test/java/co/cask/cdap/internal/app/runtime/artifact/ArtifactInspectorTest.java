@@ -40,6 +40,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.io.Files;
 import org.apache.twill.filesystem.LocalLocationFactory;
 import org.apache.twill.filesystem.Location;
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.ClassRule;
@@ -69,6 +70,11 @@ public class ArtifactInspectorTest {
     artifactInspector = new ArtifactInspector(cConf, classLoaderFactory);
   }
 
+  @AfterClass
+  public static void finish() {
+    classLoaderFactory.close();
+  }
+
   @Test(expected = InvalidArtifactException.class)
   public void testInvalidConfigApp() throws Exception {
     Manifest manifest = new Manifest();
@@ -117,6 +123,37 @@ public class ArtifactInspectorTest {
     }
   }
 
+  @Test
+  public void testInspectionReuse() throws Exception {
+    Manifest manifest = new Manifest();
+    manifest.getMainAttributes().put(ManifestFields.EXPORT_PACKAGE, InspectionApp.class.getPackage().getName());
+    File appFile =
+      createJar(InspectionApp.class, new File(TMP_FOLDER.newFolder(), "InspectionApp-1.0.0.jar"), manifest);
+    File copyFile = new File(TMP_FOLDER.newFolder(), "InspectionApp-1.0.1.jar");
+    Files.copy(appFile, copyFile);
+
+    Id.Artifact artifactId = Id.Artifact.from(Id.Namespace.DEFAULT, "InspectionApp", "1.0.0");
+    Location artifactLocation = Locations.toLocation(appFile);
+    try (CloseableClassLoader artifactClassLoader =
+           classLoaderFactory.createClassLoader(
+             artifactLocation, new EntityImpersonator(artifactId.toEntityId(),
+                                                      new DefaultImpersonator(CConfiguration.create(), null)))) {
+
+      ArtifactClasses classes = artifactInspector.inspectArtifact(artifactId, appFile, artifactClassLoader,
+                                                                  artifactLocation);
+      Assert.assertFalse(classes.getPlugins().isEmpty());
+
+      // An artifact with the same content and the same parent is not inspected again
+      Id.Artifact copyId = Id.Artifact.from(Id.Namespace.DEFAULT, "InspectionApp", "1.0.1");
+      Assert.assertSame(classes, artifactInspector.inspectArtifact(copyId, copyFile, artifactClassLoader,
+                                                                   artifactLocation));
+
+      // Without the parent location, the result is not reused
+      Assert.assertNotSame(classes, artifactInspector.inspectArtifact(copyId, copyFile, artifactClassLoader));
+      Assert.assertEquals(classes, artifactInspector.inspectArtifact(copyId, copyFile, artifactClassLoader));
+    }
+  }
+
   private static File createJar(Class<?> cls, File destFile, Manifest manifest) throws IOException {
     Location deploymentJar = AppJarHelper.createDeploymentJar(new LocalLocationFactory(TMP_FOLDER.newFolder()),
       cls, manifest);
@@ -1117,6 +1117,46 @@ public class ArtifactStoreTest {
     }
   }
 
+  @Test
+  public void testPluginIndexInvalidation() throws Exception {
+    Id.Artifact parentId = Id.Artifact.from(Id.Namespace.DEFAULT, "parent", "1.0.0");
+    writeArtifact(parentId, new ArtifactMeta(ArtifactClasses.builder().build()), "parent contents");
+    Set<ArtifactRange> parents = ImmutableSet.of(new ArtifactRange(
+      parentId.getNamespace().getId(), parentId.getName(), new ArtifactVersion("1.0.0"), new ArtifactVersion("2.0.0")));
+
+    // look up plugins before any plugin artifact is added, so that the empty index gets loaded
+    Assert.assertTrue(artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId).isEmpty());
+    Assert.assertTrue(artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, "atype").isEmpty());
+
+    // plugins added afterwards should be visible right away
+    Id.Artifact pluginsId1 = Id.Artifact.from(Id.Namespace.DEFAULT, "plugins1", "1.0.0");
+    PluginClass plugin1 =
+      new PluginClass("atype", "plugin1", "", "c.c.c.plugin1", "cfg", ImmutableMap.<String, PluginPropertyField>of());
+    writeArtifact(pluginsId1, new ArtifactMeta(ArtifactClasses.builder().addPlugin(plugin1).build(), parents),
+                  "plugins1 contents");
+    ArtifactDescriptor descriptor1 = artifactStore.getArtifact(pluginsId1).getDescriptor();
+    Assert.assertEquals(ImmutableMap.of(descriptor1, ImmutableSet.of(plugin1)),
+                        artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, "atype"));
+
+    Id.Artifact pluginsId2 = Id.Artifact.from(Id.Namespace.DEFAULT, "plugins2", "1.0.0");
+    PluginClass plugin2 =
+      new PluginClass("atype", "plugin1", "", "c.c.c.plugin2", "cfg", ImmutableMap.<String, PluginPropertyField>of());
+    writeArtifact(pluginsId2, new ArtifactMeta(ArtifactClasses.builder().addPlugin(plugin2).build(), parents),
+                  "plugins2 contents");
+    ArtifactDescriptor descriptor2 = artifactStore.getArtifact(pluginsId2).getDescriptor();
+    Assert.assertEquals(ImmutableMap.of(descriptor1, ImmutableSet.of(plugin1), descriptor2, ImmutableSet.of(plugin2)),
+                        artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId));
+    Assert.assertEquals(ImmutableMap.of(descriptor1, plugin1, descriptor2, plugin2),
+                        artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, "atype", "plugin1", null,
+                                                       Integer.MAX_VALUE, ArtifactSortOrder.UNORDERED));
+
+    // deleted plugins should be gone right away
+    artifactStore.delete(pluginsId1);
+    Assert.assertEquals(ImmutableMap.of(descriptor2, plugin2),
+                        artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentId, "atype", "plugin1", null,
+                                                       Integer.MAX_VALUE, ArtifactSortOrder.UNORDERED));
+  }
+
   @Category(SlowTests.class)
   @Test
   public void testConcurrentWrite() throws Exception {
@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.artifact;
+
+import co.cask.cdap.common.io.Locations;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Unit tests for {@link ArtifactUnpackCache}.
+ */
+public class ArtifactUnpackCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSharedDirectory() throws IOException {
+    ArtifactUnpackCache cache = new ArtifactUnpackCache(TMP_FOLDER.newFolder(), 1024 * 1024);
+    File jar = createJar("content");
+    File copy = TMP_FOLDER.newFile();
+    Files.copy(jar, copy);
+
+    // Jars with the same content share the same directory, even if they are at different locations
+    try (
+      ArtifactUnpackCache.Entry entry1 = cache.acquire(Locations.toLocation(jar));
+      ArtifactUnpackCache.Entry entry2 = cache.acquire(Locations.toLocation(copy))
+    ) {
+      Assert.assertEquals(entry1.getDirectory(), entry2.getDirectory());
+      Assert.assertEquals("content", Files.toString(new File(entry1.getDirectory(), "file.txt"), Charsets.UTF_8));
+    }
+
+    // The directory stays in the cache after being released
+    try (ArtifactUnpackCache.Entry entry = cache.acquire(Locations.toLocation(jar))) {
+      Assert.assertTrue(entry.getDirectory().isDirectory());
+    }
+    Assert.assertTrue(cache.getTotalSize() > 0);
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    // A cache that can hold at most one expanded jar
+    ArtifactUnpackCache cache = new ArtifactUnpackCache(TMP_FOLDER.newFolder(), 10);
+    File jar1 = createJar("content1");
+    File jar2 = createJar("content2");
+
+    ArtifactUnpackCache.Entry entry1 = cache.acquire(Locations.toLocation(jar1));
+    ArtifactUnpackCache.Entry entry2 = cache.acquire(Locations.toLocation(jar2));
+
+    // Releasing the second one evicts it, since the first one is in use and is never evicted
+    entry2.close();
+    Assert.assertTrue(entry1.getDirectory().isDirectory());
+    Assert.assertFalse(entry2.getDirectory().exists());
+    Assert.assertEquals(8, cache.getTotalSize());
+
+    // The first one stays in the cache after being released, since the cache is within the limit
+    entry1.close();
+    Assert.assertTrue(entry1.getDirectory().isDirectory());
+    Assert.assertEquals(8, cache.getTotalSize());
+
+    // Closing an entry more than once has no effect
+    entry1.close();
+    Assert.assertEquals(8, cache.getTotalSize());
+
+    // An evicted jar is expanded again, which evicts the least recently used one when released
+    try (ArtifactUnpackCache.Entry entry = cache.acquire(Locations.toLocation(jar2))) {
+      Assert.assertEquals("content2", Files.toString(new File(entry.getDirectory(), "file.txt"), Charsets.UTF_8));
+    }
+    Assert.assertFalse(entry1.getDirectory().exists());
+    Assert.assertEquals(8, cache.getTotalSize());
+  }
+
+  @Test
+  public void testDisabled() throws IOException {
+    ArtifactUnpackCache cache = new ArtifactUnpackCache(TMP_FOLDER.newFolder(), 0);
+    File jar = createJar("content");
+
+    try (
+      ArtifactUnpackCache.Entry entry1 = cache.acquire(Locations.toLocation(jar));
+      ArtifactUnpackCache.Entry entry2 = cache.acquire(Locations.toLocation(jar))
+    ) {
+      Assert.assertNotEquals(entry1.getDirectory(), entry2.getDirectory());
+      entry1.close();
+      Assert.assertFalse(entry1.getDirectory().exists());
+      Assert.assertTrue(entry2.getDirectory().isDirectory());
+    }
+    Assert.assertEquals(0, cache.getTotalSize());
+  }
+
+  @Test
+  public void testClose() throws IOException {
+    File tmpDir = TMP_FOLDER.newFolder();
+    ArtifactUnpackCache cache = new ArtifactUnpackCache(tmpDir, 1024 * 1024);
+    File jar = createJar("content");
+
+    ArtifactUnpackCache.Entry entry = cache.acquire(Locations.toLocation(jar));
+    try (ArtifactUnpackCache.Entry released = cache.acquire(Locations.toLocation(createJar("released")))) {
+      Assert.assertTrue(released.getDirectory().isDirectory());
+    }
+
+    // Closing the cache deletes everything it expanded, including the directories still in use
+    cache.close();
+    Assert.assertEquals(0, tmpDir.list().length);
+    Assert.assertEquals(0, cache.getTotalSize());
+
+    // Releasing an entry after the cache is closed has no effect
+    entry.close();
+    Assert.assertEquals(0, tmpDir.list().length);
+
+    try {
+      cache.acquire(Locations.toLocation(jar));
+      Assert.fail("Expected failure to acquire from a closed cache");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  private File createJar(String content) throws IOException {
+    File jar = TMP_FOLDER.newFile();
+    try (JarOutputStream output = new JarOutputStream(new FileOutputStream(jar))) {
+      output.putNextEntry(new JarEntry("file.txt"));
+      output.write(content.getBytes(Charsets.UTF_8));
+      output.closeEntry();
+    }
+    return jar;
+  }
+}
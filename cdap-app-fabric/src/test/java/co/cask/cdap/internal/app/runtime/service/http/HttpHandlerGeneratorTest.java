@@ -35,6 +35,7 @@ import co.cask.cdap.api.plugin.PluginProperties;
 import co.cask.cdap.api.preview.DataTracer;
 import co.cask.cdap.api.security.store.SecureStoreData;
 import co.cask.cdap.api.service.http.AbstractHttpServiceHandler;
+import co.cask.cdap.api.service.http.CacheResponse;
 import co.cask.cdap.api.service.http.HttpContentConsumer;
 import co.cask.cdap.api.service.http.HttpContentProducer;
 import co.cask.cdap.api.service.http.HttpServiceContext;
@@ -42,6 +43,8 @@ import co.cask.cdap.api.service.http.HttpServiceHandler;
 import co.cask.cdap.api.service.http.HttpServiceHandlerSpecification;
 import co.cask.cdap.api.service.http.HttpServiceRequest;
 import co.cask.cdap.api.service.http.HttpServiceResponder;
+import co.cask.cdap.api.service.http.ServiceHttpEndpoint;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Locations;
 import co.cask.cdap.common.metrics.NoOpMetricsCollectionService;
 import co.cask.cdap.common.test.NoopAdmin;
@@ -52,18 +55,22 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.common.hash.Hashing;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Closeables;
 import com.google.common.io.Files;
 import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
 import org.apache.tephra.TransactionAware;
 import org.apache.tephra.TransactionContext;
 import org.apache.tephra.TransactionFailureException;
 import org.apache.twill.api.RunId;
 import org.apache.twill.common.Cancellable;
 import org.apache.twill.filesystem.Location;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -85,6 +92,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -155,6 +163,35 @@ public class HttpHandlerGeneratorTest {
 
       responder.sendStatus(200, headers);
     }
+
+    @Path("/json/{size}")
+    @GET
+    @TransactionPolicy(TransactionControl.EXPLICIT)
+    public void json(HttpServiceRequest request, HttpServiceResponder responder, @PathParam("size") int size) {
+      List<String> values = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        values.add("value" + i);
+      }
+      responder.sendJson(values);
+    }
+  }
+
+  @Path("/cached")
+  public static final class CachedHandler extends AbstractHttpServiceHandler {
+
+    private final AtomicInteger calls;
+
+    CachedHandler(AtomicInteger calls) {
+      this.calls = calls;
+    }
+
+    @GET
+    @Path("/users/{id}")
+    @CacheResponse(maxAgeSeconds = 60)
+    public void getUser(HttpServiceRequest request, HttpServiceResponder responder, @PathParam("id") String id) {
+      Assert.assertNotNull(System.getProperty(IN_TX));
+      responder.sendString(id + ":" + calls.incrementAndGet());
+    }
   }
 
   // Omit class-level PATH annotation, to verify that prefix is still prepended to handled path.
@@ -353,6 +390,86 @@ public class HttpHandlerGeneratorTest {
     }
   }
 
+  @Test
+  public void testCacheResponse() throws Exception {
+    MetricsContext noOpsMetricsContext =
+      new NoOpMetricsCollectionService().getContext(new HashMap<String, String>());
+    HttpHandlerFactory factory = new HttpHandlerFactory("/prefix", noOpsMetricsContext);
+
+    final AtomicInteger calls = new AtomicInteger();
+    HttpServiceHandlerSpecification spec = new HttpServiceHandlerSpecification(
+      CachedHandler.class.getName(), "cached", "", ImmutableMap.<String, String>of(), ImmutableSet.<String>of(),
+      ImmutableList.<ServiceHttpEndpoint>of());
+    HttpServiceContext serviceContext = new NoOpHttpServiceContext(new HttpResponseCache(1024 * 1024), spec);
+
+    HttpHandler httpHandler = factory.createHttpHandler(
+      TypeToken.of(CachedHandler.class), new AbstractDelegatorContext<CachedHandler>(serviceContext) {
+        @Override
+        protected CachedHandler createHandler() {
+          return new CachedHandler(calls);
+        }
+      });
+
+    NettyHttpService service = NettyHttpService.builder()
+      .addHttpHandlers(ImmutableList.of(httpHandler))
+      .build();
+
+    service.startAndWait();
+    try {
+      InetSocketAddress bindAddress = service.getBindAddress();
+      URL url = new URL(String.format("http://%s:%d/prefix/cached/users/1",
+                                      bindAddress.getHostName(), bindAddress.getPort()));
+
+      // The first request calls the handler, the second one is served from the cache
+      HttpURLConnection urlConn = openCachedConnection(url, "alice", null);
+      Assert.assertEquals(200, urlConn.getResponseCode());
+      Assert.assertEquals("1:1", new String(ByteStreams.toByteArray(urlConn.getInputStream()), Charsets.UTF_8));
+      String etag = urlConn.getHeaderField(HttpHeaders.Names.ETAG);
+      Assert.assertNotNull(etag);
+
+      urlConn = openCachedConnection(url, "alice", null);
+      Assert.assertEquals(200, urlConn.getResponseCode());
+      Assert.assertEquals("1:1", new String(ByteStreams.toByteArray(urlConn.getInputStream()), Charsets.UTF_8));
+      Assert.assertEquals(etag, urlConn.getHeaderField(HttpHeaders.Names.ETAG));
+      Assert.assertEquals(1, calls.get());
+
+      // A matching If-None-Match is answered with 304 from the cache
+      urlConn = openCachedConnection(url, "alice", etag);
+      Assert.assertEquals(304, urlConn.getResponseCode());
+      Assert.assertEquals(1, calls.get());
+
+      // Responses are never shared between users, even without vary headers
+      urlConn = openCachedConnection(url, "bob", null);
+      Assert.assertEquals(200, urlConn.getResponseCode());
+      Assert.assertEquals("1:2", new String(ByteStreams.toByteArray(urlConn.getInputStream()), Charsets.UTF_8));
+
+      urlConn = openCachedConnection(url, null, null);
+      Assert.assertEquals(200, urlConn.getResponseCode());
+      Assert.assertEquals("1:3", new String(ByteStreams.toByteArray(urlConn.getInputStream()), Charsets.UTF_8));
+
+      // After an invalidation, the handler is called again
+      serviceContext.invalidateResponseCache("/cached/users");
+      urlConn = openCachedConnection(url, "alice", null);
+      Assert.assertEquals(200, urlConn.getResponseCode());
+      Assert.assertEquals("1:4", new String(ByteStreams.toByteArray(urlConn.getInputStream()), Charsets.UTF_8));
+      Assert.assertEquals(4, calls.get());
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
+  private HttpURLConnection openCachedConnection(URL url, @Nullable String userId,
+                                                 @Nullable String ifNoneMatch) throws IOException {
+    HttpURLConnection urlConn = (HttpURLConnection) url.openConnection();
+    if (userId != null) {
+      urlConn.setRequestProperty(Constants.Security.Headers.USER_ID, userId);
+    }
+    if (ifNoneMatch != null) {
+      urlConn.setRequestProperty(HttpHeaders.Names.IF_NONE_MATCH, ifNoneMatch);
+    }
+    return urlConn;
+  }
+
   @Test
   public void testContentConsumer() throws Exception {
     MetricsContext noOpsMetricsContext =
@@ -561,6 +678,18 @@ public class HttpHandlerGeneratorTest {
       urlConn.setReadTimeout(2000);
 
       Assert.assertEquals("OK", new String(ByteStreams.toByteArray(urlConn.getInputStream()), Charsets.UTF_8));
+
+      // JSON responses from handler with explicit transaction, both smaller and larger than the streaming chunk size
+      for (int size : new int[] { 10, 100000 }) {
+        urlConn = new URL(String.format("http://%s:%d/prefix/p2/json/%d",
+                                        bindAddress.getHostName(), bindAddress.getPort(), size)).openConnection();
+        urlConn.setReadTimeout(2000);
+        List<String> values = new Gson().fromJson(
+          new String(ByteStreams.toByteArray(urlConn.getInputStream()), Charsets.UTF_8),
+          new TypeToken<List<String>>() { }.getType());
+        Assert.assertEquals(size, values.size());
+        Assert.assertEquals("value" + (size - 1), values.get(size - 1));
+      }
     } finally {
       service.stopAndWait();
     }
@@ -568,6 +697,8 @@ public class HttpHandlerGeneratorTest {
 
   private abstract static class AbstractDelegatorContext<T extends HttpServiceHandler> implements DelegatorContext<T> {
 
+    private final HttpServiceContext serviceContext;
+
     private final ThreadLocal<T> threadLocal = new ThreadLocal<T>() {
       @Override
       protected T initialValue() {
@@ -575,6 +706,14 @@ public class HttpHandlerGeneratorTest {
       }
     };
 
+    AbstractDelegatorContext() {
+      this(new NoOpHttpServiceContext());
+    }
+
+    AbstractDelegatorContext(HttpServiceContext serviceContext) {
+      this.serviceContext = serviceContext;
+    }
+
     @Override
     public final T getHandler() {
       return threadLocal.get();
@@ -582,7 +721,7 @@ public class HttpHandlerGeneratorTest {
 
     @Override
     public final HttpServiceContext getServiceContext() {
-      return new NoOpHttpServiceContext();
+      return serviceContext;
     }
 
     @Override
@@ -604,9 +743,22 @@ public class HttpHandlerGeneratorTest {
    */
   private static class NoOpHttpServiceContext implements TransactionalHttpServiceContext {
 
+    private final HttpResponseCache responseCache;
+    private final HttpServiceHandlerSpecification specification;
+
+    NoOpHttpServiceContext() {
+      this(null, null);
+    }
+
+    NoOpHttpServiceContext(@Nullable HttpResponseCache responseCache,
+                           @Nullable HttpServiceHandlerSpecification specification) {
+      this.responseCache = responseCache;
+      this.specification = specification;
+    }
+
     @Override
     public HttpServiceHandlerSpecification getSpecification() {
-      return null;
+      return specification;
     }
 
     @Override
@@ -723,6 +875,19 @@ public class HttpHandlerGeneratorTest {
       return 30;
     }
 
+    @Nullable
+    @Override
+    public HttpResponseCache getResponseCache() {
+      return responseCache;
+    }
+
+    @Override
+    public void invalidateResponseCache(String pathPrefix) {
+      if (responseCache != null && specification != null) {
+        responseCache.invalidate(specification.getName(), pathPrefix);
+      }
+    }
+
     @Override
     public URL getServiceURL(String applicationId, String serviceId) {
       return null;
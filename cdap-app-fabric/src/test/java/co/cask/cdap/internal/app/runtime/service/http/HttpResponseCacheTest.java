@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.service.http;
+
+import com.google.common.collect.ImmutableMultimap;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+/**
+ * Unit tests for {@link HttpResponseCache}.
+ */
+public class HttpResponseCacheTest {
+
+  @Test
+  public void testInvalidation() {
+    HttpResponseCache cache = new HttpResponseCache(1024);
+    HttpResponseCache.Key user1 = createKey("handler", "/users/1");
+    HttpResponseCache.Key user2 = createKey("handler", "/users/2");
+    HttpResponseCache.Key group = createKey("handler", "/groups/1");
+    HttpResponseCache.Key otherHandler = createKey("other", "/users/1");
+
+    for (HttpResponseCache.Key key : new HttpResponseCache.Key[] { user1, user2, group, otherHandler }) {
+      cache.put(key, createEntry("value"), cache.getVersion());
+      Assert.assertNotNull(cache.get(key));
+    }
+
+    cache.invalidate("handler", "/users");
+    Assert.assertNull(cache.get(user1));
+    Assert.assertNull(cache.get(user2));
+    Assert.assertNotNull(cache.get(group));
+    Assert.assertNotNull(cache.get(otherHandler));
+
+    cache.invalidate("handler", "");
+    Assert.assertNull(cache.get(group));
+    Assert.assertNotNull(cache.get(otherHandler));
+  }
+
+  @Test
+  public void testStaleResponse() {
+    HttpResponseCache cache = new HttpResponseCache(1024);
+    HttpResponseCache.Key key = createKey("handler", "/users/1");
+
+    // A response computed before an invalidation must not be cached
+    long version = cache.getVersion();
+    cache.invalidate("handler", "/users");
+    cache.put(key, createEntry("value"), version);
+    Assert.assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testExpiration() {
+    HttpResponseCache cache = new HttpResponseCache(1024);
+    HttpResponseCache.Key key = createKey("handler", "/users/1");
+    HttpResponseCache.Entry entry = new HttpResponseCache.Entry(200, "text/plain", new byte[0],
+                                                                ImmutableMultimap.<String, String>of(), 0);
+    cache.put(key, entry, cache.getVersion());
+    Assert.assertNull(cache.get(key));
+  }
+
+  @Test
+  public void testETag() {
+    HttpResponseCache.Entry entry = createEntry("value");
+    Assert.assertEquals(entry.getETag(), createEntry("value").getETag());
+    Assert.assertNotEquals(entry.getETag(), createEntry("other").getETag());
+
+    Assert.assertFalse(entry.matches(null));
+    Assert.assertTrue(entry.matches(entry.getETag()));
+    Assert.assertTrue(entry.matches("\"abc\", W/" + entry.getETag()));
+    Assert.assertTrue(entry.matches("*"));
+    Assert.assertFalse(entry.matches(createEntry("other").getETag()));
+  }
+
+  @Test
+  public void testNotCacheable() {
+    Assert.assertTrue(createEntry("value").isCacheable());
+    Assert.assertFalse(new HttpResponseCache.Entry(200, "text/plain", new byte[0],
+                                                   ImmutableMultimap.of(HttpHeaders.Names.SET_COOKIE, "a=b"), 60)
+                         .isCacheable());
+    Assert.assertFalse(new HttpResponseCache.Entry(200, "text/plain", new byte[0],
+                                                   ImmutableMultimap.of(HttpHeaders.Names.CACHE_CONTROL, "no-store"),
+                                                   60).isCacheable());
+  }
+
+  @Test
+  public void testDisabled() {
+    HttpResponseCache cache = new HttpResponseCache(0);
+    HttpResponseCache.Key key = createKey("handler", "/users/1");
+    cache.put(key, createEntry("value"), cache.getVersion());
+    Assert.assertNull(cache.get(key));
+  }
+
+  private HttpResponseCache.Key createKey(String handlerName, String path) {
+    return new HttpResponseCache.Key(handlerName, path, "", "user", Collections.<String>emptyList());
+  }
+
+  private HttpResponseCache.Entry createEntry(String body) {
+    return new HttpResponseCache.Entry(200, "text/plain", body.getBytes(StandardCharsets.UTF_8),
+                                       ImmutableMultimap.<String, String>of(), 60);
+  }
+}
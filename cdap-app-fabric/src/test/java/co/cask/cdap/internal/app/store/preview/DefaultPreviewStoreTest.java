@@ -19,6 +19,7 @@ import co.cask.cdap.common.app.RunIds;
 import co.cask.cdap.internal.AppFabricTestHelper;
 import co.cask.cdap.proto.NamespaceMeta;
 import co.cask.cdap.proto.id.ApplicationId;
+import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.reflect.TypeToken;
@@ -28,6 +29,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -92,4 +95,24 @@ public class DefaultPreviewStoreTest {
     firstApplicationData = store.get(firstApplicationId, "mytracer");
     Assert.assertEquals(0, firstApplicationData.size());
   }
+
+  @Test
+  public void testPutAll() throws Exception {
+    ApplicationId applicationId = new ApplicationId(NamespaceMeta.DEFAULT.getName(), RunIds.generate().getId());
+
+    store.put(applicationId, "mytracer", "key1", "value1");
+    store.putAll(applicationId, "mytracer", Arrays.asList(Maps.immutableEntry("key1", "value2"),
+                                                          Maps.immutableEntry("key2", 3),
+                                                          Maps.immutableEntry("key1", "value3")));
+    store.putAll(applicationId, "mytracer", Collections.<Map.Entry<String, Object>>emptyList());
+
+    // values are returned in the order they were put
+    Map<String, List<JsonElement>> data = store.get(applicationId, "mytracer");
+    Assert.assertEquals(2, data.size());
+    Assert.assertEquals(Arrays.asList("value1", "value2", "value3"),
+                        Arrays.asList(data.get("key1").get(0).getAsString(), data.get("key1").get(1).getAsString(),
+                                      data.get("key1").get(2).getAsString()));
+    Assert.assertEquals(1, data.get("key2").size());
+    Assert.assertEquals(3, data.get("key2").get(0).getAsInt());
+  }
 }
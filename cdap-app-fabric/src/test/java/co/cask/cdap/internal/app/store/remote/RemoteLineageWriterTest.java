@@ -55,7 +55,7 @@ public class RemoteLineageWriterTest extends AppFabricTestBase {
   }
 
   @Test
-  public void testSimpleCase() {
+  public void testSimpleCase() throws Exception {
     long now = System.currentTimeMillis();
     ApplicationId appId = NamespaceId.DEFAULT.app("test_app");
     ProgramId flowId = appId.flow("test_flow");
@@ -69,6 +69,8 @@ public class RemoteLineageWriterTest extends AppFabricTestBase {
     // test null serialization
     remoteLineageWriter.addAccess(runId, datasetId, AccessType.READ, null);
     expectedRelations.add(new Relation(datasetId, flowId, AccessType.READ, twillRunId));
+    // Accesses are written in batches
+    remoteLineageWriter.flush();
 
     Assert.assertEquals(ImmutableSet.of(flowId, datasetId), lineageStore.getEntitiesForRun(runId));
 
@@ -77,12 +79,14 @@ public class RemoteLineageWriterTest extends AppFabricTestBase {
 
     remoteLineageWriter.addAccess(runId, streamId, AccessType.READ);
     expectedRelations.add(new Relation(streamId, flowId, AccessType.READ, twillRunId));
+    remoteLineageWriter.flush();
 
     Assert.assertEquals(expectedRelations,
                         lineageStore.getRelations(flowId, now, now + 1, Predicates.<Relation>alwaysTrue()));
 
     remoteLineageWriter.addAccess(runId, streamId, AccessType.WRITE);
     expectedRelations.add(new Relation(streamId, flowId, AccessType.WRITE, twillRunId));
+    remoteLineageWriter.flush();
 
     Assert.assertEquals(expectedRelations,
                         lineageStore.getRelations(flowId, now, now + 1, Predicates.<Relation>alwaysTrue()));
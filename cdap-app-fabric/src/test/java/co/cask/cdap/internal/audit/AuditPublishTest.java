@@ -22,6 +22,7 @@ import co.cask.cdap.api.messaging.TopicNotFoundException;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data2.audit.AuditModule;
+import co.cask.cdap.data2.audit.AuditPublisher;
 import co.cask.cdap.internal.AppFabricTestHelper;
 import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.messaging.data.RawMessage;
@@ -51,6 +52,7 @@ import org.junit.ClassRule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.Flushable;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -73,6 +75,7 @@ public class AuditPublishTest {
   private static CConfiguration cConf;
   private static MessagingService messagingService;
   private static TopicId auditTopic;
+  private static AuditPublisher auditPublisher;
 
   @BeforeClass
   public static void init() throws Exception {
@@ -86,6 +89,7 @@ public class AuditPublishTest {
     }
 
     auditTopic = NamespaceId.SYSTEM.topic(cConf.get(Constants.Audit.TOPIC));
+    auditPublisher = injector.getInstance(AuditPublisher.class);
   }
 
   @AfterClass
@@ -119,6 +123,11 @@ public class AuditPublishTest {
     // Deploy application
     AppFabricTestHelper.deployApplication(Id.Namespace.DEFAULT, WordCountApp.class, null, cConf);
 
+    // Audit messages are published in the background
+    if (auditPublisher instanceof Flushable) {
+      ((Flushable) auditPublisher).flush();
+    }
+
     // Verify audit messages
     List<AuditMessage> publishedMessages = fetchAuditMessages();
 
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link TimerWheel}.
+ */
+public class TimerWheelTest {
+
+  @Test
+  public void testExpiration() {
+    TimerWheel<String> wheel = new TimerWheel<>(10, 8, 1000);
+    Assert.assertEquals(Long.MAX_VALUE, wheel.getNextExpirationTime());
+
+    // Already due
+    Assert.assertFalse(wheel.add("past", 1005));
+
+    Assert.assertTrue(wheel.add("a", 1020));
+    Assert.assertTrue(wheel.add("b", 1055));
+    // Beyond the span of the wheel, goes to the overflow wheel
+    Assert.assertTrue(wheel.add("c", 1500));
+    Assert.assertEquals(3, wheel.size());
+    Assert.assertEquals(1020, wheel.getNextExpirationTime());
+
+    List<String> expired = new ArrayList<>();
+    wheel.advance(1019, expired);
+    Assert.assertTrue(expired.isEmpty());
+
+    wheel.advance(1020, expired);
+    Assert.assertEquals(ImmutableList.of("a"), expired);
+
+    expired.clear();
+    wheel.advance(1100, expired);
+    Assert.assertEquals(ImmutableList.of("b"), expired);
+    Assert.assertEquals(1, wheel.size());
+
+    expired.clear();
+    wheel.advance(1490, expired);
+    Assert.assertTrue(expired.isEmpty());
+    wheel.advance(1500, expired);
+    Assert.assertEquals(ImmutableList.of("c"), expired);
+    Assert.assertEquals(0, wheel.size());
+    Assert.assertEquals(Long.MAX_VALUE, wheel.getNextExpirationTime());
+  }
+
+  @Test
+  public void testRandom() {
+    Random random = new Random();
+    long tick = 7;
+    long now = random.nextInt(100000);
+    TimerWheel<Integer> wheel = new TimerWheel<>(tick, 16, now);
+    Map<Integer, Long> expireTimes = new HashMap<>();
+
+    List<Integer> expired = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      long expireTime = now + random.nextInt(20000);
+      if (wheel.add(i, expireTime)) {
+        expireTimes.put(i, expireTime);
+      }
+      if (random.nextInt(10) == 0 && wheel.size() > 0) {
+        // Nothing can expire before the next expiration time
+        long nextTime = wheel.getNextExpirationTime();
+        wheel.advance(nextTime - 1, expired);
+        Assert.assertTrue(expired.isEmpty());
+
+        now = Math.max(now, nextTime - 1) + random.nextInt(500);
+        wheel.advance(now, expired);
+        for (Integer item : expired) {
+          // Items are expired at most one tick early, and never late
+          Assert.assertTrue(expireTimes.remove(item) < now + tick);
+        }
+        for (long remaining : expireTimes.values()) {
+          Assert.assertTrue(remaining > now);
+        }
+        expired.clear();
+      }
+    }
+    Assert.assertEquals(expireTimes.size(), wheel.size());
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.scheduler;
+
+import co.cask.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ * Unit tests for {@link TriggerIndex}.
+ */
+public class TriggerIndexTest {
+
+  @Test
+  public void testInvalidation() {
+    TriggerIndex index = new TriggerIndex();
+    Assert.assertNull(index.get("key"));
+
+    // Trigger keys without schedules are indexed too
+    index.put("key", Collections.<ProgramScheduleRecord>emptyList(), index.getVersion());
+    Assert.assertNotNull(index.get("key"));
+    Assert.assertTrue(index.get("key").isEmpty());
+
+    index.invalidate();
+    Assert.assertNull(index.get("key"));
+  }
+
+  @Test
+  public void testStaleLookup() {
+    TriggerIndex index = new TriggerIndex();
+
+    // A lookup that started before an invalidation must not be indexed
+    long version = index.getVersion();
+    index.invalidate();
+    index.put("key", Collections.<ProgramScheduleRecord>emptyList(), version);
+    Assert.assertNull(index.get("key"));
+
+    index.put("key", Collections.<ProgramScheduleRecord>emptyList(), index.getVersion());
+    Assert.assertNotNull(index.get("key"));
+  }
+}
@@ -299,7 +299,7 @@ public class SmartWorkflow extends AbstractWorkflow {
         datasetName = "conn-" + connectorNum++;
         connectorDatasets.put(connectorName, datasetName);
         // add the local dataset
-        ConnectorSource connectorSource = new ConnectorSource(datasetName, null);
+        ConnectorSource connectorSource = new ConnectorSource(datasetName);
         connectorSource.configure(getConfigurer());
       }
     }
@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.connector;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.format.StructuredRecordStringConverter;
+import co.cask.cdap.format.io.StructuredRecordDatumReader;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Input format of the connector datasets. It reads the sequence files written by {@link ConnectorOutputFormat}, as
+ * well as the text files of json records written by earlier versions of the connector. The key of a record is the
+ * name of the stage that emitted the record.
+ */
+public class ConnectorInputFormat extends FileInputFormat<String, StructuredRecord> {
+
+  // Schema of the json records, which carry the stage name and the schema of the record along with the record itself
+  private static final Schema RECORD_WITH_SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("stageName", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("schema", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("record", Schema.of(Schema.Type.STRING)));
+  private static final byte[] SEQUENCE_FILE_MAGIC = new byte[] { 'S', 'E', 'Q' };
+  private static final StructuredRecordDatumReader DATUM_READER = new StructuredRecordDatumReader();
+
+  @Override
+  public RecordReader<String, StructuredRecord> createRecordReader(InputSplit split,
+                                                                   TaskAttemptContext context) throws IOException {
+    Path path = ((FileSplit) split).getPath();
+    if (isSequenceFile(path.getFileSystem(context.getConfiguration()), path)) {
+      return new BinaryRecordReader();
+    }
+    return new JsonRecordReader();
+  }
+
+  private static boolean isSequenceFile(FileSystem fs, Path path) throws IOException {
+    byte[] magic = new byte[SEQUENCE_FILE_MAGIC.length];
+    try (FSDataInputStream is = fs.open(path)) {
+      is.readFully(magic);
+    } catch (EOFException e) {
+      return false;
+    }
+    return Arrays.equals(SEQUENCE_FILE_MAGIC, magic);
+  }
+
+  /**
+   * A {@link RecordReader} that reads binary encoded records from a sequence file written by
+   * {@link ConnectorOutputFormat}.
+   */
+  private static final class BinaryRecordReader extends RecordReader<String, StructuredRecord> {
+
+    private final BytesWritable value = new BytesWritable();
+    private final DataInputBuffer buffer = new DataInputBuffer();
+    private final DataInputDecoder decoder = new DataInputDecoder(buffer);
+    private SequenceFile.Reader reader;
+    private String stageName;
+    private Schema schema;
+    private StructuredRecord record;
+    private long start;
+    private long end;
+    private boolean more;
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+      FileSplit fileSplit = (FileSplit) split;
+      Configuration conf = context.getConfiguration();
+      reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(fileSplit.getPath()));
+
+      SequenceFile.Metadata metadata = reader.getMetadata();
+      Text stageName = metadata.get(ConnectorOutputFormat.STAGE_NAME);
+      Text schema = metadata.get(ConnectorOutputFormat.SCHEMA);
+      if (stageName == null || schema == null) {
+        throw new IOException("Missing stage name or schema in the metadata of connector file " + fileSplit.getPath());
+      }
+      this.stageName = stageName.toString();
+      this.schema = Schema.parseJson(schema.toString());
+
+      end = fileSplit.getStart() + fileSplit.getLength();
+      if (fileSplit.getStart() > reader.getPosition()) {
+        reader.sync(fileSplit.getStart());
+      }
+      start = reader.getPosition();
+      more = start < end;
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException {
+      if (!more) {
+        return false;
+      }
+      long pos = reader.getPosition();
+      // Records after the first sync mark past the end of the split belong to the next split
+      if (!reader.next(NullWritable.get(), value) || (pos >= end && reader.syncSeen())) {
+        more = false;
+        record = null;
+        return false;
+      }
+      buffer.reset(value.getBytes(), value.getLength());
+      record = DATUM_READER.read(decoder, schema);
+      return true;
+    }
+
+    @Override
+    public String getCurrentKey() {
+      return stageName;
+    }
+
+    @Override
+    public StructuredRecord getCurrentValue() {
+      return record;
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+      if (end == start) {
+        return 0.0f;
+      }
+      return Math.min(1.0f, (reader.getPosition() - start) / (float) (end - start));
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (reader != null) {
+        reader.close();
+      }
+    }
+  }
+
+  /**
+   * A {@link RecordReader} that reads the text files of json records written by earlier versions of the connector.
+   */
+  private static final class JsonRecordReader extends RecordReader<String, StructuredRecord> {
+
+    private final LineRecordReader lineReader = new LineRecordReader();
+    private String stageName;
+    private StructuredRecord record;
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+      lineReader.initialize(split, context);
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException {
+      if (!lineReader.nextKeyValue()) {
+        stageName = null;
+        record = null;
+        return false;
+      }
+      StructuredRecord recordWithSchema =
+        StructuredRecordStringConverter.fromJsonString(lineReader.getCurrentValue().toString(), RECORD_WITH_SCHEMA);
+      Schema schema = Schema.parseJson((String) recordWithSchema.get("schema"));
+      stageName = recordWithSchema.get("stageName");
+      record = StructuredRecordStringConverter.fromJsonString((String) recordWithSchema.get("record"), schema);
+      return true;
+    }
+
+    @Override
+    public String getCurrentKey() {
+      return stageName;
+    }
+
+    @Override
+    public StructuredRecord getCurrentValue() {
+      return record;
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+      return lineReader.getProgress();
+    }
+
+    @Override
+    public void close() throws IOException {
+      lineReader.close();
+    }
+  }
+}
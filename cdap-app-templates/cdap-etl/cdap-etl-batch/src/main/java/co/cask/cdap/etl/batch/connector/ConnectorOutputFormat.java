@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.connector;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.format.io.StructuredRecordDatumWriter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Output format of the connector datasets. Records are binary encoded and written to sequence files, with the name
+ * of the stage and the schema of the records written once in the metadata of each file. Hence a task writes one file
+ * for each distinct stage name and schema it receives.
+ */
+public class ConnectorOutputFormat extends FileOutputFormat<String, StructuredRecord> {
+
+  static final Text STAGE_NAME = new Text("cdap.connector.stage.name");
+  static final Text SCHEMA = new Text("cdap.connector.schema");
+
+  private static final StructuredRecordDatumWriter DATUM_WRITER = new StructuredRecordDatumWriter();
+
+  @Override
+  public RecordWriter<String, StructuredRecord> getRecordWriter(TaskAttemptContext context) throws IOException {
+    return new ConnectorRecordWriter(context);
+  }
+
+  /**
+   * A {@link RecordWriter} that writes records to a sequence file per stage name and schema.
+   */
+  private final class ConnectorRecordWriter extends RecordWriter<String, StructuredRecord> {
+
+    private final TaskAttemptContext context;
+    private final SequenceFile.Writer.Option compression;
+    private final Map<String, Map<Schema, SequenceFile.Writer>> writers;
+    private final DataOutputBuffer buffer;
+    private final DataOutputEncoder encoder;
+    private final BytesWritable value;
+    private String lastStageName;
+    private Schema lastSchema;
+    private SequenceFile.Writer lastWriter;
+
+    ConnectorRecordWriter(TaskAttemptContext context) {
+      this.context = context;
+      this.compression = getCompression(context);
+      this.writers = new HashMap<>();
+      this.buffer = new DataOutputBuffer();
+      this.encoder = new DataOutputEncoder(buffer);
+      this.value = new BytesWritable();
+    }
+
+    @Override
+    public void write(String stageName, StructuredRecord record) throws IOException {
+      // Records of a stage mostly share the same schema instance, so the writer lookup is usually skipped
+      Schema schema = record.getSchema();
+      if (schema != lastSchema || !stageName.equals(lastStageName)) {
+        lastWriter = getWriter(stageName, schema);
+        lastStageName = stageName;
+        lastSchema = schema;
+      }
+
+      buffer.reset();
+      DATUM_WRITER.encode(record, encoder);
+      value.set(buffer.getData(), 0, buffer.getLength());
+      lastWriter.append(NullWritable.get(), value);
+    }
+
+    @Override
+    public void close(TaskAttemptContext context) throws IOException {
+      IOException failure = null;
+      for (Map<Schema, SequenceFile.Writer> stageWriters : writers.values()) {
+        for (SequenceFile.Writer writer : stageWriters.values()) {
+          try {
+            writer.close();
+          } catch (IOException e) {
+            if (failure == null) {
+              failure = e;
+            } else {
+              failure.addSuppressed(e);
+            }
+          }
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    }
+
+    private SequenceFile.Writer getWriter(String stageName, Schema schema) throws IOException {
+      Map<Schema, SequenceFile.Writer> stageWriters = writers.get(stageName);
+      if (stageWriters == null) {
+        stageWriters = new HashMap<>();
+        writers.put(stageName, stageWriters);
+      }
+      SequenceFile.Writer writer = stageWriters.get(schema);
+      if (writer != null) {
+        return writer;
+      }
+
+      int fileCount = 0;
+      for (Map<Schema, SequenceFile.Writer> existing : writers.values()) {
+        fileCount += existing.size();
+      }
+      SequenceFile.Metadata metadata = new SequenceFile.Metadata();
+      metadata.set(STAGE_NAME, new Text(stageName));
+      metadata.set(SCHEMA, new Text(schema.toString()));
+      writer = SequenceFile.createWriter(context.getConfiguration(),
+                                         SequenceFile.Writer.file(getDefaultWorkFile(context, "." + fileCount)),
+                                         SequenceFile.Writer.keyClass(NullWritable.class),
+                                         SequenceFile.Writer.valueClass(BytesWritable.class),
+                                         compression,
+                                         SequenceFile.Writer.progressable(context),
+                                         SequenceFile.Writer.metadata(metadata));
+      stageWriters.put(schema, writer);
+      return writer;
+    }
+  }
+
+  /**
+   * Returns the compression of the sequence files, which follows the output compression settings of the job.
+   */
+  private static SequenceFile.Writer.Option getCompression(TaskAttemptContext context) {
+    if (!getCompressOutput(context)) {
+      return SequenceFile.Writer.compression(SequenceFile.CompressionType.NONE);
+    }
+    Configuration conf = context.getConfiguration();
+    Class<? extends CompressionCodec> codecClass = getOutputCompressorClass(context, DefaultCodec.class);
+    return SequenceFile.Writer.compression(SequenceFileOutputFormat.getOutputCompressionType(context),
+                                           ReflectionUtils.newInstance(codecClass, conf));
+  }
+}
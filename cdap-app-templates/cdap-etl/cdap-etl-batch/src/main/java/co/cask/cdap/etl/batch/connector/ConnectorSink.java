@@ -17,18 +17,13 @@
 package co.cask.cdap.etl.batch.connector;
 
 import co.cask.cdap.api.data.format.StructuredRecord;
-import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.dataset.lib.KeyValue;
 import co.cask.cdap.api.dataset.lib.PartitionKey;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSetArguments;
 import co.cask.cdap.etl.api.Emitter;
 import co.cask.cdap.etl.api.batch.BatchSink;
 import co.cask.cdap.etl.api.batch.BatchSinkContext;
-import co.cask.cdap.format.StructuredRecordStringConverter;
-import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.io.Text;
 
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -44,9 +39,10 @@ import java.util.Map;
  * This is because we don't want this to show up as a plugin that users can select and use, and also because
  * it uses features not exposed in the etl api (local workflow datasets).
  *
- * TODO: improve storage format. It is currently a json of the record but that is obviously not ideal
+ * Records are stored in a binary format by the {@link ConnectorOutputFormat}, keyed by the name of the stage that
+ * emitted them.
  */
-public class ConnectorSink extends BatchSink<KeyValue<String, StructuredRecord>, NullWritable, Text> {
+public class ConnectorSink extends BatchSink<KeyValue<String, StructuredRecord>, String, StructuredRecord> {
   private final String datasetName;
   private final String phaseName;
 
@@ -64,20 +60,8 @@ public class ConnectorSink extends BatchSink<KeyValue<String, StructuredRecord>,
   }
 
   @Override
-  public void transform(KeyValue<String, StructuredRecord> input, Emitter<KeyValue<NullWritable, Text>> emitter)
-    throws Exception {
-    StructuredRecord modifiedRecord = modifyRecord(input);
-    emitter.emit(new KeyValue<>(NullWritable.get(), new Text(StructuredRecordStringConverter.
-      toJsonString(modifiedRecord))));
-  }
-
-  private StructuredRecord modifyRecord(KeyValue<String, StructuredRecord> input) throws IOException {
-    String stageName = input.getKey();
-    Schema inputSchema = input.getValue().getSchema();
-    return StructuredRecord.builder(ConnectorSource.RECORD_WITH_SCHEMA)
-      .set("stageName", stageName)
-      .set("schema", inputSchema.toString())
-      .set("record", StructuredRecordStringConverter.toJsonString(input.getValue()))
-      .build();
+  public void transform(KeyValue<String, StructuredRecord> input,
+                        Emitter<KeyValue<String, StructuredRecord>> emitter) throws Exception {
+    emitter.emit(input);
   }
 }
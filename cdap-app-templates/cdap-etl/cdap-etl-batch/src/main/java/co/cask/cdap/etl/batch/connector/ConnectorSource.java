@@ -18,7 +18,6 @@ package co.cask.cdap.etl.batch.connector;
 
 import co.cask.cdap.api.data.batch.Input;
 import co.cask.cdap.api.data.format.StructuredRecord;
-import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.dataset.lib.KeyValue;
 import co.cask.cdap.api.dataset.lib.PartitionDetail;
 import co.cask.cdap.api.dataset.lib.PartitionFilter;
@@ -30,15 +29,9 @@ import co.cask.cdap.api.workflow.WorkflowConfigurer;
 import co.cask.cdap.etl.api.Emitter;
 import co.cask.cdap.etl.api.batch.BatchSource;
 import co.cask.cdap.etl.api.batch.BatchSourceContext;
-import co.cask.cdap.format.StructuredRecordStringConverter;
-import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
-import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
 
 import java.util.HashMap;
 import java.util.Map;
-import javax.annotation.Nullable;
 
 /**
  * Internal batch source used as a connector between pipeline phases.
@@ -52,21 +45,13 @@ import javax.annotation.Nullable;
  * This is because we don't want this to show up as a plugin that users can select and use, and also because
  * it uses features not exposed in the etl api (local workflow datasets).
  *
- * TODO: improve storage format. It is currently a json of the record but that is obviously not ideal
+ * Records are read by the {@link ConnectorInputFormat}, keyed by the name of the stage that emitted them.
  */
-public class ConnectorSource extends BatchSource<LongWritable, Text, KeyValue<String, StructuredRecord>> {
-  static final Schema RECORD_WITH_SCHEMA = Schema.recordOf(
-    "record",
-    Schema.Field.of("stageName", Schema.of(Schema.Type.STRING)),
-    Schema.Field.of("schema", Schema.of(Schema.Type.STRING)),
-    Schema.Field.of("record", Schema.of(Schema.Type.STRING)));
+public class ConnectorSource extends BatchSource<String, StructuredRecord, KeyValue<String, StructuredRecord>> {
   private final String datasetName;
-  @Nullable
-  private final Schema schema;
 
-  public ConnectorSource(String datasetName, @Nullable Schema schema) {
+  public ConnectorSource(String datasetName) {
     this.datasetName = datasetName;
-    this.schema = schema;
   }
 
   // not the standard configurePipeline method. Need a workflowConfigurer to create a local dataset
@@ -78,8 +63,8 @@ public class ConnectorSource extends BatchSource<LongWritable, Text, KeyValue<St
     workflowConfigurer.createLocalDataset(datasetName, PartitionedFileSet.class,
                                           PartitionedFileSetProperties.builder()
                                             .setPartitioning(partitioning)
-                                            .setInputFormat(TextInputFormat.class)
-                                            .setOutputFormat(TextOutputFormat.class)
+                                            .setInputFormat(ConnectorInputFormat.class)
+                                            .setOutputFormat(ConnectorOutputFormat.class)
                                             .build());
   }
 
@@ -94,20 +79,8 @@ public class ConnectorSource extends BatchSource<LongWritable, Text, KeyValue<St
   }
 
   @Override
-  public void transform(KeyValue<LongWritable, Text> input,
+  public void transform(KeyValue<String, StructuredRecord> input,
                         Emitter<KeyValue<String, StructuredRecord>> emitter) throws Exception {
-    StructuredRecord output;
-    String inputStr = input.getValue().toString();
-    StructuredRecord recordWithSchema =
-      StructuredRecordStringConverter.fromJsonString(inputStr, RECORD_WITH_SCHEMA);
-    String stageName = recordWithSchema.get("stageName");
-    if (schema == null) {
-      Schema outputSchema = Schema.parseJson((String) recordWithSchema.get("schema"));
-      output = StructuredRecordStringConverter.fromJsonString((String) recordWithSchema.get("record"), outputSchema);
-    } else {
-      output = StructuredRecordStringConverter.fromJsonString(inputStr, schema);
-    }
-    emitter.emit(new KeyValue<>(stageName, output));
+    emitter.emit(input);
   }
-
 }
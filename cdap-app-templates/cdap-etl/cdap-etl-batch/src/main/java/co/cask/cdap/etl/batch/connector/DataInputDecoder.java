@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.connector;
+
+import co.cask.cdap.common.io.Decoder;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link Decoder} for reading data written by {@link DataOutputEncoder} from a {@link DataInput}.
+ */
+final class DataInputDecoder implements Decoder {
+
+  private final DataInput input;
+
+  DataInputDecoder(DataInput input) {
+    this.input = input;
+  }
+
+  @Nullable
+  @Override
+  public Object readNull() throws IOException {
+    return null;
+  }
+
+  @Override
+  public boolean readBool() throws IOException {
+    return input.readBoolean();
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    return WritableUtils.readVInt(input);
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    return WritableUtils.readVLong(input);
+  }
+
+  @Override
+  public float readFloat() throws IOException {
+    return input.readFloat();
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    return input.readDouble();
+  }
+
+  @Override
+  public String readString() throws IOException {
+    return Text.readString(input);
+  }
+
+  @Override
+  public ByteBuffer readBytes() throws IOException {
+    byte[] bytes = new byte[WritableUtils.readVInt(input)];
+    input.readFully(bytes);
+    return ByteBuffer.wrap(bytes);
+  }
+
+  @Override
+  public void skipFloat() throws IOException {
+    WritableUtils.skipFully(input, 4);
+  }
+
+  @Override
+  public void skipDouble() throws IOException {
+    WritableUtils.skipFully(input, 8);
+  }
+
+  @Override
+  public void skipString() throws IOException {
+    WritableUtils.skipFully(input, WritableUtils.readVInt(input));
+  }
+
+  @Override
+  public void skipBytes() throws IOException {
+    WritableUtils.skipFully(input, WritableUtils.readVInt(input));
+  }
+}
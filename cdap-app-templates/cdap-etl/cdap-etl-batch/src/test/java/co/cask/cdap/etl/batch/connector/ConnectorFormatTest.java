@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.connector;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.format.StructuredRecordStringConverter;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputCommitter;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link ConnectorOutputFormat} and {@link ConnectorInputFormat}.
+ */
+public class ConnectorFormatTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static final Schema SCHEMA1 = Schema.recordOf(
+    "record1",
+    Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("count", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))));
+  private static final Schema SCHEMA2 = Schema.recordOf(
+    "record2",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("data", Schema.of(Schema.Type.BYTES)));
+
+  @Test
+  public void testBinaryFormat() throws Exception {
+    Job job = Job.getInstance(new Configuration());
+    FileOutputFormat.setOutputPath(job, new Path(new File(TMP_FOLDER.newFolder(), "output").toURI()));
+    TaskAttemptContext context = new TaskAttemptContextImpl(job.getConfiguration(),
+                                                            new TaskAttemptID("test", 0, TaskType.MAP, 0, 0));
+    ConnectorOutputFormat outputFormat = new ConnectorOutputFormat();
+
+    List<StructuredRecord> records1 = new ArrayList<>();
+    List<StructuredRecord> records2 = new ArrayList<>();
+    RecordWriter<String, StructuredRecord> writer = outputFormat.getRecordWriter(context);
+    try {
+      for (int i = 0; i < 100; i++) {
+        StructuredRecord record1 = StructuredRecord.builder(SCHEMA1)
+          .set("name", "name" + i)
+          .set("count", (long) i * Integer.MAX_VALUE)
+          .set("score", i % 2 == 0 ? null : i / 3.0d)
+          .set("tags", Arrays.asList("tag" + i, "tag" + (i + 1)))
+          .build();
+        StructuredRecord record2 = StructuredRecord.builder(SCHEMA2)
+          .set("id", -i)
+          .set("data", ByteBuffer.wrap(new byte[] { (byte) i, 1, 2 }))
+          .build();
+        // records of different stages are interleaved
+        writer.write("stage1", record1);
+        writer.write("stage2", record2);
+        records1.add(record1);
+        records2.add(record2);
+      }
+    } finally {
+      writer.close(context);
+    }
+
+    // one file is written for each stage
+    Path workPath = ((FileOutputCommitter) outputFormat.getOutputCommitter(context)).getWorkPath();
+    FileSystem fs = workPath.getFileSystem(job.getConfiguration());
+    FileStatus[] files = fs.listStatus(workPath, new PathFilter() {
+      @Override
+      public boolean accept(Path path) {
+        // skip the checksum files of the local file system
+        return !path.getName().startsWith(".");
+      }
+    });
+    Assert.assertEquals(2, files.length);
+
+    List<String> read1 = new ArrayList<>();
+    List<String> read2 = new ArrayList<>();
+    for (FileStatus file : files) {
+      for (Record record : read(file.getPath(), context)) {
+        if ("stage1".equals(record.stageName)) {
+          read1.add(StructuredRecordStringConverter.toJsonString(record.record));
+        } else {
+          Assert.assertEquals("stage2", record.stageName);
+          read2.add(StructuredRecordStringConverter.toJsonString(record.record));
+        }
+      }
+    }
+    Assert.assertEquals(toJson(records1), read1);
+    Assert.assertEquals(toJson(records2), read2);
+  }
+
+  @Test
+  public void testJsonFormat() throws Exception {
+    Job job = Job.getInstance(new Configuration());
+    TaskAttemptContext context = new TaskAttemptContextImpl(job.getConfiguration(),
+                                                            new TaskAttemptID("test", 0, TaskType.MAP, 0, 0));
+
+    // files written by earlier versions of the connector have a json record per line
+    Schema recordWithSchema = Schema.recordOf(
+      "record",
+      Schema.Field.of("stageName", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("schema", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("record", Schema.of(Schema.Type.STRING)));
+    Set<String> expected = new HashSet<>();
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < 10; i++) {
+      StructuredRecord record = StructuredRecord.builder(SCHEMA2)
+        .set("id", i)
+        .set("data", ByteBuffer.wrap(new byte[] { (byte) i }))
+        .build();
+      expected.add(StructuredRecordStringConverter.toJsonString(record));
+      content.append(StructuredRecordStringConverter.toJsonString(
+        StructuredRecord.builder(recordWithSchema)
+          .set("stageName", "stage")
+          .set("schema", SCHEMA2.toString())
+          .set("record", StructuredRecordStringConverter.toJsonString(record))
+          .build())).append('\n');
+    }
+    File file = TMP_FOLDER.newFile();
+    Files.write(content.toString(), file, Charsets.UTF_8);
+
+    Set<String> actual = new HashSet<>();
+    for (Record record : read(new Path(file.toURI()), context)) {
+      Assert.assertEquals("stage", record.stageName);
+      actual.add(StructuredRecordStringConverter.toJsonString(record.record));
+    }
+    Assert.assertEquals(expected, actual);
+  }
+
+  private List<Record> read(Path path, TaskAttemptContext context) throws IOException, InterruptedException {
+    long length = path.getFileSystem(context.getConfiguration()).getFileStatus(path).getLen();
+    FileSplit split = new FileSplit(path, 0, length, null);
+    List<Record> records = new ArrayList<>();
+    try (RecordReader<String, StructuredRecord> reader = new ConnectorInputFormat().createRecordReader(split,
+                                                                                                     context)) {
+      reader.initialize(split, context);
+      while (reader.nextKeyValue()) {
+        records.add(new Record(reader.getCurrentKey(), reader.getCurrentValue()));
+      }
+    }
+    return records;
+  }
+
+  private List<String> toJson(List<StructuredRecord> records) throws IOException {
+    List<String> json = new ArrayList<>();
+    for (StructuredRecord record : records) {
+      json.add(StructuredRecordStringConverter.toJsonString(record));
+    }
+    return json;
+  }
+
+  /**
+   * A record read from a connector file along with its stage name.
+   */
+  private static final class Record {
+    private final String stageName;
+    private final StructuredRecord record;
+
+    Record(String stageName, StructuredRecord record) {
+      this.stageName = stageName;
+      this.record = record;
+    }
+  }
+}
@@ -176,12 +176,14 @@ public final class Constants {
     public static final String MAPREDUCE_INCLUDE_CUSTOM_CLASSES = "mapreduce.include.custom.format.classes";
     public static final String PROGRAM_RUNID_CORRECTOR_INTERVAL_SECONDS = "app.program.runid.corrector.interval";
     public static final String SYSTEM_ARTIFACTS_DIR = "app.artifact.dir";
+    public static final String ARTIFACT_UNPACK_CACHE_MAX_SIZE_MB = "app.artifact.unpack.cache.max.size.mb";
     public static final String PROGRAM_EXTRA_CLASSPATH = "app.program.extra.classpath";
     public static final String SPARK_YARN_CLIENT_REWRITE = "app.program.spark.yarn.client.rewrite.enabled";
     public static final String SPARK_COMPAT = "app.program.spark.compat";
     public static final String RUNTIME_EXT_DIR = "app.program.runtime.extensions.dir";
     public static final String PROGRAM_MAX_START_SECONDS = "app.program.max.start.seconds";
     public static final String PROGRAM_MAX_STOP_SECONDS = "app.program.max.stop.seconds";
+    public static final String SERVICE_RESPONSE_CACHE_MAX_BYTES = "app.program.service.response.cache.max.bytes";
 
     /**
      * Guice named bindings.
@@ -250,6 +252,10 @@ public final class Constants {
     public static final String ADDRESS = "preview.bind.address";
 
     public static final String PREVIEW_CACHE_SIZE = "preview.cache.size";
+
+    public static final String TRACER_MAX_RECORDS = "preview.tracer.max.records";
+    public static final String TRACER_BATCH_SIZE = "preview.tracer.batch.size";
+    public static final String TRACER_FLUSH_INTERVAL_MS = "preview.tracer.flush.interval.ms";
   }
 
   /**
@@ -266,6 +272,14 @@ public final class Constants {
      * Topic name for publishing time events from stream size scheduler to the messaging system
      */
     public static final String STREAM_SIZE_EVENT_TOPIC = "stream.size.event.topic";
+    /**
+     * Resolution of the timer wheel for re-checking job constraints
+     */
+    public static final String CONSTRAINT_CHECKER_TICK_MS = "scheduler.constraint.checker.tick.ms";
+    /**
+     * Interval between full scans of the job queue by the constraint checker
+     */
+    public static final String CONSTRAINT_CHECKER_SCAN_INTERVAL_MS = "scheduler.constraint.checker.scan.interval.ms";
   }
 
   /**
@@ -334,6 +348,10 @@ public final class Constants {
     // tables. Constant could be moved to Table after that is changed. See CDAP-1193 for more info
     public static final String TABLE_TX_DISABLED = "dataset.table.tx.disabled";
 
+    // Size in bytes of the buffered changes of a transaction above which a table persists them before commit.
+    // Can be overridden per dataset through runtime arguments
+    public static final String TABLE_FLUSH_THRESHOLD_BYTES = "dataset.table.flush.threshold.bytes";
+
     public static final String DATA_DIR = "dataset.data.dir";
     public static final String DEFAULT_DATA_DIR = "data";
 
@@ -341,6 +359,10 @@ public final class Constants {
 
     public static final String DATA_EVENT_TOPIC = "data.event.topic";
 
+    public static final String CLIENT_META_CACHE_TTL_SECS = "dataset.client.meta.cache.ttl.secs";
+    public static final String CLIENT_META_CACHE_MAX_SIZE = "dataset.client.meta.cache.max.size";
+    public static final String CLIENT_META_CACHE_POLL_INTERVAL_MS = "dataset.client.meta.cache.poll.interval.ms";
+
     /**
      * Constants for PartitionedFileSet's DynamicPartitioner
      */
@@ -435,6 +457,10 @@ public final class Constants {
     public static final String FILE_CLEANUP_PERIOD = "stream.file.cleanup.period";
     public static final String BATCH_BUFFER_THRESHOLD = "stream.batch.buffer.threshold";
     public static final String NOTIFICATION_THRESHOLD = "stream.notification.threshold";
+    public static final String COMPRESSION = "stream.compression";
+    public static final String DURABILITY = "stream.durability";
+    public static final String DURABILITY_GROUP_LINGER_MS = "stream.durability.group.linger.ms";
+    public static final String DURABILITY_ASYNC_FLUSH_INTERVAL_MS = "stream.durability.async.flush.interval.ms";
 
     // Stream http service configurations.
     public static final String STREAM_HANDLER = "stream.handler";
@@ -557,6 +583,8 @@ public final class Constants {
     public static final String SERVICE_DESCRIPTION = "Service to handle metrics requests.";
     public static final String PROCESSOR_MAX_DELAY_MS = "metrics.processor.max.delay.ms";
     public static final String QUEUE_SIZE = "metrics.processor.queue.size";
+    public static final String PROCESSOR_FLUSH_INTERVAL_MS = "metrics.processor.flush.interval.ms";
+    public static final String PROCESSOR_MAX_BUFFERED_METRICS = "metrics.processor.max.buffered.metrics";
 
     public static final String ENTITY_TABLE_NAME = "metrics.data.entity.tableName";
     public static final String METRICS_TABLE_PREFIX = "metrics.data.table.prefix";
@@ -770,6 +798,11 @@ public final class Constants {
     public static final String KAFKA_TOPIC = "log.kafka.topic";
     public static final String NUM_PARTITIONS = "log.publish.num.partitions";
     public static final String LOG_PUBLISH_PARTITION_KEY = "log.publish.partition.key";
+    public static final String LOG_PUBLISH_QUEUE_SIZE = "log.publish.queue.size";
+    public static final String LOG_PUBLISH_QUEUE_FULL_POLICY = "log.publish.queue.full.policy";
+    public static final String LOG_PUBLISH_BATCH_SIZE = "log.publish.batch.size";
+    public static final String LOG_PUBLISH_SPILL_DIR = "log.publish.spill.dir";
+    public static final String LOG_PUBLISH_SPILL_MAX_BYTES = "log.publish.spill.max.bytes";
 
     public static final String PIPELINE_CONFIG_DIR = "log.process.pipeline.config.dir";
     public static final String PIPELINE_LIBRARY_DIR = "log.process.pipeline.lib.dir";
@@ -1201,6 +1234,11 @@ public final class Constants {
     public static final String SERVICE_EXEC_THREADS = "metadata.service.exec.threads";
     public static final String HANDLERS_NAME = "metadata.handlers";
     public static final String MAX_CHARS_ALLOWED = "metadata.max.allowed.chars";
+    public static final String LINEAGE_WRITER_FLUSH_INTERVAL_MS = "metadata.lineage.writer.flush.interval.ms";
+    public static final String LINEAGE_WRITER_FLUSH_MAX_ATTEMPTS = "metadata.lineage.writer.flush.max.attempts";
+    public static final String LINEAGE_WRITER_CACHE_SIZE = "metadata.lineage.writer.cache.size";
+    public static final String LINEAGE_WRITER_CACHE_EXPIRATION_SECONDS =
+      "metadata.lineage.writer.cache.expiration.seconds";
   }
 
   /**
@@ -1221,6 +1259,11 @@ public final class Constants {
     public static final String ENABLED = "audit.enabled";
     public static final String TOPIC = "audit.topic";
     public static final String PUBLISH_TIMEOUT_MS = "audit.publish.timeout.ms";
+    public static final String PUBLISH_QUEUE_SIZE = "audit.publish.queue.size";
+    public static final String PUBLISH_QUEUE_FULL_POLICY = "audit.publish.queue.full.policy";
+    public static final String PUBLISH_BATCH_SIZE = "audit.publish.batch.size";
+    public static final String PUBLISH_SPILL_DIR = "audit.publish.spill.dir";
+    public static final String PUBLISH_SPILL_MAX_BYTES = "audit.publish.spill.max.bytes";
   }
 
   /**
@@ -423,6 +423,63 @@ public abstract class StreamDataFileTestBase {
     }
   }
 
+  @Test
+  public void testCompressedReadWrite() throws Exception {
+    for (StreamFileCompression compression : StreamFileCompression.values()) {
+      Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
+      Location eventFile = dir.getTempFile(".dat");
+      Location indexFile = dir.getTempFile(".idx");
+
+      StreamDataFileWriter writer = new StreamDataFileWriter(
+        Locations.newOutputSupplier(eventFile), Locations.newOutputSupplier(indexFile), 10L,
+        ImmutableMap.of(StreamDataFileConstants.Property.Key.COMPRESSION, compression.name().toLowerCase()));
+
+      // Many small identical events in the same block, which compress to less than one byte per event
+      for (int i = 0; i < 1000; i++) {
+        writer.append(StreamFileTestUtils.createEvent(0, "a"));
+      }
+      // Followed by events of different timestamps
+      for (int i = 1; i <= 100; i++) {
+        writer.append(StreamFileTestUtils.createEvent(i, "Testing " + i));
+      }
+      writer.close();
+
+      StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(eventFile));
+      List<PositionStreamEvent> events = Lists.newArrayList();
+      Assert.assertEquals(1100, reader.read(events, 2000, 0, TimeUnit.SECONDS));
+      Assert.assertEquals(-1, reader.read(events, 1, 0, TimeUnit.SECONDS));
+      reader.close();
+
+      // Events must have strictly increasing positions, regardless of compression
+      long lastPosition = -1L;
+      for (int i = 0; i < events.size(); i++) {
+        PositionStreamEvent event = events.get(i);
+        Assert.assertTrue(event.getStart() > lastPosition);
+        lastPosition = event.getStart();
+        String body = i < 1000 ? "a" : "Testing " + (i - 999);
+        Assert.assertEquals(body, Charsets.UTF_8.decode(event.getBody()).toString());
+      }
+
+      // Seeking by position and by time should work the same as uncompressed files
+      for (PositionStreamEvent event : ImmutableList.of(events.get(0), events.get(500), events.get(999),
+                                                        events.get(1000), events.get(1050), events.get(1099))) {
+        reader = StreamDataFileReader.createWithOffset(Locations.newInputSupplier(eventFile),
+                                                       Locations.newInputSupplier(indexFile), event.getStart());
+        List<PositionStreamEvent> readEvents = Lists.newArrayList();
+        Assert.assertEquals(1, reader.read(readEvents, 1, 0, TimeUnit.SECONDS));
+        reader.close();
+        Assert.assertEquals(event.getStart(), readEvents.get(0).getStart());
+      }
+
+      reader = StreamDataFileReader.createByStartTime(Locations.newInputSupplier(eventFile),
+                                                      Locations.newInputSupplier(indexFile), 50L);
+      List<PositionStreamEvent> readEvents = Lists.newArrayList();
+      Assert.assertEquals(1, reader.read(readEvents, 1, 0, TimeUnit.SECONDS));
+      reader.close();
+      Assert.assertEquals(50L, readEvents.get(0).getTimestamp());
+    }
+  }
+
   @Test
   public void testEndOfFile() throws Exception {
     // This test is for opening a reader with start time beyond the last event in the file.
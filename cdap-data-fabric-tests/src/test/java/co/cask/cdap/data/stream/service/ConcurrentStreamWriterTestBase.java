@@ -27,6 +27,7 @@ import co.cask.cdap.data.stream.NoopStreamAdmin;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
 import co.cask.cdap.data.stream.StreamDataFileReader;
 import co.cask.cdap.data.stream.StreamDataFileWriter;
+import co.cask.cdap.data.stream.StreamDurability;
 import co.cask.cdap.data.stream.StreamFileTestUtils;
 import co.cask.cdap.data.stream.StreamFileType;
 import co.cask.cdap.data.stream.StreamFileWriterFactory;
@@ -64,6 +65,8 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 
 /**
  * Unit tests for the {@link ConcurrentStreamWriter}.
@@ -93,14 +96,29 @@ public abstract class ConcurrentStreamWriterTestBase {
 
   @Test
   public void testConcurrentWrite() throws Exception {
-    final String streamName = "testConcurrentWrite";
+    testConcurrentWrite("testConcurrentWrite", null);
+  }
+
+  @Test
+  public void testGroupDurabilityWrite() throws Exception {
+    testConcurrentWrite("testGroupDurabilityWrite", StreamDurability.GROUP);
+  }
+
+  @Test
+  public void testAsyncDurabilityWrite() throws Exception {
+    testConcurrentWrite("testAsyncDurabilityWrite", StreamDurability.ASYNC);
+  }
+
+  private void testConcurrentWrite(String streamName, @Nullable StreamDurability durability) throws Exception {
     NamespaceId namespace = new NamespaceId("namespace");
     StreamId streamId = namespace.stream(streamName);
-    StreamAdmin streamAdmin = new TestStreamAdmin(getNamespacedLocationFactory(), Long.MAX_VALUE, 1000);
+    StreamAdmin streamAdmin = new TestStreamAdmin(getNamespacedLocationFactory(), Long.MAX_VALUE, 1000, durability);
     int threads = Runtime.getRuntime().availableProcessors() * 4;
 
     StreamFileWriterFactory fileWriterFactory = createStreamFileWriterFactory();
-    final ConcurrentStreamWriter streamWriter = createStreamWriter(streamId, streamAdmin, threads, fileWriterFactory);
+    TestMetricsCollectorFactory metricsCollectorFactory = new TestMetricsCollectorFactory();
+    final ConcurrentStreamWriter streamWriter = createStreamWriter(streamId, streamAdmin, threads, fileWriterFactory,
+                                                                   metricsCollectorFactory);
 
     // Starts n threads to write events through stream writer, each thread write 1000 events
     final int msgPerThread = 1000;
@@ -119,6 +137,14 @@ public abstract class ConcurrentStreamWriterTestBase {
     startLatch.countDown();
     Assert.assertTrue(completion.await(120, TimeUnit.SECONDS));
 
+    if (durability == StreamDurability.ASYNC) {
+      // Events are only guaranteed to be persisted after the writer is closed
+      streamWriter.close();
+    } else {
+      // Every event written should have been flushed before the request completed
+      Assert.assertEquals(threads * msgPerThread, metricsCollectorFactory.flushedEvents.get());
+    }
+
     // Verify all events are written.
     // There should be only one partition and one file inside
     Location partitionLocation = streamAdmin.getConfig(streamId).getLocation().list().get(0);
@@ -134,7 +160,9 @@ public abstract class ConcurrentStreamWriterTestBase {
     Assert.assertTrue(verifyEvents(threads, msgPerThread, events));
 
     reader.close();
-    streamWriter.close();
+    if (durability != StreamDurability.ASYNC) {
+      streamWriter.close();
+    }
   }
 
   @Test
@@ -142,11 +170,12 @@ public abstract class ConcurrentStreamWriterTestBase {
     final String streamName = "testConcurrentFile";
     NamespaceId namespace = new NamespaceId("namespace");
     StreamId streamId = namespace.stream(streamName);
-    StreamAdmin streamAdmin = new TestStreamAdmin(getNamespacedLocationFactory(), Long.MAX_VALUE, 1000);
+    StreamAdmin streamAdmin = new TestStreamAdmin(getNamespacedLocationFactory(), Long.MAX_VALUE, 1000, null);
     int threads = Runtime.getRuntime().availableProcessors() * 4;
 
     StreamFileWriterFactory fileWriterFactory = createStreamFileWriterFactory();
-    final ConcurrentStreamWriter streamWriter = createStreamWriter(streamId, streamAdmin, threads, fileWriterFactory);
+    final ConcurrentStreamWriter streamWriter = createStreamWriter(streamId, streamAdmin, threads, fileWriterFactory,
+                                                                   new TestMetricsCollectorFactory());
 
     int msgCount = 10000;
     NamespacedLocationFactory locationFactory = getNamespacedLocationFactory();
@@ -207,13 +236,14 @@ public abstract class ConcurrentStreamWriterTestBase {
   }
 
   private ConcurrentStreamWriter createStreamWriter(StreamId streamId, StreamAdmin streamAdmin,
-                                                    int threads, StreamFileWriterFactory writerFactory)
+                                                    int threads, StreamFileWriterFactory writerFactory,
+                                                    StreamMetricsCollectorFactory metricsCollectorFactory)
     throws Exception {
     StreamConfig streamConfig = streamAdmin.getConfig(streamId);
     streamConfig.getLocation().mkdirs();
 
-    return new ConcurrentStreamWriter(COORDINATOR_CLIENT, streamAdmin,
-                                      writerFactory, threads, new TestMetricsCollectorFactory(), impersonator);
+    return new ConcurrentStreamWriter(COORDINATOR_CLIENT, streamAdmin, writerFactory, threads,
+                                      metricsCollectorFactory, impersonator, StreamDurability.SYNC, 5L, 100L);
   }
 
   private Runnable createWriterTask(final StreamId streamId,
@@ -324,12 +354,14 @@ public abstract class ConcurrentStreamWriterTestBase {
     private final NamespacedLocationFactory namespacedLocationFactory;
     private final long partitionDuration;
     private final long indexInterval;
+    private final StreamDurability durability;
 
     private TestStreamAdmin(NamespacedLocationFactory namespacedLocationFactory, long partitionDuration,
-                            long indexInterval) {
+                            long indexInterval, @Nullable StreamDurability durability) {
       this.namespacedLocationFactory = namespacedLocationFactory;
       this.partitionDuration = partitionDuration;
       this.indexInterval = indexInterval;
+      this.durability = durability;
     }
 
     @Override
@@ -340,11 +372,15 @@ public abstract class ConcurrentStreamWriterTestBase {
     @Override
     public StreamConfig getConfig(StreamId streamId) throws IOException {
       Location streamLocation = StreamFileTestUtils.getStreamBaseLocation(namespacedLocationFactory, streamId);
-      return new StreamConfig(streamId, partitionDuration, indexInterval, Long.MAX_VALUE, streamLocation, null, 1000);
+      return new StreamConfig(streamId, partitionDuration, indexInterval, Long.MAX_VALUE, streamLocation, null, 1000,
+                              null, durability);
     }
   }
 
   private static final class TestMetricsCollectorFactory implements StreamMetricsCollectorFactory {
+
+    private final AtomicLong flushedEvents = new AtomicLong();
+
     @Override
     public StreamMetricsCollector createMetricsCollector(StreamId streamId) {
       return new StreamMetricsCollector() {
@@ -352,6 +388,11 @@ public abstract class ConcurrentStreamWriterTestBase {
         public void emitMetrics(long bytesWritten, long eventsWritten) {
           // No-op
         }
+
+        @Override
+        public void emitFlushMetrics(long eventsFlushed, long flushMicros) {
+          flushedEvents.addAndGet(eventsFlushed);
+        }
       };
     }
   }
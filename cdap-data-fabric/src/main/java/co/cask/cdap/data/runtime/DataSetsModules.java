@@ -70,8 +70,11 @@ public class DataSetsModules extends RuntimeModule {
         bind(LineageStoreWriter.class).to(LineageStore.class);
         // Need to expose LineageStoreReader as it's being used by the LineageHandler (through LineageAdmin)
         expose(LineageStoreReader.class);
+        // Need to expose LineageStoreWriter as it's being used by the RemoteLineageWriterHandler
+        expose(LineageStoreWriter.class);
 
-        bind(LineageWriter.class).to(BasicLineageWriter.class);
+        // Singleton so that lineage accesses are deduplicated and batched across the process
+        bind(LineageWriter.class).to(BasicLineageWriter.class).in(Scopes.SINGLETON);
         expose(LineageWriter.class);
 
         bind(UsageRegistry.class).to(DefaultUsageRegistry.class).in(Scopes.SINGLETON);
@@ -111,16 +114,20 @@ public class DataSetsModules extends RuntimeModule {
         bind(MetadataStore.class).to(DefaultMetadataStore.class);
         expose(MetadataStore.class);
 
+        // Singleton so that the dataset metadata cache and its invalidation are shared across the process
         bind(DatasetFramework.class)
           .annotatedWith(Names.named(BASE_DATASET_FRAMEWORK))
-          .to(RemoteDatasetFramework.class);
+          .to(RemoteDatasetFramework.class).in(Scopes.SINGLETON);
 
         bind(LineageStoreReader.class).to(LineageStore.class);
         bind(LineageStoreWriter.class).to(LineageStore.class);
         // Need to expose LineageStoreReader as it's being used by the LineageHandler (through LineageAdmin)
         expose(LineageStoreReader.class);
+        // Need to expose LineageStoreWriter as it's being used by the RemoteLineageWriterHandler
+        expose(LineageStoreWriter.class);
 
-        bind(LineageWriter.class).to(BasicLineageWriter.class);
+        // Singleton so that lineage accesses are deduplicated and batched across the process
+        bind(LineageWriter.class).to(BasicLineageWriter.class).in(Scopes.SINGLETON);
         expose(LineageWriter.class);
 
         bind(UsageRegistry.class).to(DefaultUsageRegistry.class).in(Scopes.SINGLETON);
@@ -70,7 +70,7 @@ public final class LocationStreamFileWriterFactory implements StreamFileWriterFa
 
       return new TimePartitionedStreamFileWriter(baseLocation, config.getPartitionDuration(),
                                                  filePrefix, config.getIndexInterval(),
-                                                 config.getStreamId(), impersonator);
+                                                 config.getCompression(), config.getStreamId(), impersonator);
     } catch (Exception e) {
       Throwables.propagateIfPossible(e, IOException.class);
       throw new IOException(e);
@@ -93,8 +93,11 @@ public class PreviewDataModules {
         bind(LineageStoreWriter.class).to(LineageStore.class);
         // Need to expose LineageStoreReader as it's being used by the LineageHandler (through LineageAdmin)
         expose(LineageStoreReader.class);
+        // Need to expose LineageStoreWriter as it's being used by the RemoteLineageWriterHandler
+        expose(LineageStoreWriter.class);
 
-        bind(LineageWriter.class).to(BasicLineageWriter.class);
+        // Singleton so that lineage accesses are deduplicated and batched across the process
+        bind(LineageWriter.class).to(BasicLineageWriter.class).in(Scopes.SINGLETON);
         expose(LineageWriter.class);
 
         bind(RuntimeUsageRegistry.class).to(NoOpUsageRegistry.class).in(Scopes.SINGLETON);
@@ -25,6 +25,8 @@ public final class StreamDataFileConstants {
   static final int MAGIC_HEADER_SIZE = 2;
   static final byte[] MAGIC_HEADER_V1 = {'E', '1'};
   static final byte[] MAGIC_HEADER_V2 = {'E', '2'};
+  // Version 3 has the same format as version 2, except that data blocks are compressed
+  static final byte[] MAGIC_HEADER_V3 = {'E', '3'};
 
   static final byte[] INDEX_MAGIC_HEADER_V1 = {'I', '1'};
 
@@ -45,6 +47,9 @@ public final class StreamDataFileConstants {
 
       // Key prefix for properties that will be defaulted to all events' header
       public static final String EVENT_HEADER_PREFIX = "event.";
+
+      // Key for the compression of data blocks, with value being one of the StreamFileCompression names
+      public static final String COMPRESSION = "stream.compression";
     }
 
     /**
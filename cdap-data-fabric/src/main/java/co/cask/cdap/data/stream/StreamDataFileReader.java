@@ -67,6 +67,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
   private boolean eof;
   private Decoder decoder;
   private StreamEvent eventTemplate;
+  private StreamFileCompression compression;
 
   /**
    * Opens a new {@link StreamDataFileReader} with the given inputs.
@@ -118,6 +119,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     this.offset = offset;
     this.timestampBuffer = new byte[8];
     this.timestamp = -1L;
+    this.compression = StreamFileCompression.NONE;
   }
 
   @Override
@@ -300,6 +302,16 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
 
     verifySchema(properties);
 
+    // Data blocks are compressed since version 3
+    if (fileVersion >= 3) {
+      try {
+        compression = StreamFileCompression.fromName(
+          properties.get(StreamDataFileConstants.Property.Key.COMPRESSION));
+      } catch (IllegalArgumentException e) {
+        throw new IOException(e.getMessage(), e);
+      }
+    }
+
     // Create event template
     if (fileVersion >= 2) {
       eventTemplate = createEventTemplate(properties);
@@ -323,10 +335,14 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     if (Arrays.equals(magic, StreamDataFileConstants.MAGIC_HEADER_V2)) {
       return 2;
     }
+    if (Arrays.equals(magic, StreamDataFileConstants.MAGIC_HEADER_V3)) {
+      return 3;
+    }
     throw new IOException(
-      String.format("Unsupported stream file format. First two bytes must be %s or %s",
+      String.format("Unsupported stream file format. First two bytes must be %s, %s or %s",
                     Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V1),
-                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V2))
+                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V2),
+                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V3))
     );
   }
 
@@ -485,7 +501,11 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     // Use the template timestamp if available
     timestamp = eventTemplate.getTimestamp() >= 0 ? eventTemplate.getTimestamp() : timestamp;
     if (acceptTimestamp(filter, timestamp)) {
-      streamEventBuffer.fillBuffer(eventInput, readLength());
+      if (compression == StreamFileCompression.NONE) {
+        streamEventBuffer.fillBuffer(eventInput, readLength());
+      } else {
+        streamEventBuffer.fillCompressedBuffer(eventInput, readLength(), compression);
+      }
       this.timestamp = timestamp;
       return;
     }
@@ -23,6 +23,7 @@ import co.cask.cdap.common.io.BufferedEncoder;
 import co.cask.cdap.common.io.Encoder;
 import co.cask.cdap.common.stream.StreamEventDataCodec;
 import co.cask.cdap.data.file.FileWriter;
+import co.cask.cdap.data.stream.StreamDataFileConstants.Property;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
@@ -32,6 +33,7 @@ import com.google.common.io.OutputSupplier;
 import com.google.common.primitives.Longs;
 import org.apache.hadoop.fs.Syncable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -48,7 +50,7 @@ import javax.annotation.concurrent.NotThreadSafe;
  * {@code
  *
  * event_file = <header> <data>* <end_marker>
- * header = "E" "1" <properties>
+ * header = "E" "2" <properties>
  * properties = Avro encoded with the properties schema
  * data = <timestamp> <length> <stream_event>+
  * timestamp = 8 bytes int64 for timestamp in milliseconds
@@ -59,6 +61,27 @@ import javax.annotation.concurrent.NotThreadSafe;
  * }
  * </pre>
  *
+ * Compressed stream event file, which is written when the "stream.compression" property is set:
+ *
+ * <pre>
+ * {@code
+ *
+ * event_file = <header> <compressed_data>* <end_marker>
+ * header = "E" "3" <properties>
+ * compressed_data = <timestamp> <length> <uncompressed_length> <compressed_length> <compressed> <padding>
+ * length = Avro encoded int32 for size in bytes of everything after it in the data block
+ * uncompressed_length = 4 bytes int32 for size in bytes for all <stream_event>s
+ * compressed_length = 4 bytes int32 for size in bytes of <compressed>
+ * compressed = <stream_event>+ compressed with the codec named by the "stream.compression" property
+ * padding = zero bytes to make <length> at least the number of events in the data block
+ *
+ * }
+ * </pre>
+ *
+ * Since events in a compressed data block don't have their own file offset, the position of an event is
+ * the offset of the {@code <uncompressed_length>} field plus the index of the event within the data block. The padding
+ * makes sure positions of events in a data block never overlap with the next data block.
+ *
  * Stream index file:
  *
  * <pre>
@@ -84,11 +107,16 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
   private final long indexInterval;
   private final BufferedEncoder encoder;
   private final BufferedEncoder lengthEncoder;
+  private final StreamFileCompression compression;
+  private final BlockOutputStream blockOutput;
+  private byte[] compressedBuffer;
 
   // Timestamp for the current block
   private long currentTimestamp;
   private long position;
   private long nextIndexTime;
+  // Number of events in the current block
+  private int blockEventCount;
   private boolean synced;
   private boolean closed;
   private long closeTimestamp;
@@ -116,6 +144,7 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
   public StreamDataFileWriter(OutputSupplier<? extends OutputStream> eventOutputSupplier,
                               OutputSupplier<? extends OutputStream> indexOutputSupplier,
                               long indexInterval, Map<String, String> properties) throws IOException {
+    this.compression = StreamFileCompression.fromName(properties.get(Property.Key.COMPRESSION));
     this.eventOutput = eventOutputSupplier.getOutput();
     try {
       this.indexOutput = indexOutputSupplier.getOutput();
@@ -130,6 +159,8 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     Function<OutputStream, Encoder> encoderFactory = createEncoderFactory();
     this.encoder = new BufferedEncoder(BUFFER_SIZE, encoderFactory);
     this.lengthEncoder = new BufferedEncoder(5, encoderFactory);
+    this.blockOutput = new BlockOutputStream();
+    this.compressedBuffer = new byte[0];
 
     try {
       init(properties);
@@ -222,6 +253,7 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
 
       // Encodes the event data into buffer.
       StreamEventDataCodec.encode(event, encoder);
+      blockEventCount++;
 
       // Optionally flush if already filled up the buffer.
       if (encoder.size() >= flushLimit) {
@@ -234,10 +266,16 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
   }
 
   private void init(Map<String, String> properties) throws IOException {
-    // Writes the header for event file
-    encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V2);
-
+    // Writes the header for event file. Only files with compressed data blocks use version 3,
+    // so that uncompressed files stay readable by older readers.
     Map<String, String> headers = Maps.newHashMap(properties);
+    if (compression == StreamFileCompression.NONE) {
+      encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V2);
+      headers.remove(Property.Key.COMPRESSION);
+    } else {
+      encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V3);
+      headers.put(Property.Key.COMPRESSION, compression.name());
+    }
     headers.put(StreamDataFileConstants.Property.Key.SCHEMA, StreamEventDataCodec.STREAM_DATA_SCHEMA.toString());
     StreamUtils.encodeMap(headers, encoder);
 
@@ -278,16 +316,20 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
       indexOffset = position - Bytes.SIZEOF_LONG;
     }
 
-    // Writes the size of the encoded event
-    lengthEncoder.writeInt(encoder.size());
-    int size = lengthEncoder.size();
-    lengthEncoder.writeTo(eventOutput);
-    position += size;
-
-    // Writes all encoded data from the buffer to the output.
-    size = encoder.size();
-    encoder.writeTo(eventOutput);
-    position += size;
+    if (compression == StreamFileCompression.NONE) {
+      // Writes the size of the encoded event
+      lengthEncoder.writeInt(encoder.size());
+      int size = lengthEncoder.size();
+      lengthEncoder.writeTo(eventOutput);
+      position += size;
+
+      // Writes all encoded data from the buffer to the output.
+      size = encoder.size();
+      encoder.writeTo(eventOutput);
+      position += size;
+    } else {
+      position += writeCompressedBlock();
+    }
     if (sync) {
       sync(eventOutput);
     }
@@ -307,9 +349,43 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
 
     // Reset the current timestamp so that a data block will start.
     currentTimestamp = -1L;
+    blockEventCount = 0;
     synced = sync;
   }
 
+  /**
+   * Compresses the encoded events in the buffer and writes them to the event output as a compressed data block.
+   *
+   * @return number of bytes written
+   */
+  private int writeCompressedBlock() throws IOException {
+    int uncompressedSize = encoder.size();
+    blockOutput.reset();
+    encoder.writeTo(blockOutput);
+
+    int maxSize = compression.maxCompressedLength(uncompressedSize);
+    if (compressedBuffer.length < maxSize) {
+      compressedBuffer = new byte[maxSize];
+    }
+    int compressedSize = compression.compress(blockOutput.getBuffer(), uncompressedSize, compressedBuffer);
+
+    // Pad the block so that every event in it can have a distinct position (see class description)
+    int blockSize = Bytes.SIZEOF_INT * 2 + compressedSize;
+    int padding = Math.max(0, blockEventCount - blockSize);
+
+    lengthEncoder.writeInt(blockSize + padding);
+    int size = lengthEncoder.size();
+    lengthEncoder.writeTo(eventOutput);
+
+    eventOutput.write(Bytes.toBytes(uncompressedSize));
+    eventOutput.write(Bytes.toBytes(compressedSize));
+    eventOutput.write(compressedBuffer, 0, compressedSize);
+    if (padding > 0) {
+      eventOutput.write(new byte[padding]);
+    }
+    return size + blockSize + padding;
+  }
+
   private void sync(OutputStream output) throws IOException {
     if (output instanceof Syncable) {
       ((Syncable) output).hsync();
@@ -329,6 +405,20 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     throw ex;
   }
 
+  /**
+   * A {@link ByteArrayOutputStream} that exposes its internal buffer to avoid copying.
+   */
+  private static final class BlockOutputStream extends ByteArrayOutputStream {
+
+    BlockOutputStream() {
+      super(BUFFER_SIZE);
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+
   private static Function<OutputStream, Encoder> createEncoderFactory() {
     return new Function<OutputStream, Encoder>() {
       @Override
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.stream;
+
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * Durability modes for writing events to a stream, which decide when a write request is acknowledged
+ * relative to the stream file being flushed.
+ */
+public enum StreamDurability {
+
+  /**
+   * Flush after every batch of concurrent requests. Requests are acknowledged after the flush.
+   */
+  SYNC,
+
+  /**
+   * Same as {@link #SYNC}, except the writer waits for a bounded linger window to collect more requests
+   * before the flush, trading latency for fewer flushes.
+   */
+  GROUP,
+
+  /**
+   * Requests are acknowledged once the events are written to the stream file writer. Flush happens periodically,
+   * hence events acknowledged since the last flush can be lost on failure.
+   */
+  ASYNC;
+
+  /**
+   * Returns the {@link StreamDurability} of the given name (case insensitive), or the given default value if the
+   * name is {@code null} or empty.
+   *
+   * @throws IllegalArgumentException if the name is not a supported durability mode
+   */
+  public static StreamDurability fromName(@Nullable String name, StreamDurability defaultValue) {
+    if (name == null || name.trim().isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return valueOf(name.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unsupported stream durability '" + name + "'. Supported values are "
+                                           + Arrays.toString(values()), e);
+    }
+  }
+}
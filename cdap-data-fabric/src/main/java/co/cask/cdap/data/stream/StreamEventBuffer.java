@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data.stream;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.common.io.BinaryDecoder;
 import co.cask.cdap.common.io.ByteBuffers;
 import co.cask.cdap.common.io.Decoder;
@@ -42,12 +43,20 @@ final class StreamEventBuffer {
 
   private ByteBuffer buffer;
   private long basePosition;
+  // Compressed data block read from the stream, only used for compressed stream file
+  private byte[] compressedBlock;
+  // Size of the data block in the stream if it is compressed, or -1 if the data block is not compressed.
+  private int compressedBlockSize;
+  // Index of the next event in a compressed data block
+  private int eventIndex;
 
   StreamEventBuffer() {
     this.buffer = ByteBuffers.EMPTY_BUFFER;
     this.bufferInput = new ByteBufferInputStream(buffer);
     this.decoder = new BinaryDecoder(bufferInput);
     this.basePosition = -1L;
+    this.compressedBlock = new byte[0];
+    this.compressedBlockSize = -1;
   }
 
   /**
@@ -61,17 +70,11 @@ final class StreamEventBuffer {
   void fillBuffer(SeekableInputStream input, int size) throws IOException {
     buffer.clear();
     buffer = ensureCapacity(buffer, size);
+    compressedBlockSize = -1;
 
     try {
       basePosition = input.getPos();
-      int bytesRead = 0;
-      while (bytesRead != size) {
-        int len = input.read(buffer.array(), bytesRead, size - bytesRead);
-        if (len < 0) {
-          throw new EOFException("Expected to read " + size + ", but only " + bytesRead + " was read");
-        }
-        bytesRead += len;
-      }
+      readFully(input, buffer.array(), size);
       buffer.limit(size);
       bufferInput.reset(buffer);
     } catch (IOException e) {
@@ -82,6 +85,56 @@ final class StreamEventBuffer {
     }
   }
 
+  /**
+   * Fills the internal buffer by reading a compressed data block from the given input stream and decompressing it.
+   *
+   * @param input input stream to read from
+   * @param size number of bytes in the compressed data block
+   * @param compression the compression used for the data block
+   * @throws IOException if failed to read from the stream or to decompress
+   * @throws EOFException if failed to read the given number of bytes from the input
+   * @see StreamDataFileWriter
+   */
+  void fillCompressedBuffer(SeekableInputStream input, int size, StreamFileCompression compression) throws IOException {
+    buffer.clear();
+    try {
+      basePosition = input.getPos();
+      if (compressedBlock.length < size) {
+        compressedBlock = new byte[size];
+      }
+      readFully(input, compressedBlock, size);
+      int uncompressedSize = Bytes.toInt(compressedBlock, 0);
+      int compressedSize = Bytes.toInt(compressedBlock, Bytes.SIZEOF_INT);
+      if (uncompressedSize < 0 || compressedSize < 0 || Bytes.SIZEOF_INT * 2 + compressedSize > size) {
+        throw new IOException("Corrupted compressed data block at position " + basePosition);
+      }
+
+      buffer = ensureCapacity(buffer, uncompressedSize);
+      compression.decompress(compressedBlock, Bytes.SIZEOF_INT * 2, compressedSize, buffer.array(), uncompressedSize);
+      buffer.limit(uncompressedSize);
+      bufferInput.reset(buffer);
+      compressedBlockSize = size;
+      eventIndex = 0;
+    } catch (IOException e) {
+      // Make the buffer has nothing to read
+      buffer.position(buffer.limit());
+      basePosition = -1L;
+      compressedBlockSize = -1;
+      throw e;
+    }
+  }
+
+  private void readFully(SeekableInputStream input, byte[] bytes, int size) throws IOException {
+    int bytesRead = 0;
+    while (bytesRead != size) {
+      int len = input.read(bytes, bytesRead, size - bytesRead);
+      if (len < 0) {
+        throw new EOFException("Expected to read " + size + ", but only " + bytesRead + " was read");
+      }
+      bytesRead += len;
+    }
+  }
+
   /**
    * Returns {@code true} if there are events in the buffer, {@code false} otherwise.
    */
@@ -94,7 +147,15 @@ final class StreamEventBuffer {
    * read from the stream.
    */
   long getPosition() {
-    return basePosition >= 0 ? basePosition + buffer.position() : -1L;
+    if (basePosition < 0) {
+      return -1L;
+    }
+    if (compressedBlockSize >= 0) {
+      // Events in compressed block are positioned by their index in the block, which the writer guarantees to be
+      // smaller than the block size.
+      return hasEvent() ? basePosition + eventIndex : basePosition + compressedBlockSize;
+    }
+    return basePosition + buffer.position();
   }
 
   /**
@@ -102,7 +163,10 @@ final class StreamEventBuffer {
    * been read from the stream.
    */
   long getEndPosition() {
-    return basePosition >= 0 ? basePosition + buffer.limit() : -1L;
+    if (basePosition < 0) {
+      return -1L;
+    }
+    return basePosition + (compressedBlockSize >= 0 ? compressedBlockSize : buffer.limit());
   }
 
   /**
@@ -120,7 +184,8 @@ final class StreamEventBuffer {
       throw new IOException("No more event in the buffer");
     }
 
-    long eventPos = basePosition + buffer.position();
+    long eventPos = getPosition();
+    eventIndex++;
     if (filter.acceptOffset(eventPos)) {
       return new PositionStreamEvent(StreamEventDataCodec.decode(decoder, defaultHeaders), timestamp, eventPos);
     }
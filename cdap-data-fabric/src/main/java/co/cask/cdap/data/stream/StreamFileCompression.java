@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.stream;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+
+/**
+ * Compression codecs for the data blocks in stream event files. Each data block is compressed independently,
+ * hence seeking to a data block through the stream index is not affected by compression.
+ */
+public enum StreamFileCompression {
+
+  NONE {
+    @Override
+    int maxCompressedLength(int length) {
+      return length;
+    }
+
+    @Override
+    int compress(byte[] input, int length, byte[] output) {
+      System.arraycopy(input, 0, output, 0, length);
+      return length;
+    }
+
+    @Override
+    void decompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException {
+      if (length != outputLength) {
+        throw new IOException("Expected " + outputLength + " bytes, but got " + length);
+      }
+      System.arraycopy(input, offset, output, 0, length);
+    }
+  },
+
+  DEFLATE {
+    @Override
+    int maxCompressedLength(int length) {
+      // Same as the deflateBound function in zlib
+      return length + ((length + 7) >> 3) + ((length + 63) >> 6) + 11;
+    }
+
+    @Override
+    int compress(byte[] input, int length, byte[] output) throws IOException {
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        int size = 0;
+        while (!deflater.finished()) {
+          if (size == output.length) {
+            throw new IOException("Insufficient buffer for compressing " + length + " bytes");
+          }
+          size += deflater.deflate(output, size, output.length - size);
+        }
+        return size;
+      } finally {
+        deflater.end();
+      }
+    }
+
+    @Override
+    void decompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException {
+      Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(input, offset, length);
+        int size = 0;
+        while (size < outputLength && !inflater.finished()) {
+          int len = inflater.inflate(output, size, outputLength - size);
+          if (len == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          size += len;
+        }
+        if (size != outputLength) {
+          throw new IOException("Expected " + outputLength + " bytes after decompression, but got " + size);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Failed to decompress stream data block", e);
+      } finally {
+        inflater.end();
+      }
+    }
+  },
+
+  SNAPPY {
+    @Override
+    int maxCompressedLength(int length) {
+      return Snappy.maxCompressedLength(length);
+    }
+
+    @Override
+    int compress(byte[] input, int length, byte[] output) throws IOException {
+      return Snappy.compress(input, 0, length, output, 0);
+    }
+
+    @Override
+    void decompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException {
+      int size = Snappy.uncompress(input, offset, length, output, 0);
+      if (size != outputLength) {
+        throw new IOException("Expected " + outputLength + " bytes after decompression, but got " + size);
+      }
+    }
+  };
+
+  /**
+   * Returns the maximum size of the output from compressing the given number of bytes.
+   */
+  abstract int maxCompressedLength(int length);
+
+  /**
+   * Compresses the first {@code length} bytes of the input into the output, which must be at least
+   * {@link #maxCompressedLength(int)} in size.
+   *
+   * @return number of bytes written to the output
+   */
+  abstract int compress(byte[] input, int length, byte[] output) throws IOException;
+
+  /**
+   * Decompresses bytes from the input into the beginning of the output.
+   *
+   * @param outputLength the expected size of the decompressed data
+   * @throws IOException if failed to decompress or the decompressed size is not the same as expected
+   */
+  abstract void decompress(byte[] input, int offset, int length, byte[] output, int outputLength) throws IOException;
+
+  /**
+   * Returns the {@link StreamFileCompression} of the given name (case insensitive).
+   * A {@code null} or empty name means {@link #NONE}.
+   *
+   * @throws IllegalArgumentException if the name is not a supported compression
+   */
+  public static StreamFileCompression fromName(@Nullable String name) {
+    if (name == null || name.trim().isEmpty()) {
+      return NONE;
+    }
+    try {
+      return valueOf(name.trim().toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unsupported stream compression '" + name + "'. Supported values are "
+                                           + Arrays.toString(values()), e);
+    }
+  }
+}
@@ -22,6 +22,7 @@ import co.cask.cdap.data.file.FileWriter;
 import co.cask.cdap.data.stream.Refreshable;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
 import co.cask.cdap.data.stream.StreamDataFileConstants;
+import co.cask.cdap.data.stream.StreamDurability;
 import co.cask.cdap.data.stream.StreamFileType;
 import co.cask.cdap.data.stream.StreamFileWriterFactory;
 import co.cask.cdap.data.stream.StreamPropertyListener;
@@ -63,6 +64,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -90,6 +92,11 @@ import javax.annotation.concurrent.ThreadSafe;
  * The spin lock between step 2 to step 8 is necessary as it guarantees events enqueued by all threads would eventually
  * get written and flushed.
  *
+ * The flush in step 5 is governed by the {@link StreamDurability} of the stream. With {@link StreamDurability#GROUP},
+ * the writer keeps collecting requests for up to a linger time before the flush, so that more requests share one flush.
+ * Since the writer holds the flag for the whole linger time, threads that failed to become the writer block in step 8
+ * until the writer releases the flag, instead of spinning, and new requests wake up the lingering writer.
+ * With {@link StreamDurability#ASYNC}, step 5 is skipped and a background task flushes the writer periodically.
  */
 @ThreadSafe
 public final class ConcurrentStreamWriter implements Closeable {
@@ -106,10 +113,29 @@ public final class ConcurrentStreamWriter implements Closeable {
   private final List<Cancellable> cancellables;
   private final Lock createLock;
   private final Service eventQueueRefreshService;
+  private final Service eventQueueFlushService;
+  private final StreamDurability defaultDurability;
+  private final long groupLingerNanos;
 
   ConcurrentStreamWriter(StreamCoordinatorClient streamCoordinatorClient, StreamAdmin streamAdmin,
                          StreamFileWriterFactory writerFactory, int workerThreads,
                          StreamMetricsCollectorFactory metricsCollectorFactory, Impersonator impersonator) {
+    this(streamCoordinatorClient, streamAdmin, writerFactory, workerThreads, metricsCollectorFactory, impersonator,
+         StreamDurability.SYNC, 0L, 1000L);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param defaultDurability the {@link StreamDurability} for streams that don't have one in their configuration
+   * @param groupLingerMillis maximum time to wait for more requests before flushing in
+   *                          {@link StreamDurability#GROUP} mode
+   * @param asyncFlushIntervalMillis interval for flushing streams in {@link StreamDurability#ASYNC} mode
+   */
+  ConcurrentStreamWriter(StreamCoordinatorClient streamCoordinatorClient, StreamAdmin streamAdmin,
+                         StreamFileWriterFactory writerFactory, int workerThreads,
+                         StreamMetricsCollectorFactory metricsCollectorFactory, Impersonator impersonator,
+                         StreamDurability defaultDurability, long groupLingerMillis, long asyncFlushIntervalMillis) {
     this.streamCoordinatorClient = streamCoordinatorClient;
     this.streamAdmin = streamAdmin;
     this.workerThreads = workerThreads;
@@ -120,6 +146,9 @@ public final class ConcurrentStreamWriter implements Closeable {
     this.cancellables = Lists.newArrayList();
     this.createLock = new ReentrantLock();
     this.eventQueueRefreshService = scheduleWriterRefresh();
+    this.defaultDurability = defaultDurability;
+    this.groupLingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, groupLingerMillis));
+    this.eventQueueFlushService = scheduleWriterFlush(Math.max(1L, asyncFlushIntervalMillis));
   }
 
   private Service scheduleWriterRefresh() {
@@ -150,6 +179,34 @@ public final class ConcurrentStreamWriter implements Closeable {
     return scheduledService;
   }
 
+  private Service scheduleWriterFlush(final long intervalMillis) {
+    AbstractScheduledService scheduledService = new AbstractScheduledService() {
+      @Override
+      protected void runOneIteration() throws Exception {
+        for (EventQueue eventQueue : eventQueues.values()) {
+          try {
+            eventQueue.tryFlush();
+          } catch (Throwable t) {
+            LOG.error("Error while flushing event queue.", t);
+          }
+        }
+      }
+
+      @Override
+      protected ScheduledExecutorService executor() {
+        return Executors.newSingleThreadScheduledExecutor(
+          Threads.createDaemonThreadFactory("concurrent-stream-writer-flush"));
+      }
+
+      @Override
+      protected Scheduler scheduler() {
+        return Scheduler.newFixedDelaySchedule(intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+      }
+    };
+    scheduledService.startAndWait();
+    return scheduledService;
+  }
+
   public void close(StreamId streamId) throws IOException {
     createLock.lock();
     try {
@@ -256,6 +313,7 @@ public final class ConcurrentStreamWriter implements Closeable {
     }
 
     eventQueueRefreshService.stopAndWait();
+    eventQueueFlushService.stopAndWait();
   }
 
   private EventQueue getEventQueue(StreamId streamId) throws IOException, NotFoundException {
@@ -281,7 +339,9 @@ public final class ConcurrentStreamWriter implements Closeable {
         cancellables.add(streamCoordinatorClient.addListener(streamId, streamFileFactory));
       }
 
-      eventQueue = new EventQueue(streamId, metricsCollectorFactory.createMetricsCollector(streamId));
+      StreamDurability durability = streamAdmin.getConfig(streamId).getDurability();
+      eventQueue = new EventQueue(streamId, metricsCollectorFactory.createMetricsCollector(streamId),
+                                  durability == null ? defaultDurability : durability);
       eventQueues.put(streamId, eventQueue);
 
       return eventQueue;
@@ -306,7 +366,7 @@ public final class ConcurrentStreamWriter implements Closeable {
     throws IOException {
     while (!request.isCompleted()) {
       if (!eventQueue.tryWrite()) {
-        Thread.yield();
+        eventQueue.awaitWriter(request);
       }
     }
     if (!request.isSuccess()) {
@@ -441,20 +501,30 @@ public final class ConcurrentStreamWriter implements Closeable {
   private final class EventQueue implements Closeable {
 
     private final StreamId streamId;
+    private final StreamDurability durability;
     private final StreamMetricsCollectorFactory.StreamMetricsCollector metricsCollector;
     private final Queue<WriteRequest> queue;
     private final AtomicBoolean writerFlag;
+    // In GROUP mode, threads waiting for their requests to complete block on this monitor until the writer is released
+    private final Object writerReleased;
     private final WriteRequest.Metrics metrics;
     private final MutableStreamEvent streamEvent;
     private final Function<StreamEventData, StreamEvent> eventTransformer;
     private FileWriter<StreamEventData> fileWriter;
     private boolean closed;
+    // Number of events written but not yet flushed, only used in ASYNC mode
+    private long unflushedEvents;
+    // The writer thread that is lingering for more requests, only used in GROUP mode
+    private volatile Thread lingeringWriter;
 
-    EventQueue(StreamId streamId, StreamMetricsCollectorFactory.StreamMetricsCollector metricsCollector) {
+    EventQueue(StreamId streamId, StreamMetricsCollectorFactory.StreamMetricsCollector metricsCollector,
+               StreamDurability durability) {
       this.streamId = streamId;
+      this.durability = durability;
       this.streamEvent = new MutableStreamEvent();
       this.queue = new ConcurrentLinkedQueue<>();
       this.writerFlag = new AtomicBoolean(false);
+      this.writerReleased = new Object();
       this.metrics = new WriteRequest.Metrics();
       this.metricsCollector = metricsCollector;
       this.eventTransformer = new Function<StreamEventData, StreamEvent>() {
@@ -475,6 +545,7 @@ public final class ConcurrentStreamWriter implements Closeable {
     WriteRequest append(Map<String, String> headers, ByteBuffer body) {
       WriteRequest request = new SingleWriteRequest(headers, body);
       queue.add(request);
+      wakeLingeringWriter();
       return request;
     }
 
@@ -488,6 +559,7 @@ public final class ConcurrentStreamWriter implements Closeable {
     WriteRequest append(Iterator<? extends StreamEventData> events) {
       WriteRequest request = new BatchWriteRequest(events);
       queue.add(request);
+      wakeLingeringWriter();
       return request;
     }
 
@@ -517,12 +589,13 @@ public final class ConcurrentStreamWriter implements Closeable {
         if (fileWriter != null) {
           fileWriter.close();
           fileWriter = null;
+          unflushedEvents = 0;
         }
         timestampCloseable.close();
         fileSize = eventFile.length();
         streamFileFactory.appendFile(streamConfig, eventFile, indexFile, timestampCloseable.getCloseTimestamp());
       } finally {
-        writerFlag.set(false);
+        releaseWriter();
       }
 
       metricsCollector.emitMetrics(fileSize, eventCount);
@@ -537,6 +610,8 @@ public final class ConcurrentStreamWriter implements Closeable {
     boolean tryWrite() {
       int bytesWritten = 0;
       int eventsWritten = 0;
+      long flushedEvents = 0;
+      long flushNanos = 0;
 
       if (!writerFlag.compareAndSet(false, true)) {
         return false;
@@ -550,14 +625,33 @@ public final class ConcurrentStreamWriter implements Closeable {
         List<WriteRequest> processQueue = Lists.newArrayListWithExpectedSize(workerThreads);
         try {
           FileWriter<StreamEventData> writer = getFileWriter();
-          WriteRequest request = queue.poll();
           streamEvent.setTimestamp(System.currentTimeMillis());
-          while (request != null) {
-            processQueue.add(request);
-            request.write(writer, metrics);
-            request = queue.poll();
+          drainQueue(writer, processQueue);
+          if (durability == StreamDurability.GROUP && groupLingerNanos > 0) {
+            // Linger to collect more requests, so that they get persisted by the same flush.
+            // New requests unpark this thread through wakeLingeringWriter().
+            long deadline = System.nanoTime() + groupLingerNanos;
+            long remaining = groupLingerNanos;
+            lingeringWriter = Thread.currentThread();
+            try {
+              while (remaining > 0) {
+                if (!drainQueue(writer, processQueue)) {
+                  LockSupport.parkNanos(this, remaining);
+                }
+                remaining = deadline - System.nanoTime();
+              }
+            } finally {
+              lingeringWriter = null;
+            }
+          }
+          if (durability == StreamDurability.ASYNC) {
+            unflushedEvents += metrics.eventsWritten;
+          } else {
+            long startTime = System.nanoTime();
+            writer.flush();
+            flushNanos = System.nanoTime() - startTime;
+            flushedEvents = metrics.eventsWritten;
           }
-          writer.flush();
           for (WriteRequest processed : processQueue) {
             processed.completed(null);
           }
@@ -573,10 +667,117 @@ public final class ConcurrentStreamWriter implements Closeable {
           }
         }
       } finally {
-        writerFlag.set(false);
+        releaseWriter();
       }
 
       metricsCollector.emitMetrics(bytesWritten, eventsWritten);
+      if (flushedEvents > 0) {
+        metricsCollector.emitFlushMetrics(flushedEvents, TimeUnit.NANOSECONDS.toMicros(flushNanos));
+      }
+      return true;
+    }
+
+    /**
+     * Blocks until the given request is completed or the writer flag is released, in {@link StreamDurability#GROUP}
+     * mode. In other modes, the writer holds the flag for a short time only, hence this method just yields.
+     */
+    void awaitWriter(WriteRequest request) {
+      if (durability != StreamDurability.GROUP) {
+        Thread.yield();
+        return;
+      }
+      boolean interrupted = false;
+      synchronized (writerReleased) {
+        while (!request.isCompleted() && writerFlag.get()) {
+          try {
+            writerReleased.wait();
+          } catch (InterruptedException e) {
+            // The request is already in the queue, hence keep waiting for it to complete
+            interrupted = true;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    /**
+     * Releases the writer flag and wakes up the threads blocked in {@link #awaitWriter(WriteRequest)}.
+     */
+    private void releaseWriter() {
+      writerFlag.set(false);
+      if (durability == StreamDurability.GROUP) {
+        synchronized (writerReleased) {
+          writerReleased.notifyAll();
+        }
+      }
+    }
+
+    /**
+     * Wakes up the writer thread if it is lingering for more requests.
+     */
+    private void wakeLingeringWriter() {
+      Thread writer = lingeringWriter;
+      if (writer != null) {
+        LockSupport.unpark(writer);
+      }
+    }
+
+    /**
+     * Polls all requests from the queue and writes them to the given writer.
+     *
+     * @return true if at least one request was written
+     */
+    private boolean drainQueue(FileWriter<StreamEventData> writer,
+                               List<WriteRequest> processQueue) throws IOException {
+      WriteRequest request = queue.poll();
+      if (request == null) {
+        return false;
+      }
+      while (request != null) {
+        processQueue.add(request);
+        request.write(writer, metrics);
+        request = queue.poll();
+      }
+      return true;
+    }
+
+    /**
+     * Attempts to flush events that were written without flushing in {@link StreamDurability#ASYNC} mode.
+     *
+     * @return true if able to be the leader and performed the flush if needed, false otherwise
+     */
+    boolean tryFlush() {
+      if (!writerFlag.compareAndSet(false, true)) {
+        return false;
+      }
+
+      long flushedEvents = 0;
+      long flushNanos = 0;
+      try {
+        if (closed || fileWriter == null || unflushedEvents == 0) {
+          return true;
+        }
+        try {
+          long startTime = System.nanoTime();
+          fileWriter.flush();
+          flushNanos = System.nanoTime() - startTime;
+          flushedEvents = unflushedEvents;
+          unflushedEvents = 0;
+        } catch (Throwable t) {
+          // Events already acknowledged might be lost. Close this event queue so that a new writer will be created.
+          LOG.error("Failed to flush {} events to stream {}", unflushedEvents, streamId, t);
+          eventQueues.remove(streamId, this);
+          doClose();
+        }
+      } finally {
+        releaseWriter();
+      }
+
+      if (flushedEvents > 0) {
+        metricsCollector.emitFlushMetrics(flushedEvents, TimeUnit.NANOSECONDS.toMicros(flushNanos));
+      }
       return true;
     }
 
@@ -594,7 +795,7 @@ public final class ConcurrentStreamWriter implements Closeable {
           ((Refreshable) fileWriter).refresh();
         }
       } finally {
-        writerFlag.set(false);
+        releaseWriter();
       }
       return true;
     }
@@ -628,7 +829,7 @@ public final class ConcurrentStreamWriter implements Closeable {
           doClose();
         } finally {
           done = true;
-          writerFlag.set(false);
+          releaseWriter();
         }
       }
     }
@@ -20,6 +20,7 @@ import co.cask.cdap.api.data.format.RecordFormat;
 import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.api.data.schema.UnsupportedTypeException;
 import co.cask.cdap.api.data.stream.StreamSpecification;
+import co.cask.cdap.api.metrics.DistributionMetricsCollector;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.api.metrics.MetricsContext;
 import co.cask.cdap.common.BadRequestException;
@@ -30,6 +31,7 @@ import co.cask.cdap.common.namespace.NamespaceQueryAdmin;
 import co.cask.cdap.common.security.AuditDetail;
 import co.cask.cdap.common.security.AuditPolicy;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
+import co.cask.cdap.data.stream.StreamDurability;
 import co.cask.cdap.data.stream.StreamFileWriterFactory;
 import co.cask.cdap.data.stream.service.upload.ContentWriterFactory;
 import co.cask.cdap.data.stream.service.upload.LengthBasedContentWriterFactory;
@@ -147,7 +149,11 @@ public final class StreamHandler extends AbstractHttpHandler {
     StreamMetricsCollectorFactory metricsCollectorFactory = createStreamMetricsCollectorFactory();
     this.streamWriter = new ConcurrentStreamWriter(streamCoordinatorClient, streamAdmin, writerFactory,
                                                    cConf.getInt(Constants.Stream.WORKER_THREADS),
-                                                   metricsCollectorFactory, impersonator);
+                                                   metricsCollectorFactory, impersonator,
+                                                   StreamDurability.fromName(cConf.get(Constants.Stream.DURABILITY),
+                                                                             StreamDurability.SYNC),
+                                                   cConf.getLong(Constants.Stream.DURABILITY_GROUP_LINGER_MS),
+                                                   cConf.getLong(Constants.Stream.DURABILITY_ASYNC_FLUSH_INTERVAL_MS));
     this.namespaceQueryAdmin = namespaceQueryAdmin;
     this.impersonator = impersonator;
     this.authorizationEnforcer = authorizationEnforcer;
@@ -358,6 +364,16 @@ public final class StreamHandler extends AbstractHttpHandler {
               childCollector.increment("collect.events", eventsWritten);
             }
           }
+
+          @Override
+          public void emitFlushMetrics(long eventsFlushed, long flushMicros) {
+            childCollector.increment("collect.flushes", 1);
+            if (childCollector instanceof DistributionMetricsCollector) {
+              DistributionMetricsCollector distributions = (DistributionMetricsCollector) childCollector;
+              distributions.distribution("collect.flush.events", eventsFlushed);
+              distributions.distribution("collect.flush.latency.us", flushMicros);
+            }
+          }
         };
       }
     };
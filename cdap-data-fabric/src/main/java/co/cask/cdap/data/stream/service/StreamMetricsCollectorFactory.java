@@ -35,6 +35,14 @@ public interface StreamMetricsCollectorFactory {
      * @param eventsWritten number of events written to the stream
      */
     void emitMetrics(long bytesWritten, long eventsWritten);
+
+    /**
+     * Emit metrics about a flush of the stream file.
+     *
+     * @param eventsFlushed number of events persisted by the flush
+     * @param flushMicros time spent on the flush in microseconds
+     */
+    void emitFlushMetrics(long eventsFlushed, long flushMicros);
   }
 
   /**
@@ -0,0 +1,214 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.audit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.List;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bounded local file for holding serialized audit messages that cannot be queued in memory. Each entry is
+ * written as the serialized message prefixed with its length. The file is used as a circular buffer, so that space
+ * of drained entries is reused while there are still pending entries. It is truncated every time all entries have
+ * been drained. The file is locked while it is open, so that stale spill files left behind by processes that are
+ * no longer running can be told apart from the ones in use.
+ */
+@ThreadSafe
+final class AuditSpillFile implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AuditSpillFile.class);
+
+  private final File file;
+  private final long maxBytes;
+  private RandomAccessFile raf;
+  private long readPos;
+  private long writePos;
+  private int entries;
+  private long discardedCount;
+
+  AuditSpillFile(File file, long maxBytes) throws IOException {
+    File parent = file.getParentFile();
+    if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+      throw new IOException("Failed to create directory " + parent);
+    }
+    this.file = file;
+    this.maxBytes = maxBytes;
+    this.raf = new RandomAccessFile(file, "rw");
+    try {
+      // Hold a lock on the file while it is in use, so that other processes don't delete it as a stale file
+      raf.getChannel().lock();
+      raf.setLength(0L);
+    } catch (IOException | OverlappingFileLockException e) {
+      raf.close();
+      throw new IOException("Failed to initialize spill file " + file, e);
+    }
+  }
+
+  /**
+   * Deletes the spill files with the given name prefix in the given directory that are not used by any process.
+   *
+   * @return number of files deleted
+   */
+  static int deleteStaleFiles(File dir, final String prefix) {
+    File[] files = dir.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.startsWith(prefix);
+      }
+    });
+    if (files == null) {
+      return 0;
+    }
+    int deleted = 0;
+    for (File file : files) {
+      try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+        FileLock lock = raf.getChannel().tryLock();
+        if (lock != null && file.delete()) {
+          deleted++;
+        }
+      } catch (OverlappingFileLockException e) {
+        // The file is used by this process
+      } catch (IOException e) {
+        LOG.debug("Failed to delete stale spill file {}", file, e);
+      }
+    }
+    return deleted;
+  }
+
+  /**
+   * Appends an entry to the spill file.
+   *
+   * @return {@code true} if the entry was written, {@code false} if the file has reached its size limit
+   */
+  synchronized boolean append(byte[] payload) throws IOException {
+    long size = 4L + payload.length;
+    if (raf == null || writePos - readPos + size > maxBytes) {
+      return false;
+    }
+    // Encode the whole entry first so that it is written with at most two calls
+    ByteBuffer entry = ByteBuffer.allocate((int) size);
+    entry.putInt(payload.length).put(payload);
+    write(writePos, entry.array());
+    writePos += size;
+    entries++;
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if there is no pending entry in the spill file.
+   */
+  synchronized boolean isEmpty() {
+    return readPos >= writePos;
+  }
+
+  /**
+   * Reads up to the given number of entries from the spill file into the given buffer.
+   *
+   * @return number of entries read
+   */
+  synchronized int drain(List<byte[]> buffer, int maxEntries) throws IOException {
+    if (raf == null) {
+      return 0;
+    }
+    int count = 0;
+    try {
+      byte[] length = new byte[4];
+      while (count < maxEntries && readPos < writePos) {
+        byte[] payload = new byte[ByteBuffer.wrap(read(readPos, length)).getInt()];
+        read(readPos + length.length, payload);
+        buffer.add(payload);
+        readPos += length.length + payload.length;
+        entries--;
+        count++;
+      }
+    } catch (IOException e) {
+      // The remaining content cannot be trusted, hence discard it
+      readPos = writePos;
+      discardedCount += entries;
+      entries = 0;
+      throw e;
+    } finally {
+      if (readPos >= writePos) {
+        readPos = writePos = 0L;
+        raf.setLength(0L);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the number of entries discarded so far because they could not be read back.
+   */
+  synchronized long getDiscardedCount() {
+    return discardedCount;
+  }
+
+  /**
+   * Writes the given bytes at the given position, wrapping around to the beginning of the file at the size limit.
+   */
+  private void write(long pos, byte[] bytes) throws IOException {
+    long offset = pos % maxBytes;
+    int len = (int) Math.min(bytes.length, maxBytes - offset);
+    raf.seek(offset);
+    raf.write(bytes, 0, len);
+    if (len < bytes.length) {
+      raf.seek(0L);
+      raf.write(bytes, len, bytes.length - len);
+    }
+  }
+
+  /**
+   * Fills the given array with the bytes at the given position, wrapping around to the beginning of the file at
+   * the size limit.
+   *
+   * @return the given array
+   */
+  private byte[] read(long pos, byte[] bytes) throws IOException {
+    long offset = pos % maxBytes;
+    int len = (int) Math.min(bytes.length, maxBytes - offset);
+    raf.seek(offset);
+    raf.readFully(bytes, 0, len);
+    if (len < bytes.length) {
+      raf.seek(0L);
+      raf.readFully(bytes, len, bytes.length - len);
+    }
+    return bytes;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (raf == null) {
+      return;
+    }
+    try {
+      raf.close();
+    } finally {
+      raf = null;
+      file.delete();
+    }
+  }
+}
@@ -36,28 +36,73 @@ import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
 
 /**
- * A default implementation of {@link AuditPublisher} that publishes to TMS.
+ * A default implementation of {@link AuditPublisher} that publishes to TMS. Audit messages are queued in a bounded
+ * in-memory queue and published in batches by a background thread, so that callers don't wait for TMS. What
+ * happens when the queue is full is governed by the {@link QueueFullPolicy} configured through
+ * {@link Constants.Audit#PUBLISH_QUEUE_FULL_POLICY}.
  */
-public final class DefaultAuditPublisher implements AuditPublisher {
+@ThreadSafe
+public final class DefaultAuditPublisher implements AuditPublisher, Flushable, Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultAuditPublisher.class);
   private static final Gson GSON = new Gson();
 
+  // Time to wait for new messages before checking the spill file and whether the publisher is stopped
+  private static final long POLL_MILLIS = 100L;
+  // Logs a warning for every this number of dropped messages
+  private static final long DROP_WARN_INTERVAL = 1000L;
+  private static final String SPILL_FILE_PREFIX = "audit-spill";
+
+  private final CConfiguration cConf;
   private final MessagingService messagingService;
   private final TopicId auditTopic;
   private final RetryStrategy retryStrategy;
+  private final long publishTimeoutMillis;
+  private final QueueFullPolicy queueFullPolicy;
+  private final BlockingQueue<byte[]> messageQueue;
+  private final int batchSize;
+  private final AtomicLong droppedCount;
+  private final AtomicLong spilledCount;
+  // Number of messages accepted by the queue or the spill file
+  private final AtomicLong acceptedCount;
+  // Number of accepted messages that were either published or dropped by the publisher thread, guarded by this
+  private long completedCount;
+  private volatile Thread publisherThread;
+  private volatile AuditSpillFile spillFile;
+  private volatile boolean stopped;
+  private Thread shutdownHook;
 
   @Inject
   DefaultAuditPublisher(CConfiguration cConf, MessagingService messagingService) {
+    this.cConf = cConf;
     this.messagingService = messagingService;
     this.auditTopic = NamespaceId.SYSTEM.topic(cConf.get(Constants.Audit.TOPIC));
+    this.publishTimeoutMillis = cConf.getLong(Constants.Audit.PUBLISH_TIMEOUT_MS);
     this.retryStrategy = RetryStrategies.timeLimit(
-      cConf.getLong(Constants.Audit.PUBLISH_TIMEOUT_MS), TimeUnit.MILLISECONDS,
+      publishTimeoutMillis, TimeUnit.MILLISECONDS,
       RetryStrategies.exponentialDelay(10, 200, TimeUnit.MILLISECONDS));
+    this.queueFullPolicy = QueueFullPolicy.valueOf(
+      cConf.get(Constants.Audit.PUBLISH_QUEUE_FULL_POLICY, QueueFullPolicy.BLOCK.name()).toUpperCase());
+    this.messageQueue = new ArrayBlockingQueue<>(cConf.getInt(Constants.Audit.PUBLISH_QUEUE_SIZE, 1000));
+    this.batchSize = cConf.getInt(Constants.Audit.PUBLISH_BATCH_SIZE, 100);
+    this.droppedCount = new AtomicLong();
+    this.spilledCount = new AtomicLong();
+    this.acceptedCount = new AtomicLong();
   }
 
   @Override
@@ -65,14 +110,320 @@ public final class DefaultAuditPublisher implements AuditPublisher {
     String userId = Objects.firstNonNull(SecurityRequestContext.getUserId(), "");
     AuditMessage auditMessage = new AuditMessage(System.currentTimeMillis(), entityId, userId, auditType, auditPayload);
     LOG.trace("Publishing audit message {}", auditMessage);
+    byte[] payload = GSON.toJson(auditMessage).getBytes(StandardCharsets.UTF_8);
+
+    if (stopped) {
+      // Publish synchronously once the background publisher is stopped
+      publishNow(auditMessage, payload);
+      return;
+    }
+    if (publisherThread == null) {
+      startPublisher();
+    }
+
+    try {
+      if (enqueue(payload)) {
+        acceptedCount.incrementAndGet();
+        return;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (droppedCount.incrementAndGet() % DROP_WARN_INTERVAL == 1) {
+      LOG.warn("Audit message queue is full. Dropped {} audit messages so far, latest dropped message: {}",
+               droppedCount.get(), auditMessage);
+    }
+  }
+
+  /**
+   * Waits until all audit messages published before this call are written to TMS, or dropped by the publisher
+   * because they could not be written.
+   *
+   * @throws IOException if the publisher thread is not running or the waiting is interrupted
+   */
+  @Override
+  public void flush() throws IOException {
+    long target = acceptedCount.get();
+    synchronized (this) {
+      while (completedCount < target) {
+        Thread thread = publisherThread;
+        if (thread == null || !thread.isAlive()) {
+          throw new IOException("Audit publisher is not running. Pending audit messages: " +
+                                  (target - completedCount));
+        }
+        try {
+          wait(POLL_MILLIS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for audit messages to be published");
+        }
+      }
+    }
+  }
+
+  /**
+   * Publishes all queued audit messages and stops the background publisher. Audit messages published afterward are
+   * written to TMS synchronously.
+   */
+  @Override
+  public void close() throws IOException {
+    Thread thread;
+    Thread hook;
+    synchronized (this) {
+      if (stopped) {
+        return;
+      }
+      stopped = true;
+      thread = publisherThread;
+      hook = shutdownHook;
+      shutdownHook = null;
+    }
+    if (hook != null && hook != Thread.currentThread()) {
+      try {
+        Runtime.getRuntime().removeShutdownHook(hook);
+      } catch (IllegalStateException e) {
+        // The JVM is shutting down, which is fine since the hook only calls this method
+      }
+    }
+    if (thread != null) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        thread.interrupt();
+      }
+    }
+
+    // Publish messages queued by callers that raced with the stop
+    List<byte[]> remaining = new ArrayList<>();
+    messageQueue.drainTo(remaining);
+    if (!remaining.isEmpty()) {
+      try {
+        MessagingServices.publishWithRetry(messagingService, auditTopic, retryStrategy,
+                                           remaining.toArray(new byte[remaining.size()][]));
+      } catch (Exception e) {
+        LOG.error("Failed to publish {} audit messages when stopping", remaining.size(), e);
+        droppedCount.addAndGet(remaining.size());
+      }
+      completed(remaining.size());
+    }
+    AuditSpillFile spillFile = this.spillFile;
+    this.spillFile = null;
+    if (spillFile != null) {
+      spillFile.close();
+    }
+  }
+
+  /**
+   * Returns the number of audit messages dropped since this publisher was created.
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Returns the number of audit messages spilled to local file since this publisher was created.
+   */
+  public long getSpilledCount() {
+    return spilledCount.get();
+  }
+
+  /**
+   * Adds the given payload to the queue, or to the spill file, based on the {@link QueueFullPolicy}.
+   *
+   * @return {@code true} if the payload is accepted, {@code false} if it should be dropped
+   */
+  private boolean enqueue(byte[] payload) throws InterruptedException {
+    AuditSpillFile spillFile = this.spillFile;
+    // Keep appending to the spill file until it is drained, so that messages are published in order.
+    // Fall back to the queue if the spill file is full.
+    if (spillFile != null && !spillFile.isEmpty()) {
+      return spill(spillFile, payload) || messageQueue.offer(payload);
+    }
+
+    switch (queueFullPolicy) {
+      case BLOCK:
+        return messageQueue.offer(payload, publishTimeoutMillis, TimeUnit.MILLISECONDS);
+      case DROP:
+        return messageQueue.offer(payload);
+      case SPILL:
+        return messageQueue.offer(payload) || (spillFile != null && spill(spillFile, payload));
+      default:
+        // this should never happen
+        throw new IllegalStateException("Unsupported queue full policy " + queueFullPolicy);
+    }
+  }
+
+  private boolean spill(AuditSpillFile spillFile, byte[] payload) {
+    try {
+      if (spillFile.append(payload)) {
+        spilledCount.incrementAndGet();
+        return true;
+      }
+    } catch (IOException e) {
+      LOG.error("Failed to write audit message to spill file", e);
+    }
+    return false;
+  }
 
+  private void publishNow(AuditMessage auditMessage, byte[] payload) {
     try {
-      MessagingServices.publishWithRetry(messagingService, auditTopic, retryStrategy,
-                                         GSON.toJson(auditMessage).getBytes(StandardCharsets.UTF_8));
+      MessagingServices.publishWithRetry(messagingService, auditTopic, retryStrategy, payload);
     } catch (TopicNotFoundException e) {
       LOG.error("Missing topic for audit publish: {}", auditTopic);
     } catch (Exception e) {
       LOG.error("Got exception publishing audit message {}. Exception:", auditMessage, e);
     }
   }
+
+  private synchronized void startPublisher() {
+    if (publisherThread != null || stopped) {
+      return;
+    }
+    if (queueFullPolicy == QueueFullPolicy.SPILL) {
+      try {
+        File spillDir = new File(cConf.get(Constants.Audit.PUBLISH_SPILL_DIR, System.getProperty("java.io.tmpdir")));
+        if (!spillDir.isDirectory() && !spillDir.mkdirs() && !spillDir.isDirectory()) {
+          throw new IOException("Failed to create audit spill directory " + spillDir);
+        }
+        // Spilled messages are not recovered after a restart, hence remove the files left behind by dead processes
+        int deleted = AuditSpillFile.deleteStaleFiles(spillDir, SPILL_FILE_PREFIX);
+        if (deleted > 0) {
+          LOG.info("Deleted {} stale audit spill files from {}", deleted, spillDir);
+        }
+        spillFile = new AuditSpillFile(File.createTempFile(SPILL_FILE_PREFIX, ".dat", spillDir),
+                                       cConf.getLong(Constants.Audit.PUBLISH_SPILL_MAX_BYTES, 64L * 1024 * 1024));
+      } catch (IOException e) {
+        // Without the spill file, messages will be dropped when the queue is full
+        LOG.error("Failed to create audit spill file. Audit messages will be dropped when the queue is full.", e);
+      }
+    }
+
+    Thread thread = new Thread(new Publisher(), "audit-publisher");
+    thread.setDaemon(true);
+    thread.start();
+    publisherThread = thread;
+
+    // Publish the queued messages when the JVM exits
+    shutdownHook = new Thread("audit-publisher-shutdown") {
+      @Override
+      public void run() {
+        try {
+          close();
+        } catch (IOException e) {
+          LOG.warn("Failed to close audit publisher", e);
+        }
+      }
+    };
+    Runtime.getRuntime().addShutdownHook(shutdownHook);
+  }
+
+  private synchronized void completed(int count) {
+    completedCount += count;
+    notifyAll();
+  }
+
+  /**
+   * The background thread that publishes queued messages, and then spilled messages, in batches.
+   */
+  private final class Publisher implements Runnable {
+
+    @Override
+    public void run() {
+      List<byte[]> batch = new ArrayList<>(batchSize);
+      while (true) {
+        if (batch.isEmpty()) {
+          try {
+            fillBatch(batch);
+          } catch (InterruptedException e) {
+            LOG.warn("Audit publisher interrupted. Dropping remaining audit messages.");
+            dropRemaining(batch);
+            return;
+          }
+          if (batch.isEmpty()) {
+            if (stopped) {
+              return;
+            }
+            continue;
+          }
+        }
+
+        try {
+          MessagingServices.publishWithRetry(messagingService, auditTopic, retryStrategy,
+                                             batch.toArray(new byte[batch.size()][]));
+        } catch (TopicNotFoundException e) {
+          LOG.error("Missing topic for audit publish: {}", auditTopic);
+          droppedCount.addAndGet(batch.size());
+        } catch (IOException e) {
+          if (!stopped) {
+            // Keep the batch and retry, while new messages are handled by the queue full policy
+            LOG.warn("Failed to publish {} audit messages. Will be retried.", batch.size(), e);
+            continue;
+          }
+          // Don't hold the shutdown for more than one publish timeout
+          LOG.error("Failed to publish audit messages when stopping. Dropping remaining audit messages.", e);
+          dropRemaining(batch);
+          return;
+        } catch (InterruptedException e) {
+          LOG.warn("Audit publisher interrupted. Dropping remaining audit messages.");
+          dropRemaining(batch);
+          return;
+        }
+        completed(batch.size());
+        batch.clear();
+      }
+    }
+
+    /**
+     * Fills the given batch with messages from the queue, followed by messages from the spill file.
+     * Waits for at most {@link #POLL_MILLIS} if there is no message.
+     */
+    private void fillBatch(List<byte[]> batch) throws InterruptedException {
+      byte[] payload = messageQueue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+      if (payload != null) {
+        batch.add(payload);
+        messageQueue.drainTo(batch, batchSize - batch.size());
+      }
+
+      AuditSpillFile spillFile = DefaultAuditPublisher.this.spillFile;
+      if (spillFile != null && batch.size() < batchSize) {
+        long discarded = spillFile.getDiscardedCount();
+        try {
+          spillFile.drain(batch, batchSize - batch.size());
+        } catch (IOException e) {
+          LOG.error("Failed to read audit messages from spill file. Spilled audit messages are dropped.", e);
+          // The spilled messages that could not be read back are accounted as dropped
+          int count = (int) (spillFile.getDiscardedCount() - discarded);
+          droppedCount.addAndGet(count);
+          completed(count);
+        }
+      }
+    }
+
+    /**
+     * Drops the given batch and all messages left in the queue and spill file.
+     */
+    private void dropRemaining(List<byte[]> batch) {
+      int count = batch.size();
+      batch.clear();
+      count += messageQueue.drainTo(batch);
+      batch.clear();
+
+      AuditSpillFile spillFile = DefaultAuditPublisher.this.spillFile;
+      if (spillFile != null) {
+        long discarded = spillFile.getDiscardedCount();
+        try {
+          while (spillFile.drain(batch, batchSize) > 0) {
+            count += batch.size();
+            batch.clear();
+          }
+        } catch (IOException e) {
+          LOG.debug("Failed to read audit messages from spill file", e);
+        }
+        count += (int) (spillFile.getDiscardedCount() - discarded);
+      }
+      droppedCount.addAndGet(count);
+      completed(count);
+    }
+  }
 }
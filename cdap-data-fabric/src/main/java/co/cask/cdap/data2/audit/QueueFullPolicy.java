@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.audit;
+
+/**
+ * Policy applied by the {@link DefaultAuditPublisher} when its in-memory queue is full.
+ */
+public enum QueueFullPolicy {
+  /**
+   * Blocks the publishing thread until there is room in the queue, up to the audit publish timeout.
+   * The audit message is dropped if the queue is still full after the timeout.
+   */
+  BLOCK,
+
+  /**
+   * Drops audit messages and counts the number of dropped messages.
+   */
+  DROP,
+
+  /**
+   * Spills audit messages to a bounded local file, which get published once the queue drains. While the spill file
+   * has pending messages, new messages are spilled as well, so that messages are published in order. Messages are
+   * queued if the spill file is full, and dropped if the queue is full as well.
+   */
+  SPILL
+}
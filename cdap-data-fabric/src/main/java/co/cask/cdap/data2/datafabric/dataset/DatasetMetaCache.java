@@ -0,0 +1,299 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.datafabric.dataset;
+
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.messaging.MessageFetcher;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.data.RawMessage;
+import co.cask.cdap.proto.DatasetMeta;
+import co.cask.cdap.proto.DatasetTypeMeta;
+import co.cask.cdap.proto.audit.AuditMessage;
+import co.cask.cdap.proto.codec.AuditMessageTypeAdapter;
+import co.cask.cdap.proto.codec.EntityIdTypeAdapter;
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.DatasetTypeId;
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.TopicId;
+import co.cask.cdap.proto.security.Principal;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A client side cache of {@link DatasetMeta} and {@link DatasetTypeMeta} for {@link RemoteDatasetFramework}.
+ * <p/>
+ * Dataset instance entries are invalidated by the audit messages of dataset creation, update and deletion
+ * published to TMS, as well as by changes made through the owning framework. Every entry also expires after a TTL,
+ * which is the only invalidation for type metadata changed by other processes. Dataset instance entries can have a
+ * shorter TTL, so that entries cached for a principal don't outlive a revocation of its privileges.
+ * <p/>
+ * Each invalidation bumps a version. A value is only cached if no invalidation happened since its lookup started,
+ * so that a slow lookup cannot put a stale value back into the cache.
+ */
+@ThreadSafe
+final class DatasetMetaCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DatasetMetaCache.class);
+  private static final Gson GSON = new GsonBuilder()
+    .registerTypeAdapter(AuditMessage.class, new AuditMessageTypeAdapter())
+    .registerTypeAdapter(EntityId.class, new EntityIdTypeAdapter())
+    .create();
+  private static final int FETCH_LIMIT = 1000;
+
+  private final Cache<InstanceKey, DatasetMeta> instances;
+  private final Cache<DatasetTypeId, DatasetTypeMeta> types;
+  private final AtomicLong version;
+  private final boolean enabled;
+  private ScheduledExecutorService invalidationExecutor;
+
+  /**
+   * Creates a cache with the given TTL. A non-positive TTL disables caching.
+   */
+  DatasetMetaCache(long ttlSeconds, long maxSize) {
+    this(ttlSeconds, ttlSeconds, maxSize);
+  }
+
+  /**
+   * Creates a cache with the given TTL, and a separate TTL for dataset instances, which is capped by the TTL.
+   * A non-positive TTL disables caching.
+   */
+  DatasetMetaCache(long ttlSeconds, long instanceTtlSeconds, long maxSize) {
+    this.enabled = ttlSeconds > 0 && instanceTtlSeconds > 0 && maxSize > 0;
+    long ttl = Math.max(1L, ttlSeconds);
+    long instanceTtl = Math.max(1L, Math.min(ttl, instanceTtlSeconds));
+    long size = Math.max(1L, maxSize);
+    this.instances = CacheBuilder.newBuilder()
+      .expireAfterWrite(instanceTtl, TimeUnit.SECONDS).maximumSize(size).build();
+    this.types = CacheBuilder.newBuilder().expireAfterWrite(ttl, TimeUnit.SECONDS).maximumSize(size).build();
+    this.version = new AtomicLong();
+  }
+
+  /**
+   * Returns the current version of the cache. It should be acquired before looking up a value to be cached.
+   */
+  long getVersion() {
+    return version.get();
+  }
+
+  @Nullable
+  DatasetMeta getInstance(DatasetId datasetId, @Nullable Principal principal) {
+    return enabled ? instances.getIfPresent(new InstanceKey(datasetId, principal)) : null;
+  }
+
+  /**
+   * Caches the given {@link DatasetMeta} if there was no invalidation since the given version.
+   */
+  void putInstance(DatasetId datasetId, @Nullable Principal principal, DatasetMeta meta, long lookupVersion) {
+    if (!enabled) {
+      return;
+    }
+    synchronized (this) {
+      if (version.get() == lookupVersion) {
+        instances.put(new InstanceKey(datasetId, principal), meta);
+      }
+    }
+  }
+
+  @Nullable
+  DatasetTypeMeta getType(DatasetTypeId typeId) {
+    return enabled ? types.getIfPresent(typeId) : null;
+  }
+
+  /**
+   * Caches the given {@link DatasetTypeMeta} if there was no invalidation since the given version.
+   */
+  void putType(DatasetTypeId typeId, DatasetTypeMeta meta, long lookupVersion) {
+    if (!enabled) {
+      return;
+    }
+    synchronized (this) {
+      if (version.get() == lookupVersion) {
+        types.put(typeId, meta);
+      }
+    }
+  }
+
+  /**
+   * Invalidates all cached entries of the given dataset instance.
+   */
+  synchronized void invalidate(DatasetId datasetId) {
+    version.incrementAndGet();
+    Iterator<InstanceKey> iterator = instances.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().datasetId.equals(datasetId)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Invalidates all cached dataset instances and types of the given namespace.
+   */
+  synchronized void invalidate(NamespaceId namespaceId) {
+    version.incrementAndGet();
+    Iterator<InstanceKey> iterator = instances.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().datasetId.getParent().equals(namespaceId)) {
+        iterator.remove();
+      }
+    }
+    Iterator<DatasetTypeId> typeIterator = types.asMap().keySet().iterator();
+    while (typeIterator.hasNext()) {
+      if (typeIterator.next().getParent().equals(namespaceId)) {
+        typeIterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Invalidates the whole cache.
+   */
+  synchronized void invalidateAll() {
+    version.incrementAndGet();
+    instances.invalidateAll();
+    types.invalidateAll();
+  }
+
+  /**
+   * Starts a background thread to invalidate dataset instances based on the audit messages published to the given
+   * topic, starting from the current time. Fetch failures invalidate the whole cache, as changes could be missed.
+   * A non-positive poll interval disables the invalidation, leaving only the TTL.
+   */
+  synchronized void startInvalidation(final MessagingService messagingService, final TopicId auditTopic,
+                                      long pollIntervalMillis) {
+    if (!enabled || pollIntervalMillis <= 0 || invalidationExecutor != null) {
+      return;
+    }
+    final long startTime = System.currentTimeMillis();
+    invalidationExecutor = Executors.newSingleThreadScheduledExecutor(
+      Threads.createDaemonThreadFactory("dataset-meta-cache-invalidation"));
+    invalidationExecutor.scheduleWithFixedDelay(new Runnable() {
+
+      private byte[] lastMessageId;
+      private boolean failed;
+
+      @Override
+      public void run() {
+        try {
+          MessageFetcher fetcher = messagingService.prepareFetch(auditTopic).setLimit(FETCH_LIMIT);
+          if (lastMessageId == null) {
+            fetcher.setStartTime(startTime);
+          } else {
+            fetcher.setStartMessage(lastMessageId, false);
+          }
+          try (CloseableIterator<RawMessage> iterator = fetcher.fetch()) {
+            while (iterator.hasNext()) {
+              RawMessage message = iterator.next();
+              lastMessageId = message.getId();
+              processAuditMessage(message);
+            }
+          }
+          failed = false;
+        } catch (Exception e) {
+          if (!failed) {
+            LOG.warn("Failed to fetch audit messages from {} for invalidating dataset metadata cache", auditTopic, e);
+          }
+          failed = true;
+          invalidateAll();
+        }
+      }
+    }, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops the background invalidation thread and clears the cache, as it won't be invalidated by audit messages
+   * anymore.
+   */
+  synchronized void stopInvalidation() {
+    if (invalidationExecutor == null) {
+      return;
+    }
+    invalidationExecutor.shutdownNow();
+    invalidationExecutor = null;
+    invalidateAll();
+  }
+
+  private void processAuditMessage(RawMessage message) {
+    AuditMessage auditMessage;
+    try {
+      auditMessage = GSON.fromJson(new String(message.getPayload(), StandardCharsets.UTF_8), AuditMessage.class);
+    } catch (JsonParseException e) {
+      LOG.debug("Ignoring audit message that cannot be decoded", e);
+      return;
+    }
+    if (auditMessage == null || !(auditMessage.getEntityId() instanceof DatasetId)) {
+      return;
+    }
+    switch (auditMessage.getType()) {
+      case CREATE:
+      case UPDATE:
+      case DELETE:
+        invalidate((DatasetId) auditMessage.getEntityId());
+        break;
+      default:
+        // Other audit types don't change the dataset metadata
+    }
+  }
+
+  /**
+   * Cache key for dataset instances. The principal is part of the key when authorization is enabled, so that a
+   * cached entry doesn't skip the authorization check done by the dataset service for a different principal.
+   */
+  private static final class InstanceKey {
+    private final DatasetId datasetId;
+    private final Principal principal;
+
+    InstanceKey(DatasetId datasetId, @Nullable Principal principal) {
+      this.datasetId = datasetId;
+      this.principal = principal;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      InstanceKey other = (InstanceKey) o;
+      return datasetId.equals(other.datasetId) && Objects.equal(principal, other.principal);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(datasetId, principal);
+    }
+  }
+}
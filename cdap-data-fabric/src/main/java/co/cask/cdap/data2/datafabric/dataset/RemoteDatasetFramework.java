@@ -35,6 +35,7 @@ import co.cask.cdap.data2.dataset2.DatasetDefinitionRegistryFactory;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.dataset2.module.lib.DatasetModules;
 import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.messaging.MessagingService;
 import co.cask.cdap.proto.DatasetMeta;
 import co.cask.cdap.proto.DatasetModuleMeta;
 import co.cask.cdap.proto.DatasetSpecificationSummary;
@@ -45,6 +46,7 @@ import co.cask.cdap.proto.id.DatasetTypeId;
 import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.KerberosPrincipalId;
 import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
@@ -61,6 +63,7 @@ import org.apache.twill.internal.ApplicationBundler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -77,12 +80,15 @@ import javax.annotation.Nullable;
  * {@link co.cask.cdap.data2.dataset2.DatasetFramework} implementation that talks to DatasetFramework Service
  */
 @SuppressWarnings("unchecked")
-public class RemoteDatasetFramework implements DatasetFramework {
+public class RemoteDatasetFramework implements DatasetFramework, Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(RemoteDatasetFramework.class);
 
   private final CConfiguration cConf;
   private final LoadingCache<NamespaceId, DatasetServiceClient> clientCache;
   private final DatasetDefinitionRegistryFactory registryFactory;
+  private final AuthenticationContext authenticationContext;
+  private final boolean authorizationEnabled;
+  private final DatasetMetaCache metaCache;
 
   @Inject
   public RemoteDatasetFramework(final CConfiguration cConf, final DiscoveryServiceClient discoveryClient,
@@ -96,6 +102,35 @@ public class RemoteDatasetFramework implements DatasetFramework {
       }
     });
     this.registryFactory = registryFactory;
+    this.authenticationContext = authenticationContext;
+    this.authorizationEnabled = cConf.getBoolean(Constants.Security.Authorization.ENABLED);
+    // Privilege revocations are not published to TMS. Entries cached for a principal are kept no longer than the
+    // authorization enforcement caches its privileges, so that a revocation is honored as soon as it is enforced.
+    long ttlSecs = cConf.getLong(Constants.Dataset.CLIENT_META_CACHE_TTL_SECS);
+    long instanceTtlSecs = authorizationEnabled
+      ? Math.min(ttlSecs, cConf.getLong(Constants.Security.Authorization.CACHE_TTL_SECS)) : ttlSecs;
+    this.metaCache = new DatasetMetaCache(ttlSecs, instanceTtlSecs,
+                                          cConf.getLong(Constants.Dataset.CLIENT_META_CACHE_MAX_SIZE));
+  }
+
+  /**
+   * Optional injection of the {@link MessagingService}, which enables invalidation of cached dataset metadata
+   * through audit messages. Without it, cached metadata changed by other processes only expires by TTL.
+   */
+  @Inject(optional = true)
+  void setMessagingService(MessagingService messagingService) {
+    if (cConf.getBoolean(Constants.Audit.ENABLED)) {
+      metaCache.startInvalidation(messagingService, NamespaceId.SYSTEM.topic(cConf.get(Constants.Audit.TOPIC)),
+                                  cConf.getLong(Constants.Dataset.CLIENT_META_CACHE_POLL_INTERVAL_MS));
+    }
+  }
+
+  /**
+   * Stops the invalidation of cached dataset metadata through audit messages.
+   */
+  @Override
+  public void close() {
+    metaCache.stopInvalidation();
   }
 
   @Override
@@ -107,6 +142,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
         clientCache.getUnchecked(moduleId.getParent())
           .addModule(moduleId.getEntityName(), moduleClass.getName(), deploymentJar);
       } finally {
+        metaCache.invalidate(moduleId.getParent());
         try {
           deploymentJar.delete();
         } catch (IOException e) {
@@ -125,18 +161,30 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Override
   public void addModule(DatasetModuleId moduleId, DatasetModule module,
                         Location jarLocation) throws DatasetManagementException {
-    clientCache.getUnchecked(moduleId.getParent())
-      .addModule(moduleId.getEntityName(), DatasetModules.getDatasetModuleClass(module).getName(), jarLocation);
+    try {
+      clientCache.getUnchecked(moduleId.getParent())
+        .addModule(moduleId.getEntityName(), DatasetModules.getDatasetModuleClass(module).getName(), jarLocation);
+    } finally {
+      metaCache.invalidate(moduleId.getParent());
+    }
   }
 
   @Override
   public void deleteModule(DatasetModuleId moduleId) throws DatasetManagementException {
-    clientCache.getUnchecked(moduleId.getParent()).deleteModule(moduleId.getEntityName());
+    try {
+      clientCache.getUnchecked(moduleId.getParent()).deleteModule(moduleId.getEntityName());
+    } finally {
+      metaCache.invalidate(moduleId.getParent());
+    }
   }
 
   @Override
   public void deleteAllModules(NamespaceId namespaceId) throws DatasetManagementException {
-    clientCache.getUnchecked(namespaceId).deleteModules();
+    try {
+      clientCache.getUnchecked(namespaceId).deleteModules();
+    } finally {
+      metaCache.invalidate(namespaceId);
+    }
   }
 
   @Override
@@ -149,15 +197,23 @@ public class RemoteDatasetFramework implements DatasetFramework {
   public void addInstance(String datasetType, DatasetId datasetInstanceId, DatasetProperties props,
                           @Nullable KerberosPrincipalId ownerPrincipal)
     throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent())
-      .addInstance(datasetInstanceId.getEntityName(), datasetType, props, ownerPrincipal);
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent())
+        .addInstance(datasetInstanceId.getEntityName(), datasetType, props, ownerPrincipal);
+    } finally {
+      metaCache.invalidate(datasetInstanceId);
+    }
   }
 
   @Override
   public void updateInstance(DatasetId datasetInstanceId, DatasetProperties props)
     throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent())
-      .updateInstance(datasetInstanceId.getEntityName(), props);
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent())
+        .updateInstance(datasetInstanceId.getEntityName(), props);
+    } finally {
+      metaCache.invalidate(datasetInstanceId);
+    }
   }
 
   @Override
@@ -169,15 +225,13 @@ public class RemoteDatasetFramework implements DatasetFramework {
   @Nullable
   @Override
   public DatasetSpecification getDatasetSpec(DatasetId datasetInstanceId) throws DatasetManagementException {
-    DatasetMeta meta = clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName());
+    DatasetMeta meta = getInstance(datasetInstanceId, null);
     return meta == null ? null : meta.getSpec();
   }
 
   @Override
   public boolean hasInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName()) != null;
+    return getInstance(datasetInstanceId, null) != null;
   }
 
   @Override
@@ -187,12 +241,21 @@ public class RemoteDatasetFramework implements DatasetFramework {
 
   @Override
   public boolean hasType(DatasetTypeId datasetTypeId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName()) != null;
+    return getTypeInfo(datasetTypeId) != null;
   }
 
   @Override
   public DatasetTypeMeta getTypeInfo(DatasetTypeId datasetTypeId) throws DatasetManagementException {
-    return clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName());
+    DatasetTypeMeta typeMeta = metaCache.getType(datasetTypeId);
+    if (typeMeta != null) {
+      return typeMeta;
+    }
+    long version = metaCache.getVersion();
+    typeMeta = clientCache.getUnchecked(datasetTypeId.getParent()).getType(datasetTypeId.getEntityName());
+    if (typeMeta != null) {
+      metaCache.putType(datasetTypeId, typeMeta, version);
+    }
+    return typeMeta;
   }
 
   @Override
@@ -202,12 +265,20 @@ public class RemoteDatasetFramework implements DatasetFramework {
 
   @Override
   public void deleteInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent()).deleteInstance(datasetInstanceId.getEntityName());
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent()).deleteInstance(datasetInstanceId.getEntityName());
+    } finally {
+      metaCache.invalidate(datasetInstanceId);
+    }
   }
 
   @Override
   public void deleteAllInstances(NamespaceId namespaceId) throws DatasetManagementException, IOException {
-    clientCache.getUnchecked(namespaceId).deleteInstances();
+    try {
+      clientCache.getUnchecked(namespaceId).deleteInstances();
+    } finally {
+      metaCache.invalidate(namespaceId);
+    }
   }
 
   @Override
@@ -222,8 +293,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                              @Nullable ClassLoader parentClassLoader,
                                              DatasetClassLoaderProvider classLoaderProvider)
     throws DatasetManagementException, IOException {
-    DatasetMeta instanceInfo = clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName());
+    DatasetMeta instanceInfo = getInstance(datasetInstanceId, null);
     if (instanceInfo == null) {
       return null;
     }
@@ -249,7 +319,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                           @Nullable Iterable<? extends EntityId> owners, AccessType accessType)
     throws DatasetManagementException, IOException {
 
-    DatasetMeta datasetMeta = clientCache.getUnchecked(id.getParent()).getInstance(id.getEntityName(), owners);
+    DatasetMeta datasetMeta = getInstance(id, owners);
     if (datasetMeta == null) {
       return null;
     }
@@ -263,6 +333,26 @@ public class RemoteDatasetFramework implements DatasetFramework {
     // no-op. The RemoteDatasetFramework doesn't need to do anything. The lineage should be recorded before this point.
   }
 
+  /**
+   * Returns the {@link DatasetMeta} of the given dataset instance from the cache, or from the dataset service
+   * if it is not cached. Non-existing instances are not cached, so that a new instance is visible immediately.
+   */
+  @Nullable
+  private DatasetMeta getInstance(DatasetId datasetId,
+                                  @Nullable Iterable<? extends EntityId> owners) throws DatasetManagementException {
+    Principal principal = authorizationEnabled ? authenticationContext.getPrincipal() : null;
+    DatasetMeta meta = metaCache.getInstance(datasetId, principal);
+    if (meta != null) {
+      return meta;
+    }
+    long version = metaCache.getVersion();
+    meta = clientCache.getUnchecked(datasetId.getParent()).getInstance(datasetId.getEntityName(), owners);
+    if (meta != null) {
+      metaCache.putInstance(datasetId, principal, meta, version);
+    }
+    return meta;
+  }
+
   private Location createDeploymentJar(Class<?> clz) throws IOException {
     File tempDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
                             cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
@@ -34,6 +34,7 @@ import co.cask.cdap.proto.id.KerberosPrincipalId;
 import co.cask.cdap.proto.id.NamespaceId;
 import org.apache.twill.filesystem.Location;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
@@ -43,7 +44,7 @@ import javax.annotation.Nullable;
  * Implementation of the {@link DatasetFramework} which forwards all calls to the underlying
  * delegate.
  */
-public class ForwardingDatasetFramework implements DatasetFramework {
+public class ForwardingDatasetFramework implements DatasetFramework, Closeable {
 
   protected final DatasetFramework delegate;
 
@@ -176,4 +177,11 @@ public class ForwardingDatasetFramework implements DatasetFramework {
   public void writeLineage(DatasetId datasetInstanceId, AccessType accessType) {
     delegate.writeLineage(datasetInstanceId, accessType);
   }
+
+  @Override
+  public void close() throws IOException {
+    if (delegate instanceof Closeable) {
+      ((Closeable) delegate).close();
+    }
+  }
 }
@@ -28,6 +28,7 @@ import co.cask.cdap.api.dataset.lib.cube.TimeValue;
 import co.cask.cdap.api.dataset.metrics.MeteredDataset;
 import co.cask.cdap.api.metrics.MetricsCollector;
 import co.cask.cdap.common.utils.ImmutablePair;
+import co.cask.cdap.data2.dataset2.lib.timeseries.DistributionCodec;
 import co.cask.cdap.data2.dataset2.lib.timeseries.Fact;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScan;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanResult;
@@ -51,6 +52,7 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.SortedSet;
 import javax.annotation.Nullable;
 
@@ -164,6 +166,77 @@ public class DefaultCube implements Cube, MeteredDataset {
 
     incrementMetric("cube.query.request.count", 1);
 
+    FactScanner scanner = scan(query, false);
+    Table<Map<String, String>, String, Map<Long, Long>> resultMap = getTimeSeries(query, scanner);
+
+    incrementMetric("cube.query.request.success.count", 1);
+    incrementMetric("cube.query.result.size", resultMap.size());
+
+    Collection<TimeSeries> timeSeries = convertToQueryResult(query, resultMap);
+    incrementMetric("cube.query.result.timeseries.count", timeSeries.size());
+
+    return timeSeries;
+  }
+
+  /**
+   * Queries the {@link co.cask.cdap.api.dataset.lib.cube.MeasureType#DISTRIBUTION} measures of the given query.
+   * Bucket counts are always summed up, across the dimension values not grouped by and across time within each
+   * resolution interval, regardless of the aggregation functions, interpolator and limit of the query.
+   *
+   * @return {dimension values, measure} -> {time -> {bucket index -> count}}
+   */
+  public Table<Map<String, String>, String, NavigableMap<Long, NavigableMap<Integer, Long>>> queryDistributions(
+    CubeQuery query) {
+
+    incrementMetric("cube.query.request.count", 1);
+
+    Table<Map<String, String>, String, NavigableMap<Long, NavigableMap<Integer, Long>>> result =
+      HashBasedTable.create();
+    FactScanner scanner = scan(query, true);
+    try {
+      int count = 0;
+      while (scanner.hasNext()) {
+        FactScanResult next = scanner.next();
+        incrementMetric("cube.query.scan.records.count", 1);
+
+        Map<String, String> seriesDimensions = getSeriesDimensions(query, next);
+        if (seriesDimensions == null) {
+          incrementMetric("cube.query.scan.skipped.count", 1);
+          continue;
+        }
+
+        for (TimeValue timeValue : next) {
+          NavigableMap<Long, NavigableMap<Integer, Long>> timeValues = result.get(seriesDimensions,
+                                                                                  next.getMeasureName());
+          if (timeValues == null) {
+            timeValues = Maps.newTreeMap();
+            result.put(seriesDimensions, next.getMeasureName(), timeValues);
+          }
+          NavigableMap<Integer, Long> buckets = timeValues.get(timeValue.getTimestamp());
+          if (buckets == null) {
+            buckets = Maps.newTreeMap();
+            timeValues.put(timeValue.getTimestamp(), buckets);
+          }
+          DistributionCodec.add(buckets, DistributionCodec.getBucket(timeValue.getValue()),
+                                DistributionCodec.getCount(timeValue.getValue()));
+        }
+        if (++count >= MAX_RECORDS_TO_SCAN) {
+          break;
+        }
+      }
+    } finally {
+      scanner.close();
+    }
+
+    incrementMetric("cube.query.request.success.count", 1);
+    incrementMetric("cube.query.result.size", result.size());
+    return result;
+  }
+
+  /**
+   * Finds the aggregation to query in and scans the fact table of the query resolution.
+   */
+  private FactScanner scan(CubeQuery query, boolean distributions) {
     if (!resolutionToFactTable.containsKey(query.getResolution())) {
       incrementMetric("cube.query.request.failure.count", 1);
       throw new IllegalArgumentException("There's no data aggregated for specified resolution to satisfy the query: " +
@@ -209,16 +282,7 @@ public class DefaultCube implements Cube, MeteredDataset {
 
     // 3) execute scan query
     FactTable table = resolutionToFactTable.get(query.getResolution());
-    FactScanner scanner = table.scan(scan);
-    Table<Map<String, String>, String, Map<Long, Long>> resultMap = getTimeSeries(query, scanner);
-
-    incrementMetric("cube.query.request.success.count", 1);
-    incrementMetric("cube.query.result.size", resultMap.size());
-
-    Collection<TimeSeries> timeSeries = convertToQueryResult(query, resultMap);
-    incrementMetric("cube.query.result.timeseries.count", timeSeries.size());
-
-    return timeSeries;
+    return distributions ? table.scanDistributions(scan) : table.scan(scan);
   }
 
   @Override
@@ -338,30 +402,8 @@ public class DefaultCube implements Cube, MeteredDataset {
       FactScanResult next = scanner.next();
       incrementMetric("cube.query.scan.records.count", 1);
 
-      boolean skip = false;
-      // using tree map, as we are using it as a key for a map
-      Map<String, String> seriesDimensions = Maps.newTreeMap();
-      for (String dimensionName : query.getGroupByDimensions()) {
-        // todo: use Map<String, String> instead of List<DimensionValue> into a String, String, everywhere
-        for (DimensionValue dimensionValue : next.getDimensionValues()) {
-          if (dimensionName.equals(dimensionValue.getName())) {
-            if (dimensionValue.getValue() == null) {
-              // Currently, we do NOT return null as grouped by value.
-              // Depending on whether dimension is required or not the records with null value in it may or may not be
-              // in aggregation. At this moment, the choosing of the aggregation for query doesn't look at this, so
-              // potentially null may or may not be included in results, depending on the aggregation selected
-              // querying. We don't want to produce inconsistent results varying due to different aggregations selected,
-              // so don't return nulls in any of those cases.
-              skip = true;
-              continue;
-            }
-            seriesDimensions.put(dimensionName, dimensionValue.getValue());
-            break;
-          }
-        }
-      }
-
-      if (skip) {
+      Map<String, String> seriesDimensions = getSeriesDimensions(query, next);
+      if (seriesDimensions == null) {
         incrementMetric("cube.query.scan.skipped.count", 1);
         continue;
       }
@@ -400,6 +442,37 @@ public class DefaultCube implements Cube, MeteredDataset {
     return result;
   }
 
+  /**
+   * Returns the values of the group by dimensions of the given scan result, or {@code null} if the result should be
+   * skipped.
+   */
+  @Nullable
+  private Map<String, String> getSeriesDimensions(CubeQuery query, FactScanResult next) {
+    boolean skip = false;
+    // using tree map, as we are using it as a key for a map
+    Map<String, String> seriesDimensions = Maps.newTreeMap();
+    for (String dimensionName : query.getGroupByDimensions()) {
+      // todo: use Map<String, String> instead of List<DimensionValue> into a String, String, everywhere
+      for (DimensionValue dimensionValue : next.getDimensionValues()) {
+        if (dimensionName.equals(dimensionValue.getName())) {
+          if (dimensionValue.getValue() == null) {
+            // Currently, we do NOT return null as grouped by value.
+            // Depending on whether dimension is required or not the records with null value in it may or may not be
+            // in aggregation. At this moment, the choosing of the aggregation for query doesn't look at this, so
+            // potentially null may or may not be included in results, depending on the aggregation selected
+            // querying. We don't want to produce inconsistent results varying due to different aggregations selected,
+            // so don't return nulls in any of those cases.
+            skip = true;
+            continue;
+          }
+          seriesDimensions.put(dimensionName, dimensionValue.getValue());
+          break;
+        }
+      }
+    }
+    return skip ? null : seriesDimensions;
+  }
+
   private Collection<TimeSeries> convertToQueryResult(CubeQuery query,
                                                       Table<Map<String, String>, String,
                                                         Map<Long, Long>> resultTable) {
@@ -39,8 +39,10 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.tephra.Transaction;
 import org.apache.tephra.TransactionAware;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,7 +55,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.Nullable;
 
 /**
@@ -73,8 +80,10 @@ import javax.annotation.Nullable;
  *       not in in-memory buffer twice, two times it will try to fetch it from persistent store.
  *       Given the snapshot isolation tx model, this can be improved in future implementations.
  * <p>
- * NOTE: current implementation persists changes only at the end of transaction. Beware of OOME. There should be better
- *       implementation for MapReduce case (YMMV though, for counters/aggregations this implementation looks sweet)
+ * NOTE: by default, changes are persisted only at the end of transaction. Beware of OOME. If a flush threshold is set,
+ *       the buffered changes are persisted in the background whenever their size crosses the threshold. The persisted
+ *       changes are written with the transaction's write pointer, hence they stay invisible to other transactions, and
+ *       they are undone on rollback like the changes persisted at commit time.
  * <p>
  * NOTE: Using {@link #get(byte[], byte[], byte[], int)} is generally always not efficient since it always hits the
  *       persisted store even if all needed data is in-memory buffer. See more info at method javadoc
@@ -102,6 +111,16 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   // Keeps track of what was persisted so far
   private NavigableMap<byte[], NavigableMap<byte[], Update>> toUndo;
 
+  // Size in bytes of the buffered changes above which they are persisted before the transaction commits.
+  // Zero or negative means the buffer is only persisted on commit
+  private final long flushThreshold;
+  // Approximate size in bytes of the changes written to the buffer since it was last persisted
+  private long bufferedSize;
+  // Executor for persisting the buffer in the background. Created on the first flush
+  private ExecutorService flushExecutor;
+  // Completion of the flush in progress, if any
+  private Future<?> flushFuture;
+
   // Report data ops metrics to
   private MetricsCollector metricsCollector;
 
@@ -137,6 +156,20 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
    */
   public BufferingTable(String name, boolean enableReadlessIncrements,
                         Map<String, String> properties) {
+    this(name, enableReadlessIncrements, properties, 0L);
+  }
+
+  /**
+   * Creates an instance of {@link BufferingTable} that persists buffered changes before the transaction commits.
+   *
+   * @param name the name of the table
+   * @param enableReadlessIncrements whether or not readless increments are enabled
+   * @param properties dataset properties for the table
+   * @param flushThreshold size in bytes of the buffered changes above which they are persisted in the background;
+   *                       zero or negative means they are only persisted on commit
+   */
+  public BufferingTable(String name, boolean enableReadlessIncrements,
+                        Map<String, String> properties, long flushThreshold) {
     super(properties);
 
     // for optimization purposes we don't allow table name of length greater than Byte.MAX_VALUE
@@ -151,6 +184,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // Default uses the above scheme. Subclasses can change it by overriding the #getNameAsTxChangePrefix method
     this.nameAsTxChangePrefix = Bytes.add(new byte[]{(byte) name.length()}, Bytes.toBytes(name));
     this.buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    this.flushThreshold = flushThreshold;
   }
 
   /**
@@ -227,6 +261,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   /**
    * Scans range of rows from persistent store for a given {@link Scan}.
    * NOTE: persisted store can also be in-memory, it is called "persisted" to distinguish from in-memory buffer.
+   * Implementations must apply the filter and the column projection of the scan, see {@link ScanFilters}.
    * @param scan scan configuration
    * @return instance of {@link Scanner}, never null
    * @throws Exception
@@ -259,6 +294,10 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   @Override
   public void close() throws IOException {
+    awaitFlushQuietly();
+    if (flushExecutor != null) {
+      flushExecutor.shutdown();
+    }
     // releasing resources
     buff = null;
     toUndo = null;
@@ -272,7 +311,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       throw new IllegalStateException(msg);
     }
     // starting with fresh buffer when tx starts
+    awaitFlushQuietly();
     buff.clear();
+    bufferedSize = 0L;
     toUndo = null;
     this.tx = tx;
   }
@@ -312,12 +353,29 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     for (byte[] changedRow : buff.keySet()) {
       changes.add(Bytes.add(getNameAsTxChangePrefix(), changedRow));
     }
+    // changes flushed before commit are part of the transaction too
+    if (toUndo != null) {
+      for (byte[] changedRow : toUndo.keySet()) {
+        if (!buff.containsKey(changedRow)) {
+          changes.add(Bytes.add(getNameAsTxChangePrefix(), changedRow));
+        }
+      }
+    }
     return changes;
   }
 
   private Collection<byte[]> getColumnChanges() {
-    // we resolve conflicts on row level of individual table
     List<byte[]> changes = new ArrayList<>(buff.size());
+    addColumnChanges(buff, changes);
+    // changes flushed before commit are part of the transaction too. Duplicate changes are fine
+    if (toUndo != null) {
+      addColumnChanges(toUndo, changes);
+    }
+    return changes;
+  }
+
+  private void addColumnChanges(NavigableMap<byte[], NavigableMap<byte[], Update>> buff, List<byte[]> changes) {
+    // we resolve conflicts on row level of individual table
     for (Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange : buff.entrySet()) {
       if (rowChange.getValue() == null) {
         // NOTE: as of now we cannot detect conflict between delete whole row and row's column value change.
@@ -333,22 +391,24 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
         changes.add(Bytes.add(getNameAsTxChangePrefix(), rowTxChange, column));
       }
     }
-    return changes;
   }
 
   @Override
   public boolean commitTx() throws Exception {
+    awaitFlush();
     if (!buff.isEmpty()) {
+      NavigableMap<byte[], NavigableMap<byte[], Update>> toPersist = buff;
       // We first assume that all data will be persisted. So that if exception happen during persist we try to
       // rollback everything we had in in-memory buffer.
-      toUndo = buff;
+      addToUndo(toPersist);
       // clearing up in-memory buffer by initializing new map.
       // NOTE: we want to init map here so that if no changes are made we re-use same instance of the map in next tx
       // NOTE: we could cache two maps and swap them to avoid creation of map instances, but code would be ugly
       buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+      bufferedSize = 0L;
       // TODO: tracking of persisted items can be optimized by returning a pair {succeededOrNot, persisted} which
       //       tells if persisting succeeded and what was persisted (i.e. what we will have to undo in case of rollback)
-      persist(toUndo);
+      persist(toPersist);
     }
     return true;
   }
@@ -357,13 +417,17 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   public void postTxCommit() {
     // don't need buffer anymore: tx has been committed
     buff.clear();
+    bufferedSize = 0L;
     toUndo = null;
     tx = null;
   }
 
   @Override
   public boolean rollbackTx() throws Exception {
+    // a failed flush may have persisted some of its changes, which are undone together with everything else
+    awaitFlushQuietly();
     buff.clear();
+    bufferedSize = 0L;
     if (toUndo != null) {
       undo(toUndo);
       toUndo = null;
@@ -378,6 +442,111 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
   }
 
+  /**
+   * Records changes that are about to be persisted, so that they can be undone on rollback.
+   */
+  private void addToUndo(NavigableMap<byte[], NavigableMap<byte[], Update>> changes) {
+    if (toUndo == null) {
+      toUndo = changes;
+      return;
+    }
+    for (Map.Entry<byte[], NavigableMap<byte[], Update>> row : changes.entrySet()) {
+      NavigableMap<byte[], Update> columns = toUndo.get(row.getKey());
+      if (columns == null) {
+        columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        toUndo.put(row.getKey(), columns);
+      }
+      columns.putAll(row.getValue());
+    }
+  }
+
+  /**
+   * Persists the buffered changes in the background if their size is over the flush threshold. The flushed changes
+   * are removed from the buffer, except for readless increments, which are only persisted on commit: persisting
+   * them more than once with the same write pointer would overwrite the previous increments.
+   */
+  private void flushIfNeeded(int size) {
+    bufferedSize += size;
+    if (flushThreshold <= 0 || bufferedSize < flushThreshold) {
+      return;
+    }
+    // only one flush at a time, which also limits the memory used to two times the threshold
+    awaitFlush();
+
+    NavigableMap<byte[], NavigableMap<byte[], Update>> toFlush = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    NavigableMap<byte[], NavigableMap<byte[], Update>> remaining =
+      new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<byte[], NavigableMap<byte[], Update>> row : buff.entrySet()) {
+      NavigableMap<byte[], Update> flushColumns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      NavigableMap<byte[], Update> remainingColumns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      for (Map.Entry<byte[], Update> column : row.getValue().entrySet()) {
+        if (column.getValue() instanceof IncrementValue) {
+          remainingColumns.put(column.getKey(), column.getValue());
+        } else {
+          flushColumns.put(column.getKey(), column.getValue());
+        }
+      }
+      if (!flushColumns.isEmpty()) {
+        toFlush.put(row.getKey(), flushColumns);
+      }
+      if (!remainingColumns.isEmpty()) {
+        remaining.put(row.getKey(), remainingColumns);
+      }
+    }
+    buff = remaining;
+    bufferedSize = 0L;
+    if (toFlush.isEmpty()) {
+      return;
+    }
+
+    // record a copy for undo, since the flushed maps are read by the flush thread while the undo map gets updated
+    NavigableMap<byte[], NavigableMap<byte[], Update>> flushed = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<byte[], NavigableMap<byte[], Update>> row : toFlush.entrySet()) {
+      flushed.put(row.getKey(), Maps.newTreeMap(row.getValue()));
+    }
+    addToUndo(flushed);
+
+    if (flushExecutor == null) {
+      flushExecutor = Executors.newSingleThreadExecutor(Threads.createDaemonThreadFactory("table-flush-" + name));
+    }
+    final NavigableMap<byte[], NavigableMap<byte[], Update>> changes = toFlush;
+    flushFuture = flushExecutor.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        persist(changes);
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Waits for the flush in progress to complete, so that its changes are visible to reads from the persistent store.
+   *
+   * @throws DataSetException if the flush failed
+   */
+  private void awaitFlush() {
+    Future<?> future = flushFuture;
+    if (future == null) {
+      return;
+    }
+    flushFuture = null;
+    try {
+      Uninterruptibles.getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      LOG.debug("flush failed for table: " + getTransactionAwareName(), e.getCause());
+      throw new DataSetException("flush failed", e.getCause());
+    }
+  }
+
+  private void awaitFlushQuietly() {
+    try {
+      awaitFlush();
+    } catch (DataSetException e) {
+      // only called when the transaction ends, in which case all persisted changes are undone or discarded anyway
+      LOG.debug("Ignoring failed flush for table: {}", getTransactionAwareName(), e);
+    }
+  }
+
   /**
    * NOTE: Depending on the use-case, calling this method may be much less
    *       efficient than calling same method with columns as parameters because it may always require round trip to
@@ -413,6 +582,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @Override
   public Row get(byte[] row, byte[] startColumn, byte[] stopColumn, int limit) {
     ensureTransactionIsStarted();
+    awaitFlush();
     reportRead(1);
     // checking if the row was deleted inside this tx
     NavigableMap<byte[], Update> buffCols = buff.get(row);
@@ -446,6 +616,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @Override
   public List<Row> get(List<Get> gets) {
     ensureTransactionIsStarted();
+    awaitFlush();
     try {
       // get persisted, then overwrite with whats buffered
       List<Map<byte[], byte[]>> persistedRows = getPersisted(gets);
@@ -518,6 +689,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       // NOTE: we copy passed row's byte arrays to protect buffer against possible changes of this array on client
       buff.put(copy(row), colVals);
     }
+    flushIfNeeded(getSize(row) + getSize(columns) + getSize(values));
   }
 
   /**
@@ -619,7 +791,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @Override
   public void increment(byte[] row, byte[][] columns, long[] amounts) {
     ensureTransactionIsStarted();
-    if (enableReadlessIncrements) {
+    if (enableReadlessIncrements && !isFlushed(row, columns)) {
       NavigableMap<byte[], Update> colVals = buff.get(row);
       if (colVals == null) {
         colVals = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
@@ -629,11 +801,30 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
         colVals.put(columns[i], Updates.mergeUpdates(colVals.get(columns[i]), new IncrementValue(amounts[i])));
       }
       reportWrite(1, getSize(row) + getSize(columns) + getSize(amounts));
+      flushIfNeeded(getSize(row) + getSize(columns) + getSize(amounts));
     } else {
+      // a column that was flushed before commit cannot take a readless increment, since persisting it would overwrite
+      // the flushed value that was written with the same write pointer
       internalIncrementAndGet(row, columns, amounts);
     }
   }
 
+  /**
+   * Returns {@code true} if any of the given columns of a row was persisted before the transaction commits.
+   */
+  private boolean isFlushed(byte[] row, byte[][] columns) {
+    NavigableMap<byte[], Update> flushed = toUndo == null ? null : toUndo.get(row);
+    if (flushed == null) {
+      return false;
+    }
+    for (byte[] column : columns) {
+      if (flushed.containsKey(column)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @ReadWrite
   @Override
   public boolean compareAndSwap(byte[] row, byte[] column, byte[] expectedValue, byte[] newValue) {
@@ -695,9 +886,25 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @Override
   public Scanner scan(Scan scan) {
     ensureTransactionIsStarted();
+    awaitFlush();
     NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap = scanBuffer(scan);
     try {
-      return new BufferingScanner(bufferMap, scanPersisted(scan));
+      if (bufferMap.isEmpty() || (!ScanFilters.hasProjection(scan) && ScanFilters.getValueFilter(scan) == null)) {
+        // no buffered row can change the outcome of the filter or projection, push them down to the persistent store
+        return new BufferingScanner(bufferMap, scanPersisted(scan), null);
+      }
+      // a value filter must be evaluated on the rows merged with the buffer, hence only the row filter and the
+      // columns to read can be pushed down to the persistent store
+      Scan persistedScan = new Scan(scan.getStartRow(), scan.getStopRow(), ScanFilters.getFuzzyRowFilter(scan));
+      byte[][] readColumns = ScanFilters.getReadColumns(scan);
+      if (readColumns != null) {
+        persistedScan = persistedScan.withColumns(readColumns);
+      }
+      byte[] readColumnPrefix = ScanFilters.getReadColumnPrefix(scan);
+      if (readColumnPrefix != null) {
+        persistedScan = persistedScan.withColumnPrefix(readColumnPrefix);
+      }
+      return new BufferingScanner(bufferMap, scanPersisted(persistedScan), scan);
     } catch (Exception e) {
       LOG.debug("scan failed for table: " + getTransactionAwareName() +
           ", scan: " + scan.toString(), e);
@@ -729,6 +936,11 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       return bufferMap;
     }
 
+    // value filters are evaluated by the scanner on the rows merged with the persisted data
+    if (ScanFilters.isValueFilter(filter)) {
+      return bufferMap;
+    }
+
     // todo: currently we support only FuzzyRowFilter as an experimental feature
     if (filter instanceof FuzzyRowFilter) {
       NavigableMap<byte[], NavigableMap<byte[], Update>> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
@@ -744,6 +956,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   }
 
   private Map<byte[], byte[]> getRowMap(byte[] row) throws Exception {
+    awaitFlush();
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
     NavigableMap<byte[], Update> buffCols = buff.get(row);
@@ -765,6 +978,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   }
 
   private Map<byte[], byte[]> getRowMap(byte[] row, byte[][] columns) throws Exception {
+    awaitFlush();
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
     NavigableMap<byte[], Update> buffCols = buff.get(row);
@@ -995,11 +1209,21 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     private final NavigableMap<byte[], NavigableMap<byte[], Update>> buffer;
     private final Scanner persistedScanner;
     private final Iterator<byte[]> keyIter;
+    private final Filter valueFilter;
+    private final Scan projection;
     private byte[] currentKey;
     private Row currentRow;
 
-    private BufferingScanner(NavigableMap<byte[], NavigableMap<byte[], Update>> buffer, Scanner persistedScanner) {
+    /**
+     * @param buffer the buffered rows within the scan range
+     * @param persistedScanner the scanner of the persisted rows
+     * @param scan if not null, the value filter and projection of this scan are applied to the merged rows
+     */
+    private BufferingScanner(NavigableMap<byte[], NavigableMap<byte[], Update>> buffer, Scanner persistedScanner,
+                             @Nullable Scan scan) {
       this.buffer = buffer;
+      this.valueFilter = scan == null ? null : ScanFilters.getValueFilter(scan);
+      this.projection = scan == null || !ScanFilters.hasProjection(scan) ? null : scan;
       this.keyIter = getBufferKeyIterator(buffer);
       if (this.keyIter.hasNext()) {
         currentKey = keyIter.next();
@@ -1011,6 +1235,24 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     @Nullable
     @Override
     public Row next() {
+      Row row = nextMerged();
+      while (row != null) {
+        if (valueFilter == null || ScanFilters.matches(valueFilter, row.getColumns())) {
+          if (projection == null) {
+            return row;
+          }
+          Map<byte[], byte[]> columns = ScanFilters.project(projection, row.getColumns());
+          if (!columns.isEmpty()) {
+            return new Result(row.getRow(), columns);
+          }
+        }
+        row = nextMerged();
+      }
+      return null;
+    }
+
+    @Nullable
+    private Row nextMerged() {
       if (currentKey == null && currentRow == null) {
         // out of rows
         return null;
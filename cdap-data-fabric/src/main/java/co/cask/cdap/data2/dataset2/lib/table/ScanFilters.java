@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.DataSetException;
+import co.cask.cdap.api.dataset.table.ColumnValueFilter;
+import co.cask.cdap.api.dataset.table.Filter;
+import co.cask.cdap.api.dataset.table.FilterList;
+import co.cask.cdap.api.dataset.table.Scan;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import javax.annotation.Nullable;
+
+/**
+ * Utility class for evaluating the filter and column projection of a {@link Scan} by the table implementations
+ * that cannot push them down to the storage.
+ * <p/>
+ * A scan can have a {@link FuzzyRowFilter}, which selects rows by row key, or a value filter, which is a
+ * {@link ColumnValueFilter} or a {@link FilterList} and selects rows by column values. A value filter is always
+ * evaluated on the columns of the row before projection, hence the columns it refers to must be read even if they
+ * are not returned.
+ */
+public final class ScanFilters {
+
+  private ScanFilters() {
+  }
+
+  /**
+   * Returns the {@link FuzzyRowFilter} of the given scan, or {@code null} if it doesn't have one.
+   *
+   * @throws DataSetException if the scan has a filter of unknown type
+   */
+  @Nullable
+  public static FuzzyRowFilter getFuzzyRowFilter(Scan scan) {
+    Filter filter = scan.getFilter();
+    if (filter == null || isValueFilter(filter)) {
+      return null;
+    }
+    if (filter instanceof FuzzyRowFilter) {
+      return (FuzzyRowFilter) filter;
+    }
+    throw new DataSetException("Unknown filter type: " + filter);
+  }
+
+  /**
+   * Returns the value filter of the given scan, or {@code null} if it doesn't have one.
+   */
+  @Nullable
+  public static Filter getValueFilter(Scan scan) {
+    Filter filter = scan.getFilter();
+    return isValueFilter(filter) ? filter : null;
+  }
+
+  /**
+   * Returns {@code true} if the given filter selects rows by column values.
+   */
+  public static boolean isValueFilter(@Nullable Filter filter) {
+    return filter instanceof ColumnValueFilter || filter instanceof FilterList;
+  }
+
+  /**
+   * Returns {@code true} if the given scan only returns some of the columns of each row.
+   */
+  public static boolean hasProjection(Scan scan) {
+    return scan.getColumns() != null || scan.getColumnPrefix() != null;
+  }
+
+  /**
+   * Returns the columns that must be read from the storage to evaluate the given scan, which are the projected
+   * columns and the columns used by the value filter, or {@code null} if the scan is not limited to a set of columns.
+   */
+  @Nullable
+  public static byte[][] getReadColumns(Scan scan) {
+    byte[][] columns = scan.getColumns();
+    Filter valueFilter = getValueFilter(scan);
+    if (columns == null || valueFilter == null) {
+      return columns;
+    }
+    Set<byte[]> readColumns = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    Collections.addAll(readColumns, columns);
+    addFilterColumns(valueFilter, readColumns);
+    return readColumns.toArray(new byte[readColumns.size()][]);
+  }
+
+  /**
+   * Returns the column prefix that limits the columns to be read from the storage to evaluate the given scan,
+   * or {@code null} if the columns read are not limited by prefix. This is the projected prefix, unless the value
+   * filter uses columns outside of the prefix.
+   */
+  @Nullable
+  public static byte[] getReadColumnPrefix(Scan scan) {
+    byte[] prefix = scan.getColumnPrefix();
+    Filter valueFilter = getValueFilter(scan);
+    if (prefix == null || valueFilter == null) {
+      return prefix;
+    }
+    Set<byte[]> filterColumns = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+    addFilterColumns(valueFilter, filterColumns);
+    for (byte[] column : filterColumns) {
+      if (!Bytes.startsWith(column, prefix)) {
+        return null;
+      }
+    }
+    return prefix;
+  }
+
+  /**
+   * Evaluates a value filter on the columns of a row.
+   *
+   * @param filter a {@link ColumnValueFilter} or a {@link FilterList}
+   * @param columns the columns of the row
+   * @return {@code true} if the row matches the filter
+   */
+  public static boolean matches(Filter filter, Map<byte[], byte[]> columns) {
+    if (filter instanceof ColumnValueFilter) {
+      ColumnValueFilter columnFilter = (ColumnValueFilter) filter;
+      return columnFilter.matches(columns.get(columnFilter.getColumn()));
+    }
+    if (filter instanceof FilterList) {
+      FilterList filterList = (FilterList) filter;
+      boolean passAll = filterList.getOperator() == FilterList.Operator.MUST_PASS_ALL;
+      for (Filter child : filterList.getFilters()) {
+        if (matches(child, columns) != passAll) {
+          return !passAll;
+        }
+      }
+      return passAll;
+    }
+    throw new DataSetException("Unknown filter type: " + filter);
+  }
+
+  /**
+   * Returns {@code true} if the given column is returned by the given scan.
+   */
+  public static boolean isProjected(Scan scan, byte[] column) {
+    byte[] prefix = scan.getColumnPrefix();
+    if (prefix != null && !Bytes.startsWith(column, prefix)) {
+      return false;
+    }
+    byte[][] columns = scan.getColumns();
+    if (columns == null) {
+      return true;
+    }
+    for (byte[] projected : columns) {
+      if (Bytes.equals(projected, column)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the columns of a row that are returned by the given scan.
+   */
+  public static NavigableMap<byte[], byte[]> project(Scan scan, Map<byte[], byte[]> columns) {
+    NavigableMap<byte[], byte[]> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<byte[], byte[]> entry : columns.entrySet()) {
+      if (isProjected(scan, entry.getKey())) {
+        result.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Adds the columns used by the given value filter to a set.
+   */
+  public static void addFilterColumns(Filter filter, Set<byte[]> columns) {
+    if (filter instanceof ColumnValueFilter) {
+      columns.add(((ColumnValueFilter) filter).getColumn());
+    } else if (filter instanceof FilterList) {
+      for (Filter child : ((FilterList) filter).getFilters()) {
+        addFilterColumns(child, columns);
+      }
+    } else {
+      throw new DataSetException("Unknown filter type: " + filter);
+    }
+  }
+}
@@ -17,13 +17,16 @@
 package co.cask.cdap.data2.dataset2.lib.table.hbase;
 
 import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.data2.dataset2.lib.table.ScanFilters;
 import com.google.common.base.Throwables;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 
 import java.io.IOException;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /**
  * Implements Scanner on top of HBase resultSetScanner.
@@ -32,10 +35,20 @@ public class HBaseScanner implements Scanner {
 
   private final ResultScanner scanner;
   private final byte[] columnFamily;
+  private final Scan projection;
 
   public HBaseScanner(ResultScanner scanner, byte[] columnFamily) {
+    this(scanner, columnFamily, null);
+  }
+
+  /**
+   * @param projection if not null, rows are projected to the columns of this scan. This is needed if columns were
+   *                   read only to evaluate the filter of the scan
+   */
+  public HBaseScanner(ResultScanner scanner, byte[] columnFamily, @Nullable Scan projection) {
     this.scanner = scanner;
     this.columnFamily = columnFamily;
+    this.projection = projection;
   }
 
   @Override
@@ -54,6 +67,9 @@ public class HBaseScanner implements Scanner {
         }
 
         Map<byte[], byte[]> rowMap = HBaseTable.getRowMap(result, columnFamily);
+        if (projection != null) {
+          rowMap = ScanFilters.project(projection, rowMap);
+        }
         if (rowMap.size() > 0) {
           return new co.cask.cdap.api.dataset.table.Result(result.getRow(), rowMap);
         }
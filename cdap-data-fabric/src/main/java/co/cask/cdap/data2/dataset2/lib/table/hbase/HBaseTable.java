@@ -22,15 +22,18 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.table.ColumnValueFilter;
 import co.cask.cdap.api.dataset.table.Filter;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.TableProperties;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.dataset2.lib.table.BufferingTable;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.data2.dataset2.lib.table.IncrementValue;
 import co.cask.cdap.data2.dataset2.lib.table.PutValue;
+import co.cask.cdap.data2.dataset2.lib.table.ScanFilters;
 import co.cask.cdap.data2.dataset2.lib.table.Update;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.PrefixedNamespaces;
 import co.cask.cdap.data2.util.TableId;
@@ -55,6 +58,12 @@ import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.BinaryPrefixComparator;
+import org.apache.hadoop.hbase.filter.ByteArrayComparable;
+import org.apache.hadoop.hbase.filter.ColumnPrefixFilter;
+import org.apache.hadoop.hbase.filter.CompareFilter;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.tephra.TransactionCodec;
 import org.apache.tephra.TxConstants;
@@ -74,7 +83,6 @@ import javax.annotation.Nullable;
 /**
  * Dataset client for HBase tables.
  */
-// todo: do periodic flush when certain threshold is reached
 // todo: extract separate "no delete inside tx" table?
 // todo: consider writing & reading using HTable to do in multi-threaded way
 public class HBaseTable extends BufferingTable {
@@ -102,7 +110,8 @@ public class HBaseTable extends BufferingTable {
   public HBaseTable(DatasetContext datasetContext, DatasetSpecification spec, Map<String, String> args,
                     CConfiguration cConf, Configuration hConf, HBaseTableUtil tableUtil) throws IOException {
     super(PrefixedNamespaces.namespace(cConf, datasetContext.getNamespaceId(), spec.getName()),
-          TableProperties.getReadlessIncrementSupport(spec.getProperties()), spec.getProperties());
+          TableProperties.getReadlessIncrementSupport(spec.getProperties()), spec.getProperties(),
+          getFlushThreshold(args, cConf));
     TableId hBaseTableId = tableUtil.createHTableId(new NamespaceId(datasetContext.getNamespaceId()), spec.getName());
     HTable hTable = tableUtil.createHTable(hConf, hBaseTableId);
     // todo: make configurable
@@ -121,6 +130,12 @@ public class HBaseTable extends BufferingTable {
       cConf.getInt(TxConstants.Manager.CFG_TX_MAX_LIFETIME, TxConstants.Manager.DEFAULT_TX_MAX_LIFETIME)));
   }
 
+  private static long getFlushThreshold(Map<String, String> args, CConfiguration cConf) {
+    String threshold = args.get(Constants.Dataset.TABLE_FLUSH_THRESHOLD_BYTES);
+    return threshold == null ? cConf.getLong(Constants.Dataset.TABLE_FLUSH_THRESHOLD_BYTES, 0L)
+                             : Long.parseLong(threshold);
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
@@ -346,7 +361,14 @@ public class HBaseTable extends BufferingTable {
   @Override
   protected Scanner scanPersisted(co.cask.cdap.api.dataset.table.Scan scan) throws Exception {
     ScanBuilder hScan = tableUtil.buildScan();
-    hScan.addFamily(columnFamily);
+    byte[][] readColumns = ScanFilters.getReadColumns(scan);
+    if (readColumns == null) {
+      hScan.addFamily(columnFamily);
+    } else {
+      for (byte[] column : readColumns) {
+        hScan.addColumn(columnFamily, column);
+      }
+    }
     // todo: should be configurable
     // NOTE: by default we assume scanner is used in mapreduce job, hence no cache blocks
     hScan.setCacheBlocks(false);
@@ -361,29 +383,97 @@ public class HBaseTable extends BufferingTable {
       hScan.setStopRow(stopRow);
     }
 
-    setFilterIfNeeded(hScan, scan.getFilter());
+    setFilterIfNeeded(hScan, scan);
     hScan.setAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY, txCodec.encode(tx));
 
     ResultScanner resultScanner = wrapResultScanner(hTable.getScanner(hScan.build()));
-    return new HBaseScanner(resultScanner, columnFamily);
+    // without a value filter, the columns read are exactly the projected columns
+    boolean project = ScanFilters.getValueFilter(scan) != null && ScanFilters.hasProjection(scan);
+    return new HBaseScanner(resultScanner, columnFamily, project ? scan : null);
   }
 
-  private void setFilterIfNeeded(ScanBuilder scan, @Nullable Filter filter) {
-    if (filter == null) {
-      return;
+  private void setFilterIfNeeded(ScanBuilder hScan, co.cask.cdap.api.dataset.table.Scan scan) {
+    List<org.apache.hadoop.hbase.filter.Filter> filters = new ArrayList<>();
+    // the value filter goes first, so that it sees the columns it needs before any column filter skips them
+    Filter valueFilter = ScanFilters.getValueFilter(scan);
+    if (valueFilter != null) {
+      filters.add(createValueFilter(valueFilter));
+    }
+    byte[] columnPrefix = ScanFilters.getReadColumnPrefix(scan);
+    if (columnPrefix != null) {
+      filters.add(new ColumnPrefixFilter(columnPrefix));
+    }
+    Filter filter = scan.getFilter();
+    if (filter != null && valueFilter == null) {
+      if (filter instanceof FuzzyRowFilter) {
+        FuzzyRowFilter fuzzyRowFilter = (FuzzyRowFilter) filter;
+        List<Pair<byte[], byte[]>> fuzzyPairs =
+          Lists.newArrayListWithExpectedSize(fuzzyRowFilter.getFuzzyKeysData().size());
+        for (ImmutablePair<byte[], byte[]> pair : fuzzyRowFilter.getFuzzyKeysData()) {
+          fuzzyPairs.add(Pair.newPair(pair.getFirst(), pair.getSecond()));
+        }
+        filters.add(new org.apache.hadoop.hbase.filter.FuzzyRowFilter(fuzzyPairs));
+      } else {
+        throw new IllegalArgumentException("Unsupported filter: " + filter);
+      }
     }
 
-    if (filter instanceof FuzzyRowFilter) {
-      FuzzyRowFilter fuzzyRowFilter = (FuzzyRowFilter) filter;
-      List<Pair<byte[], byte[]>> fuzzyPairs =
-        Lists.newArrayListWithExpectedSize(fuzzyRowFilter.getFuzzyKeysData().size());
-      for (ImmutablePair<byte[], byte[]> pair : fuzzyRowFilter.getFuzzyKeysData()) {
-        fuzzyPairs.add(Pair.newPair(pair.getFirst(), pair.getSecond()));
+    if (filters.size() == 1) {
+      hScan.setFilter(filters.get(0));
+    } else if (filters.size() > 1) {
+      hScan.setFilter(new org.apache.hadoop.hbase.filter.FilterList(
+        org.apache.hadoop.hbase.filter.FilterList.Operator.MUST_PASS_ALL, filters));
+    }
+  }
+
+  /**
+   * Translates a {@link ColumnValueFilter} or a {@link co.cask.cdap.api.dataset.table.FilterList} to the
+   * equivalent HBase filter, so that rows are filtered by the region servers.
+   */
+  private org.apache.hadoop.hbase.filter.Filter createValueFilter(Filter filter) {
+    if (filter instanceof co.cask.cdap.api.dataset.table.FilterList) {
+      co.cask.cdap.api.dataset.table.FilterList filterList = (co.cask.cdap.api.dataset.table.FilterList) filter;
+      List<org.apache.hadoop.hbase.filter.Filter> filters = new ArrayList<>();
+      for (Filter child : filterList.getFilters()) {
+        filters.add(createValueFilter(child));
       }
-      scan.setFilter(new org.apache.hadoop.hbase.filter.FuzzyRowFilter(fuzzyPairs));
-    } else {
-      throw new IllegalArgumentException("Unsupported filter: " + filter);
+      return new org.apache.hadoop.hbase.filter.FilterList(
+        filterList.getOperator() == co.cask.cdap.api.dataset.table.FilterList.Operator.MUST_PASS_ALL
+          ? org.apache.hadoop.hbase.filter.FilterList.Operator.MUST_PASS_ALL
+          : org.apache.hadoop.hbase.filter.FilterList.Operator.MUST_PASS_ONE, filters);
     }
+
+    ColumnValueFilter columnFilter = (ColumnValueFilter) filter;
+    byte[] column = columnFilter.getColumn();
+    switch (columnFilter.getOperator()) {
+      case EQUAL:
+        return createColumnValueFilter(column, CompareFilter.CompareOp.EQUAL,
+                                       new BinaryComparator(columnFilter.getStart()));
+      case PREFIX:
+        return createColumnValueFilter(column, CompareFilter.CompareOp.EQUAL,
+                                       new BinaryPrefixComparator(columnFilter.getStart()));
+      case RANGE:
+        // an unbounded start still requires the column to exist, which every value is greater or equal to
+        byte[] start = columnFilter.getStart() == null ? Bytes.EMPTY_BYTE_ARRAY : columnFilter.getStart();
+        SingleColumnValueFilter startFilter =
+          createColumnValueFilter(column, CompareFilter.CompareOp.GREATER_OR_EQUAL, new BinaryComparator(start));
+        if (columnFilter.getStop() == null) {
+          return startFilter;
+        }
+        return new org.apache.hadoop.hbase.filter.FilterList(
+          org.apache.hadoop.hbase.filter.FilterList.Operator.MUST_PASS_ALL, startFilter,
+          createColumnValueFilter(column, CompareFilter.CompareOp.LESS, new BinaryComparator(columnFilter.getStop())));
+      default:
+        throw new IllegalArgumentException("Unsupported filter: " + filter);
+    }
+  }
+
+  private SingleColumnValueFilter createColumnValueFilter(byte[] column, CompareFilter.CompareOp compareOp,
+                                                          ByteArrayComparable comparator) {
+    SingleColumnValueFilter filter = new SingleColumnValueFilter(columnFamily, column, compareOp, comparator);
+    // rows without the column never match
+    filter.setFilterIfMissing(true);
+    return filter;
   }
 
   /**
@@ -29,6 +29,7 @@ import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.data2.dataset2.lib.table.BufferingTable;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
+import co.cask.cdap.data2.dataset2.lib.table.ScanFilters;
 import co.cask.cdap.data2.dataset2.lib.table.Update;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.AbstractIterator;
@@ -138,11 +139,17 @@ public class InMemoryTable extends BufferingTable {
     byte[] stopRow = scan.getStopRow();
     NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> rowRange =
       InMemoryTableService.getRowRange(getTableName(), startRow, stopRow,
-          tx == null ? null : tx);
+                                       ScanFilters.getReadColumns(scan), ScanFilters.getReadColumnPrefix(scan),
+                                       tx == null ? null : tx);
     NavigableMap<byte[], NavigableMap<byte[], byte[]>> visibleRowRange = getLatestNotExcludedRows(rowRange, tx);
     NavigableMap<byte[], NavigableMap<byte[], byte[]>> rows = unwrapDeletesForRows(visibleRowRange);
 
     rows = applyFilter(rows, scan.getFilter());
+    Filter valueFilter = ScanFilters.getValueFilter(scan);
+    if (valueFilter != null) {
+      // the value filter can only be evaluated on the latest visible values, hence after the versions are resolved
+      rows = applyValueFilter(rows, valueFilter, ScanFilters.hasProjection(scan) ? scan : null);
+    }
 
     return new InMemoryScanner(wrapIterator(rows.entrySet().iterator()));
   }
@@ -151,7 +158,7 @@ public class InMemoryTable extends BufferingTable {
                                                     NavigableMap<byte[], NavigableMap<byte[], byte[]>> map,
                                                     @Nullable Filter filter) {
 
-    if (filter == null) {
+    if (filter == null || ScanFilters.isValueFilter(filter)) {
       return map;
     }
 
@@ -169,6 +176,19 @@ public class InMemoryTable extends BufferingTable {
     }
   }
 
+  private NavigableMap<byte[], NavigableMap<byte[], byte[]>> applyValueFilter(
+                                                    NavigableMap<byte[], NavigableMap<byte[], byte[]>> map,
+                                                    Filter valueFilter, @Nullable Scan projection) {
+    NavigableMap<byte[], NavigableMap<byte[], byte[]>> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<byte[], NavigableMap<byte[], byte[]>> entry : map.entrySet()) {
+      if (ScanFilters.matches(valueFilter, entry.getValue())) {
+        result.put(entry.getKey(),
+                   projection == null ? entry.getValue() : ScanFilters.project(projection, entry.getValue()));
+      }
+    }
+    return result;
+  }
+
   @ReadOnly
   private NavigableMap<byte[], byte[]> getInternal(byte[] row, @Nullable byte[][] columns) throws IOException {
     // no tx logic needed
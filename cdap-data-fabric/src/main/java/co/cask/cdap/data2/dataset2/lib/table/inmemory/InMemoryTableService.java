@@ -249,10 +249,27 @@ public class InMemoryTableService {
     return deepCopy(Updates.rowToBytes(getVisible(rowMap, tx)));
   }
 
+  public static NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>
+                             getRowRange(String tableName,
+                                         byte[] startRow,
+                                         byte[] stopRow,
+                                         @Nullable Transaction tx) {
+    return getRowRange(tableName, startRow, stopRow, null, null, tx);
+  }
+
+  /**
+   * Returns the rows in the given range, only copying the given columns of each row. Rows that have none of the
+   * columns are not returned.
+   *
+   * @param columns if not null, only these columns are returned
+   * @param columnPrefix if not null, only columns starting with this prefix are returned
+   */
   public static synchronized NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>>
                              getRowRange(String tableName,
                                          byte[] startRow,
                                          byte[] stopRow,
+                                         @Nullable byte[][] columns,
+                                         @Nullable byte[] columnPrefix,
                                          @Nullable Transaction tx) {
     // todo: handle nulls
     ConcurrentNavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> tableData = tables.get(tableName);
@@ -270,9 +287,13 @@ public class InMemoryTableService {
     NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Long, byte[]>>> result =
       Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     for (Map.Entry<byte[], NavigableMap<byte[], NavigableMap<Long, Update>>> rowMap : rows.entrySet()) {
-      NavigableMap<byte[], NavigableMap<Long, Update>> columns =
-        tx == null ? rowMap.getValue() : getVisible(rowMap.getValue(), tx);
-      result.put(copy(rowMap.getKey()), deepCopy(Updates.rowToBytes(columns)));
+      NavigableMap<byte[], NavigableMap<Long, Update>> rowColumns = selectColumns(rowMap.getValue(), columns,
+                                                                                  columnPrefix);
+      if (rowColumns.isEmpty() && (columns != null || columnPrefix != null)) {
+        continue;
+      }
+      rowColumns = tx == null ? rowColumns : getVisible(rowColumns, tx);
+      result.put(copy(rowMap.getKey()), deepCopy(Updates.rowToBytes(rowColumns)));
     }
 
     return result;
@@ -282,6 +303,32 @@ public class InMemoryTableService {
     return ImmutableList.copyOf(tables.keySet());
   }
 
+  private static NavigableMap<byte[], NavigableMap<Long, Update>> selectColumns(
+    NavigableMap<byte[], NavigableMap<Long, Update>> rowMap, @Nullable byte[][] columns,
+    @Nullable byte[] columnPrefix) {
+
+    if (columns == null && columnPrefix == null) {
+      return rowMap;
+    }
+    NavigableMap<byte[], NavigableMap<Long, Update>> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    if (columns != null) {
+      for (byte[] column : columns) {
+        NavigableMap<Long, Update> values = rowMap.get(column);
+        if (values != null && (columnPrefix == null || Bytes.startsWith(column, columnPrefix))) {
+          result.put(column, values);
+        }
+      }
+    } else {
+      for (Map.Entry<byte[], NavigableMap<Long, Update>> column : rowMap.tailMap(columnPrefix, true).entrySet()) {
+        if (!Bytes.startsWith(column.getKey(), columnPrefix)) {
+          break;
+        }
+        result.put(column.getKey(), column.getValue());
+      }
+    }
+    return result;
+  }
+
   private static NavigableMap<byte[], NavigableMap<Long, Update>> getVisible(
     NavigableMap<byte[], NavigableMap<Long, Update>> rowMap, final Transaction tx) {
 
@@ -19,7 +19,6 @@ package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 import co.cask.cdap.api.annotation.ReadOnly;
 import co.cask.cdap.api.annotation.WriteOnly;
 import co.cask.cdap.api.common.Bytes;
-import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.api.dataset.table.Row;
@@ -27,7 +26,6 @@ import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.data2.dataset2.lib.table.BufferingTable;
-import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.data2.dataset2.lib.table.IncrementValue;
 import co.cask.cdap.data2.dataset2.lib.table.PutValue;
 import co.cask.cdap.data2.dataset2.lib.table.Update;
@@ -131,17 +129,7 @@ public class LevelDBTable extends BufferingTable {
   @ReadOnly
   @Override
   protected Scanner scanPersisted(Scan scan) throws Exception {
-
-    FuzzyRowFilter filter = null;
-    if (scan.getFilter() != null) {
-      // todo: currently we support only FuzzyRowFilter as an experimental feature
-      if (scan.getFilter() instanceof FuzzyRowFilter) {
-        filter = (FuzzyRowFilter) scan.getFilter();
-      } else {
-        throw new DataSetException("Unknown filter type: " + scan.getFilter());
-      }
-    }
-    final Scanner scanner = core.scan(scan.getStartRow(), scan.getStopRow(), filter, null, tx);
+    final Scanner scanner = core.scan(scan, tx);
     return new Scanner() {
       @Nullable
       @Override
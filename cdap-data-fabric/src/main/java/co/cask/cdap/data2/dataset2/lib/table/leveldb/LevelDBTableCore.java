@@ -17,11 +17,14 @@
 package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.table.Filter;
 import co.cask.cdap.api.dataset.table.Result;
 import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scan;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
+import co.cask.cdap.data2.dataset2.lib.table.ScanFilters;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
@@ -192,6 +195,23 @@ public class LevelDBTableCore {
   public Scanner scan(byte[] startRow, byte[] stopRow,
                       @Nullable FuzzyRowFilter filter, @Nullable byte[][] columns, @Nullable Transaction tx)
     throws IOException {
+    return scan(startRow, stopRow, filter, columns, null, null, tx);
+  }
+
+  /**
+   * Scans the table with the filter and the column projection of the given {@link Scan}. Only the columns needed
+   * by the scan are read, and rows are filtered by column values before being returned.
+   */
+  public Scanner scan(Scan scan, @Nullable Transaction tx) throws IOException {
+    // without a value filter, the columns read are exactly the projected columns
+    return scan(scan.getStartRow(), scan.getStopRow(), ScanFilters.getFuzzyRowFilter(scan),
+                ScanFilters.getReadColumns(scan), ScanFilters.getReadColumnPrefix(scan),
+                ScanFilters.getValueFilter(scan) == null ? null : scan, tx);
+  }
+
+  private Scanner scan(byte[] startRow, byte[] stopRow, @Nullable FuzzyRowFilter filter,
+                       @Nullable byte[][] columns, @Nullable byte[] columnPrefix,
+                       @Nullable Scan valueFilterScan, @Nullable Transaction tx) throws IOException {
     if (columns != null) {
       if (columns.length == 0) {
         return EMPTY_SCANNER;
@@ -203,7 +223,7 @@ public class LevelDBTableCore {
     DBIterator iterator = getDB().iterator();
     seekToStart(iterator, startRow);
     byte[] endKey = stopRow == null ? null : createEndKey(stopRow);
-    return new LevelDBScanner(iterator, endKey, filter, columns, tx);
+    return new LevelDBScanner(iterator, endKey, filter, columns, columnPrefix, valueFilterScan, tx);
   }
 
   /**
@@ -225,7 +245,7 @@ public class LevelDBTableCore {
     byte[] endKey = createEndKey(row, columns == null ? stopCol : upperBound(columns[columns.length - 1]));
     try (DBIterator iterator = getDB().iterator()) {
       iterator.seek(startKey);
-      return getRow(iterator, endKey, tx, false, columns, limit).getSecond();
+      return getRow(iterator, endKey, tx, false, columns, null, limit).getSecond();
     }
   }
 
@@ -254,13 +274,14 @@ public class LevelDBTableCore {
    *                 this method will stop reading as soon as it sees more than one row key. The iterator will not be
    *                 advanced past the beginning of the next row (so that next time, we still see the entire next row).
    * @param columns If non-null, only columns contained in this will be returned. The given columns should be sorted.
+   * @param columnPrefix If non-null, only columns starting with this prefix will be returned.
    * @param limit If non-negative, at most this many columns will be returned. If multiRow is true, this is ignored.
    * @return a pair consisting of the row key of the next non-empty row and the column map for that row. If multiRow
    *         is false, null is returned for row key because the caller already knows it.
    */
   private static ImmutablePair<byte[], NavigableMap<byte[], byte[]>>
-  getRow(DBIterator iterator, byte[] endKey, Transaction tx, boolean multiRow, byte[][] columns, int limit)
-    throws IOException {
+  getRow(DBIterator iterator, byte[] endKey, Transaction tx, boolean multiRow, byte[][] columns,
+         @Nullable byte[] columnPrefix, int limit) throws IOException {
 
     byte[] rowBeingRead = null;
     byte[] previousRow = null;
@@ -307,7 +328,8 @@ public class LevelDBTableCore {
       previousCol = column;
 
       // is it a column we want?
-      if (columns == null || Arrays.binarySearch(columns, column, Bytes.BYTES_COMPARATOR) >= 0) {
+      if ((columns == null || Arrays.binarySearch(columns, column, Bytes.BYTES_COMPARATOR) >= 0)
+        && (columnPrefix == null || Bytes.startsWith(column, columnPrefix))) {
         byte[] value = entry.getValue();
         // only add to map if it is not a delete
         if (tx == null || !Bytes.equals(value, DELETE_MARKER)) {
@@ -489,22 +511,32 @@ public class LevelDBTableCore {
     private byte[] endKey;
     private final DBIterator iterator;
     private final byte[][] columns;
+    private final byte[] columnPrefix;
     private final FuzzyRowFilter filter;
+    private final Scan valueFilterScan;
 
+    /**
+     * @param valueFilterScan if not null, rows are filtered by the value filter of this scan, and then projected to
+     *                        the columns of this scan
+     */
     LevelDBScanner(DBIterator iterator, byte[] endKey,
-                   @Nullable FuzzyRowFilter filter, @Nullable byte[][] columns, @Nullable Transaction tx) {
+                   @Nullable FuzzyRowFilter filter, @Nullable byte[][] columns, @Nullable byte[] columnPrefix,
+                   @Nullable Scan valueFilterScan, @Nullable Transaction tx) {
       this.tx = tx;
       this.endKey = endKey;
       this.iterator = iterator;
       this.filter = filter;
       this.columns = columns;
+      this.columnPrefix = columnPrefix;
+      this.valueFilterScan = valueFilterScan;
     }
 
     @Override
     public Row next() {
       try {
         while (true) {
-          ImmutablePair<byte[], NavigableMap<byte[], byte[]>> result = getRow(iterator, endKey, tx, true, columns, -1);
+          ImmutablePair<byte[], NavigableMap<byte[], byte[]>> result =
+            getRow(iterator, endKey, tx, true, columns, columnPrefix, -1);
           if (result.getFirst() == null) {
             return null;
           }
@@ -526,6 +558,19 @@ public class LevelDBTableCore {
               }
             }
           }
+          if (valueFilterScan != null) {
+            Filter valueFilter = valueFilterScan.getFilter();
+            if (!ScanFilters.matches(valueFilter, result.getSecond())) {
+              continue;
+            }
+            if (ScanFilters.hasProjection(valueFilterScan)) {
+              NavigableMap<byte[], byte[]> projected = ScanFilters.project(valueFilterScan, result.getSecond());
+              if (projected.isEmpty()) {
+                continue;
+              }
+              return new Result(result.getFirst(), projected);
+            }
+          }
           return new Result(result.getFirst(), result.getSecond());
         }
       } catch (Exception e) {
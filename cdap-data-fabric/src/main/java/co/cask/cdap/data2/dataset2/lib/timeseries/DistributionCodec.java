@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.timeseries;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.cube.MeasureType;
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Helper for serde of {@link MeasureType#DISTRIBUTION} measurements.
+ * <p/>
+ * All buckets of a distribution at a timestamp are stored in a single cell as a marker byte followed by a two bytes
+ * bucket index and an eight bytes count for every non-empty bucket. The length of such a cell is never
+ * {@link Bytes#SIZEOF_LONG}, which tells it apart from counter and gauge cells.
+ */
+public final class DistributionCodec {
+
+  private static final byte MARKER = 'D';
+  private static final int ENTRY_SIZE = Bytes.SIZEOF_SHORT + Bytes.SIZEOF_LONG;
+  private static final int COUNT_BITS = 48;
+  private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+  private static final int MAX_BUCKET = 0xffff;
+
+  private DistributionCodec() {
+  }
+
+  /**
+   * Packs a bucket index and a count into the value of a {@link MeasureType#DISTRIBUTION} measurement.
+   */
+  public static long pack(int bucket, long count) {
+    Preconditions.checkArgument(bucket >= 0 && bucket <= MAX_BUCKET, "Bucket index out of range: %s", bucket);
+    Preconditions.checkArgument(count >= 0 && count <= COUNT_MASK, "Bucket count out of range: %s", count);
+    return ((long) bucket << COUNT_BITS) | count;
+  }
+
+  /**
+   * Returns the bucket index of a packed value.
+   */
+  public static int getBucket(long packed) {
+    return (int) (packed >>> COUNT_BITS);
+  }
+
+  /**
+   * Returns the count of a packed value.
+   */
+  public static long getCount(long packed) {
+    return packed & COUNT_MASK;
+  }
+
+  /**
+   * Returns whether the given cell value holds a distribution.
+   */
+  public static boolean isDistribution(@Nullable byte[] value) {
+    return value != null && value.length != Bytes.SIZEOF_LONG
+      && value.length % ENTRY_SIZE == 1 && value[0] == MARKER;
+  }
+
+  /**
+   * Adds the given count to a bucket of the given bucket counts.
+   */
+  public static void add(NavigableMap<Integer, Long> buckets, int bucket, long count) {
+    Long existing = buckets.get(bucket);
+    buckets.put(bucket, existing == null ? count : existing + count);
+  }
+
+  /**
+   * Encodes bucket counts into a cell value.
+   */
+  public static byte[] encode(NavigableMap<Integer, Long> buckets) {
+    ByteBuffer buffer = ByteBuffer.allocate(1 + buckets.size() * ENTRY_SIZE);
+    buffer.put(MARKER);
+    for (Map.Entry<Integer, Long> entry : buckets.entrySet()) {
+      buffer.putShort((short) entry.getKey().intValue());
+      buffer.putLong(entry.getValue());
+    }
+    return buffer.array();
+  }
+
+  /**
+   * Decodes bucket counts from a cell value and adds them to the given bucket counts.
+   *
+   * @return the given bucket counts
+   */
+  public static NavigableMap<Integer, Long> decode(byte[] value, NavigableMap<Integer, Long> buckets) {
+    Preconditions.checkArgument(isDistribution(value), "Not a distribution value");
+    ByteBuffer buffer = ByteBuffer.wrap(value, 1, value.length - 1);
+    while (buffer.hasRemaining()) {
+      int bucket = buffer.getShort() & MAX_BUCKET;
+      add(buckets, bucket, buffer.getLong());
+    }
+    return buckets;
+  }
+
+  /**
+   * Decodes bucket counts from a cell value.
+   */
+  public static NavigableMap<Integer, Long> decode(byte[] value) {
+    return decode(value, new TreeMap<Integer, Long>());
+  }
+}
@@ -51,16 +51,21 @@ public final class FactScanner implements Iterator<FactScanResult> {
   // set of measureNames - useful to process measures that are requested while scanning.
   private final Set<String> measureNames;
 
+  // whether to read distribution cells instead of counter and gauge cells
+  private final boolean distributions;
+
   /**
    * Construct a FactScanner. Should only be called by FactTable.
    */
-  FactScanner(Scanner scanner, FactCodec codec, long startTs, long endTs, Collection<String> measureNames) {
+  FactScanner(Scanner scanner, FactCodec codec, long startTs, long endTs, Collection<String> measureNames,
+              boolean distributions) {
     this.scanner = scanner;
     this.codec = codec;
     this.internalIterator = createIterator();
     this.startTs = startTs;
     this.endTs = endTs;
     this.measureNames = ImmutableSet.copyOf(measureNames);
+    this.distributions = distributions;
   }
 
   public void close() {
@@ -120,6 +125,18 @@ public final class FactScanner implements Iterator<FactScanResult> {
               break;
             }
 
+            if (DistributionCodec.isDistribution(columnValue.getValue()) != distributions) {
+              continue;
+            }
+
+            if (distributions) {
+              // one value per bucket, with the bucket index and count packed as in a distribution measurement
+              for (Map.Entry<Integer, Long> bucket : DistributionCodec.decode(columnValue.getValue()).entrySet()) {
+                timeValues.add(new TimeValue(ts, DistributionCodec.pack(bucket.getKey(), bucket.getValue())));
+              }
+              continue;
+            }
+
             // todo: move Bytes.toLong into codec?
             TimeValue timeValue = new TimeValue(ts, Bytes.toLong(columnValue.getValue()));
             timeValues.add(timeValue);
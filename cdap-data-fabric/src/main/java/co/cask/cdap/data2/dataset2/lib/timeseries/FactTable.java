@@ -85,6 +85,7 @@ public final class FactTable implements Closeable {
 
   private final String putCountMetric;
   private final String incrementCountMetric;
+  private final String distributionCountMetric;
 
   @Nullable
   private MetricsCollector metrics;
@@ -112,6 +113,7 @@ public final class FactTable implements Closeable {
     this.rollTime = rollTime;
     this.putCountMetric = "factTable." + resolution + ".put.count";
     this.incrementCountMetric = "factTable." + resolution + ".increment.count";
+    this.distributionCountMetric = "factTable." + resolution + ".distribution.count";
   }
 
   public void setMetricsCollector(MetricsCollector metrics) {
@@ -122,6 +124,8 @@ public final class FactTable implements Closeable {
     // Simply collecting all rows/cols/values that need to be put to the underlying table.
     NavigableMap<byte[], NavigableMap<byte[], byte[]>> gaugesTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     NavigableMap<byte[], NavigableMap<byte[], byte[]>> incrementsTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Integer, Long>>> distributionsTable =
+      Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     for (Fact fact : facts) {
       for (Measurement measurement : fact.getMeasurements()) {
         byte[] rowKey = codec.createRowKey(fact.getDimensionValues(), measurement.getName(), fact.getTimestamp());
@@ -129,6 +133,8 @@ public final class FactTable implements Closeable {
 
         if (MeasureType.COUNTER == measurement.getType()) {
           inc(incrementsTable, rowKey, column, measurement.getValue());
+        } else if (MeasureType.DISTRIBUTION == measurement.getType()) {
+          addToDistribution(distributionsTable, rowKey, column, measurement.getValue());
         } else {
           set(gaugesTable, rowKey, column, Bytes.toBytes(measurement.getValue()));
         }
@@ -144,9 +150,37 @@ public final class FactTable implements Closeable {
     // todo: replace with single call, to be able to optimize rpcs in underlying table
     timeSeriesTable.put(convertedGaugesTable);
     timeSeriesTable.increment(convertedIncrementsTable);
+    mergeDistributions(distributionsTable);
     if (metrics != null) {
       metrics.increment(putCountMetric, convertedGaugesTable.size());
       metrics.increment(incrementCountMetric, convertedIncrementsTable.size());
+      metrics.increment(distributionCountMetric, distributionsTable.size());
+    }
+  }
+
+  /**
+   * Merges the given bucket counts into the distribution cells of the table. Distributions can't be incremented
+   * readlessly, so every cell is read, merged and written back with a compare and swap, which is retried if another
+   * writer updated the cell in between.
+   */
+  private void mergeDistributions(NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Integer, Long>>> updates) {
+    for (Map.Entry<byte[], NavigableMap<byte[], NavigableMap<Integer, Long>>> row : updates.entrySet()) {
+      for (Map.Entry<byte[], NavigableMap<Integer, Long>> cell : row.getValue().entrySet()) {
+        byte[] oldValue;
+        byte[] newValue;
+        do {
+          oldValue = timeSeriesTable.get(row.getKey(), cell.getKey());
+          NavigableMap<Integer, Long> buckets = Maps.newTreeMap(cell.getValue());
+          if (DistributionCodec.isDistribution(oldValue)) {
+            DistributionCodec.decode(oldValue, buckets);
+          } else if (oldValue != null) {
+            // should NEVER happen, unless the same measure name is used for a distribution and a counter or gauge
+            LOG.warn("Overwriting non distribution value of measure @row {} @column {}",
+                     Bytes.toStringBinary(row.getKey()), Bytes.toStringBinary(cell.getKey()));
+          }
+          newValue = DistributionCodec.encode(buckets);
+        } while (!timeSeriesTable.swap(row.getKey(), cell.getKey(), oldValue, newValue));
+      }
     }
   }
 
@@ -164,7 +198,16 @@ public final class FactTable implements Closeable {
   }
 
   public FactScanner scan(FactScan scan) {
-    return new FactScanner(getScanner(scan), codec, scan.getStartTs(), scan.getEndTs(), scan.getMeasureNames());
+    return new FactScanner(getScanner(scan), codec, scan.getStartTs(), scan.getEndTs(), scan.getMeasureNames(), false);
+  }
+
+  /**
+   * Scans the {@link MeasureType#DISTRIBUTION} measures. Every bucket of a distribution is returned as a separate
+   * {@link co.cask.cdap.api.dataset.lib.cube.TimeValue} with the bucket index and count packed into the value,
+   * see {@link DistributionCodec}.
+   */
+  public FactScanner scanDistributions(FactScan scan) {
+    return new FactScanner(getScanner(scan), codec, scan.getStartTs(), scan.getEndTs(), scan.getMeasureNames(), true);
   }
 
   private List<String> getSortedMeasures(Collection<String> measures) {
@@ -471,6 +514,21 @@ public final class FactTable implements Closeable {
     set(incrementsTable, rowKey, column, Bytes.toBytes(newValue));
   }
 
+  private static void addToDistribution(NavigableMap<byte[], NavigableMap<byte[], NavigableMap<Integer, Long>>> table,
+                                        byte[] rowKey, byte[] column, long packed) {
+    NavigableMap<byte[], NavigableMap<Integer, Long>> rowMap = table.get(rowKey);
+    if (rowMap == null) {
+      rowMap = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      table.put(rowKey, rowMap);
+    }
+    NavigableMap<Integer, Long> buckets = rowMap.get(column);
+    if (buckets == null) {
+      buckets = Maps.newTreeMap();
+      rowMap.put(column, buckets);
+    }
+    DistributionCodec.add(buckets, DistributionCodec.getBucket(packed), DistributionCodec.getCount(packed));
+  }
+
   private static byte[] get(NavigableMap<byte[], NavigableMap<byte[], byte[]>> table, byte[] row, byte[] column) {
     NavigableMap<byte[], byte[]> rowMap = table.get(row);
     return rowMap == null ? null : rowMap.get(column);
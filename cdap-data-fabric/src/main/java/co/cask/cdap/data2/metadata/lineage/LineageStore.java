@@ -36,6 +36,7 @@ import org.apache.tephra.TransactionExecutor;
 import org.apache.tephra.TransactionExecutorFactory;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -132,6 +133,33 @@ public class LineageStore implements LineageStoreReader, LineageStoreWriter {
     });
   }
 
+  /**
+   * Add a collection of program-dataset and program-stream accesses in one transaction.
+   *
+   * @param accesses the accesses to add
+   */
+  @Override
+  public void addAccesses(final Collection<DataAccess> accesses) {
+    if (accesses.isEmpty()) {
+      return;
+    }
+    execute(new TransactionExecutor.Procedure<LineageDataset>() {
+      @Override
+      public void apply(LineageDataset input) throws Exception {
+        for (DataAccess access : accesses) {
+          NamespacedEntityId data = access.getData();
+          if (data instanceof DatasetId) {
+            input.addAccess(access.getRun(), (DatasetId) data, access.getAccessType(),
+                            access.getAccessTimeMillis(), access.getComponent());
+          } else {
+            input.addAccess(access.getRun(), (StreamId) data, access.getAccessType(),
+                            access.getAccessTimeMillis(), access.getComponent());
+          }
+        }
+      }
+    });
+  }
+
   /**
    * @return a set of entities (program and data it accesses) associated with a program run.
    */
@@ -21,6 +21,7 @@ import co.cask.cdap.proto.id.NamespacedEntityId;
 import co.cask.cdap.proto.id.ProgramRunId;
 import co.cask.cdap.proto.id.StreamId;
 
+import java.util.Collection;
 import javax.annotation.Nullable;
 
 /**
@@ -74,4 +75,11 @@ public interface LineageStoreWriter {
   void addAccess(ProgramRunId run, StreamId stream,
                  AccessType accessType, long accessTimeMillis,
                  @Nullable NamespacedEntityId component);
+
+  /**
+   * Add a collection of program-dataset and program-stream accesses.
+   *
+   * @param accesses the accesses to add
+   */
+  void addAccesses(Collection<DataAccess> accesses);
 }
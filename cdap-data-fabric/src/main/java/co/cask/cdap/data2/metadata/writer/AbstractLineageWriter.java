@@ -0,0 +1,294 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.metadata.writer;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.data2.metadata.lineage.DataAccess;
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.NamespacedEntityId;
+import co.cask.cdap.proto.id.ProgramRunId;
+import co.cask.cdap.proto.id.StreamId;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A {@link LineageWriter} that only records the first access of the same run, data, access type and component,
+ * and writes the accesses in batches.
+ * <p/>
+ * Recorded accesses are remembered in a cache bounded by size and expiration time. Accesses are buffered and
+ * written by a background thread once per flush interval. Callers should {@link #flush()} the writer when a program
+ * completes, so that no buffered access is lost. Accesses that fail to be written are retried, and are dropped after
+ * the maximum number of flush attempts, so that the buffer does not grow without bound while writes keep failing.
+ */
+@ThreadSafe
+public abstract class AbstractLineageWriter implements LineageWriter, Flushable, Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AbstractLineageWriter.class);
+
+  private final ConcurrentMap<DataAccessKey, Boolean> registered;
+  private final long flushIntervalMillis;
+  private final int maxFlushAttempts;
+  private final Runnable flushTask;
+  // Guards writes to make sure accesses are written in order
+  private final Object writeLock;
+
+  private List<DataAccess> buffer;
+  private boolean flushScheduled;
+  private ScheduledExecutorService executor;
+  private boolean closed;
+  // Number of consecutive failed flushes, guarded by the writeLock
+  private int failedFlushes;
+
+  protected AbstractLineageWriter(CConfiguration cConf) {
+    this(cConf.getLong(Constants.Metadata.LINEAGE_WRITER_FLUSH_INTERVAL_MS),
+         cConf.getInt(Constants.Metadata.LINEAGE_WRITER_FLUSH_MAX_ATTEMPTS),
+         cConf.getInt(Constants.Metadata.LINEAGE_WRITER_CACHE_SIZE),
+         cConf.getLong(Constants.Metadata.LINEAGE_WRITER_CACHE_EXPIRATION_SECONDS));
+  }
+
+  @VisibleForTesting
+  AbstractLineageWriter(long flushIntervalMillis, int maxFlushAttempts, int cacheSize, long cacheExpirationSeconds) {
+    this.registered = CacheBuilder.newBuilder()
+      .maximumSize(cacheSize)
+      .expireAfterAccess(cacheExpirationSeconds, TimeUnit.SECONDS)
+      .<DataAccessKey, Boolean>build()
+      .asMap();
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.maxFlushAttempts = Math.max(1, maxFlushAttempts);
+    this.writeLock = new Object();
+    this.buffer = new ArrayList<>();
+    this.flushTask = new Runnable() {
+      @Override
+      public void run() {
+        try {
+          flush();
+        } catch (IOException e) {
+          LOG.warn("Failed to write lineage accesses.", e);
+        }
+      }
+    };
+  }
+
+  /**
+   * Writes the given accesses.
+   *
+   * @param accesses the accesses to write
+   * @throws Exception if failed to write
+   */
+  protected abstract void write(List<DataAccess> accesses) throws Exception;
+
+  @Override
+  public void addAccess(ProgramRunId run, DatasetId datasetInstance, AccessType accessType) {
+    addAccess(run, datasetInstance, accessType, null);
+  }
+
+  @Override
+  public void addAccess(ProgramRunId run, DatasetId datasetInstance, AccessType accessType,
+                        @Nullable NamespacedEntityId component) {
+    if (alreadyRegistered(run, datasetInstance, accessType, component)) {
+      return;
+    }
+
+    long accessTime = System.currentTimeMillis();
+    LOG.debug("Writing access for run {}, dataset {}, accessType {}, component {}, accessTime = {}",
+              run, datasetInstance, accessType, component, accessTime);
+    addAccess(new DataAccess(run, datasetInstance, accessType, accessTime, component));
+  }
+
+  @Override
+  public void addAccess(ProgramRunId run, StreamId stream, AccessType accessType) {
+    addAccess(run, stream, accessType, null);
+  }
+
+  @Override
+  public void addAccess(ProgramRunId run, StreamId stream, AccessType accessType,
+                        @Nullable NamespacedEntityId component) {
+    if (alreadyRegistered(run, stream, accessType, component)) {
+      return;
+    }
+
+    long accessTime = System.currentTimeMillis();
+    LOG.debug("Writing access for run {}, stream {}, accessType {}, component {}, accessTime = {}",
+              run, stream, accessType, component, accessTime);
+    addAccess(new DataAccess(run, stream, accessType, accessTime, component));
+  }
+
+  /**
+   * Writes all buffered accesses.
+   *
+   * @throws IOException if failed to write the accesses. The accesses stay in the buffer and will be retried,
+   *                     unless the maximum number of flush attempts is reached, in which case they are dropped.
+   */
+  @Override
+  public void flush() throws IOException {
+    synchronized (writeLock) {
+      List<DataAccess> accesses;
+      synchronized (this) {
+        accesses = buffer;
+        buffer = new ArrayList<>();
+        flushScheduled = false;
+      }
+      if (accesses.isEmpty()) {
+        return;
+      }
+      try {
+        write(accesses);
+        failedFlushes = 0;
+      } catch (Exception e) {
+        if (++failedFlushes >= maxFlushAttempts) {
+          LOG.warn("Dropping {} lineage accesses after {} failed attempts to write them",
+                   accesses.size(), failedFlushes, e);
+          failedFlushes = 0;
+          // Forget the dropped accesses, so that they are recorded if they happen again
+          for (DataAccess access : accesses) {
+            registered.remove(new DataAccessKey(access.getRun(), access.getData(),
+                                                access.getAccessType(), access.getComponent()));
+          }
+        } else {
+          // Put the accesses back to the front of the buffer for retry
+          synchronized (this) {
+            accesses.addAll(buffer);
+            buffer = accesses;
+            if (!closed && !flushScheduled) {
+              scheduleFlush();
+            }
+          }
+        }
+        throw new IOException("Failed to write " + accesses.size() + " lineage accesses", e);
+      }
+    }
+  }
+
+  /**
+   * Writes all buffered accesses and stops the background flush. Accesses added afterward are written immediately.
+   */
+  @Override
+  public void close() throws IOException {
+    ScheduledExecutorService executor;
+    synchronized (this) {
+      closed = true;
+      executor = this.executor;
+      this.executor = null;
+    }
+    if (executor != null) {
+      executor.shutdown();
+    }
+    flush();
+  }
+
+  private void addAccess(DataAccess access) {
+    boolean writeNow;
+    synchronized (this) {
+      writeNow = closed || flushIntervalMillis <= 0;
+      if (!writeNow) {
+        buffer.add(access);
+        if (!flushScheduled) {
+          scheduleFlush();
+        }
+      }
+    }
+
+    if (writeNow) {
+      try {
+        synchronized (writeLock) {
+          write(Collections.singletonList(access));
+        }
+      } catch (Exception e) {
+        throw new RuntimeException("Failed to write lineage access " + access, e);
+      }
+    }
+  }
+
+  /**
+   * Schedules a flush of the buffer after the flush interval. Must be called while holding the lock of this writer.
+   */
+  private void scheduleFlush() {
+    if (executor == null) {
+      executor = Executors.newSingleThreadScheduledExecutor(Threads.createDaemonThreadFactory("lineage-writer"));
+    }
+    try {
+      executor.schedule(flushTask, flushIntervalMillis, TimeUnit.MILLISECONDS);
+      flushScheduled = true;
+    } catch (RejectedExecutionException e) {
+      // Only happens when the writer is closing, which flushes the buffer
+      LOG.trace("Lineage writer flush not scheduled since the writer is closing", e);
+    }
+  }
+
+  private boolean alreadyRegistered(ProgramRunId run, NamespacedEntityId data, AccessType accessType,
+                                    @Nullable NamespacedEntityId component) {
+    return registered.putIfAbsent(new DataAccessKey(run, data, accessType, component), true) != null;
+  }
+
+  /**
+   * Key used to keep track of whether a particular access has been recorded already or not (for lineage).
+   */
+  private static final class DataAccessKey {
+    private final ProgramRunId run;
+    private final NamespacedEntityId data;
+    private final AccessType accessType;
+    private final NamespacedEntityId component;
+
+    DataAccessKey(ProgramRunId run, NamespacedEntityId data, AccessType accessType,
+                  @Nullable NamespacedEntityId component) {
+      this.run = run;
+      this.data = data;
+      this.accessType = accessType;
+      this.component = component;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof DataAccessKey)) {
+        return false;
+      }
+      DataAccessKey dataAccessKey = (DataAccessKey) o;
+      return Objects.equals(run, dataAccessKey.run) &&
+        Objects.equals(data, dataAccessKey.data) &&
+        Objects.equals(accessType, dataAccessKey.accessType) &&
+        Objects.equals(component, dataAccessKey.component);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(run, data, accessType, component);
+    }
+  }
+}
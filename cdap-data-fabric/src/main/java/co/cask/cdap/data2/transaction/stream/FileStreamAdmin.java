@@ -28,6 +28,8 @@ import co.cask.cdap.common.namespace.NamespacedLocationFactory;
 import co.cask.cdap.common.utils.OSDetector;
 import co.cask.cdap.data.stream.CoordinatorStreamProperties;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
+import co.cask.cdap.data.stream.StreamDurability;
+import co.cask.cdap.data.stream.StreamFileCompression;
 import co.cask.cdap.data.stream.StreamFileOffset;
 import co.cask.cdap.data.stream.StreamUtils;
 import co.cask.cdap.data.stream.service.StreamMetaStore;
@@ -320,7 +322,8 @@ public class FileStreamAdmin implements StreamAdmin {
           }
 
           return new StreamConfig(streamId, config.getPartitionDuration(), config.getIndexInterval(),
-                                  config.getTTL(), getStreamLocation(streamId), config.getFormat(), threshold);
+                                  config.getTTL(), getStreamLocation(streamId), config.getFormat(), threshold,
+                                  config.getCompression(), config.getDurability());
         }
       });
     } catch (Exception ex) {
@@ -606,6 +609,10 @@ public class FileStreamAdmin implements StreamAdmin {
             Constants.Stream.TTL, cConf.get(Constants.Stream.TTL)));
           int threshold = Integer.parseInt(properties.getProperty(
             Constants.Stream.NOTIFICATION_THRESHOLD, cConf.get(Constants.Stream.NOTIFICATION_THRESHOLD)));
+          StreamFileCompression compression = StreamFileCompression.fromName(properties.getProperty(
+            Constants.Stream.COMPRESSION, cConf.get(Constants.Stream.COMPRESSION)));
+          StreamDurability durability = StreamDurability.fromName(properties.getProperty(
+            Constants.Stream.DURABILITY, cConf.get(Constants.Stream.DURABILITY)), StreamDurability.SYNC);
           String description = properties.getProperty(Constants.Stream.DESCRIPTION);
           FormatSpecification formatSpec = null;
           if (properties.containsKey(Constants.Stream.FORMAT_SPECIFICATION)) {
@@ -614,7 +621,8 @@ public class FileStreamAdmin implements StreamAdmin {
           }
 
           final StreamConfig config = new StreamConfig(streamId, partitionDuration, indexInterval,
-                                                       ttl, streamLocation, formatSpec, threshold);
+                                                       ttl, streamLocation, formatSpec, threshold, compression,
+                                                       durability);
           impersonator.doAs(streamId, new Callable<Void>() {
             @Override
             public Void call() throws Exception {
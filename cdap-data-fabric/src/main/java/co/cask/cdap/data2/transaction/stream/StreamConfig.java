@@ -18,11 +18,14 @@ package co.cask.cdap.data2.transaction.stream;
 import co.cask.cdap.api.data.format.FormatSpecification;
 import co.cask.cdap.api.data.format.Formats;
 import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.data.stream.StreamDurability;
+import co.cask.cdap.data.stream.StreamFileCompression;
 import co.cask.cdap.proto.id.StreamId;
 import com.google.common.base.Objects;
 import org.apache.twill.filesystem.Location;
 
 import java.util.Collections;
+import javax.annotation.Nullable;
 
 /**
  * Represents the configuration of a stream. This class needs to be GSON serializable.
@@ -41,11 +44,21 @@ public final class StreamConfig {
   private final long ttl;
   private final FormatSpecification format;
   private final int notificationThresholdMB;
+  // Null for streams created before compression was supported
+  private final StreamFileCompression compression;
+  // Null for streams created before durability mode was supported
+  private final StreamDurability durability;
 
   private final transient Location location;
 
   public StreamConfig(StreamId streamId, long partitionDuration, long indexInterval, long ttl,
                       Location location, FormatSpecification format, int notificationThresholdMB) {
+    this(streamId, partitionDuration, indexInterval, ttl, location, format, notificationThresholdMB, null, null);
+  }
+
+  public StreamConfig(StreamId streamId, long partitionDuration, long indexInterval, long ttl,
+                      Location location, FormatSpecification format, int notificationThresholdMB,
+                      @Nullable StreamFileCompression compression, @Nullable StreamDurability durability) {
     this.streamId = streamId;
     this.partitionDuration = partitionDuration;
     this.indexInterval = indexInterval;
@@ -53,6 +66,8 @@ public final class StreamConfig {
     this.location = location;
     this.notificationThresholdMB = notificationThresholdMB;
     this.format = format;
+    this.compression = compression;
+    this.durability = durability;
   }
 
   /**
@@ -104,6 +119,21 @@ public final class StreamConfig {
     return notificationThresholdMB;
   }
 
+  /**
+   * @return The compression for the data blocks written to the stream files.
+   */
+  public StreamFileCompression getCompression() {
+    return Objects.firstNonNull(compression, StreamFileCompression.NONE);
+  }
+
+  /**
+   * @return The durability mode for writing to the stream or {@code null} if the system default should be used.
+   */
+  @Nullable
+  public StreamDurability getDurability() {
+    return durability;
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
@@ -114,6 +144,8 @@ public final class StreamConfig {
       .add("location", location)
       .add("format", format)
       .add("notificationThresholdMB", notificationThresholdMB)
+      .add("compression", compression)
+      .add("durability", durability)
       .toString();
   }
 
@@ -152,7 +184,8 @@ public final class StreamConfig {
                               Objects.firstNonNull(ttl, config.getTTL()),
                               config.getLocation(),
                               Objects.firstNonNull(formatSpec, config.getFormat()),
-                              Objects.firstNonNull(notificationThreshold, config.getNotificationThresholdMB()));
+                              Objects.firstNonNull(notificationThreshold, config.getNotificationThresholdMB()),
+                              config.getCompression(), config.getDurability());
     }
   }
 }
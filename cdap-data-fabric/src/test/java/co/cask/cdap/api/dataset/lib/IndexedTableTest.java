@@ -33,6 +33,9 @@ import org.junit.BeforeClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -828,6 +831,131 @@ public class IndexedTableTest {
       dsFrameworkUtil.deleteInstance(incrTabInstance);
     }
   }
+
+  @Test
+  public void testBatchedIndexRead() throws Exception {
+    final int numRows = 250;
+    final byte[] batchIdx = Bytes.toBytes("batch");
+    TransactionExecutor txnl = dsFrameworkUtil.newTransactionExecutor(table);
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        // more rows than a single multi-get batch
+        for (int i = 0; i < numRows; i++) {
+          table.put(new Put(Bytes.toBytes("batch" + i)).add(idxCol, batchIdx).add(valCol, Bytes.toBytes(i)));
+        }
+      }
+    });
+
+    txnl.execute(new TransactionExecutor.Subroutine() {
+      @Override
+      public void apply() throws Exception {
+        Set<Integer> values = new HashSet<>();
+        try (Scanner scanner = table.readByIndex(idxCol, batchIdx, new byte[][] { valCol })) {
+          for (Row row = scanner.next(); row != null; row = scanner.next()) {
+            // only the requested column is read
+            Assert.assertNull(row.get(idxCol));
+            values.add(row.getInt(valCol));
+          }
+        }
+        Assert.assertEquals(numRows, values.size());
+
+        for (int i = 0; i < numRows; i++) {
+          table.delete(Bytes.toBytes("batch" + i));
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testCoveredColumns() throws Exception {
+    DatasetId coveredTabInstance = DatasetFrameworkTestUtil.NAMESPACE_ID.dataset("coveredtab");
+    dsFrameworkUtil.createInstance("indexedTable", coveredTabInstance, DatasetProperties.builder()
+      .add(IndexedTable.INDEX_COLUMNS_CONF_KEY, idxColString)
+      .add(IndexedTable.INDEX_COVERED_COLUMNS_CONF_KEY, Bytes.toString(valCol))
+      .build());
+    final byte[] otherCol = Bytes.toBytes("other");
+    final byte[][] coveredCols = { valCol };
+    final IndexedTable cTable = dsFrameworkUtil.getInstance(coveredTabInstance);
+
+    try {
+      TransactionExecutor tx = dsFrameworkUtil.newTransactionExecutor(cTable);
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          cTable.put(new Put(keyA).add(idxCol, idx1).add(valCol, valA).add(otherCol, valE));
+          cTable.put(new Put(keyB).add(idxCol, idx1));
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          try (Scanner scanner = cTable.readByIndex(idxCol, idx1, coveredCols)) {
+            TableAssert.assertColumns(scanner.next(), coveredCols, new byte[][] { valA });
+            Row row = scanner.next();
+            assertArrayEquals(keyB, row.getRow());
+            Assert.assertTrue(row.isEmpty());
+            assertEmpty(scanner);
+          }
+
+          // update the covered column only, the index entry must reflect it
+          cTable.put(keyA, valCol, valAA);
+          cTable.put(keyB, valCol, valB);
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          try (Scanner scanner = cTable.readByIndex(idxCol, idx1, coveredCols)) {
+            TableAssert.assertColumns(scanner.next(), coveredCols, new byte[][] { valAA });
+            TableAssert.assertColumns(scanner.next(), coveredCols, new byte[][] { valB });
+            assertEmpty(scanner);
+          }
+
+          // change the indexed value, and remove the covered value
+          cTable.put(keyA, idxCol, idx2);
+          cTable.delete(keyB, valCol);
+          Assert.assertTrue(cTable.compareAndSwap(keyA, valCol, valAA, valC));
+        }
+      });
+
+      tx.execute(new TransactionExecutor.Subroutine() {
+        @Override
+        public void apply() throws Exception {
+          try (Scanner scanner = cTable.readByIndex(idxCol, idx1, coveredCols)) {
+            Row row = scanner.next();
+            assertArrayEquals(keyB, row.getRow());
+            Assert.assertTrue(row.isEmpty());
+            assertEmpty(scanner);
+          }
+          try (Scanner scanner = cTable.readByIndex(idxCol, idx2, coveredCols)) {
+            TableAssert.assertColumns(scanner.next(), coveredCols, new byte[][] { valC });
+            assertEmpty(scanner);
+          }
+          // columns that are not covered are read from the data table
+          try (Scanner scanner = cTable.readByIndex(idxCol, idx2, new byte[][] { valCol, otherCol })) {
+            TableAssert.assertColumns(scanner.next(), new byte[][] { valCol, otherCol }, new byte[][] { valC, valE });
+            assertEmpty(scanner);
+          }
+
+          try {
+            cTable.increment(keyA, valCol, 1L);
+            fail("Expected IllegalArgumentException performing increment on covered column");
+          } catch (IllegalArgumentException iae) {
+            // expected
+          }
+
+          cTable.delete(keyA);
+          assertEmpty(cTable.readByIndex(idxCol, idx2, coveredCols));
+        }
+      });
+    } finally {
+      dsFrameworkUtil.deleteInstance(coveredTabInstance);
+    }
+  }
+
   /**
    * Asserts that the given scanner contains no more rows.
    */
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.audit;
+
+import co.cask.cdap.api.common.Bytes;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit test for {@link AuditSpillFile}.
+ */
+public class AuditSpillFileTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSpill() throws Exception {
+    File file = new File(TEMP_FOLDER.newFolder(), "spill.dat");
+    // Each entry takes 4 bytes of length and 4 bytes of payload
+    try (AuditSpillFile spillFile = new AuditSpillFile(file, 8 * 5)) {
+      Assert.assertTrue(spillFile.isEmpty());
+
+      for (int i = 0; i < 5; i++) {
+        Assert.assertTrue(spillFile.append(Bytes.toBytes(i)));
+      }
+      // Exceeded the size limit
+      Assert.assertFalse(spillFile.append(Bytes.toBytes(5)));
+      Assert.assertFalse(spillFile.isEmpty());
+
+      List<byte[]> buffer = new ArrayList<>();
+      Assert.assertEquals(3, spillFile.drain(buffer, 3));
+      Assert.assertEquals(2, spillFile.drain(buffer, 10));
+      Assert.assertTrue(spillFile.isEmpty());
+      Assert.assertEquals(0L, file.length());
+
+      for (int i = 0; i < 5; i++) {
+        Assert.assertEquals(i, Bytes.toInt(buffer.get(i)));
+      }
+
+      // Space is reclaimed after draining
+      Assert.assertTrue(spillFile.append(Bytes.toBytes(5)));
+      Assert.assertEquals(0L, spillFile.getDiscardedCount());
+    }
+    Assert.assertFalse(file.exists());
+  }
+
+  @Test
+  public void testWrapAround() throws Exception {
+    File file = new File(TEMP_FOLDER.newFolder(), "spill.dat");
+    try (AuditSpillFile spillFile = new AuditSpillFile(file, 8 * 5 + 3)) {
+      for (int i = 0; i < 5; i++) {
+        Assert.assertTrue(spillFile.append(Bytes.toBytes(i)));
+      }
+
+      // Space of drained entries is reused before the file is fully drained, with entries wrapping around
+      List<byte[]> buffer = new ArrayList<>();
+      Assert.assertEquals(2, spillFile.drain(buffer, 2));
+      for (int i = 5; i < 7; i++) {
+        Assert.assertTrue(spillFile.append(Bytes.toBytes(i)));
+      }
+      Assert.assertFalse(spillFile.append(Bytes.toBytes(7)));
+
+      Assert.assertEquals(5, spillFile.drain(buffer, 10));
+      Assert.assertTrue(spillFile.isEmpty());
+      for (int i = 0; i < 7; i++) {
+        Assert.assertEquals(i, Bytes.toInt(buffer.get(i)));
+      }
+    }
+  }
+
+  @Test
+  public void testDeleteStaleFiles() throws Exception {
+    File dir = TEMP_FOLDER.newFolder();
+    File staleFile = new File(dir, "audit-spill-stale.dat");
+    Assert.assertTrue(staleFile.createNewFile());
+    File otherFile = new File(dir, "other.dat");
+    Assert.assertTrue(otherFile.createNewFile());
+
+    File usedFile = new File(dir, "audit-spill-used.dat");
+    try (AuditSpillFile spillFile = new AuditSpillFile(usedFile, 1024)) {
+      Assert.assertTrue(spillFile.append(Bytes.toBytes(1)));
+
+      // Only the spill file that is not in use is deleted
+      Assert.assertEquals(1, AuditSpillFile.deleteStaleFiles(dir, "audit-spill"));
+      Assert.assertFalse(staleFile.exists());
+      Assert.assertTrue(otherFile.exists());
+      Assert.assertTrue(usedFile.exists());
+
+      List<byte[]> buffer = new ArrayList<>();
+      Assert.assertEquals(1, spillFile.drain(buffer, 10));
+      Assert.assertEquals(1, Bytes.toInt(buffer.get(0)));
+    }
+    Assert.assertFalse(usedFile.exists());
+  }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.audit;
+
+import co.cask.cdap.api.messaging.TopicAlreadyExistsException;
+import co.cask.cdap.api.messaging.TopicNotFoundException;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.messaging.MessageFetcher;
+import co.cask.cdap.messaging.MessagingService;
+import co.cask.cdap.messaging.RollbackDetail;
+import co.cask.cdap.messaging.StoreRequest;
+import co.cask.cdap.messaging.TopicMetadata;
+import co.cask.cdap.proto.audit.AuditPayload;
+import co.cask.cdap.proto.audit.AuditType;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.id.TopicId;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for {@link DefaultAuditPublisher}.
+ */
+public class DefaultAuditPublisherTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testBlock() throws Exception {
+    BlockingMessagingService messagingService = new BlockingMessagingService();
+    final DefaultAuditPublisher publisher = new DefaultAuditPublisher(createCConf(QueueFullPolicy.BLOCK),
+                                                                      messagingService);
+    try {
+      fillQueue(publisher, messagingService);
+
+      // The next publish blocks until there is room in the queue
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          publish(publisher, 3);
+        }
+      };
+      thread.start();
+      thread.join(200);
+      Assert.assertTrue(thread.isAlive());
+
+      messagingService.unblock();
+      thread.join(10000);
+      Assert.assertFalse(thread.isAlive());
+
+      publisher.flush();
+      assertPublished(messagingService, 4);
+      Assert.assertEquals(0L, publisher.getDroppedCount());
+    } finally {
+      messagingService.unblock();
+      publisher.close();
+    }
+  }
+
+  @Test
+  public void testBlockTimeout() throws Exception {
+    BlockingMessagingService messagingService = new BlockingMessagingService();
+    CConfiguration cConf = createCConf(QueueFullPolicy.BLOCK);
+    cConf.setLong(Constants.Audit.PUBLISH_TIMEOUT_MS, 100L);
+    DefaultAuditPublisher publisher = new DefaultAuditPublisher(cConf, messagingService);
+    try {
+      fillQueue(publisher, messagingService);
+
+      // The message is dropped if there is still no room in the queue after the publish timeout
+      publish(publisher, 3);
+      Assert.assertEquals(1L, publisher.getDroppedCount());
+
+      messagingService.unblock();
+      publisher.flush();
+      assertPublished(messagingService, 3);
+    } finally {
+      messagingService.unblock();
+      publisher.close();
+    }
+  }
+
+  @Test
+  public void testDrop() throws Exception {
+    BlockingMessagingService messagingService = new BlockingMessagingService();
+    DefaultAuditPublisher publisher = new DefaultAuditPublisher(createCConf(QueueFullPolicy.DROP), messagingService);
+    try {
+      fillQueue(publisher, messagingService);
+
+      // Messages are dropped immediately when the queue is full
+      publish(publisher, 3);
+      publish(publisher, 4);
+      Assert.assertEquals(2L, publisher.getDroppedCount());
+
+      messagingService.unblock();
+      publisher.flush();
+      assertPublished(messagingService, 3);
+    } finally {
+      messagingService.unblock();
+      publisher.close();
+    }
+  }
+
+  @Test
+  public void testSpill() throws Exception {
+    BlockingMessagingService messagingService = new BlockingMessagingService();
+    DefaultAuditPublisher publisher = new DefaultAuditPublisher(createCConf(QueueFullPolicy.SPILL), messagingService);
+    try {
+      fillQueue(publisher, messagingService);
+
+      // Messages are spilled when the queue is full, and published in order once the queue drains
+      for (int i = 3; i < 6; i++) {
+        publish(publisher, i);
+      }
+      Assert.assertEquals(3L, publisher.getSpilledCount());
+      Assert.assertEquals(0L, publisher.getDroppedCount());
+
+      messagingService.unblock();
+      publisher.flush();
+      assertPublished(messagingService, 6);
+    } finally {
+      messagingService.unblock();
+      publisher.close();
+    }
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    BlockingMessagingService messagingService = new BlockingMessagingService();
+    DefaultAuditPublisher publisher = new DefaultAuditPublisher(createCConf(QueueFullPolicy.BLOCK), messagingService);
+    fillQueue(publisher, messagingService);
+    messagingService.unblock();
+
+    // Close publishes all queued messages, and messages published afterward are published synchronously
+    publisher.close();
+    assertPublished(messagingService, 3);
+    publish(publisher, 3);
+    assertPublished(messagingService, 4);
+  }
+
+  private CConfiguration createCConf(QueueFullPolicy policy) throws IOException {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.Audit.PUBLISH_QUEUE_FULL_POLICY, policy.name().toLowerCase());
+    cConf.setInt(Constants.Audit.PUBLISH_QUEUE_SIZE, 2);
+    cConf.setInt(Constants.Audit.PUBLISH_BATCH_SIZE, 1);
+    cConf.setLong(Constants.Audit.PUBLISH_TIMEOUT_MS, 10000L);
+    cConf.set(Constants.Audit.PUBLISH_SPILL_DIR, TEMP_FOLDER.newFolder().getAbsolutePath());
+    return cConf;
+  }
+
+  /**
+   * Publishes three messages, one being published by the background publisher, which is blocked by the
+   * messaging service, and two in the queue, which is then full.
+   */
+  private void fillQueue(DefaultAuditPublisher publisher,
+                         BlockingMessagingService messagingService) throws InterruptedException {
+    publish(publisher, 0);
+    Assert.assertTrue(messagingService.awaitPublishStarted());
+    publish(publisher, 1);
+    publish(publisher, 2);
+  }
+
+  private static void publish(DefaultAuditPublisher publisher, int i) {
+    publisher.publish(NamespaceId.DEFAULT.dataset("ds" + i), AuditType.CREATE, AuditPayload.EMPTY_PAYLOAD);
+  }
+
+  /**
+   * Asserts that the messages for the first given number of datasets were published in order.
+   */
+  private void assertPublished(BlockingMessagingService messagingService, int count) {
+    List<String> published = messagingService.getPublished();
+    Assert.assertEquals(count, published.size());
+    for (int i = 0; i < count; i++) {
+      Assert.assertTrue(published.get(i), published.get(i).contains("\"ds" + i + "\""));
+    }
+  }
+
+  /**
+   * A {@link MessagingService} that records the published messages, and blocks publishing until it is unblocked.
+   */
+  private static final class BlockingMessagingService implements MessagingService {
+
+    private final List<String> published = new CopyOnWriteArrayList<>();
+    private final CountDownLatch publishStarted = new CountDownLatch(1);
+    private final CountDownLatch unblocked = new CountDownLatch(1);
+
+    boolean awaitPublishStarted() throws InterruptedException {
+      return publishStarted.await(10, TimeUnit.SECONDS);
+    }
+
+    void unblock() {
+      unblocked.countDown();
+    }
+
+    List<String> getPublished() {
+      return published;
+    }
+
+    @Override
+    public RollbackDetail publish(StoreRequest request) throws TopicNotFoundException, IOException {
+      publishStarted.countDown();
+      try {
+        if (!unblocked.await(10, TimeUnit.SECONDS)) {
+          throw new IOException("Publish not unblocked");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+      while (request.hasNext()) {
+        published.add(new String(request.next(), StandardCharsets.UTF_8));
+      }
+      return null;
+    }
+
+    @Override
+    public void createTopic(TopicMetadata topicMetadata) throws TopicAlreadyExistsException, IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void updateTopic(TopicMetadata topicMetadata) throws TopicNotFoundException, IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteTopic(TopicId topicId) throws TopicNotFoundException, IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public TopicMetadata getTopic(TopicId topicId) throws TopicNotFoundException, IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<TopicId> listTopics(NamespaceId namespaceId) throws IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public MessageFetcher prepareFetch(TopicId topicId) throws TopicNotFoundException, IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void storePayload(StoreRequest request) throws TopicNotFoundException, IOException {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void rollback(TopicId topicId, RollbackDetail rollbackDetail) throws TopicNotFoundException, IOException {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.datafabric.dataset;
+
+import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.proto.DatasetMeta;
+import co.cask.cdap.proto.DatasetModuleMeta;
+import co.cask.cdap.proto.DatasetTypeMeta;
+import co.cask.cdap.proto.id.DatasetId;
+import co.cask.cdap.proto.id.DatasetTypeId;
+import co.cask.cdap.proto.id.NamespaceId;
+import co.cask.cdap.proto.security.Principal;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ * Unit tests for {@link DatasetMetaCache}.
+ */
+public class DatasetMetaCacheTest {
+
+  private static final NamespaceId NAMESPACE = new NamespaceId("ns");
+  private static final DatasetTypeMeta TYPE_META =
+    new DatasetTypeMeta("table", Collections.<DatasetModuleMeta>emptyList());
+
+  @Test
+  public void testInvalidation() {
+    DatasetMetaCache cache = new DatasetMetaCache(300, 100);
+    DatasetId ds1 = NAMESPACE.dataset("ds1");
+    DatasetId ds2 = NAMESPACE.dataset("ds2");
+    DatasetTypeId typeId = NAMESPACE.datasetType("table");
+
+    cache.putInstance(ds1, null, createMeta(ds1), cache.getVersion());
+    cache.putInstance(ds2, null, createMeta(ds2), cache.getVersion());
+    cache.putType(typeId, TYPE_META, cache.getVersion());
+    Assert.assertNotNull(cache.getInstance(ds1, null));
+    Assert.assertNotNull(cache.getInstance(ds2, null));
+    Assert.assertNotNull(cache.getType(typeId));
+
+    cache.invalidate(ds1);
+    Assert.assertNull(cache.getInstance(ds1, null));
+    Assert.assertNotNull(cache.getInstance(ds2, null));
+    Assert.assertNotNull(cache.getType(typeId));
+
+    cache.invalidate(NAMESPACE);
+    Assert.assertNull(cache.getInstance(ds2, null));
+    Assert.assertNull(cache.getType(typeId));
+  }
+
+  @Test
+  public void testStaleLookup() {
+    DatasetMetaCache cache = new DatasetMetaCache(300, 100);
+    DatasetId ds = NAMESPACE.dataset("ds");
+
+    // A lookup that started before an invalidation must not be cached
+    long version = cache.getVersion();
+    cache.invalidate(ds);
+    cache.putInstance(ds, null, createMeta(ds), version);
+    Assert.assertNull(cache.getInstance(ds, null));
+
+    cache.putInstance(ds, null, createMeta(ds), cache.getVersion());
+    Assert.assertNotNull(cache.getInstance(ds, null));
+  }
+
+  @Test
+  public void testPrincipal() {
+    DatasetMetaCache cache = new DatasetMetaCache(300, 100);
+    DatasetId ds = NAMESPACE.dataset("ds");
+    Principal alice = new Principal("alice", Principal.PrincipalType.USER);
+    Principal bob = new Principal("bob", Principal.PrincipalType.USER);
+
+    cache.putInstance(ds, alice, createMeta(ds), cache.getVersion());
+    Assert.assertNotNull(cache.getInstance(ds, alice));
+    Assert.assertNull(cache.getInstance(ds, bob));
+
+    cache.invalidate(ds);
+    Assert.assertNull(cache.getInstance(ds, alice));
+  }
+
+  @Test
+  public void testDisabled() {
+    DatasetMetaCache cache = new DatasetMetaCache(0, 100);
+    DatasetId ds = NAMESPACE.dataset("ds");
+    cache.putInstance(ds, null, createMeta(ds), cache.getVersion());
+    Assert.assertNull(cache.getInstance(ds, null));
+
+    // A non-positive instance TTL, e.g. from the authorization cache TTL, disables caching as well
+    cache = new DatasetMetaCache(300, 0, 100);
+    cache.putInstance(ds, null, createMeta(ds), cache.getVersion());
+    Assert.assertNull(cache.getInstance(ds, null));
+  }
+
+  private DatasetMeta createMeta(DatasetId datasetId) {
+    return new DatasetMeta(DatasetSpecification.builder(datasetId.getEntityName(), "table").build(), TYPE_META, null);
+  }
+}
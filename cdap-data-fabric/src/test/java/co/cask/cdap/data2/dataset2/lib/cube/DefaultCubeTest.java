@@ -16,14 +16,30 @@
 
 package co.cask.cdap.data2.dataset2.lib.cube;
 
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
 import co.cask.cdap.api.dataset.lib.cube.Cube;
+import co.cask.cdap.api.dataset.lib.cube.CubeFact;
+import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.MeasureType;
+import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import co.cask.cdap.data2.dataset2.lib.timeseries.DistributionCodec;
 import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Table;
+import org.junit.Assert;
+import org.junit.Test;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.NavigableMap;
 
 /**
  *
@@ -48,4 +64,57 @@ public class DefaultCubeTest extends AbstractCubeTest {
 
     return new DefaultCube(resolutions, supplier, aggregations, ImmutableMap.<String, AggregationAlias>of());
   }
+
+  @Test
+  public void testDistributions() throws Exception {
+    Aggregation agg = new DefaultAggregation(ImmutableList.of("dim1", "dim2"), ImmutableList.of("dim1"));
+    DefaultCube cube = (DefaultCube) getCube("distributionCube", new int[] {1, 60}, ImmutableMap.of("agg", agg));
+
+    // buckets of the same distribution from two writers in the same second, and one more in a later second
+    cube.add(ImmutableList.of(
+      new CubeFact(10).addDimensionValue("dim1", "a").addDimensionValue("dim2", "x")
+        .addMeasurement("latency", MeasureType.DISTRIBUTION, DistributionCodec.pack(3, 2))
+        .addMeasurement("latency", MeasureType.DISTRIBUTION, DistributionCodec.pack(5, 1))
+        .addMeasurement("count", MeasureType.COUNTER, 3),
+      new CubeFact(10).addDimensionValue("dim1", "a").addDimensionValue("dim2", "y")
+        .addMeasurement("latency", MeasureType.DISTRIBUTION, DistributionCodec.pack(3, 4))));
+    cube.add(new CubeFact(20).addDimensionValue("dim1", "a").addDimensionValue("dim2", "x")
+               .addMeasurement("latency", MeasureType.DISTRIBUTION, DistributionCodec.pack(7, 1)));
+
+    Map<String, AggregationFunction> latency = ImmutableMap.of("latency", AggregationFunction.SUM);
+    Map<String, String> slice = ImmutableMap.of("dim1", "a");
+
+    // buckets are summed up across the dimension values not grouped by
+    Table<Map<String, String>, String, NavigableMap<Long, NavigableMap<Integer, Long>>> result =
+      cube.queryDistributions(new CubeQuery(null, 0, 30, 1, Integer.MAX_VALUE, latency, slice,
+                                            Collections.<String>emptyList(), null));
+    Assert.assertEquals(1, result.size());
+    Assert.assertEquals(ImmutableSortedMap.of(10L, ImmutableSortedMap.of(3, 6L, 5, 1L),
+                                              20L, ImmutableSortedMap.of(7, 1L)),
+                        result.get(ImmutableMap.<String, String>of(), "latency"));
+
+    // buckets are merged into the existing cell of the coarser resolution
+    result = cube.queryDistributions(new CubeQuery(null, 0, 30, 60, Integer.MAX_VALUE, latency, slice,
+                                                   Collections.<String>emptyList(), null));
+    Assert.assertEquals(ImmutableSortedMap.of(0L, ImmutableSortedMap.of(3, 6L, 5, 1L, 7, 1L)),
+                        result.get(ImmutableMap.<String, String>of(), "latency"));
+
+    // grouping by a dimension keeps the distributions apart
+    result = cube.queryDistributions(new CubeQuery(null, 0, 30, 1, Integer.MAX_VALUE, latency, slice,
+                                                   ImmutableList.of("dim2"), null));
+    Assert.assertEquals(2, result.size());
+    Assert.assertEquals(ImmutableSortedMap.of(10L, ImmutableSortedMap.of(3, 2L, 5, 1L),
+                                              20L, ImmutableSortedMap.of(7, 1L)),
+                        result.get(ImmutableMap.of("dim2", "x"), "latency"));
+    Assert.assertEquals(ImmutableSortedMap.of(10L, ImmutableSortedMap.of(3, 4L)),
+                        result.get(ImmutableMap.of("dim2", "y"), "latency"));
+
+    // distributions are not returned by regular queries, and don't affect other measures
+    Assert.assertTrue(cube.query(new CubeQuery(null, 0, 30, 1, Integer.MAX_VALUE, latency, slice,
+                                               Collections.<String>emptyList(), null)).isEmpty());
+    Collection<TimeSeries> counts = cube.query(
+      new CubeQuery(null, 0, 30, 1, Integer.MAX_VALUE, ImmutableMap.of("count", AggregationFunction.SUM), slice,
+                    Collections.<String>emptyList(), null));
+    Assert.assertEquals(ImmutableList.of(new TimeValue(10, 3)), Iterables.getOnlyElement(counts).getTimeValues());
+  }
 }
@@ -35,9 +35,11 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * unit-test
@@ -91,6 +93,74 @@ public abstract class BufferingTableTest<T extends BufferingTable> extends Table
     }
   }
 
+  @Test
+  public void testFlushBeforeCommit() throws Exception {
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE);
+    admin.create();
+    try {
+      // each put below is 6 bytes, hence the buffer gets flushed on every fourth put
+      BufferingTableWithFlushThreshold myTable1 =
+        new BufferingTableWithFlushThreshold(getTable(CONTEXT1, MY_TABLE), 20);
+      Transaction tx1 = txClient.startShort();
+      myTable1.startTx(tx1);
+      myTable1.put(R1, a(C1), a(V1));
+      myTable1.put(R2, a(C1), a(V2));
+      myTable1.put(R3, a(C1), a(V3));
+      myTable1.put(R4, a(C1), a(V4));
+      myTable1.put(R5, a(C1), a(V5));
+
+      // flushed and buffered changes are visible inside the tx
+      TableAssert.assertRow(a(C1, V1), myTable1.get(R1, a(C1)));
+      TableAssert.assertRow(a(C1, V5), myTable1.get(R5, a(C1)));
+      Assert.assertEquals(1, myTable1.getPersistCount());
+      Scanner scanner = myTable1.scan(new Scan(null, null));
+      int count = 0;
+      while (scanner.next() != null) {
+        count++;
+      }
+      scanner.close();
+      Assert.assertEquals(5, count);
+      // flushed changes are still used for conflict detection
+      Assert.assertEquals(5, myTable1.getTxChanges().size());
+
+      // flushed changes are not visible to other transactions
+      Transaction tx2 = txClient.startShort();
+      BufferingTable myTable2 = getTable(CONTEXT1, MY_TABLE);
+      myTable2.startTx(tx2);
+      TableAssert.assertRow(a(), myTable2.get(R1, a(C1)));
+      txClient.abort(tx2);
+
+      // flushed changes are undone on rollback
+      Assert.assertTrue(myTable1.rollbackTx());
+      txClient.abort(tx1);
+      Transaction tx3 = txClient.startShort();
+      myTable2.startTx(tx3);
+      TableAssert.assertRow(a(), myTable2.get(R1, a(C1)));
+      TableAssert.assertRow(a(), myTable2.get(R5, a(C1)));
+
+      // overwriting a flushed change on commit
+      myTable1.startTx(tx3);
+      myTable1.put(R1, a(C1), a(V1));
+      myTable1.put(R2, a(C1), a(V2));
+      myTable1.put(R3, a(C1), a(V3));
+      myTable1.put(R4, a(C1), a(V4));
+      myTable1.put(R1, a(C1), a(V5));
+      Assert.assertTrue(txClient.canCommit(tx3, myTable1.getTxChanges()));
+      Assert.assertTrue(myTable1.commitTx());
+      Assert.assertTrue(txClient.commit(tx3));
+      myTable1.postTxCommit();
+
+      Transaction tx4 = txClient.startShort();
+      myTable2.startTx(tx4);
+      TableAssert.assertRow(a(C1, V5), myTable2.get(R1, a(C1)));
+      TableAssert.assertRow(a(C1, V4), myTable2.get(R4, a(C1)));
+      txClient.abort(tx4);
+      myTable1.close();
+    } finally {
+      admin.drop();
+    }
+  }
+
   /**
    * Tests that writes being buffered in memory by the client are still visible during scans.
    */
@@ -541,6 +611,57 @@ public abstract class BufferingTableTest<T extends BufferingTable> extends Table
     Assert.assertNull(scan.next());
   }
 
+  /**
+   * A {@link BufferingTable} that flushes its buffer to the given table when the flush threshold is reached.
+   */
+  public static class BufferingTableWithFlushThreshold extends BufferingTable {
+    private final BufferingTable delegate;
+    private final AtomicInteger persistCount;
+
+    public BufferingTableWithFlushThreshold(BufferingTable delegate, long flushThreshold) {
+      super(delegate.getTableName(), false, Collections.<String, String>emptyMap(), flushThreshold);
+      this.delegate = delegate;
+      this.persistCount = new AtomicInteger();
+    }
+
+    int getPersistCount() {
+      return persistCount.get();
+    }
+
+    @Override
+    protected void persist(NavigableMap<byte[], NavigableMap<byte[], Update>> buff) throws Exception {
+      persistCount.incrementAndGet();
+      delegate.persist(buff);
+    }
+
+    @Override
+    protected void undo(NavigableMap<byte[], NavigableMap<byte[], Update>> persisted) throws Exception {
+      delegate.undo(persisted);
+    }
+
+    @Override
+    protected NavigableMap<byte[], byte[]> getPersisted(byte[] row, byte[][] columns) throws Exception {
+      return delegate.getPersisted(row, columns);
+    }
+
+    @Override
+    protected NavigableMap<byte[], byte[]> getPersisted(byte[] row, byte[] startColumn, byte[] stopColumn, int limit)
+      throws Exception {
+      return delegate.getPersisted(row, startColumn, stopColumn, limit);
+    }
+
+    @Override
+    protected Scanner scanPersisted(Scan scan) throws Exception {
+      return delegate.scanPersisted(scan);
+    }
+
+    @Override
+    public void startTx(Transaction tx) {
+      super.startTx(tx);
+      delegate.startTx(tx);
+    }
+  }
+
   // This class looks weird, this is what we have to do to override persist method to make it throw exception in the
   // middle. NOTE: We want to test how every implementation of BufferingTable handles undoing changes in this
   // case, otherwise we would just test the method of BufferingTable directly.
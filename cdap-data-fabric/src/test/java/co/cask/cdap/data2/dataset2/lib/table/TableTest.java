@@ -21,8 +21,10 @@ import co.cask.cdap.api.dataset.DatasetAdmin;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.metrics.MeteredDataset;
+import co.cask.cdap.api.dataset.table.ColumnValueFilter;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
 import co.cask.cdap.api.dataset.table.Delete;
+import co.cask.cdap.api.dataset.table.FilterList;
 import co.cask.cdap.api.dataset.table.Get;
 import co.cask.cdap.api.dataset.table.Increment;
 import co.cask.cdap.api.dataset.table.Put;
@@ -1283,6 +1285,90 @@ public abstract class TableTest<T extends Table> {
     Assert.assertEquals(9, count);
   }
 
+  @Test
+  public void testScanWithValueFilterAndProjection() throws Exception {
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, MY_TABLE);
+    admin.create();
+    try {
+      Transaction tx1 = txClient.startShort();
+      Table table = getTable(CONTEXT1, MY_TABLE);
+      ((TransactionAware) table).startTx(tx1);
+
+      // write data, every other row has column c3
+      table.put(R1, a(C1, C2), a(V1, V1));
+      table.put(R2, a(C1, C2, C3), a(V2, V2, V2));
+      table.put(R3, a(C1, C2), a(V3, V3));
+      table.put(R4, a(C1, C2, C3), a(V4, V4, V4));
+      table.put(R5, a(C1, C2), a(V5, V5));
+
+      // check that filters and projections work against data written in same tx
+      verifyScanWithValueFilterAndProjection(table);
+
+      // commit tx, start new and verify scan again against "persisted" data
+      Assert.assertTrue(txClient.canCommit(tx1, ((TransactionAware) table).getTxChanges()));
+      Assert.assertTrue(((TransactionAware) table).commitTx());
+      Assert.assertTrue(txClient.commit(tx1));
+      ((TransactionAware) table).postTxCommit();
+
+      Transaction tx2 = txClient.startShort();
+      ((TransactionAware) table).startTx(tx2);
+      verifyScanWithValueFilterAndProjection(table);
+
+      // the filter is evaluated on the persisted data merged with the changes of the current tx
+      table.put(R3, C1, V1);
+      table.delete(R1, C1);
+      Assert.assertEquals(ImmutableList.of("r3:c2=v3"),
+                          scanToStrings(table, new Scan(null, null, ColumnValueFilter.equalTo(C1, V1))
+                            .withColumns(C2)));
+      Assert.assertEquals(ImmutableList.of("r1:c2=v1", "r2:c2=v2", "r3:c2=v3", "r4:c2=v4", "r5:c2=v5"),
+                          scanToStrings(table, new Scan(null, null).withColumnPrefix(C2)));
+    } finally {
+      admin.drop();
+    }
+  }
+
+  private static void verifyScanWithValueFilterAndProjection(Table table) throws Exception {
+    // equality, with the filter column not being returned
+    Assert.assertEquals(ImmutableList.of("r3:c2=v3"),
+                        scanToStrings(table, new Scan(null, null, ColumnValueFilter.equalTo(C1, V3))
+                          .withColumns(C2)));
+    // range, start inclusive and stop exclusive
+    Assert.assertEquals(ImmutableList.of("r2:c1=v2,c2=v2,c3=v2", "r3:c1=v3,c2=v3"),
+                        scanToStrings(table, new Scan(null, null, ColumnValueFilter.range(C1, V2, V4))));
+    // rows without the filter column never match
+    Assert.assertEquals(ImmutableList.of("r1:c1=v1", "r2:c1=v2", "r4:c1=v4"),
+                        scanToStrings(table, new Scan(null, null, new FilterList(
+                          FilterList.Operator.MUST_PASS_ONE,
+                          ColumnValueFilter.equalTo(C1, V1), ColumnValueFilter.prefix(C3, Bytes.toBytes("v"))))
+                          .withColumns(C1)));
+    Assert.assertEquals(ImmutableList.of("r4:c2=v4"),
+                        scanToStrings(table, new Scan(R1, R5, new FilterList(
+                          FilterList.Operator.MUST_PASS_ALL,
+                          ColumnValueFilter.range(C1, V3, null), ColumnValueFilter.prefix(C3, Bytes.toBytes("v"))))
+                          .withColumnPrefix(C2)));
+    // rows without any of the projected columns are not returned
+    Assert.assertEquals(ImmutableList.of("r2:c3=v2", "r4:c3=v4"),
+                        scanToStrings(table, new Scan(null, null).withColumns(C3, C4)));
+  }
+
+  private static List<String> scanToStrings(Table table, Scan scan) {
+    List<String> rows = new ArrayList<>();
+    try (Scanner scanner = table.scan(scan)) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        StringBuilder builder = new StringBuilder(Bytes.toString(row.getRow())).append(':');
+        String separator = "";
+        for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
+          builder.append(separator).append(Bytes.toString(column.getKey())).append('=')
+            .append(Bytes.toString(column.getValue()));
+          separator = ",";
+        }
+        rows.add(builder.toString());
+      }
+    }
+    return rows;
+  }
+
   private static int countRows(Table table) throws Exception {
     Scanner scanner = table.scan(null, null);
     int count = 0;
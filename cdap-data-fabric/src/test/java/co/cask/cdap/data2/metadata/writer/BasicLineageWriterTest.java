@@ -25,10 +25,12 @@ import co.cask.cdap.data2.dataset2.DatasetFrameworkTestUtil;
 import co.cask.cdap.data2.dataset2.DefaultDatasetDefinitionRegistry;
 import co.cask.cdap.data2.dataset2.InMemoryDatasetFramework;
 import co.cask.cdap.data2.metadata.lineage.AccessType;
+import co.cask.cdap.data2.metadata.lineage.DataAccess;
 import co.cask.cdap.data2.metadata.lineage.LineageStore;
 import co.cask.cdap.data2.metadata.store.DefaultMetadataStore;
 import co.cask.cdap.data2.metadata.store.MetadataStore;
 import co.cask.cdap.proto.ProgramType;
+import co.cask.cdap.proto.id.DatasetId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.id.ProgramRunId;
@@ -43,7 +45,11 @@ import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Tests BasicLineageWriter
@@ -58,7 +64,8 @@ public class BasicLineageWriterTest {
     Injector injector = getInjector();
     MetadataStore metadataStore = injector.getInstance(MetadataStore.class);
     LineageStore lineageStore = injector.getInstance(LineageStore.class);
-    LineageWriter lineageWriter = new BasicLineageWriter(lineageStore);
+    // Zero flush interval, so that accesses are written immediately
+    LineageWriter lineageWriter = new BasicLineageWriter(lineageStore, 0);
 
     // Define entities
     ProgramId program = new ProgramId(NamespaceId.DEFAULT.getNamespace(), "app", ProgramType.FLOW, "flow");
@@ -92,6 +99,95 @@ public class BasicLineageWriterTest {
     Assert.assertTrue(lineageStore.getAccessTimesForRun(run2).get(0) >= beforeSecondTag);
   }
 
+  @Test
+  public void testBatchWrites() throws Exception {
+    LineageStore lineageStore = getInjector().getInstance(LineageStore.class);
+    // A flush interval that is long enough to not trigger the background flush during the test
+    BasicLineageWriter lineageWriter = new BasicLineageWriter(lineageStore, TimeUnit.HOURS.toMillis(1));
+
+    ProgramId program = new ProgramId(NamespaceId.DEFAULT.getNamespace(), "app", ProgramType.FLOW, "batchFlow");
+    StreamId stream = new StreamId(NamespaceId.DEFAULT.getNamespace(), "batchStream");
+    DatasetId dataset = new DatasetId(NamespaceId.DEFAULT.getNamespace(), "batchDataset");
+    ProgramRunId run = new ProgramRunId(program.getNamespace(), program.getApplication(), program.getType(),
+                                        program.getEntityName(), RunIds.generate(30000).getId());
+
+    try {
+      lineageWriter.addAccess(run, stream, AccessType.READ);
+      lineageWriter.addAccess(run, dataset, AccessType.WRITE);
+      lineageWriter.addAccess(run, dataset, AccessType.WRITE);
+
+      // Accesses are buffered until flushed
+      Assert.assertTrue(lineageStore.getEntitiesForRun(run).isEmpty());
+      lineageWriter.flush();
+      Assert.assertEquals(ImmutableSet.of(program, stream, dataset), lineageStore.getEntitiesForRun(run));
+      // The duplicated access is only written once
+      Assert.assertEquals(2, lineageStore.getAccessTimesForRun(run).size());
+    } finally {
+      lineageWriter.close();
+    }
+
+    // Accesses added after close are written immediately
+    lineageWriter.addAccess(run, stream, AccessType.WRITE);
+    Assert.assertEquals(3, lineageStore.getAccessTimesForRun(run).size());
+  }
+
+  @Test
+  public void testFailedFlushes() throws Exception {
+    final AtomicBoolean failWrites = new AtomicBoolean(true);
+    final List<DataAccess> written = new ArrayList<>();
+    // Accesses are dropped after two failed flushes
+    AbstractLineageWriter lineageWriter = new AbstractLineageWriter(TimeUnit.HOURS.toMillis(1), 2, 1000, 3600) {
+      @Override
+      protected void write(List<DataAccess> accesses) throws Exception {
+        if (failWrites.get()) {
+          throw new Exception("Write failure");
+        }
+        written.addAll(accesses);
+      }
+    };
+
+    ProgramId program = new ProgramId(NamespaceId.DEFAULT.getNamespace(), "app", ProgramType.FLOW, "failedFlow");
+    StreamId stream = new StreamId(NamespaceId.DEFAULT.getNamespace(), "failedStream");
+    DatasetId dataset = new DatasetId(NamespaceId.DEFAULT.getNamespace(), "failedDataset");
+    ProgramRunId run = new ProgramRunId(program.getNamespace(), program.getApplication(), program.getType(),
+                                        program.getEntityName(), RunIds.generate(40000).getId());
+
+    try {
+      // An access is kept for retry after a failed flush and written by the next flush
+      lineageWriter.addAccess(run, stream, AccessType.READ);
+      flushWithFailure(lineageWriter);
+      failWrites.set(false);
+      lineageWriter.flush();
+      Assert.assertEquals(1, written.size());
+
+      // An access is dropped after the maximum number of failed flushes
+      failWrites.set(true);
+      lineageWriter.addAccess(run, dataset, AccessType.WRITE);
+      flushWithFailure(lineageWriter);
+      flushWithFailure(lineageWriter);
+      failWrites.set(false);
+      lineageWriter.flush();
+      Assert.assertEquals(1, written.size());
+
+      // A dropped access is recorded again when it happens again
+      lineageWriter.addAccess(run, dataset, AccessType.WRITE);
+      lineageWriter.flush();
+      Assert.assertEquals(2, written.size());
+      Assert.assertEquals(dataset, written.get(1).getData());
+    } finally {
+      lineageWriter.close();
+    }
+  }
+
+  private void flushWithFailure(AbstractLineageWriter lineageWriter) {
+    try {
+      lineageWriter.flush();
+      Assert.fail("Expected flush to fail");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
   private static Injector getInjector() {
     return dsFrameworkUtil.getInjector().createChildInjector(
       new AbstractModule() {
@@ -43,8 +43,10 @@ import com.google.common.util.concurrent.AbstractFuture;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.gson.Gson;
 import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
@@ -55,8 +57,11 @@ import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -67,11 +72,20 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
   private static final Gson GSON = new Gson();
   private static final Logger LOG = LoggerFactory.getLogger(AbstractExploreClient.class);
 
+  /**
+   * Default maximum number of bytes of query results fetched ahead of consumption.
+   */
+  public static final long DEFAULT_PREFETCH_BYTES = 16 * 1024 * 1024;
+
   private final ListeningScheduledExecutorService executor;
+  // Fetches the next batch of results in the background, separate from the executor so that it doesn't delay polling
+  private final ListeningExecutorService prefetchExecutor;
 
   protected AbstractExploreClient() {
     executor = MoreExecutors.listeningDecorator(
       Executors.newSingleThreadScheduledExecutor(Threads.createDaemonThreadFactory("explore-client-executor")));
+    prefetchExecutor = MoreExecutors.listeningDecorator(
+      Executors.newCachedThreadPool(Threads.createDaemonThreadFactory("explore-client-prefetch-%d")));
   }
 
   @Override
@@ -79,6 +93,16 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
     // This will cancel all the running tasks, with interruption - that means that all
     // queries submitted by this executor will be closed
     executor.shutdownNow();
+    prefetchExecutor.shutdownNow();
+  }
+
+  /**
+   * Returns the maximum number of bytes of query results that are fetched ahead of consumption. While a batch of
+   * results is consumed, the next batch is fetched in the background, and batches are sized to fit in this budget
+   * based on the observed size of the rows. Zero or a negative value disables prefetching.
+   */
+  protected long getPrefetchBytes() {
+    return DEFAULT_PREFETCH_BYTES;
   }
 
   @Override
@@ -371,7 +395,8 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
           if (QueryStatus.OpStatus.ERROR.equals(status.getStatus())) {
             throw new SQLException(status.getErrorMessage(), status.getSqlState());
           }
-          ExploreExecutionResult result = new ClientExploreExecutionResult(AbstractExploreClient.this, handle, status);
+          ExploreExecutionResult result = new ClientExploreExecutionResult(AbstractExploreClient.this, handle, status,
+                                                                           prefetchExecutor, getPrefetchBytes());
           mustCloseHandle = !resultFuture.set(result) || !status.hasResults();
         } catch (Exception e) {
           mustCloseHandle = true;
@@ -402,9 +427,11 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
   }
 
   /**
-   * Result iterator which polls Explore service using HTTP to get next results.
+   * Result iterator which polls Explore service using HTTP to get next results. If prefetching is enabled, the next
+   * batch of results is requested in the background while the current batch is consumed. Both batches together are
+   * kept within the prefetch byte budget, by reducing the batch size when rows are wide.
    */
-  private static final class ClientExploreExecutionResult extends AbstractIterator<QueryResult>
+  static final class ClientExploreExecutionResult extends AbstractIterator<QueryResult>
     implements ExploreExecutionResult {
     private static final Logger LOG = LoggerFactory.getLogger(ClientExploreExecutionResult.class);
     private static final int DEFAULT_FETCH_SIZE = 100;
@@ -412,15 +439,23 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
     private int fetchSize = DEFAULT_FETCH_SIZE;
     private Iterator<QueryResult> delegate;
     private List<ColumnDesc> resultSchema = null;
+    private ListenableFuture<List<QueryResult>> prefetch;
+    // Average estimated size in bytes of the rows fetched so far, zero if not known yet
+    private long rowSize;
 
     private final ExploreHttpClient exploreClient;
     private final QueryHandle handle;
     private final QueryStatus status;
+    private final ListeningExecutorService prefetchExecutor;
+    private final long prefetchBytes;
 
-    ClientExploreExecutionResult(ExploreHttpClient exploreClient, QueryHandle handle, QueryStatus status) {
+    ClientExploreExecutionResult(ExploreHttpClient exploreClient, QueryHandle handle, QueryStatus status,
+                                 ListeningExecutorService prefetchExecutor, long prefetchBytes) {
       this.exploreClient = exploreClient;
       this.handle = handle;
       this.status = status;
+      this.prefetchExecutor = prefetchExecutor;
+      this.prefetchBytes = prefetchBytes;
     }
 
     @Override
@@ -439,13 +474,14 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
       }
       try {
         // call the endpoint 'next' to get more results and set delegate
-        List<QueryResult> nextResults = convertRows(exploreClient.nextResults(handle, fetchSize));
+        List<QueryResult> nextResults = nextBatch();
         delegate = nextResults.iterator();
 
         // At this point, if delegate has no result, there are no more results at all
         if (!delegate.hasNext()) {
           return endOfData();
         }
+        startPrefetch(nextResults);
         return delegate.next();
       } catch (ExploreException e) {
         LOG.error("Exception while iterating through the results of query {}", handle.getHandle(), e);
@@ -457,8 +493,60 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
       }
     }
 
-    private List<QueryResult> convertRows(List<QueryResult> rows) throws ExploreException {
-      List<ColumnDesc> schema = getResultSchema();
+    /**
+     * Returns the next batch of results, either from the prefetch started earlier, or by fetching it.
+     */
+    private List<QueryResult> nextBatch() throws ExploreException, HandleNotFoundException {
+      ListenableFuture<List<QueryResult>> future = prefetch;
+      prefetch = null;
+      if (future == null) {
+        return fetch(fetchSize);
+      }
+      try {
+        return Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        Throwables.propagateIfInstanceOf(e.getCause(), ExploreException.class);
+        Throwables.propagateIfInstanceOf(e.getCause(), HandleNotFoundException.class);
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+
+    private List<QueryResult> fetch(int size) throws ExploreException, HandleNotFoundException {
+      return convertRows(exploreClient.nextResults(handle, size), getResultSchema());
+    }
+
+    /**
+     * Starts fetching the batch after the given one in the background, if prefetching is enabled.
+     */
+    private void startPrefetch(List<QueryResult> batch) throws ExploreException {
+      if (prefetchBytes <= 0) {
+        return;
+      }
+      // Resolve the schema on the consumer thread, so that the prefetch thread never calls the Explore service for it
+      final List<ColumnDesc> schema = getResultSchema();
+      long batchSize = 0;
+      for (QueryResult row : batch) {
+        batchSize += estimateSize(row.getColumns());
+      }
+      long batchRowSize = Math.max(1L, batchSize / batch.size());
+      rowSize = rowSize == 0 ? batchRowSize : (rowSize + batchRowSize) / 2;
+
+      // The batch in flight and the one being consumed share the budget
+      final int size = (int) Math.max(1L, Math.min(fetchSize, prefetchBytes / 2 / rowSize));
+      try {
+        prefetch = prefetchExecutor.submit(new Callable<List<QueryResult>>() {
+          @Override
+          public List<QueryResult> call() throws Exception {
+            return convertRows(exploreClient.nextResults(handle, size), schema);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // The client is closed, the next batch will be fetched when it is needed
+        LOG.debug("Not prefetching results of query {}", handle.getHandle(), e);
+      }
+    }
+
+    private List<QueryResult> convertRows(List<QueryResult> rows, List<ColumnDesc> schema) throws ExploreException {
       ImmutableList.Builder<QueryResult> builder = ImmutableList.builder();
 
       for (QueryResult row : rows) {
@@ -520,6 +608,10 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
 
     @Override
     public void close() throws IOException {
+      if (prefetch != null) {
+        prefetch.cancel(true);
+        prefetch = null;
+      }
       try {
         exploreClient.close(handle);
       } catch (HandleNotFoundException e) {
@@ -558,6 +650,39 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
     public boolean canContainResults() {
       return status.hasResults();
     }
+
+    /**
+     * Estimates the size in bytes of a column value, as transferred from the Explore service.
+     */
+    private static long estimateSize(@Nullable Object value) {
+      if (value == null) {
+        return 4;
+      }
+      if (value instanceof String) {
+        return ((String) value).length() + 2;
+      }
+      if (value instanceof byte[]) {
+        return ((byte[]) value).length * 4;
+      }
+      if (value instanceof Number || value instanceof Boolean) {
+        return 8;
+      }
+      if (value instanceof Iterable) {
+        long size = 2;
+        for (Object element : (Iterable<?>) value) {
+          size += estimateSize(element) + 1;
+        }
+        return size;
+      }
+      if (value instanceof Map) {
+        long size = 2;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          size += estimateSize(entry.getKey()) + estimateSize(entry.getValue()) + 2;
+        }
+        return size;
+      }
+      return value.toString().length();
+    }
   }
 
   /**
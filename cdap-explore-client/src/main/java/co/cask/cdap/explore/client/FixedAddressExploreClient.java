@@ -28,13 +28,24 @@ public class FixedAddressExploreClient extends AbstractExploreClient {
   private final String authToken;
   private final boolean sslEnabled;
   private final boolean verifySSLCert;
+  private final long prefetchBytes;
 
   public FixedAddressExploreClient(String host, int port, @Nullable String authToken,
                                    boolean sslEnabled, boolean verifySSLCert) {
+    this(host, port, authToken, sslEnabled, verifySSLCert, DEFAULT_PREFETCH_BYTES);
+  }
+
+  /**
+   * Creates a client that fetches up to the given number of bytes of query results ahead of consumption.
+   * Zero or a negative value disables prefetching.
+   */
+  public FixedAddressExploreClient(String host, int port, @Nullable String authToken,
+                                   boolean sslEnabled, boolean verifySSLCert, long prefetchBytes) {
     this.addr = InetSocketAddress.createUnresolved(host, port);
     this.authToken = authToken;
     this.sslEnabled = sslEnabled;
     this.verifySSLCert = verifySSLCert;
+    this.prefetchBytes = prefetchBytes;
   }
 
   @Override
@@ -55,4 +66,9 @@ public class FixedAddressExploreClient extends AbstractExploreClient {
   protected boolean verifySSLCert() {
     return verifySSLCert;
   }
+
+  @Override
+  protected long getPrefetchBytes() {
+    return prefetchBytes;
+  }
 }
@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.explore.client;
+
+import co.cask.cdap.explore.service.ExploreException;
+import co.cask.cdap.explore.service.HandleNotFoundException;
+import co.cask.cdap.proto.ColumnDesc;
+import co.cask.cdap.proto.QueryHandle;
+import co.cask.cdap.proto.QueryResult;
+import co.cask.cdap.proto.QueryStatus;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.twill.common.Threads;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the result prefetching of {@link AbstractExploreClient.ClientExploreExecutionResult}.
+ */
+public class ClientExploreExecutionResultTest {
+
+  private static final long PREFETCH_BYTES = 16 * 1024 * 1024;
+
+  private static ListeningExecutorService prefetchExecutor;
+
+  @BeforeClass
+  public static void init() {
+    prefetchExecutor = MoreExecutors.listeningDecorator(
+      Executors.newCachedThreadPool(Threads.createDaemonThreadFactory("test-prefetch-%d")));
+  }
+
+  @AfterClass
+  public static void finish() {
+    prefetchExecutor.shutdownNow();
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    TestExploreClient client = new TestExploreClient();
+    client.addBatch(createRows(3, "a"));
+    client.addBatch(createRows(3, "b"));
+
+    AbstractExploreClient.ClientExploreExecutionResult result = createResult(client, PREFETCH_BYTES);
+    Assert.assertTrue(result.hasNext());
+    Assert.assertEquals("a0", result.next().getColumns().get(0));
+
+    // The next batch should be requested while the current one is still being consumed
+    Assert.assertTrue(client.awaitRequests(2, 10, TimeUnit.SECONDS));
+    Assert.assertEquals("a1", result.next().getColumns().get(0));
+    Assert.assertEquals("a2", result.next().getColumns().get(0));
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals("b" + i, result.next().getColumns().get(0));
+    }
+    Assert.assertFalse(result.hasNext());
+
+    // The schema should only be resolved on the consumer thread
+    Assert.assertEquals(Collections.singletonList(Thread.currentThread()), client.getSchemaThreads());
+    result.close();
+  }
+
+  @Test
+  public void testNoPrefetch() throws Exception {
+    TestExploreClient client = new TestExploreClient();
+    client.addBatch(createRows(3, "a"));
+
+    AbstractExploreClient.ClientExploreExecutionResult result = createResult(client, 0);
+    Assert.assertEquals("a0", result.next().getColumns().get(0));
+    Assert.assertFalse(client.awaitRequests(2, 500, TimeUnit.MILLISECONDS));
+    result.close();
+  }
+
+  @Test
+  public void testWideRows() throws Exception {
+    TestExploreClient client = new TestExploreClient();
+    // Each row is estimated as 1003 bytes, hence only 10 rows fit in half of the budget
+    client.addBatch(createRows(3, Strings.repeat("x", 997)));
+
+    AbstractExploreClient.ClientExploreExecutionResult result = createResult(client, 20060);
+    result.setFetchSize(100);
+    Assert.assertTrue(result.hasNext());
+    Assert.assertTrue(client.awaitRequests(2, 10, TimeUnit.SECONDS));
+    Assert.assertEquals(ImmutableList.of(100, 10), client.getRequestedSizes());
+    result.close();
+  }
+
+  @Test
+  public void testCloseCancelsPrefetch() throws Exception {
+    TestExploreClient client = new TestExploreClient();
+    client.addBatch(createRows(3, "a"));
+    CountDownLatch blockLatch = new CountDownLatch(1);
+    client.blockFetch(blockLatch);
+
+    AbstractExploreClient.ClientExploreExecutionResult result = createResult(client, PREFETCH_BYTES);
+    Assert.assertEquals("a0", result.next().getColumns().get(0));
+    Assert.assertTrue(client.awaitRequests(2, 10, TimeUnit.SECONDS));
+
+    // Closing should interrupt the fetch in flight and close the query
+    result.close();
+    Assert.assertTrue(client.awaitInterrupted(10, TimeUnit.SECONDS));
+    Assert.assertTrue(client.isClosed());
+    blockLatch.countDown();
+  }
+
+  private AbstractExploreClient.ClientExploreExecutionResult createResult(TestExploreClient client,
+                                                                         long prefetchBytes) {
+    return new AbstractExploreClient.ClientExploreExecutionResult(
+      client, QueryHandle.generate(), new QueryStatus(QueryStatus.OpStatus.FINISHED, true),
+      prefetchExecutor, prefetchBytes);
+  }
+
+  private List<QueryResult> createRows(int count, String prefix) {
+    List<QueryResult> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(new QueryResult(Collections.<Object>singletonList(prefix + i)));
+    }
+    return rows;
+  }
+
+  /**
+   * An {@link ExploreHttpClient} that returns the batches of results added to it, and then an empty batch.
+   */
+  private static final class TestExploreClient extends ExploreHttpClient {
+
+    private final Queue<List<QueryResult>> batches = new ConcurrentLinkedQueue<>();
+    private final List<Integer> requestedSizes = new CopyOnWriteArrayList<>();
+    private final List<Thread> schemaThreads = new CopyOnWriteArrayList<>();
+    private final Semaphore requests = new Semaphore(0);
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+    private volatile CountDownLatch blockLatch;
+    private volatile boolean closed;
+
+    void addBatch(List<QueryResult> batch) {
+      batches.add(batch);
+    }
+
+    /**
+     * Blocks the fetches once all the added batches are returned, until the given latch is released.
+     */
+    void blockFetch(CountDownLatch latch) {
+      blockLatch = latch;
+    }
+
+    boolean awaitRequests(int count, long timeout, TimeUnit unit) throws InterruptedException {
+      return requests.tryAcquire(count, timeout, unit);
+    }
+
+    boolean awaitInterrupted(long timeout, TimeUnit unit) throws InterruptedException {
+      return interrupted.await(timeout, unit);
+    }
+
+    List<Integer> getRequestedSizes() {
+      return requestedSizes;
+    }
+
+    List<Thread> getSchemaThreads() {
+      return schemaThreads;
+    }
+
+    boolean isClosed() {
+      return closed;
+    }
+
+    @Override
+    public List<ColumnDesc> getResultSchema(QueryHandle handle) throws ExploreException, HandleNotFoundException {
+      schemaThreads.add(Thread.currentThread());
+      return Collections.singletonList(new ColumnDesc("value", "STRING", 1, null));
+    }
+
+    @Override
+    public List<QueryResult> nextResults(QueryHandle handle,
+                                         int size) throws ExploreException, HandleNotFoundException {
+      requestedSizes.add(size);
+      requests.release();
+      List<QueryResult> batch = batches.poll();
+      if (batch != null) {
+        return batch;
+      }
+      CountDownLatch latch = blockLatch;
+      if (latch != null) {
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          interrupted.countDown();
+          throw new ExploreException(e);
+        }
+      }
+      return Collections.emptyList();
+    }
+
+    @Override
+    public void close(QueryHandle handle) throws ExploreException, HandleNotFoundException {
+      closed = true;
+    }
+
+    @Override
+    protected InetSocketAddress getExploreServiceAddress() {
+      return InetSocketAddress.createUnresolved("localhost", 0);
+    }
+
+    @Override
+    protected String getAuthToken() {
+      return null;
+    }
+
+    @Override
+    protected boolean isSSLEnabled() {
+      return false;
+    }
+
+    @Override
+    protected boolean verifySSLCert() {
+      return false;
+    }
+  }
+}
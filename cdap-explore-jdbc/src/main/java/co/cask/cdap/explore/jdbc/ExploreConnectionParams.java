@@ -16,6 +16,7 @@
 
 package co.cask.cdap.explore.jdbc;
 
+import co.cask.cdap.explore.client.AbstractExploreClient;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
@@ -40,7 +41,8 @@ public class ExploreConnectionParams {
     NAMESPACE("namespace"),
     SSL_ENABLED("ssl.enabled"),
     VERIFY_SSL_CERT("verify.ssl.cert"),
-    FETCH_SIZE("fetch.size");
+    FETCH_SIZE("fetch.size"),
+    PREFETCH_BYTES("prefetch.bytes");
 
     private final String name;
 
@@ -99,6 +101,24 @@ public class ExploreConnectionParams {
     }
   }
 
+  /**
+   * Returns the maximum number of bytes of query results fetched ahead of consumption. Zero disables prefetching.
+   */
+  public long getPrefetchBytes() {
+    Collection<String> prefetchBytes = extraInfos.get(Info.PREFETCH_BYTES);
+    if (prefetchBytes.isEmpty()) {
+      return AbstractExploreClient.DEFAULT_PREFETCH_BYTES;
+    }
+    String prefetch = prefetchBytes.iterator().next();
+    try {
+      return Long.parseLong(prefetch);
+    } catch (NumberFormatException e) {
+      LOG.warn("Could not parse prefetch bytes '{}'. Using default of {}.",
+               prefetch, AbstractExploreClient.DEFAULT_PREFETCH_BYTES);
+      return AbstractExploreClient.DEFAULT_PREFETCH_BYTES;
+    }
+  }
+
   /**
    * Parse Explore connection url string to retrieve the necessary parameters to connect to CDAP.
    */
@@ -71,7 +71,8 @@ public class ExploreDriver implements Driver {
     boolean verifySSLCert = getBoolean(params, ExploreConnectionParams.Info.VERIFY_SSL_CERT, true);
 
     ExploreClient exploreClient =
-      new FixedAddressExploreClient(params.getHost(), params.getPort(), authToken, sslEnabled, verifySSLCert);
+      new FixedAddressExploreClient(params.getHost(), params.getPort(), authToken, sslEnabled, verifySSLCert,
+                                    params.getPrefetchBytes());
     try {
       exploreClient.ping();
     } catch (UnauthenticatedException e) {
@@ -17,6 +17,7 @@
 package co.cask.cdap.explore.jdbc;
 
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.explore.client.AbstractExploreClient;
 import com.google.common.collect.ImmutableMultimap;
 import org.junit.Assert;
 import org.junit.Test;
@@ -35,6 +36,18 @@ public class ExploreConnectionParamsTest {
     Assert.assertEquals(ExploreConnectionParams.DEFAULT_FETCH_SIZE, connectionParams.getFetchSize());
   }
 
+  @Test
+  public void testParsePrefetchBytes() {
+    ExploreConnectionParams connectionParams = ExploreConnectionParams.parseConnectionUrl(BASE);
+    Assert.assertEquals(AbstractExploreClient.DEFAULT_PREFETCH_BYTES, connectionParams.getPrefetchBytes());
+    connectionParams = ExploreConnectionParams.parseConnectionUrl(BASE + "?prefetch.bytes=0");
+    Assert.assertEquals(0L, connectionParams.getPrefetchBytes());
+    connectionParams = ExploreConnectionParams.parseConnectionUrl(BASE + "?prefetch.bytes=1048576");
+    Assert.assertEquals(1048576L, connectionParams.getPrefetchBytes());
+    connectionParams = ExploreConnectionParams.parseConnectionUrl(BASE + "?prefetch.bytes=12asd");
+    Assert.assertEquals(AbstractExploreClient.DEFAULT_PREFETCH_BYTES, connectionParams.getPrefetchBytes());
+  }
+
   @Test
   public void parseConnectionUrlTest() {
     ExploreConnectionParams connectionParams;
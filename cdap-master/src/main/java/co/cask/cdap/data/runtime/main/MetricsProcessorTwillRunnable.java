@@ -209,5 +209,19 @@ public final class MetricsProcessorTwillRunnable extends AbstractMasterTwillRunn
     public int providesQueueSize(CConfiguration cConf) {
       return cConf.getInt(Constants.Metrics.QUEUE_SIZE);
     }
+
+    @SuppressWarnings("unused")
+    @Provides
+    @Named(Constants.Metrics.PROCESSOR_FLUSH_INTERVAL_MS)
+    public long providesFlushInterval(CConfiguration cConf) {
+      return cConf.getLong(Constants.Metrics.PROCESSOR_FLUSH_INTERVAL_MS);
+    }
+
+    @SuppressWarnings("unused")
+    @Provides
+    @Named(Constants.Metrics.PROCESSOR_MAX_BUFFERED_METRICS)
+    public int providesMaxBufferedMetrics(CConfiguration cConf) {
+      return cConf.getInt(Constants.Metrics.PROCESSOR_MAX_BUFFERED_METRICS);
+    }
   }
 }
@@ -41,6 +41,7 @@ import co.cask.cdap.common.service.Retries;
 import co.cask.cdap.common.service.RetryStrategies;
 import co.cask.cdap.data.ProgramContextAware;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.metadata.writer.LineageWriter;
 import co.cask.cdap.data2.transaction.stream.StreamAdmin;
 import co.cask.cdap.internal.app.runtime.AbstractProgramRunnerWithPlugin;
 import co.cask.cdap.internal.app.runtime.BasicProgramContext;
@@ -105,6 +106,7 @@ final class SparkProgramRunner extends AbstractProgramRunnerWithPlugin
   private final AuthorizationEnforcer authorizationEnforcer;
   private final AuthenticationContext authenticationContext;
   private final MessagingService messagingService;
+  private final LineageWriter lineageWriter;
 
   @Inject
   SparkProgramRunner(CConfiguration cConf, Configuration hConf, LocationFactory locationFactory,
@@ -113,7 +115,7 @@ final class SparkProgramRunner extends AbstractProgramRunnerWithPlugin
                      DiscoveryServiceClient discoveryServiceClient, StreamAdmin streamAdmin,
                      RuntimeStore runtimeStore, SecureStore secureStore, SecureStoreManager secureStoreManager,
                      AuthorizationEnforcer authorizationEnforcer, AuthenticationContext authenticationContext,
-                     MessagingService messagingService) {
+                     MessagingService messagingService, LineageWriter lineageWriter) {
     super(cConf);
     this.cConf = cConf;
     this.hConf = hConf;
@@ -129,6 +131,7 @@ final class SparkProgramRunner extends AbstractProgramRunnerWithPlugin
     this.authorizationEnforcer = authorizationEnforcer;
     this.authenticationContext = authenticationContext;
     this.messagingService = messagingService;
+    this.lineageWriter = lineageWriter;
   }
 
   @Override
@@ -292,6 +295,7 @@ final class SparkProgramRunner extends AbstractProgramRunnerWithPlugin
       @Override
       public void terminated(Service.State from) {
         closeAll(closeables);
+        ProgramRunners.flushLineage(lineageWriter, programId, runId.getId());
         ProgramRunStatus runStatus = ProgramController.State.COMPLETED.getRunStatus();
         if (from == Service.State.STOPPING) {
           // Service was killed
@@ -312,6 +316,7 @@ final class SparkProgramRunner extends AbstractProgramRunnerWithPlugin
       @Override
       public void failed(Service.State from, @Nullable final Throwable failure) {
         closeAll(closeables);
+        ProgramRunners.flushLineage(lineageWriter, programId, runId.getId());
 
         Retries.supplyWithRetries(new Supplier<Void>() {
           @Override
@@ -33,6 +33,7 @@ import co.cask.cdap.common.logging.LoggingContextAccessor;
 import co.cask.cdap.data.ProgramContextAware;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.metadata.writer.LineageWriter;
 import co.cask.cdap.data2.transaction.stream.StreamAdmin;
 import co.cask.cdap.internal.app.runtime.BasicProgramContext;
 import co.cask.cdap.internal.app.runtime.ProgramClassLoader;
@@ -66,6 +67,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.Flushable;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -166,6 +168,7 @@ public final class SparkRuntimeContextProvider {
       final KafkaClientService kafkaClientService = injector.getInstance(KafkaClientService.class);
       final MetricsCollectionService metricsCollectionService = injector.getInstance(MetricsCollectionService.class);
       final StreamCoordinatorClient streamCoordinatorClient = injector.getInstance(StreamCoordinatorClient.class);
+      final LineageWriter lineageWriter = injector.getInstance(LineageWriter.class);
 
       // Use the shutdown hook to shutdown services, since this class should only be loaded from System classloader
       // of the spark executor, hence there should be exactly one instance only.
@@ -177,6 +180,15 @@ public final class SparkRuntimeContextProvider {
         public void run() {
           // The logger may already been shutdown. Use System.out/err instead
           System.out.println("Shutting SparkClassLoader services");
+          // Lineage accesses are written in batches, make sure all of them are written before the executor exits
+          if (lineageWriter instanceof Flushable) {
+            try {
+              ((Flushable) lineageWriter).flush();
+            } catch (Exception e) {
+              System.err.println("Exception when writing lineage accesses");
+              e.printStackTrace(System.err);
+            }
+          }
           Future<List<ListenableFuture<Service.State>>> future = Services.chainStop(logAppenderService,
                                                                                     streamCoordinatorClient,
                                                                                     metricsCollectionService,
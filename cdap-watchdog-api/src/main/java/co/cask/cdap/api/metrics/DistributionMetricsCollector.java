@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.metrics;
+
+/**
+ * A {@link MetricsCollector} that can also record value distributions. This is internal to the platform and is not
+ * part of the program facing {@link MetricsCollector}; callers should check for it with {@code instanceof}.
+ */
+public interface DistributionMetricsCollector extends MetricsCollector {
+
+  /**
+   * Records a value into the distribution of a metric at the current time, from which percentiles can be queried.
+   * A percentile is queried by appending a {@code .pNN} suffix to the metric name, e.g. {@code .p50}, {@code .p99}
+   * or {@code .p999}.
+   * @param metricName Name of the metric.
+   * @param value value to record. Negative values are recorded as zero.
+   */
+  void distribution(String metricName, long value);
+}
@@ -16,9 +16,14 @@
 package co.cask.cdap.api.metrics;
 
 /**
- * MetricType - COUNTER or GAUGE type
+ * MetricType - COUNTER, GAUGE or DISTRIBUTION type
  */
 public enum MetricType {
   COUNTER,
-  GAUGE
+  GAUGE,
+  /**
+   * One bucket of a distribution. The metric name carries the bucket index and the value is the number of recorded
+   * values that fell into the bucket.
+   */
+  DISTRIBUTION
 }
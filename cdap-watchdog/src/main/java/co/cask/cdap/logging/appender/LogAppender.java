@@ -17,7 +17,7 @@
 package co.cask.cdap.logging.appender;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import co.cask.cdap.common.logging.LoggingContext;
 import co.cask.cdap.common.logging.LoggingContextAccessor;
 import co.cask.cdap.internal.lang.CallerClassSecurityManager;
@@ -29,9 +29,10 @@ import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 /**
- * CDAP log appender interface.
+ * CDAP log appender interface. Events are appended without synchronization, hence implementations must be
+ * thread safe.
  */
-public abstract class LogAppender extends AppenderBase<ILoggingEvent> {
+public abstract class LogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
 
   private static final String ORIGIN_KEY = ".origin";
   private static final int LOGGER_CACHE_SIZE = 1000;
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.appender.kafka;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.annotation.Nullable;
+
+/**
+ * A bounded, lock-free, multi-producer ring buffer. Each slot carries a sequence number, which tells whether the slot
+ * is free for the producer claiming a given position or ready for the consumer reading it. Neither
+ * {@link #offer(Object)} nor {@link #poll()} ever blocks.
+ *
+ * @param <T> type of element in the buffer
+ */
+final class BoundedRingBuffer<T> {
+
+  private final int mask;
+  private final AtomicReferenceArray<T> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong head;
+  private final AtomicLong tail;
+
+  /**
+   * Creates a new instance with capacity of at least the given size, rounded up to the next power of two.
+   */
+  BoundedRingBuffer(int size) {
+    Preconditions.checkArgument(size > 0 && size <= (1 << 30), "Buffer size must be in (0, 2^30]: %s", size);
+    int capacity = Integer.highestOneBit(size);
+    if (capacity < size) {
+      capacity <<= 1;
+    }
+    this.mask = capacity - 1;
+    this.elements = new AtomicReferenceArray<>(capacity);
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      sequences.set(i, i);
+    }
+    this.head = new AtomicLong();
+    this.tail = new AtomicLong();
+  }
+
+  /**
+   * Returns the capacity of this buffer.
+   */
+  int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Returns an approximation of the number of elements in the buffer.
+   */
+  int size() {
+    long size = tail.get() - head.get();
+    return (int) Math.max(0L, Math.min(size, capacity()));
+  }
+
+  /**
+   * Returns {@code true} if the buffer is empty.
+   */
+  boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Inserts the given element into the buffer.
+   *
+   * @return {@code true} if the element was inserted, {@code false} if the buffer is full
+   */
+  boolean offer(T element) {
+    Preconditions.checkNotNull(element);
+    long pos = tail.get();
+    int idx;
+    while (true) {
+      idx = (int) (pos & mask);
+      long diff = sequences.get(idx) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          break;
+        }
+        pos = tail.get();
+      } else if (diff < 0) {
+        // The slot still holds an element from the previous round, hence the buffer is full
+        return false;
+      } else {
+        pos = tail.get();
+      }
+    }
+    elements.set(idx, element);
+    sequences.set(idx, pos + 1);
+    return true;
+  }
+
+  /**
+   * Removes and returns the oldest element in the buffer.
+   *
+   * @return the element or {@code null} if the buffer is empty
+   */
+  @Nullable
+  T poll() {
+    long pos = head.get();
+    int idx;
+    while (true) {
+      idx = (int) (pos & mask);
+      long diff = sequences.get(idx) - (pos + 1);
+      if (diff == 0) {
+        if (head.compareAndSet(pos, pos + 1)) {
+          break;
+        }
+        pos = head.get();
+      } else if (diff < 0) {
+        // The slot is not yet published by a producer, hence the buffer is empty
+        return null;
+      } else {
+        pos = head.get();
+      }
+    }
+    T element = elements.get(idx);
+    elements.set(idx, null);
+    sequences.set(idx, pos + mask + 1);
+    return element;
+  }
+}
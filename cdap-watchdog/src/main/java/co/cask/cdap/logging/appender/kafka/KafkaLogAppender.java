@@ -16,6 +16,7 @@
 
 package co.cask.cdap.logging.appender.kafka;
 
+import ch.qos.logback.classic.Level;
 import ch.qos.logback.core.spi.ContextAware;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
@@ -28,58 +29,199 @@ import co.cask.cdap.logging.appender.LogAppender;
 import co.cask.cdap.logging.appender.LogMessage;
 import co.cask.cdap.logging.serialize.LoggingEventSerializer;
 import co.cask.cdap.proto.id.NamespaceId;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Supplier;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import com.google.inject.Inject;
 import kafka.producer.KeyedMessage;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.annotation.Nullable;
 
 /**
- * Log appender that publishes log messages to Kafka.
+ * Log appender that publishes log messages to Kafka. Log messages are buffered in a lock-free ring buffer and
+ * published in batches by a background thread. Appending doesn't take any lock unless messages are spilled. What
+ * happens when the buffer is full is governed by the {@link QueueFullPolicy} configured through
+ * {@link Constants.Logging#LOG_PUBLISH_QUEUE_FULL_POLICY}.
  */
 public final class KafkaLogAppender extends LogAppender {
 
-  private static final int QUEUE_SIZE = 512;
-
   private static final String APPENDER_NAME = "KafkaLogAppender";
 
-  private final BlockingQueue<LogMessage> messageQueue;
+  // Time to park when waiting for the buffer to have messages or to have space for new messages
+  private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  // Emits a status warning for every this number of dropped messages
+  private static final long DROP_WARN_INTERVAL = 1000L;
+
+  private final CConfiguration cConf;
+  private final QueueFullPolicy queueFullPolicy;
+  private final BoundedRingBuffer<LogMessage> messageQueue;
+  private final int highWatermark;
   private final KafkaLogPublisher kafkaLogPublisher;
+  private final AtomicLong droppedCount;
+  private final AtomicLong spilledCount;
+  private final LoggingEventSerializer spillSerializer;
+  private volatile LogSpillFile spillFile;
 
   @Inject
-  KafkaLogAppender(CConfiguration cConf) {
+  KafkaLogAppender(final CConfiguration cConf) {
+    this(cConf, new Supplier<LogProducer>() {
+      @Override
+      public LogProducer get() {
+        return new SimpleKafkaProducer(cConf);
+      }
+    });
+  }
+
+  /**
+   * Creates an appender that publishes through producers created by the given supplier, when the appender starts.
+   */
+  @VisibleForTesting
+  KafkaLogAppender(CConfiguration cConf, Supplier<? extends LogProducer> producerSupplier) {
     setName(APPENDER_NAME);
-    this.messageQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
-    this.kafkaLogPublisher = new KafkaLogPublisher(cConf, messageQueue, this);
+    this.cConf = cConf;
+    this.queueFullPolicy = QueueFullPolicy.valueOf(
+      cConf.get(Constants.Logging.LOG_PUBLISH_QUEUE_FULL_POLICY, QueueFullPolicy.BLOCK.name()).toUpperCase());
+    this.messageQueue = new BoundedRingBuffer<>(cConf.getInt(Constants.Logging.LOG_PUBLISH_QUEUE_SIZE, 512));
+    // Above the high watermark, messages below WARN level are dropped under the DROP policy
+    this.highWatermark = messageQueue.capacity() - messageQueue.capacity() / 4;
+    this.droppedCount = new AtomicLong();
+    this.spilledCount = new AtomicLong();
+    // Spilling happens on the logging thread, hence needs a serializer separate from the publisher one.
+    this.spillSerializer = new LoggingEventSerializer();
+    this.kafkaLogPublisher = new KafkaLogPublisher(cConf, this, producerSupplier);
   }
 
   @Override
   public void start() {
+    if (queueFullPolicy == QueueFullPolicy.SPILL) {
+      try {
+        File spillDir = new File(cConf.get(Constants.Logging.LOG_PUBLISH_SPILL_DIR,
+                                           System.getProperty("java.io.tmpdir")));
+        if (!spillDir.isDirectory() && !spillDir.mkdirs() && !spillDir.isDirectory()) {
+          throw new IOException("Failed to create log spill directory " + spillDir);
+        }
+        spillFile = new LogSpillFile(File.createTempFile("kafka-log-spill", ".dat", spillDir),
+                                     cConf.getLong(Constants.Logging.LOG_PUBLISH_SPILL_MAX_BYTES, 64L * 1024 * 1024));
+      } catch (IOException e) {
+        // Without the spill file, messages will be dropped when the buffer is full
+        addError("Failed to create log spill file. Log messages will be dropped when the buffer is full.", e);
+      }
+    }
     kafkaLogPublisher.startAndWait();
-    addInfo("Successfully initialized KafkaLogAppender.");
+    addInfo("Successfully initialized KafkaLogAppender with queue full policy " + queueFullPolicy);
     super.start();
   }
 
   @Override
   public void stop() {
     kafkaLogPublisher.stopAndWait();
+    LogSpillFile spillFile = this.spillFile;
+    this.spillFile = null;
+    if (spillFile != null) {
+      try {
+        spillFile.close();
+      } catch (IOException e) {
+        addWarn("Failed to close log spill file", e);
+      }
+    }
     super.stop();
   }
 
+  /**
+   * Returns the number of log messages dropped since this appender was created.
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Returns the number of log messages spilled to local file since this appender was created.
+   */
+  public long getSpilledCount() {
+    return spilledCount.get();
+  }
+
   @Override
   protected void appendEvent(LogMessage logMessage) {
     logMessage.prepareForDeferredProcessing();
     logMessage.getCallerData();
 
+    switch (queueFullPolicy) {
+      case BLOCK:
+        while (!messageQueue.offer(logMessage)) {
+          if (!kafkaLogPublisher.isRunning()) {
+            dropMessage(logMessage);
+            return;
+          }
+          LockSupport.parkNanos(this, PARK_NANOS);
+          if (Thread.currentThread().isInterrupted()) {
+            addInfo("Interrupted when adding log message to queue: " + logMessage.getFormattedMessage());
+            return;
+          }
+        }
+        break;
+      case DROP:
+        if ((messageQueue.size() >= highWatermark && !logMessage.getLevel().isGreaterOrEqual(Level.WARN))
+          || !messageQueue.offer(logMessage)) {
+          dropMessage(logMessage);
+        }
+        break;
+      case SPILL:
+        if (hasSpilledMessages()) {
+          // Keep spilling until the spill file is drained, since the publisher drains the buffer first
+          if (!spillMessage(logMessage) && !messageQueue.offer(logMessage)) {
+            dropMessage(logMessage);
+          }
+        } else if (!messageQueue.offer(logMessage) && !spillMessage(logMessage)) {
+          dropMessage(logMessage);
+        }
+        break;
+      default:
+        // this should never happen
+        throw new IllegalStateException("Unsupported queue full policy " + queueFullPolicy);
+    }
+  }
+
+  /**
+   * Writes the given message to the spill file.
+   *
+   * @return {@code true} if the message was spilled, {@code false} otherwise
+   */
+  private boolean spillMessage(LogMessage logMessage) {
+    LogSpillFile spillFile = this.spillFile;
+    if (spillFile == null) {
+      return false;
+    }
     try {
-      messageQueue.put(logMessage);
-    } catch (InterruptedException e) {
-      addInfo("Interrupted when adding log message to queue: " + logMessage.getFormattedMessage());
+      if (!spillFile.append(kafkaLogPublisher.getPartitionKey(logMessage.getLoggingContext()),
+                            spillSerializer.toBytes(logMessage))) {
+        return false;
+      }
+      spilledCount.incrementAndGet();
+      return true;
+    } catch (IOException e) {
+      addError("Failed to write log message to spill file", e);
+      return false;
+    }
+  }
+
+  private boolean hasSpilledMessages() {
+    LogSpillFile spillFile = this.spillFile;
+    return spillFile != null && !spillFile.isEmpty();
+  }
+
+  private void dropMessage(LogMessage logMessage) {
+    if (droppedCount.incrementAndGet() % DROP_WARN_INTERVAL == 1) {
+      addWarn("Log buffer is full. Dropped " + droppedCount.get() + " log messages so far, latest dropped message: "
+                + logMessage.getFormattedMessage());
     }
   }
 
@@ -89,26 +231,36 @@ public final class KafkaLogAppender extends LogAppender {
   private static final class KafkaLogPublisher extends AbstractExecutionThreadService {
 
     private final CConfiguration cConf;
-    private final BlockingQueue<LogMessage> messageQueue;
+    private final KafkaLogAppender appender;
+    private final BoundedRingBuffer<LogMessage> messageQueue;
     private final String topic;
+    private final int batchSize;
+    private final LogPartitionType partitionType;
     private final LoggingEventSerializer loggingEventSerializer;
     private final ContextAware contextAware;
     private final RetryStrategy retryStrategy;
-    private SimpleKafkaProducer producer;
+    private final Supplier<? extends LogProducer> producerSupplier;
+    private LogProducer producer;
     private volatile Thread blockingThread;
 
-    private KafkaLogPublisher(CConfiguration cConf, BlockingQueue<LogMessage> messageQueue, ContextAware contextAware) {
+    private KafkaLogPublisher(CConfiguration cConf, KafkaLogAppender appender,
+                              Supplier<? extends LogProducer> producerSupplier) {
       this.cConf = cConf;
-      this.messageQueue = messageQueue;
+      this.appender = appender;
+      this.messageQueue = appender.messageQueue;
       this.topic = cConf.get(Constants.Logging.KAFKA_TOPIC);
+      this.batchSize = cConf.getInt(Constants.Logging.LOG_PUBLISH_BATCH_SIZE, messageQueue.capacity());
+      this.partitionType = LogPartitionType.valueOf(
+        cConf.get(Constants.Logging.LOG_PUBLISH_PARTITION_KEY).toUpperCase());
       this.loggingEventSerializer = new LoggingEventSerializer();
-      this.contextAware = contextAware;
+      this.contextAware = appender;
       this.retryStrategy = RetryStrategies.fromConfiguration(cConf, "system.log.process.");
+      this.producerSupplier = producerSupplier;
     }
 
     @Override
     protected void startUp() throws Exception {
-      producer = new SimpleKafkaProducer(cConf);
+      producer = producerSupplier.get();
     }
 
     @Override
@@ -118,7 +270,7 @@ public final class KafkaLogAppender extends LogAppender {
 
     @Override
     protected void run() {
-      List<KeyedMessage<String, byte[]>> buffer = new ArrayList<>(QUEUE_SIZE);
+      List<KeyedMessage<String, byte[]>> buffer = new ArrayList<>(batchSize);
 
       int failures = 0;
       long failureStartTime = System.currentTimeMillis();
@@ -160,7 +312,7 @@ public final class KafkaLogAppender extends LogAppender {
       }
 
       // Publish all remaining messages.
-      while (!messageQueue.isEmpty() || !buffer.isEmpty()) {
+      while (!messageQueue.isEmpty() || !buffer.isEmpty() || appender.hasSpilledMessages()) {
         try {
           publishMessages(buffer, false);
         } catch (Exception e) {
@@ -194,21 +346,19 @@ public final class KafkaLogAppender extends LogAppender {
     }
 
     /**
-     * Publishes messages from the message queue to Kafka.
+     * Publishes messages from the message queue and then from the spill file to Kafka, up to the batch size.
      *
      * @param buffer a buffer for storing {@link KeyedMessage} for publishing to Kafka
      * @throws InterruptedException if the thread is interrupted
      */
     private void publishMessages(List<KeyedMessage<String, byte[]>> buffer,
-                                 boolean blockForMessage) throws InterruptedException {
-      int maxBufferSize = QUEUE_SIZE;
-
+                                 boolean blockForMessage) throws InterruptedException, IOException {
       if (blockForMessage) {
         blockingThread = Thread.currentThread();
         try {
-          if (isRunning()) {
-            buffer.add(createKeyedMessage(messageQueue.take()));
-            maxBufferSize--;
+          LogMessage message = take();
+          if (message != null) {
+            buffer.add(createKeyedMessage(message));
           }
         } catch (InterruptedException e) {
           // just ignore and keep going. This happen when this publisher is getting shutdown, but we still want
@@ -218,7 +368,7 @@ public final class KafkaLogAppender extends LogAppender {
         }
       }
 
-      while (buffer.size() < maxBufferSize) {
+      while (buffer.size() < batchSize) {
         // Poll for more messages
         LogMessage message = messageQueue.poll();
         if (message == null) {
@@ -227,10 +377,39 @@ public final class KafkaLogAppender extends LogAppender {
         buffer.add(createKeyedMessage(message));
       }
 
+      // Fill the rest of the batch from the spill file
+      LogSpillFile spillFile = appender.spillFile;
+      if (spillFile != null && buffer.size() < batchSize) {
+        spillFile.drain(topic, buffer, batchSize - buffer.size());
+      }
+
+      if (buffer.isEmpty()) {
+        return;
+      }
+
       // Publish all messages
       producer.publish(buffer);
     }
 
+    /**
+     * Waits for a message to become available in the message queue or spill file.
+     *
+     * @return the message from the queue, or {@code null} if there are spilled messages or the publisher is stopping
+     */
+    @Nullable
+    private LogMessage take() throws InterruptedException {
+      LogMessage message = messageQueue.poll();
+      while (message == null && isRunning() && !appender.hasSpilledMessages()) {
+        // Parking instead of signaling keeps the appending thread free from any wake up cost
+        LockSupport.parkNanos(this, PARK_NANOS);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        message = messageQueue.poll();
+      }
+      return message;
+    }
+
     /**
      * Creates a {@link KeyedMessage} for the given {@link LogMessage}.
      */
@@ -249,7 +428,7 @@ public final class KafkaLogAppender extends LogAppender {
         return loggingContext.getLogPartition();
       }
 
-      switch (LogPartitionType.valueOf(cConf.get(Constants.Logging.LOG_PUBLISH_PARTITION_KEY).toUpperCase())) {
+      switch (partitionType) {
         case PROGRAM:
           return loggingContext.getLogPartition();
         case APPLICATION:
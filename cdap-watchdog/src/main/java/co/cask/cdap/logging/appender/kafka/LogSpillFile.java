@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.appender.kafka;
+
+import kafka.producer.KeyedMessage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bounded local file for holding serialized log messages that cannot be buffered in memory. Each entry is
+ * written as the partition key followed by the serialized event, both prefixed with their lengths. The file is used
+ * as a circular buffer, so that space of drained entries is reused while there are still pending entries. It is
+ * truncated every time all entries have been drained.
+ */
+@ThreadSafe
+final class LogSpillFile implements Closeable {
+
+  private final File file;
+  private final long maxBytes;
+  private RandomAccessFile raf;
+  private long readPos;
+  private long writePos;
+
+  LogSpillFile(File file, long maxBytes) throws IOException {
+    File parent = file.getParentFile();
+    if (parent != null && !parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+      throw new IOException("Failed to create directory " + parent);
+    }
+    this.file = file;
+    this.maxBytes = maxBytes;
+    this.raf = new RandomAccessFile(file, "rw");
+    this.raf.setLength(0L);
+  }
+
+  /**
+   * Appends an entry to the spill file.
+   *
+   * @return {@code true} if the entry was written, {@code false} if the file has reached its size limit
+   */
+  synchronized boolean append(String partitionKey, byte[] payload) throws IOException {
+    byte[] key = partitionKey.getBytes(StandardCharsets.UTF_8);
+    long size = 8L + key.length + payload.length;
+    if (raf == null || writePos - readPos + size > maxBytes) {
+      return false;
+    }
+    // Encode the whole entry first so that it is written with at most two calls
+    ByteBuffer entry = ByteBuffer.allocate((int) size);
+    entry.putInt(key.length).put(key).putInt(payload.length).put(payload);
+    write(writePos, entry.array());
+    writePos += size;
+    return true;
+  }
+
+  /**
+   * Returns {@code true} if there is no pending entry in the spill file.
+   */
+  synchronized boolean isEmpty() {
+    return readPos >= writePos;
+  }
+
+  /**
+   * Reads up to the given number of entries from the spill file into the given buffer.
+   *
+   * @return number of entries read
+   */
+  synchronized int drain(String topic, List<KeyedMessage<String, byte[]>> buffer, int maxEntries) throws IOException {
+    if (raf == null) {
+      return 0;
+    }
+    int count = 0;
+    try {
+      byte[] length = new byte[4];
+      while (count < maxEntries && readPos < writePos) {
+        long pos = readPos;
+        byte[] key = new byte[ByteBuffer.wrap(read(pos, length)).getInt()];
+        pos += length.length + read(pos + length.length, key).length;
+        byte[] payload = new byte[ByteBuffer.wrap(read(pos, length)).getInt()];
+        pos += length.length + read(pos + length.length, payload).length;
+        buffer.add(new KeyedMessage<>(topic, new String(key, StandardCharsets.UTF_8), payload));
+        readPos = pos;
+        count++;
+      }
+    } catch (IOException e) {
+      // The remaining content cannot be trusted, hence discard it
+      readPos = writePos;
+      throw e;
+    } finally {
+      if (readPos >= writePos) {
+        readPos = writePos = 0L;
+        raf.setLength(0L);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Writes the given bytes at the given position, wrapping around to the beginning of the file at the size limit.
+   */
+  private void write(long pos, byte[] bytes) throws IOException {
+    long offset = pos % maxBytes;
+    int len = (int) Math.min(bytes.length, maxBytes - offset);
+    raf.seek(offset);
+    raf.write(bytes, 0, len);
+    if (len < bytes.length) {
+      raf.seek(0L);
+      raf.write(bytes, len, bytes.length - len);
+    }
+  }
+
+  /**
+   * Fills the given array with the bytes at the given position, wrapping around to the beginning of the file at
+   * the size limit.
+   *
+   * @return the given array
+   */
+  private byte[] read(long pos, byte[] bytes) throws IOException {
+    long offset = pos % maxBytes;
+    int len = (int) Math.min(bytes.length, maxBytes - offset);
+    raf.seek(offset);
+    raf.readFully(bytes, 0, len);
+    if (len < bytes.length) {
+      raf.seek(0L);
+      raf.readFully(bytes, len, bytes.length - len);
+    }
+    return bytes;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (raf == null) {
+      return;
+    }
+    try {
+      raf.close();
+    } finally {
+      raf = null;
+      file.delete();
+    }
+  }
+}
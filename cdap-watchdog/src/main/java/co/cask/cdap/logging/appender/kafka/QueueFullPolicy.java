@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.appender.kafka;
+
+/**
+ * Policy applied by the {@link KafkaLogAppender} when its in-memory buffer is full.
+ */
+public enum QueueFullPolicy {
+  /**
+   * Blocks the logging thread until there is room in the buffer.
+   */
+  BLOCK,
+
+  /**
+   * Drops log events. Once the buffer passes its high watermark, events below {@code WARN} level are dropped first.
+   */
+  DROP,
+
+  /**
+   * Spills log events to a bounded local file, which get published once the buffer drains. Once events are spilled,
+   * new events also go to the spill file until it is drained, so that events are published in order.
+   * Events are dropped if both the spill file and the buffer are full.
+   */
+  SPILL
+}
@@ -34,7 +34,7 @@ import java.util.concurrent.Executors;
 /**
  * A Kafka producer that publishes log messages to Kafka brokers.
  */
-final class SimpleKafkaProducer {
+final class SimpleKafkaProducer implements LogProducer {
 
   // Kafka producer is thread safe
   private final Producer<String, byte[]> producer;
@@ -56,7 +56,8 @@ final class SimpleKafkaProducer {
     producer = createProducer(config);
   }
 
-  void publish(List<KeyedMessage<String, byte[]>> messages) {
+  @Override
+  public void publish(List<KeyedMessage<String, byte[]>> messages) {
     // Clear the interrupt flag, otherwise it won't be able to publish
     boolean threadInterrupted = Thread.interrupted();
     try {
@@ -69,7 +70,8 @@ final class SimpleKafkaProducer {
     }
   }
 
-  void stop() {
+  @Override
+  public void stop() {
     producer.close();
   }
 
@@ -19,13 +19,20 @@ package co.cask.cdap.logging.pipeline;
 import it.unimi.dsi.fastutil.ints.Int2ObjectArrayMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
 import javax.annotation.concurrent.NotThreadSafe;
 
 /**
  * A queue for storing time based events with offsets association.
+ * <p/>
+ * Events are ordered by event time, then by partition, then by offset. Internally, each event occupies a slot
+ * in a set of parallel arrays, which hold the event time, partition, size, event and offset. Slots of removed events
+ * are reused by events added later. The ordering is maintained by a binary heap of slot indices, and the offsets
+ * of each partition are kept in a sorted array of slot indices. Hence adding and removing an event doesn't
+ * allocate any object, except when the arrays need to grow.
  *
  * @param <Event> Type of event stored in the queue.
  * @param <Offset> Type of event offset associated with the event.
@@ -33,45 +40,89 @@ import javax.annotation.concurrent.NotThreadSafe;
 @NotThreadSafe
 public final class TimeEventQueue<Event, Offset extends Comparable<Offset>> implements Iterable<Event> {
 
-  private final SortedSet<TimeEvent<Event, Offset>> events;
-  private final Int2ObjectMap<SortedSet<Offset>> partitionOffsets;
+  private static final int INITIAL_CAPACITY = 64;
+
+  private final Int2ObjectMap<PartitionOffsets> partitionOffsets;
+
+  // Parallel arrays indexed by slot
+  private long[] eventTimes;
+  private int[] partitions;
+  private int[] eventSizes;
+  private Object[] events;
+  private Object[] offsets;
+  // Position of the slot in the heap
+  private int[] heapPositions;
+
+  // Stack of slots freed by removed events
+  private int[] freeSlots;
+  private int freeSlotCount;
+  // Number of slots ever used
+  private int usedSlots;
+
+  // Binary min heap of slots
+  private int[] heap;
+  private int heapSize;
+
   private long totalSize;
+  private int modCount;
 
   public TimeEventQueue(Iterable<Integer> partitions) {
-    this.events = new TreeSet<>();
     this.partitionOffsets = new Int2ObjectArrayMap<>();
-
     for (int partition : partitions) {
-      partitionOffsets.put(partition, new TreeSet<Offset>());
+      partitionOffsets.put(partition, new PartitionOffsets());
     }
+
+    this.eventTimes = new long[INITIAL_CAPACITY];
+    this.partitions = new int[INITIAL_CAPACITY];
+    this.eventSizes = new int[INITIAL_CAPACITY];
+    this.events = new Object[INITIAL_CAPACITY];
+    this.offsets = new Object[INITIAL_CAPACITY];
+    this.heapPositions = new int[INITIAL_CAPACITY];
+    this.freeSlots = new int[INITIAL_CAPACITY];
+    this.heap = new int[INITIAL_CAPACITY];
   }
 
   public void add(Event event, long eventTimestamp, int eventSize, int partition, Offset offset) {
-    SortedSet<Offset> offsets = getOffsets(partition);
-    TimeEvent<Event, Offset> timeEvent = new TimeEvent<>(eventTimestamp, partition, offset, event, eventSize);
-    if (events.add(timeEvent)) {
-      if (!offsets.add(offset)) {
-        events.remove(timeEvent);
-        throw new IllegalArgumentException("Adding different event with the same offset "
-                                             + offset + ", " + event);
+    PartitionOffsets sortedOffsets = getOffsets(partition);
+    int index = sortedOffsets.search(offset);
+    if (index >= 0) {
+      // Adding the same event again is a no-op
+      if (eventTimes[sortedOffsets.get(index)] == eventTimestamp) {
+        return;
       }
-
-      totalSize += eventSize;
+      throw new IllegalArgumentException("Adding different event with the same offset " + offset + ", " + event);
     }
+
+    int slot = allocateSlot();
+    eventTimes[slot] = eventTimestamp;
+    partitions[slot] = partition;
+    eventSizes[slot] = eventSize;
+    events[slot] = event;
+    offsets[slot] = offset;
+
+    sortedOffsets.insert(-index - 1, slot);
+    heap[heapSize] = slot;
+    siftUp(heap, heapSize++, true);
+
+    totalSize += eventSize;
+    modCount++;
   }
 
   /**
    * Returns the event in the queue with the smallest timestamp.
    */
   public Event first() {
-    return events.first().getEvent();
+    if (heapSize == 0) {
+      throw new NoSuchElementException();
+    }
+    return getEvent(heap[0]);
   }
 
   /**
    * Returns {@code true} if there is no event in the queue.
    */
   public boolean isEmpty() {
-    return events.isEmpty();
+    return heapSize == 0;
   }
 
   /**
@@ -85,7 +136,7 @@ public final class TimeEventQueue<Event, Offset extends Comparable<Offset>> impl
    * Returns the number of events in the queue.
    */
   public int size() {
-    return events.size();
+    return heapSize;
   }
 
   /**
@@ -99,67 +150,237 @@ public final class TimeEventQueue<Event, Offset extends Comparable<Offset>> impl
    * Returns the smallest offset stored for the given partition.
    */
   public Offset getSmallestOffset(int partition) {
-    SortedSet<Offset> offsets = getOffsets(partition);
-    if (offsets.isEmpty()) {
+    PartitionOffsets sortedOffsets = getOffsets(partition);
+    if (sortedOffsets.isEmpty()) {
       throw new IllegalStateException("Queue is empty");
     }
-    return offsets.first();
+    return getOffset(sortedOffsets.get(0));
   }
 
+  /**
+   * Returns an {@link EventIterator} that iterates events in the queue in order. Iterating by repeatedly calling
+   * {@link EventIterator#next()} followed by {@link EventIterator#remove()} only operates on the head of the heap.
+   * If an event is skipped without removing it, the iterator continues on a copy of the heap.
+   */
   @Override
   public EventIterator<Event, Offset> iterator() {
-    final Iterator<TimeEvent<Event, Offset>> iterator = events.iterator();
     return new EventIterator<Event, Offset>() {
 
-      private TimeEvent<Event, Offset> currentEvent;
+      private int expectedModCount = modCount;
+      // Copy of the heap, only used after an event was skipped
+      private int[] remaining;
+      private int remainingSize;
+      // Slot of the event returned by the last next() call, or -1 if there is none or it was removed
+      private int currentSlot = -1;
 
       @Override
       public boolean hasNext() {
-        return iterator.hasNext();
+        if (remaining != null) {
+          return remainingSize > 0;
+        }
+        // If the current event is not removed, it is the head of the heap
+        return heapSize > (currentSlot < 0 ? 0 : 1);
       }
 
       @Override
       public Event next() {
-        currentEvent = iterator.next();
-        return currentEvent.getEvent();
+        checkModification();
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        if (remaining == null && currentSlot >= 0) {
+          // The current event is skipped, continue the iteration on a copy of the heap without the current event
+          remaining = Arrays.copyOf(heap, heapSize);
+          remainingSize = heapSize;
+          poll(remaining, remainingSize--);
+        }
+        currentSlot = remaining == null ? heap[0] : poll(remaining, remainingSize--);
+        return getEvent(currentSlot);
       }
 
       @Override
       public void remove() {
-        if (currentEvent == null) {
-          throw new IllegalStateException("The next() method must be called first.");
-        }
-        iterator.remove();
-        partitionOffsets.get(currentEvent.getPartition()).remove(currentEvent.getOffset());
-        totalSize -= currentEvent.getEventSize();
-        currentEvent = null;
+        checkCurrent();
+        checkModification();
+        removeSlot(currentSlot);
+        expectedModCount = modCount;
+        currentSlot = -1;
       }
 
       @Override
       public Offset getOffset() {
-        if (currentEvent == null) {
-          throw new IllegalStateException("The next() method must be called first.");
-        }
-        return currentEvent.getOffset();
+        checkCurrent();
+        return TimeEventQueue.this.getOffset(currentSlot);
       }
 
       @Override
       public int getPartition() {
-        if (currentEvent == null) {
+        checkCurrent();
+        return partitions[currentSlot];
+      }
+
+      private void checkCurrent() {
+        if (currentSlot < 0) {
           throw new IllegalStateException("The next() method must be called first.");
         }
-        return currentEvent.getPartition();
+      }
+
+      private void checkModification() {
+        if (modCount != expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
       }
     };
   }
 
-  private SortedSet<Offset> getOffsets(int partition) {
-    SortedSet<Offset> offsets = partitionOffsets.get(partition);
-    if (offsets == null) {
+  private PartitionOffsets getOffsets(int partition) {
+    PartitionOffsets sortedOffsets = partitionOffsets.get(partition);
+    if (sortedOffsets == null) {
       throw new IllegalArgumentException("Partition " + partition +
                                            " is not in allowed partitions " + partitionOffsets.keySet());
     }
-    return offsets;
+    return sortedOffsets;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Event getEvent(int slot) {
+    return (Event) events[slot];
+  }
+
+  @SuppressWarnings("unchecked")
+  private Offset getOffset(int slot) {
+    return (Offset) offsets[slot];
+  }
+
+  /**
+   * Returns a free slot, growing the slot arrays if there is none.
+   */
+  private int allocateSlot() {
+    if (freeSlotCount > 0) {
+      return freeSlots[--freeSlotCount];
+    }
+    if (usedSlots == eventTimes.length) {
+      int capacity = eventTimes.length * 2;
+      eventTimes = Arrays.copyOf(eventTimes, capacity);
+      partitions = Arrays.copyOf(partitions, capacity);
+      eventSizes = Arrays.copyOf(eventSizes, capacity);
+      events = Arrays.copyOf(events, capacity);
+      offsets = Arrays.copyOf(offsets, capacity);
+      heapPositions = Arrays.copyOf(heapPositions, capacity);
+      freeSlots = Arrays.copyOf(freeSlots, capacity);
+      heap = Arrays.copyOf(heap, capacity);
+    }
+    return usedSlots++;
+  }
+
+  /**
+   * Removes the event in the given slot from the queue and releases the slot.
+   */
+  private void removeSlot(int slot) {
+    PartitionOffsets sortedOffsets = partitionOffsets.get(partitions[slot]);
+    sortedOffsets.remove(sortedOffsets.search(getOffset(slot)));
+
+    int position = heapPositions[slot];
+    int last = heap[--heapSize];
+    if (position != heapSize) {
+      heap[position] = last;
+      heapPositions[last] = position;
+      if (siftDown(heap, heapSize, position, true) == position) {
+        siftUp(heap, position, true);
+      }
+    }
+
+    totalSize -= eventSizes[slot];
+    events[slot] = null;
+    offsets[slot] = null;
+    freeSlots[freeSlotCount++] = slot;
+    modCount++;
+  }
+
+  /**
+   * Removes and returns the head of the given heap, which doesn't track heap positions.
+   */
+  private int poll(int[] heap, int size) {
+    int head = heap[0];
+    if (--size > 0) {
+      heap[0] = heap[size];
+      siftDown(heap, size, 0, false);
+    }
+    return head;
+  }
+
+  /**
+   * Moves the slot at the given position of the heap toward the root until the heap order is restored.
+   *
+   * @return the new position of the slot
+   */
+  private int siftUp(int[] heap, int position, boolean trackPosition) {
+    int slot = heap[position];
+    while (position > 0) {
+      int parentPosition = (position - 1) >>> 1;
+      int parent = heap[parentPosition];
+      if (compare(slot, parent) >= 0) {
+        break;
+      }
+      heap[position] = parent;
+      if (trackPosition) {
+        heapPositions[parent] = position;
+      }
+      position = parentPosition;
+    }
+    heap[position] = slot;
+    if (trackPosition) {
+      heapPositions[slot] = position;
+    }
+    return position;
+  }
+
+  /**
+   * Moves the slot at the given position of the heap toward the leaves until the heap order is restored.
+   *
+   * @return the new position of the slot
+   */
+  private int siftDown(int[] heap, int size, int position, boolean trackPosition) {
+    int slot = heap[position];
+    int half = size >>> 1;
+    while (position < half) {
+      int childPosition = 2 * position + 1;
+      int child = heap[childPosition];
+      int rightPosition = childPosition + 1;
+      if (rightPosition < size && compare(heap[rightPosition], child) < 0) {
+        childPosition = rightPosition;
+        child = heap[childPosition];
+      }
+      if (compare(slot, child) <= 0) {
+        break;
+      }
+      heap[position] = child;
+      if (trackPosition) {
+        heapPositions[child] = position;
+      }
+      position = childPosition;
+    }
+    heap[position] = slot;
+    if (trackPosition) {
+      heapPositions[slot] = position;
+    }
+    return position;
+  }
+
+  /**
+   * Compares events in two slots by event time, then by partition, then by offset.
+   * Combination of them are guaranteed to be unique.
+   */
+  private int compare(int slot1, int slot2) {
+    int cmp = Long.compare(eventTimes[slot1], eventTimes[slot2]);
+    if (cmp != 0) {
+      return cmp;
+    }
+    cmp = Integer.compare(partitions[slot1], partitions[slot2]);
+    if (cmp != 0) {
+      return cmp;
+    }
+    return getOffset(slot1).compareTo(getOffset(slot2));
   }
 
   /**
@@ -182,58 +403,83 @@ public final class TimeEventQueue<Event, Offset extends Comparable<Offset>> impl
   }
 
   /**
-   * This class represent an event stored in the event set.
+   * Slots of the events of a partition, sorted by offset. Slots are stored in the range {@code [head, tail)} of
+   * an array. Since offsets are mostly added in increasing order and removed from the smallest, both adding and
+   * removing usually don't need to shift many elements.
    */
-  private static final class TimeEvent<Event, Offset extends Comparable<Offset>>
-                        implements Comparable<TimeEvent<Event, Offset>> {
-    private final long eventTime;
-    private final int partition;
-    private final Offset offset;
-    private final Event event;
-    private final int eventSize;
+  private final class PartitionOffsets {
 
-    TimeEvent(long eventTime, int partition, Offset offset, Event event, int eventSize) {
-      this.eventTime = eventTime;
-      this.partition = partition;
-      this.offset = offset;
-      this.event = event;
-      this.eventSize = eventSize;
-    }
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int head;
+    private int tail;
 
-    long getEventTime() {
-      return eventTime;
+    boolean isEmpty() {
+      return head == tail;
     }
 
-    int getPartition() {
-      return partition;
-    }
-
-    Offset getOffset() {
-      return offset;
+    /**
+     * Returns the slot at the given index, with index {@code 0} being the slot with the smallest offset.
+     */
+    int get(int index) {
+      return slots[head + index];
     }
 
-    Event getEvent() {
-      return event;
+    /**
+     * Searches for the given offset.
+     *
+     * @return index of the offset if found; otherwise {@code (-(insertion point) - 1)}
+     */
+    int search(Offset offset) {
+      // Fast path for the common case of adding offsets in increasing order
+      if (isEmpty() || getOffset(slots[tail - 1]).compareTo(offset) < 0) {
+        return -(tail - head) - 1;
+      }
+      int low = head;
+      int high = tail - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int cmp = getOffset(slots[mid]).compareTo(offset);
+        if (cmp < 0) {
+          low = mid + 1;
+        } else if (cmp > 0) {
+          high = mid - 1;
+        } else {
+          return mid - head;
+        }
+      }
+      return -(low - head) - 1;
     }
 
-    int getEventSize() {
-      return eventSize;
+    void insert(int index, int slot) {
+      if (tail == slots.length) {
+        int size = tail - head;
+        // Grow if the array is more than half full, otherwise just move the slots to the beginning of the array
+        int[] newSlots = size * 2 > slots.length ? new int[slots.length * 2] : slots;
+        System.arraycopy(slots, head, newSlots, 0, size);
+        slots = newSlots;
+        head = 0;
+        tail = size;
+      }
+      int position = head + index;
+      System.arraycopy(slots, position, slots, position + 1, tail - position);
+      slots[position] = slot;
+      tail++;
     }
 
-    @Override
-    public int compareTo(TimeEvent<Event, Offset> other) {
-      // Compare by event time, then by partition, then by offset
-      // Combination of them are guaranteed to be unique.
-
-      int cmp = Long.compare(eventTime, other.getEventTime());
-      if (cmp != 0) {
-        return cmp;
+    void remove(int index) {
+      int position = head + index;
+      // Shift the shorter side
+      if (position - head < tail - position - 1) {
+        System.arraycopy(slots, head, slots, head + 1, position - head);
+        head++;
+      } else {
+        System.arraycopy(slots, position + 1, slots, position, tail - position - 1);
+        tail--;
       }
-      cmp = Integer.compare(partition, other.getPartition());
-      if (cmp != 0) {
-        return cmp;
+      if (head == tail) {
+        head = 0;
+        tail = 0;
       }
-      return offset.compareTo(other.getOffset());
     }
   }
 }
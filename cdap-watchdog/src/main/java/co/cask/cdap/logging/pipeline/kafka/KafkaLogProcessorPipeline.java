@@ -50,21 +50,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
 /**
  * A log processing pipeline that reads from Kafka and writes to configured logger context.
+ * <p/>
+ * Each partition is fetched continuously by its own fetcher thread into a bounded buffer, while the pipeline thread
+ * processes messages from whichever partitions have data. When the event queue is full and no event can be appended,
+ * the pipeline thread stops draining the buffers, which in turn blocks the fetchers.
  */
 public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadService {
 
@@ -79,6 +86,8 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
 
   private static final int KAFKA_SO_TIMEOUT = 3000;
   private static final double MIN_FREE_FACTOR = 0.5d;
+  // Maximum number of fetched message sets buffered for each partition, including the one being processed
+  private static final int MAX_BUFFERED_FETCHES = 2;
 
   private final String name;
   private final LogProcessorPipelineContext context;
@@ -89,7 +98,10 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
   private final LoggingEventSerializer serializer;
   private final KafkaPipelineConfig config;
   private final TimeEventQueue<ILoggingEvent, OffsetTime> eventQueue;
-  private final Map<BrokerInfo, KafkaSimpleConsumer> kafkaConsumers;
+  private final ConcurrentMap<BrokerInfo, KafkaSimpleConsumer> kafkaConsumers;
+  private final Int2ObjectMap<BlockingQueue<Iterator<MessageAndOffset>>> fetchedMessages;
+  // Released by fetchers whenever new messages are buffered
+  private final Semaphore fetchSignal;
   private final MetricsContext metricsContext;
   private final KafkaOffsetResolver offsetResolver;
 
@@ -111,7 +123,12 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
     this.checkpoints = new Int2ObjectOpenHashMap<>();
     this.eventQueue = new TimeEventQueue<>(config.getPartitions());
     this.serializer = new LoggingEventSerializer();
-    this.kafkaConsumers = new HashMap<>();
+    this.kafkaConsumers = new ConcurrentHashMap<>();
+    this.fetchedMessages = new Int2ObjectOpenHashMap<>();
+    for (int partition : config.getPartitions()) {
+      fetchedMessages.put(partition, new ArrayBlockingQueue<Iterator<MessageAndOffset>>(MAX_BUFFERED_FETCHES));
+    }
+    this.fetchSignal = new Semaphore(0);
     this.metricsContext = context;
     this.offsetResolver = new KafkaOffsetResolver(brokerService, config);
   }
@@ -149,23 +166,32 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
       initializeOffsets();
       LOG.info("Kafka offsets initialize for pipeline {} as {}", name, offsets);
 
-      Map<Integer, Future<Iterable<MessageAndOffset>>> futures = new HashMap<>();
+      for (int partition : config.getPartitions()) {
+        fetchExecutor.execute(new PartitionFetcher(partition, offsets.get(partition)));
+      }
+
       String topic = config.getTopic();
 
       lastCheckpointTime = System.currentTimeMillis();
 
       while (!stopped) {
+        // Clear the signal before looking at the buffers, so that messages buffered afterward will end the wait below
+        fetchSignal.drainPermits();
         boolean hasMessageProcessed = false;
 
-        for (Map.Entry<Integer, Future<Iterable<MessageAndOffset>>> entry : fetchAll(offsets, futures).entrySet()) {
-          int partition = entry.getKey();
-          try {
-            if (processMessages(topic, partition, entry.getValue())) {
-              hasMessageProcessed = true;
-            }
-          } catch (IOException | KafkaException e) {
-            OUTAGE_LOG.warn("Failed to fetch or process messages from {}:{}. Will be retried in next iteration.",
-                            topic, partition, e);
+        for (int partition : config.getPartitions()) {
+          BlockingQueue<Iterator<MessageAndOffset>> buffer = fetchedMessages.get(partition);
+          Iterator<MessageAndOffset> messages = buffer.peek();
+          if (messages == null) {
+            continue;
+          }
+          if (processMessages(topic, partition, messages)) {
+            hasMessageProcessed = true;
+          }
+          // Only remove the message set from the buffer when it is fully processed, so that the fetcher is blocked
+          // while messages cannot be added to the event queue
+          if (!messages.hasNext()) {
+            buffer.poll();
           }
         }
 
@@ -173,8 +199,8 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
         unSyncedEvents += appendEvents(now, false);
         long nextCheckpointDelay = trySyncAndPersistCheckpoints(now);
 
-        // If nothing has been processed (e.g. empty fetch from Kafka, fail to append anything to appender),
-        // Sleep until the earliest event in the buffer is time to be written out.
+        // If nothing has been processed (e.g. nothing fetched from Kafka, fail to append anything to appender),
+        // wait until new messages are fetched or the earliest event in the buffer is time to be written out.
         if (!hasMessageProcessed) {
           long sleepMillis = config.getEventDelayMillis();
           if (!eventQueue.isEmpty()) {
@@ -182,7 +208,7 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
           }
           sleepMillis = Math.min(sleepMillis, nextCheckpointDelay);
           if (sleepMillis > 0) {
-            TimeUnit.MILLISECONDS.sleep(sleepMillis);
+            fetchSignal.tryAcquire(sleepMillis, TimeUnit.MILLISECONDS);
           }
         }
       }
@@ -203,6 +229,8 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
   protected void shutDown() throws Exception {
     LOG.debug("Shutting down log processor pipeline for {}", name);
     fetchExecutor.shutdownNow();
+    // Wait for the fetchers to complete before closing the Kafka consumers
+    fetchExecutor.awaitTermination(KAFKA_SO_TIMEOUT, TimeUnit.MILLISECONDS);
 
     try {
       context.stop();
@@ -271,38 +299,20 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
   }
 
   /**
-   * Process messages fetched from a given partition.
+   * Process messages fetched from a given partition. Messages are processed until there is no more message or
+   * the event queue is full and no event can be appended to free up space, in which case the remaining messages are
+   * left in the given {@link Iterator}.
+   *
+   * @return {@code true} if any message was processed
    */
-  private boolean processMessages(String topic, int partition,
-                                  Future<Iterable<MessageAndOffset>> future) throws InterruptedException,
-                                                                                    KafkaException, IOException {
-    Iterable<MessageAndOffset> messages;
-    try {
-      messages = future.get();
-    } catch (ExecutionException e) {
-      try {
-        throw e.getCause();
-      } catch (OffsetOutOfRangeException cause) {
-        // This shouldn't happen under normal situation.
-        // If happened, usually is caused by race between kafka log rotation and fetching in here,
-        // hence just fetching from the beginning should be fine
-        offsets.put(partition, getLastOffset(partition, kafka.api.OffsetRequest.EarliestTime()));
-        return false;
-      } catch (KafkaException | IOException cause) {
-        throw cause;
-      } catch (Throwable t) {
-        // For other type of exceptions, just throw an IOException. It will be handled by caller.
-        throw new IOException(t);
-      }
-    }
-
+  private boolean processMessages(String topic, int partition, Iterator<MessageAndOffset> messages) {
     boolean processed = false;
-    for (MessageAndOffset message : messages) {
+    while (messages.hasNext()) {
       if (eventQueue.getEventSize() >= config.getMaxBufferSize()) {
         // Log a message. If this happen too often, it indicates that more memory is needed for the log processing
         OUTAGE_LOG.info("Maximum queue size {} reached for pipeline {}.", config.getMaxBufferSize(), name);
         // If nothing has been appended (due to error), we break the loop so that no need event will be appended
-        // Since the offset is not updated, the same set of messages will be fetched again in next iteration.
+        // The remaining messages stay in the buffer and will be processed again in next iteration.
         int eventsAppended = appendEvents(System.currentTimeMillis(), true);
         if (eventsAppended <= 0) {
           break;
@@ -310,6 +320,7 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
         unSyncedEvents += eventsAppended;
       }
 
+      MessageAndOffset message = messages.next();
       try {
         metricsContext.increment("kafka.bytes.read", message.message().payloadSize());
         ILoggingEvent loggingEvent = serializer.fromBytes(message.message().payload());
@@ -330,25 +341,6 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
     return processed;
   }
 
-  /**
-   * Fetches messages from Kafka across all partitions simultaneously.
-   */
-  private <T extends Map<Integer, Future<Iterable<MessageAndOffset>>>> T fetchAll(Int2LongMap offsets,
-                                                                                  T fetchFutures) {
-    for (final int partition : config.getPartitions()) {
-      final long offset = offsets.get(partition);
-
-      fetchFutures.put(partition, fetchExecutor.submit(new Callable<Iterable<MessageAndOffset>>() {
-        @Override
-        public Iterable<MessageAndOffset> call() throws Exception {
-          return fetchMessages(partition, offset);
-        }
-      }));
-    }
-
-    return fetchFutures;
-  }
-
   /**
    * Appends buffered events to appender. If the {@code force} parameter is {@code false}, buffered events
    * that are older than the buffer milliseconds will be appended and removed from the buffer.
@@ -502,7 +494,12 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
 
     consumer = new KafkaSimpleConsumer(leader, KAFKA_SO_TIMEOUT, config.getKafkaFetchBufferSize(),
                                        "client-" + name + "-" + partition);
-    kafkaConsumers.put(leader, consumer);
+    // Consumers are shared by fetchers of different partitions
+    KafkaSimpleConsumer existing = kafkaConsumers.putIfAbsent(leader, consumer);
+    if (existing != null) {
+      consumer.close();
+      return existing;
+    }
     return consumer;
   }
 
@@ -571,6 +568,65 @@ public final class KafkaLogProcessorPipeline extends AbstractExecutionThreadServ
     }
   }
 
+  /**
+   * A {@link Runnable} that keeps fetching messages of a partition into the bounded buffer of the partition.
+   * It blocks when the buffer is full and backs off when there is no new message or when the fetch failed.
+   */
+  private final class PartitionFetcher implements Runnable {
+
+    private final int partition;
+    private long offset;
+
+    PartitionFetcher(int partition, long offset) {
+      this.partition = partition;
+      this.offset = offset;
+    }
+
+    @Override
+    public void run() {
+      String topic = config.getTopic();
+      BlockingQueue<Iterator<MessageAndOffset>> buffer = fetchedMessages.get(partition);
+
+      try {
+        while (!stopped) {
+          List<MessageAndOffset> messages = new ArrayList<>();
+          try {
+            for (MessageAndOffset message : fetchMessages(partition, offset)) {
+              messages.add(message);
+            }
+          } catch (OffsetOutOfRangeException e) {
+            // This shouldn't happen under normal situation.
+            // If happened, usually is caused by race between kafka log rotation and fetching in here,
+            // hence just fetching from the beginning should be fine
+            try {
+              offset = getLastOffset(partition, kafka.api.OffsetRequest.EarliestTime());
+              continue;
+            } catch (Exception ex) {
+              OUTAGE_LOG.warn("Failed to get the earliest offset from {}:{}. Will be retried.", topic, partition, ex);
+            }
+          } catch (Exception e) {
+            if (stopped) {
+              // The consumer can fail due to interruption when the pipeline is stopping
+              break;
+            }
+            OUTAGE_LOG.warn("Failed to fetch messages from {}:{}. Will be retried.", topic, partition, e);
+          }
+
+          if (messages.isEmpty()) {
+            TimeUnit.MILLISECONDS.sleep(config.getEventDelayMillis());
+            continue;
+          }
+
+          offset = messages.get(messages.size() - 1).nextOffset();
+          buffer.put(messages.iterator());
+          fetchSignal.release();
+        }
+      } catch (InterruptedException e) {
+        // Interruption means stopping the pipeline.
+      }
+    }
+  }
+
   /**
    * A {@link SimpleConsumer} that allows getting back the {@link BrokerInfo} used to create the consumer.
    */
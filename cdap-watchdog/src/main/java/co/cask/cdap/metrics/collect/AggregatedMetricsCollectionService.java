@@ -15,6 +15,7 @@
  */
 package co.cask.cdap.metrics.collect;
 
+import co.cask.cdap.api.metrics.DistributionMetricsCollector;
 import co.cask.cdap.api.metrics.MetricType;
 import co.cask.cdap.api.metrics.MetricValue;
 import co.cask.cdap.api.metrics.MetricValues;
@@ -32,9 +33,13 @@ import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
@@ -49,32 +54,17 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   private static final long CACHE_EXPIRE_MINUTES = 1;
 
   private final LoadingCache<Map<String, String>, MetricsContext> collectors;
-  private final LoadingCache<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> emitters;
+  // contexts that have metrics emitted recently, which are the ones to publish
+  private final Set<MetricsContextImpl> activeContexts;
   private Thread runThread;
 
   public AggregatedMetricsCollectionService() {
+    // Contexts are held strongly by the callers and by activeContexts while they are in use, hence weak values
+    // is enough to keep a single instance per set of tags.
     this.collectors = CacheBuilder.newBuilder()
-      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+      .weakValues()
       .build(createCollectorLoader());
-
-    this.emitters = CacheBuilder.newBuilder()
-      // NOTE : we don't need to have removalListener to  emit metrics, as we have expireAfterAccess set for a minute,
-      // emitters.get() is used to increment/gauge and that would reset the access time,
-      // and since runOneIteration() emits all the metrics for the scheduled duration (every 1 second)
-      // there wont be any loss of emitter entries.
-      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
-      .build(new CacheLoader<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>() {
-        @Override
-        public LoadingCache<String, AggregatedMetricsEmitter> load(Map<String, String> tags) throws Exception {
-          return CacheBuilder.newBuilder().expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES).
-            build(new CacheLoader<String, AggregatedMetricsEmitter>() {
-              @Override
-              public AggregatedMetricsEmitter load(String metricName) throws Exception {
-                return new AggregatedMetricsEmitter(metricName);
-              }
-            });
-        }
-      });
+    this.activeContexts = Collections.newSetFromMap(new ConcurrentHashMap<MetricsContextImpl, Boolean>());
   }
 
   /**
@@ -176,37 +166,34 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
   }
 
   private Iterator<MetricValues> getMetrics(final long timestamp) {
-    // NOTE : emitters.asMap does not reset the access time in cache,
-    // so it's the preferred way to access the cache entries. as we access and emit metrics every second.
-    final Iterator<Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>> iterator =
-      emitters.asMap().entrySet().iterator();
+    final long expireMillis = TimeUnit.MINUTES.toMillis(CACHE_EXPIRE_MINUTES);
+    final Iterator<MetricsContextImpl> iterator = activeContexts.iterator();
     return new AbstractIterator<MetricValues>() {
       @Override
       protected MetricValues computeNext() {
         while (iterator.hasNext()) {
-          Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> entry = iterator.next();
-          Map<String, AggregatedMetricsEmitter> metricEmitters = entry.getValue().asMap();
-          // +1 because we add extra metric about how many metric values did we emit in this context (see below)
-          List<MetricValue> metricValues = Lists.newArrayListWithCapacity(metricEmitters.size() + 1);
-          for (Map.Entry<String, AggregatedMetricsEmitter> emitterEntry : metricEmitters.entrySet()) {
-            MetricValue metricValue = emitterEntry.getValue().emit();
-            // skip increment by 0
-            if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
-              continue;
-            }
-            metricValues.add(metricValue);
+          MetricsContextImpl context = iterator.next();
+          long now = System.currentTimeMillis();
+          List<MetricValue> metricValues = context.emit(now, expireMillis);
+
+          if (metricValues.isEmpty() && now - context.lastEmitMillis > expireMillis) {
+            // Nothing emitted for a while. Stop publishing the context until it gets used again,
+            // and pick up whatever got emitted while deactivating.
+            context.deactivate();
+            metricValues = context.emit(now, expireMillis);
           }
 
           if (metricValues.isEmpty()) {
             // skip if there are no metric values to send
             continue;
           }
+          context.lastEmitMillis = now;
 
           // number of emitted metrics
           metricValues.add(new MetricValue("metrics.emitted.count", MetricType.COUNTER, metricValues.size() + 1));
 
           LOG.trace("Emit metric {}", metricValues);
-          return new MetricValues(entry.getKey(), timestamp, metricValues);
+          return new MetricValues(context.getTags(), timestamp, metricValues);
         }
         return endOfData();
       }
@@ -222,22 +209,119 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
     };
   }
 
-  private final class MetricsContextImpl implements MetricsContext {
+  private final class MetricsContextImpl implements MetricsContext, DistributionMetricsCollector {
 
     private final Map<String, String> tags;
+    // emitters are resolved once per metric name, and removed by the publishing thread once idle for the expiry time
+    private final ConcurrentMap<String, AggregatedMetricsEmitter> emitters;
+    // whether this context is in activeContexts; only changed while holding the lock of this context
+    private volatile boolean active;
+    // only accessed by the publishing thread
+    private long lastEmitMillis;
 
     private MetricsContextImpl(final Map<String, String> tags) {
       this.tags = ImmutableMap.copyOf(tags);
+      this.emitters = new ConcurrentHashMap<>();
     }
 
     @Override
     public void increment(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).increment(value);
+      AggregatedMetricsEmitter emitter = getEmitter(metricName);
+      emitter.increment(value);
+      if (emitter.isRetired()) {
+        // The emitter got removed concurrently. Move what its last emit didn't pick up to the new emitter.
+        emitter.transferTo(getEmitter(metricName));
+      }
+      activate();
     }
 
     @Override
     public void gauge(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).gauge(value);
+      AggregatedMetricsEmitter emitter = getEmitter(metricName);
+      emitter.gauge(value);
+      if (emitter.isRetired()) {
+        getEmitter(metricName).gauge(value);
+      }
+      activate();
+    }
+
+    @Override
+    public void distribution(String metricName, long value) {
+      AggregatedMetricsEmitter emitter = getEmitter(metricName);
+      emitter.distribution(value);
+      if (emitter.isRetired()) {
+        emitter.transferTo(getEmitter(metricName));
+      }
+      activate();
+    }
+
+    private AggregatedMetricsEmitter getEmitter(String metricName) {
+      AggregatedMetricsEmitter emitter = emitters.get(metricName);
+      if (emitter == null) {
+        emitter = new AggregatedMetricsEmitter(metricName);
+        AggregatedMetricsEmitter existing = emitters.putIfAbsent(metricName, emitter);
+        if (existing != null) {
+          emitter = existing;
+        }
+      }
+      return emitter;
+    }
+
+    /**
+     * Makes sure this context is being published. It has to be called after the emitter is updated, so that
+     * either the publisher sees the update before deactivating the context, or the context get reactivated.
+     */
+    private void activate() {
+      if (!active) {
+        synchronized (this) {
+          if (!active) {
+            activeContexts.add(this);
+            active = true;
+          }
+        }
+      }
+    }
+
+    private synchronized void deactivate() {
+      active = false;
+      activeContexts.remove(this);
+    }
+
+    /**
+     * Returns the values aggregated by the emitters of this context since the last call, skipping zero increments.
+     * Emitters that emitted nothing for longer than the given expiry time are removed.
+     */
+    private List<MetricValue> emit(long now, long expireMillis) {
+      // +1 because we add extra metric about how many metric values did we emit in this context
+      List<MetricValue> metricValues = Lists.newArrayListWithCapacity(emitters.size() + 1);
+      for (Map.Entry<String, AggregatedMetricsEmitter> entry : emitters.entrySet()) {
+        AggregatedMetricsEmitter emitter = entry.getValue();
+        if (emit(emitter, metricValues)) {
+          emitter.setLastActiveMillis(now);
+        } else if (now - emitter.getLastActiveMillis() > expireMillis && emitters.remove(entry.getKey(), emitter)) {
+          // Updates made before the emitter is retired are picked up by this emit. The ones made after are moved
+          // by the updating thread to the emitter replacing it.
+          emitter.retire();
+          emit(emitter, metricValues);
+        }
+      }
+      return metricValues;
+    }
+
+    /**
+     * Adds the values aggregated by the given emitter to the given list, skipping zero increments.
+     *
+     * @return {@code true} if any value was added
+     */
+    private boolean emit(AggregatedMetricsEmitter emitter, List<MetricValue> metricValues) {
+      int size = metricValues.size();
+      emitter.emitDistribution(metricValues);
+      MetricValue metricValue = emitter.emit();
+      // skip increment by 0
+      if (metricValue.getType() != MetricType.COUNTER || metricValue.getValue() != 0) {
+        metricValues.add(metricValue);
+      }
+      return metricValues.size() > size;
     }
 
     @Override
@@ -20,6 +20,7 @@ import co.cask.cdap.api.metrics.MetricValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -31,10 +32,18 @@ final class AggregatedMetricsEmitter implements MetricsEmitter {
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsEmitter.class);
 
   private final String name;
-  // metric value
+  // sum of increments, striped to avoid contention between threads incrementing the same metric
+  private final StripedLongCounter increments;
+  // last gauge value
   private final AtomicLong value;
   // specifies if the metric type is gauge or counter
   private final AtomicBoolean gaugeUsed;
+  // created on first use of distribution
+  private volatile DistributionSketch distribution;
+  // set once the emitter is removed from its context, after which updates have to be moved to the new emitter
+  private volatile boolean retired;
+  // time of the last non empty emit, only accessed by the publishing thread
+  private long lastActiveMillis = System.currentTimeMillis();
 
   AggregatedMetricsEmitter(String name) {
     if (name == null || name.isEmpty()) {
@@ -42,25 +51,93 @@ final class AggregatedMetricsEmitter implements MetricsEmitter {
     }
 
     this.name = name;
+    this.increments = new StripedLongCounter();
     this.value = new AtomicLong();
     this.gaugeUsed = new AtomicBoolean(false);
   }
 
   void increment(long value) {
-    this.value.addAndGet(value);
+    increments.add(value);
   }
 
 
   @Override
   public MetricValue emit() {
     // todo CDAP-2195 - potential race condition , reseting value and type has to be done together
-    long value = this.value.getAndSet(0);
-    MetricType type = gaugeUsed.getAndSet(false) ? MetricType.GAUGE : MetricType.COUNTER;
-    return new MetricValue(name, type, value);
+    long value = increments.sumThenReset();
+    if (gaugeUsed.getAndSet(false)) {
+      // increments after a gauge within the same interval are applied on top of the gauge value
+      return new MetricValue(name, MetricType.GAUGE, this.value.getAndSet(0) + value);
+    }
+    return new MetricValue(name, MetricType.COUNTER, value);
   }
 
   public void gauge(long value) {
+    // the gauge overrides the increments made before it in the same interval
+    increments.sumThenReset();
     this.value.set(value);
     this.gaugeUsed.set(true);
   }
+
+  void distribution(long value) {
+    getDistribution().add(value);
+  }
+
+  /**
+   * Adds the buckets of the distribution recorded since the last call to the given collection.
+   */
+  void emitDistribution(Collection<MetricValue> metricValues) {
+    DistributionSketch sketch = distribution;
+    if (sketch != null) {
+      sketch.drainTo(metricValues);
+    }
+  }
+
+  /**
+   * Marks this emitter as removed from its context. Updates made to it afterwards have to be moved with
+   * {@link #transferTo(AggregatedMetricsEmitter)}.
+   */
+  void retire() {
+    retired = true;
+  }
+
+  boolean isRetired() {
+    return retired;
+  }
+
+  /**
+   * Moves the increments and the distribution recorded by this emitter to the given emitter. Each update is
+   * moved at most once, and only if it was not emitted yet.
+   */
+  void transferTo(AggregatedMetricsEmitter emitter) {
+    long increment = increments.sumThenReset();
+    if (increment != 0) {
+      emitter.increment(increment);
+    }
+    DistributionSketch sketch = distribution;
+    if (sketch != null) {
+      sketch.drainTo(emitter.getDistribution());
+    }
+  }
+
+  long getLastActiveMillis() {
+    return lastActiveMillis;
+  }
+
+  void setLastActiveMillis(long lastActiveMillis) {
+    this.lastActiveMillis = lastActiveMillis;
+  }
+
+  private DistributionSketch getDistribution() {
+    DistributionSketch sketch = distribution;
+    if (sketch == null) {
+      synchronized (this) {
+        sketch = distribution;
+        if (sketch == null) {
+          sketch = distribution = new DistributionSketch(name);
+        }
+      }
+    }
+    return sketch;
+  }
 }
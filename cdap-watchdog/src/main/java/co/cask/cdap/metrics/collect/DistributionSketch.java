@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.collect;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A fixed size, mergeable histogram of non-negative long values using log-linear (HDR style) buckets.
+ * Each power of two range is split into {@code 2^SUB_BUCKET_BITS} linear sub-buckets, which bounds the relative
+ * error of a reported percentile to 12.5%.
+ * <p/>
+ * Buckets are emitted as {@link MetricType#DISTRIBUTION} metric values named {@code <name>.bucket.<index>}. The
+ * metrics store folds the buckets of a distribution back into a single cell per timestamp, and merging sketches
+ * across time and tags is a plain sum of the bucket counts.
+ */
+@ThreadSafe
+public final class DistributionSketch {
+
+  private static final String BUCKET_SEPARATOR = ".bucket.";
+
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  static final int NUM_BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final String name;
+  private final AtomicLongArray counts;
+
+  DistributionSketch(String name) {
+    this.name = name;
+    this.counts = new AtomicLongArray(NUM_BUCKETS);
+  }
+
+  /**
+   * Records a value. Negative values are recorded as zero.
+   */
+  void add(long value) {
+    counts.incrementAndGet(getBucket(value));
+  }
+
+  /**
+   * Adds one distribution {@link MetricValue} per non-empty bucket to the given collection and resets the sketch.
+   */
+  void drainTo(Collection<MetricValue> metricValues) {
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      if (counts.get(i) == 0) {
+        continue;
+      }
+      long count = counts.getAndSet(i, 0);
+      if (count != 0) {
+        metricValues.add(new MetricValue(getBucketMetricName(name, i), MetricType.DISTRIBUTION, count));
+      }
+    }
+  }
+
+  /**
+   * Adds the counts of this sketch to the given sketch and resets this sketch.
+   */
+  void drainTo(DistributionSketch sketch) {
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      if (counts.get(i) == 0) {
+        continue;
+      }
+      long count = counts.getAndSet(i, 0);
+      if (count != 0) {
+        sketch.counts.addAndGet(i, count);
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the bucket the given value falls into.
+   */
+  public static int getBucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return value < 0 ? 0 : (int) value;
+    }
+    int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   * Returns the largest value that falls into the given bucket.
+   */
+  public static long getBucketUpperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+    long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+    long lower = (SUB_BUCKETS + subBucket) << shift;
+    return lower + (1L << shift) - 1;
+  }
+
+  /**
+   * Returns the name of the metric value that carries the given bucket of the given distribution.
+   */
+  public static String getBucketMetricName(String name, int bucket) {
+    return name + BUCKET_SEPARATOR + bucket;
+  }
+
+  /**
+   * Returns the bucket index encoded in the given bucket metric name, or {@code -1} if the given name is not the name
+   * of a distribution bucket.
+   */
+  public static int parseBucket(String bucketMetricName) {
+    int idx = bucketMetricName.lastIndexOf(BUCKET_SEPARATOR);
+    if (idx <= 0) {
+      return -1;
+    }
+    try {
+      int bucket = Integer.parseInt(bucketMetricName.substring(idx + BUCKET_SEPARATOR.length()));
+      return bucket >= 0 && bucket < NUM_BUCKETS ? bucket : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Returns the distribution name of a bucket metric name, i.e. the name without the bucket suffix.
+   */
+  public static String getDistributionNameOfBucket(String bucketMetricName) {
+    return bucketMetricName.substring(0, bucketMetricName.lastIndexOf(BUCKET_SEPARATOR));
+  }
+
+  /**
+   * Returns the quantile requested by the given metric name, or {@code null} if the metric name doesn't end with
+   * a percentile suffix. The suffix is of the form {@code .pNN...}, with at least two digits, which are read as
+   * the fraction {@code 0.NN...}, e.g. {@code .p50}, {@code .p99} and {@code .p999}.
+   */
+  @Nullable
+  public static Double parseQuantile(String metricName) {
+    int idx = metricName.lastIndexOf('.');
+    if (idx <= 0 || idx + 4 > metricName.length() || metricName.charAt(idx + 1) != 'p') {
+      return null;
+    }
+    String digits = metricName.substring(idx + 2);
+    for (int i = 0; i < digits.length(); i++) {
+      if (!Character.isDigit(digits.charAt(i))) {
+        return null;
+      }
+    }
+    return Double.parseDouble("0." + digits);
+  }
+
+  /**
+   * Returns the distribution name of a percentile metric name, i.e. the name without the percentile suffix.
+   */
+  public static String getDistributionName(String percentileMetricName) {
+    return percentileMetricName.substring(0, percentileMetricName.lastIndexOf('.'));
+  }
+
+  /**
+   * Computes the value at the given quantile from bucket counts.
+   *
+   * @param buckets map from bucket index to the number of values in the bucket
+   * @param quantile the quantile in the range of [0, 1]
+   * @return the upper bound of the bucket containing the quantile, or {@code 0} if there are no values
+   */
+  public static long getPercentile(NavigableMap<Integer, Long> buckets, double quantile) {
+    long total = 0;
+    for (long count : buckets.values()) {
+      total += count;
+    }
+    if (total <= 0) {
+      return 0;
+    }
+    long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    for (Map.Entry<Integer, Long> entry : buckets.entrySet()) {
+      seen += entry.getValue();
+      if (seen >= rank) {
+        return getBucketUpperBound(entry.getKey());
+      }
+    }
+    return getBucketUpperBound(buckets.lastKey());
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.collect;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A counter that is cheap to update from many threads, similar to {@code java.util.concurrent.atomic.LongAdder}.
+ * Updates go to a single {@link AtomicLong} until the first contended update, after which they are spread over
+ * a set of cache line padded cells selected by the updating thread's id.
+ */
+@ThreadSafe
+final class StripedLongCounter {
+
+  // Number of longs between two cells, so that each cell sits on its own 64 bytes cache line
+  private static final int PADDING = 8;
+  private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+  private final AtomicLong base = new AtomicLong();
+  private volatile AtomicLongArray cells;
+
+  /**
+   * Adds the given value to the counter.
+   */
+  void add(long value) {
+    AtomicLongArray cells = this.cells;
+    if (cells == null) {
+      long current = base.get();
+      if (base.compareAndSet(current, current + value)) {
+        return;
+      }
+      cells = inflate();
+    }
+    cells.addAndGet(cellIndex(), value);
+  }
+
+  /**
+   * Returns the current sum of the counter.
+   */
+  long sum() {
+    long sum = base.get();
+    AtomicLongArray cells = this.cells;
+    if (cells != null) {
+      for (int i = 0; i < cells.length(); i += PADDING) {
+        sum += cells.get(i);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the current sum of the counter and resets it to zero. Each update is accounted for by exactly one call
+   * to this method, even when there are concurrent updates.
+   */
+  long sumThenReset() {
+    long sum = base.getAndSet(0);
+    AtomicLongArray cells = this.cells;
+    if (cells != null) {
+      for (int i = 0; i < cells.length(); i += PADDING) {
+        if (cells.get(i) != 0) {
+          sum += cells.getAndSet(i, 0);
+        }
+      }
+    }
+    return sum;
+  }
+
+  private synchronized AtomicLongArray inflate() {
+    AtomicLongArray cells = this.cells;
+    if (cells == null) {
+      cells = new AtomicLongArray(STRIPES * PADDING);
+      this.cells = cells;
+    }
+    return cells;
+  }
+
+  private static int cellIndex() {
+    long id = Thread.currentThread().getId();
+    int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+    hash ^= hash >>> 16;
+    return (hash & (STRIPES - 1)) * PADDING;
+  }
+
+  private static int stripes(int processors) {
+    int stripes = 1;
+    while (stripes < processors && stripes < 64) {
+      stripes <<= 1;
+    }
+    return stripes;
+  }
+}
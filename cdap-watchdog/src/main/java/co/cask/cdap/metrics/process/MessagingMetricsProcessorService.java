@@ -58,7 +58,6 @@ import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -96,8 +95,15 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
   private final List<ProcessMetricsThread> processMetricsThreads;
   private final String processMetricName;
   private final String delayMetricName;
+  // metrics are merged in memory and persisted at most once per flush interval, unless the buffer becomes full
+  private final long flushIntervalMillis;
+  private final int maxBufferedMetrics;
+  private final MetricsPreAggregator preAggregator;
 
   private long metricsProcessedCount;
+  // messageId's of the last metrics merged into preAggregator, to be persisted when preAggregator is flushed
+  private Map<TopicIdMetaKey, byte[]> pendingMessageIds;
+  private long lastFlushTime;
 
   private MetricsConsumerMetaTable metaTable;
 
@@ -112,11 +118,16 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
                                           MetricStore metricStore,
                                           @Named(Constants.Metrics.PROCESSOR_MAX_DELAY_MS) long maxDelayMillis,
                                           @Named(Constants.Metrics.QUEUE_SIZE) int queueSize,
+                                          @Named(Constants.Metrics.PROCESSOR_FLUSH_INTERVAL_MS)
+                                            long flushIntervalMillis,
+                                          @Named(Constants.Metrics.PROCESSOR_MAX_BUFFERED_METRICS)
+                                            int maxBufferedMetrics,
                                           @Assisted Set<Integer> topicNumbers,
                                           @Assisted MetricsContext metricsContext,
                                           @Assisted Integer instanceId) {
     this(metricDatasetFactory, topicPrefix, messagingService, schemaGenerator, readerFactory, metricStore,
-         maxDelayMillis, queueSize, topicNumbers, metricsContext, 1000, instanceId);
+         maxDelayMillis, queueSize, topicNumbers, metricsContext, 1000, instanceId, flushIntervalMillis,
+         maxBufferedMetrics);
   }
 
   @VisibleForTesting
@@ -132,6 +143,27 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
                                    MetricsContext metricsContext,
                                    int metricsProcessIntervalMillis,
                                    int instanceId) {
+    // Flush on every persist
+    this(metricDatasetFactory, topicPrefix, messagingService, schemaGenerator, readerFactory, metricStore,
+         maxDelayMillis, queueSize, topicNumbers, metricsContext, metricsProcessIntervalMillis, instanceId,
+         0L, queueSize);
+  }
+
+  @VisibleForTesting
+  MessagingMetricsProcessorService(MetricDatasetFactory metricDatasetFactory,
+                                   String topicPrefix,
+                                   MessagingService messagingService,
+                                   SchemaGenerator schemaGenerator,
+                                   DatumReaderFactory readerFactory,
+                                   MetricStore metricStore,
+                                   long maxDelayMillis,
+                                   int queueSize,
+                                   Set<Integer> topicNumbers,
+                                   MetricsContext metricsContext,
+                                   int metricsProcessIntervalMillis,
+                                   int instanceId,
+                                   long flushIntervalMillis,
+                                   int maxBufferedMetrics) {
     this.metricDatasetFactory = metricDatasetFactory;
     this.metricsTopics = new ArrayList<>();
     for (int topicNum : topicNumbers) {
@@ -158,6 +190,10 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
     this.metricsProcessIntervalMillis = metricsProcessIntervalMillis;
     processMetricName = String.format("metrics.%s.process.count", instanceId);
     delayMetricName = String.format("metrics.%s.process.delay.ms", instanceId);
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.maxBufferedMetrics = Math.max(1, maxBufferedMetrics);
+    this.preAggregator = new MetricsPreAggregator();
+    this.pendingMessageIds = new HashMap<>();
   }
 
   private MetricsConsumerMetaTable getMetaTable() {
@@ -221,9 +257,14 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
         Thread.currentThread().interrupt();
       }
     }
-    // Persist metricsFromAllTopics and messageId's after all ProcessMetricsThread's complete.
+    // Persist metricsFromAllTopics, pre-aggregated metrics and messageId's after all ProcessMetricsThread's complete.
     // No need to make a copy of metricsFromAllTopics and topicMessageIds because no thread is writing to them
-    persistMetricsMessageIds(metricsFromAllTopics, topicMessageIds);
+    for (MetricValues metricValues : metricsFromAllTopics) {
+      preAggregator.add(metricValues);
+    }
+    metricsFromAllTopics.clear();
+    pendingMessageIds = topicMessageIds;
+    flush();
   }
 
   @Override
@@ -237,40 +278,42 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
   }
 
   /**
-   * Persist metrics from all topics into metric store and messageId's of the last persisted metrics of each topic
-   * into metrics meta table
-   *
-   * @param metricValues a deque of {@link MetricValues}
-   * @param messageIds a map with each key {@link TopicIdMetaKey} representing a topic and messageId's
-   *                   of the last persisted metric of the topic
+   * Persist the pre-aggregated metrics into metric store and messageId's of the last merged metrics of each topic
+   * into metrics meta table. The messageId's are only persisted after the metrics are persisted, so that the
+   * persisted messageId's never go beyond the persisted metrics.
    */
-  private void persistMetricsMessageIds(Deque<MetricValues> metricValues, Map<TopicIdMetaKey, byte[]> messageIds) {
+  private void flush() {
     try {
-      if (!metricValues.isEmpty()) {
-        persistMetrics(metricValues);
+      if (!preAggregator.isEmpty()) {
+        persistMetrics(preAggregator);
       }
-      persistMessageIds(messageIds);
+      persistMessageIds(pendingMessageIds);
     } catch (Exception e) {
       LOG.warn("Failed to persist metrics.", e);
+    } finally {
+      preAggregator.clear();
+      lastFlushTime = System.currentTimeMillis();
     }
   }
 
   /**
    * Persist metrics into metric store
    *
-   * @param metricValues a non-empty deque of {@link MetricValues}
+   * @param preAggregator a non-empty {@link MetricsPreAggregator}
    */
-  private void persistMetrics(Deque<MetricValues> metricValues) throws Exception {
+  private void persistMetrics(MetricsPreAggregator preAggregator) throws Exception {
     long now = System.currentTimeMillis();
-    long lastMetricTime = metricValues.peekLast().getTimestamp();
+    long lastMetricTime = preAggregator.getLastTimestamp();
     long delay = now - TimeUnit.SECONDS.toMillis(lastMetricTime);
+    int inputCount = preAggregator.getInputCount();
+    Deque<MetricValues> metricValues = preAggregator.getMetricValues();
     metricValues.add(
       new MetricValues(metricsContextMap, TimeUnit.MILLISECONDS.toSeconds(now),
                        ImmutableList.of(
-                         new MetricValue(processMetricName, MetricType.COUNTER, metricValues.size()),
+                         new MetricValue(processMetricName, MetricType.COUNTER, inputCount),
                          new MetricValue(delayMetricName, MetricType.GAUGE, delay))));
     metricStore.add(metricValues);
-    metricsProcessedCount += metricValues.size();
+    metricsProcessedCount += inputCount;
     PROGRESS_LOG.debug("{} metrics metrics persisted. Last metric metric's timestamp: {}. " +
                          "Metrics process delay: {}ms", metricsProcessedCount, lastMetricTime, delay);
   }
@@ -394,7 +437,9 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
     }
 
     /**
-     * Persist metrics and messageId's of the last metrics to be persisted if no other thread is persisting
+     * Merge fetched metrics into the pre-aggregation buffer, and persist the buffer together with messageId's
+     * of the last merged metrics if the flush interval has passed or the buffer is full.
+     * Nothing is done if another thread is persisting.
      */
     private void tryPersist() {
       // Ensure there's only one thread can persist metricsFromAllTopics and messageId's.
@@ -404,20 +449,24 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
         return;
       }
       try {
-        // Make a copy of topicMessageIds before copying metrics from metricsFromAllTopics to ensure that
-        // topicMessageIdsCopy will not contain new MessageId's in metricsFromAllTopics but not in metricsCopy.
+        // Make a copy of topicMessageIds before merging metrics from metricsFromAllTopics to ensure that
+        // topicMessageIdsCopy will not contain new MessageId's in metricsFromAllTopics but not in preAggregator.
         // This guarantees the metrics corresponding to last persisted MessageId's of each topic are persisted.
         Map<TopicIdMetaKey, byte[]> topicMessageIdsCopy = new HashMap<>(topicMessageIds);
-        // Remove at most queueSize of metrics from metricsFromAllTopics and put into metricsCopy to limit
-        // the number of metrics being persisted each time
-        Deque<MetricValues> metricsCopy = new LinkedList<>();
+        // Remove at most queueSize of metrics from metricsFromAllTopics and merge into preAggregator to limit
+        // the time spent in each iteration
+        int count = 0;
         Iterator<MetricValues> iterator = metricsFromAllTopics.iterator();
-        while (iterator.hasNext() && metricsCopy.size() < queueSize) {
-          metricsCopy.add(iterator.next());
+        while (iterator.hasNext() && count++ < queueSize) {
+          preAggregator.add(iterator.next());
           iterator.remove();
         }
-        // Persist the copy of metrics and MessageId's
-        persistMetricsMessageIds(metricsCopy, topicMessageIdsCopy);
+        pendingMessageIds = topicMessageIdsCopy;
+        // Persist the merged metrics and MessageId's once the flush interval has passed or the buffer is full
+        if (System.currentTimeMillis() - lastFlushTime >= flushIntervalMillis
+          || preAggregator.size() >= maxBufferedMetrics) {
+          flush();
+        }
       } catch (Exception e) {
         LOG.warn("Failed to persist metrics. Will be retried in next iteration.", e);
       } finally {
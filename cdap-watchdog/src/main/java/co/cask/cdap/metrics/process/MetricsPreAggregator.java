@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.metrics.MetricStore;
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Objects;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Merges {@link MetricValues} over a flush window before they are persisted to the {@link MetricStore}.
+ * Counters and distribution buckets with the same tags, name and timestamp are summed up and gauges keep the latest
+ * value. Since the finest resolution is one second, the merge is lossless for every resolution. Persisting the whole
+ * window in one {@link MetricStore#add(java.util.Collection)} call in turn lets the cube merge the increments that
+ * land in the same aggregation, dimension values, measure and resolution bucket into one write.
+ */
+@NotThreadSafe
+final class MetricsPreAggregator {
+
+  private final Map<Key, Map<String, MetricValue>> metrics = new LinkedHashMap<>();
+  private int size;
+  private int inputCount;
+  private long lastTimestamp;
+
+  /**
+   * Adds the given {@link MetricValues} to this aggregator.
+   */
+  void add(MetricValues metricValues) {
+    Key key = new Key(metricValues.getTags(), metricValues.getTimestamp());
+    Map<String, MetricValue> values = metrics.get(key);
+    if (values == null) {
+      values = new HashMap<>();
+      metrics.put(key, values);
+    }
+    for (MetricValue value : metricValues.getMetrics()) {
+      MetricValue existing = values.get(value.getName());
+      if (existing == null) {
+        size++;
+      } else if (existing.getType() == value.getType() && value.getType() != MetricType.GAUGE) {
+        value = new MetricValue(value.getName(), value.getType(), existing.getValue() + value.getValue());
+      }
+      values.put(value.getName(), value);
+    }
+    inputCount++;
+    lastTimestamp = metricValues.getTimestamp();
+  }
+
+  /**
+   * Returns the number of distinct metric values currently held by this aggregator.
+   */
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return inputCount == 0;
+  }
+
+  /**
+   * Returns the number of {@link MetricValues} added since the last {@link #clear()}.
+   */
+  int getInputCount() {
+    return inputCount;
+  }
+
+  /**
+   * Returns the timestamp in seconds of the last {@link MetricValues} added.
+   */
+  long getLastTimestamp() {
+    return lastTimestamp;
+  }
+
+  /**
+   * Returns the merged metrics, in the order the first value of each tags and timestamp combination was added.
+   */
+  Deque<MetricValues> getMetricValues() {
+    Deque<MetricValues> result = new LinkedList<>();
+    for (Map.Entry<Key, Map<String, MetricValue>> entry : metrics.entrySet()) {
+      result.add(new MetricValues(entry.getKey().tags, entry.getKey().timestamp,
+                                  new ArrayList<>(entry.getValue().values())));
+    }
+    return result;
+  }
+
+  void clear() {
+    metrics.clear();
+    size = 0;
+    inputCount = 0;
+  }
+
+  /**
+   * Key for metrics that can be merged.
+   */
+  private static final class Key {
+    private final Map<String, String> tags;
+    private final long timestamp;
+    private final int hashCode;
+
+    Key(Map<String, String> tags, long timestamp) {
+      this.tags = tags;
+      this.timestamp = timestamp;
+      this.hashCode = Objects.hash(tags, timestamp);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key other = (Key) o;
+      return timestamp == other.timestamp && tags.equals(other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -16,7 +16,7 @@
 
 package co.cask.cdap.metrics.store;
 
-import co.cask.cdap.api.dataset.lib.cube.Cube;
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
 import co.cask.cdap.api.dataset.lib.cube.CubeDeleteQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeExploreQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeFact;
@@ -25,6 +25,7 @@ import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
 import co.cask.cdap.api.dataset.lib.cube.MeasureType;
 import co.cask.cdap.api.dataset.lib.cube.Measurement;
 import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
+import co.cask.cdap.api.dataset.lib.cube.TimeValue;
 import co.cask.cdap.api.metrics.MetricDataQuery;
 import co.cask.cdap.api.metrics.MetricDeleteQuery;
 import co.cask.cdap.api.metrics.MetricSearchQuery;
@@ -41,7 +42,9 @@ import co.cask.cdap.data2.dataset2.lib.cube.AggregationAlias;
 import co.cask.cdap.data2.dataset2.lib.cube.DefaultAggregation;
 import co.cask.cdap.data2.dataset2.lib.cube.DefaultCube;
 import co.cask.cdap.data2.dataset2.lib.cube.FactTableSupplier;
+import co.cask.cdap.data2.dataset2.lib.timeseries.DistributionCodec;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import co.cask.cdap.metrics.collect.DistributionSketch;
 import com.google.common.base.Function;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
@@ -50,12 +53,17 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
 import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 import javax.annotation.Nullable;
 
@@ -63,6 +71,8 @@ import javax.annotation.Nullable;
  * Default implementation of {@link MetricStore}.
  */
 public class DefaultMetricStore implements MetricStore {
+  private static final Logger LOG = LoggerFactory.getLogger(DefaultMetricStore.class);
+
   public static final int TOTALS_RESOLUTION = Integer.MAX_VALUE;
   static final Map<String, Aggregation> AGGREGATIONS;
 
@@ -84,7 +94,7 @@ public class DefaultMetricStore implements MetricStore {
                                                          Constants.Metrics.Tag.WORKFLOW_RUN_ID)));
 
   private final int resolutions[];
-  private final Supplier<Cube> cube;
+  private final Supplier<DefaultCube> cube;
   private MetricsContext metricsContext;
 
 
@@ -212,9 +222,9 @@ public class DefaultMetricStore implements MetricStore {
         return dsFactory.getOrCreateFactTable(resolution);
       }
     };
-    this.cube = Suppliers.memoize(new Supplier<Cube>() {
+    this.cube = Suppliers.memoize(new Supplier<DefaultCube>() {
       @Override
-      public Cube get() {
+      public DefaultCube get() {
         DefaultCube cube = new DefaultCube(resolutions, factTableSupplier, AGGREGATIONS, AGGREGATIONS_ALIAS_DIMENSIONS);
         cube.setMetricsCollector(metricsContext);
         return cube;
@@ -241,6 +251,17 @@ public class DefaultMetricStore implements MetricStore {
       // todo improve this logic?
       for (MetricValue metric : metricValue.getMetrics()) {
         String measureName = (scope == null ? "system." : scope + ".") + metric.getName();
+        if (metric.getType() == MetricType.DISTRIBUTION) {
+          // all buckets of a distribution are stored under the distribution name, in a single cell per timestamp
+          int bucket = DistributionSketch.parseBucket(measureName);
+          if (bucket < 0) {
+            LOG.warn("Ignoring distribution metric with an invalid bucket name {}", metric.getName());
+            continue;
+          }
+          metrics.add(new Measurement(DistributionSketch.getDistributionNameOfBucket(measureName),
+                                      MeasureType.DISTRIBUTION, DistributionCodec.pack(bucket, metric.getValue())));
+          continue;
+        }
         MeasureType type = metric.getType() == MetricType.COUNTER ? MeasureType.COUNTER : MeasureType.GAUGE;
         metrics.add(new Measurement(measureName, type, metric.getValue()));
       }
@@ -255,20 +276,64 @@ public class DefaultMetricStore implements MetricStore {
 
   @Override
   public Collection<MetricTimeSeries> query(MetricDataQuery query) {
-    Collection<TimeSeries> cubeResult = cube.get().query(buildCubeQuery(query));
+    // Percentile metrics (e.g. "system.handler.latency.p99") are computed from the distribution that is stored under
+    // the metric name without the percentile suffix. Everything else is queried as is.
+    Map<String, AggregationFunction> metrics = new LinkedHashMap<>();
+    Map<String, AggregationFunction> distributions = new LinkedHashMap<>();
+    for (Map.Entry<String, AggregationFunction> entry : query.getMetrics().entrySet()) {
+      if (DistributionSketch.parseQuantile(entry.getKey()) == null) {
+        metrics.put(entry.getKey(), entry.getValue());
+      } else {
+        distributions.put(DistributionSketch.getDistributionName(entry.getKey()), AggregationFunction.SUM);
+      }
+    }
+
+    List<MetricTimeSeries> percentiles = Lists.newArrayList();
+    if (!distributions.isEmpty()) {
+      Table<Map<String, String>, String, NavigableMap<Long, NavigableMap<Integer, Long>>> distributionResult =
+        cube.get().queryDistributions(buildCubeQuery(query, distributions));
+      for (Map.Entry<String, AggregationFunction> entry : query.getMetrics().entrySet()) {
+        Double quantile = DistributionSketch.parseQuantile(entry.getKey());
+        if (quantile == null) {
+          continue;
+        }
+        Map<Map<String, String>, NavigableMap<Long, NavigableMap<Integer, Long>>> series =
+          distributionResult.column(DistributionSketch.getDistributionName(entry.getKey()));
+        if (series.isEmpty()) {
+          // not a percentile of a recorded distribution, but a metric that happens to have such a name
+          metrics.put(entry.getKey(), entry.getValue());
+          continue;
+        }
+        for (Map.Entry<Map<String, String>, NavigableMap<Long, NavigableMap<Integer, Long>>> seriesEntry
+          : series.entrySet()) {
+          List<TimeValue> timeValues = Lists.newArrayList();
+          for (Map.Entry<Long, NavigableMap<Integer, Long>> point : seriesEntry.getValue().entrySet()) {
+            timeValues.add(new TimeValue(point.getKey(), DistributionSketch.getPercentile(point.getValue(), quantile)));
+            if (timeValues.size() >= query.getLimit()) {
+              break;
+            }
+          }
+          percentiles.add(new MetricTimeSeries(entry.getKey(), seriesEntry.getKey(), timeValues));
+        }
+      }
+    }
+
     List<MetricTimeSeries> result = Lists.newArrayList();
-    for (TimeSeries timeSeries : cubeResult) {
-      result.add(new MetricTimeSeries(timeSeries.getMeasureName(),
-                                      timeSeries.getDimensionValues(),
-                                      timeSeries.getTimeValues()));
+    if (!metrics.isEmpty()) {
+      for (TimeSeries timeSeries : cube.get().query(buildCubeQuery(query, metrics))) {
+        result.add(new MetricTimeSeries(timeSeries.getMeasureName(),
+                                        timeSeries.getDimensionValues(),
+                                        timeSeries.getTimeValues()));
+      }
     }
+    result.addAll(percentiles);
     return result;
   }
 
-  private CubeQuery buildCubeQuery(MetricDataQuery query) {
+  private CubeQuery buildCubeQuery(MetricDataQuery query, Map<String, AggregationFunction> metrics) {
     String aggregation = getAggregation(query);
     return new CubeQuery(aggregation, query.getStartTs(), query.getEndTs(),
-                         query.getResolution(), query.getLimit(), query.getMetrics(),
+                         query.getResolution(), query.getLimit(), metrics,
                          query.getSliceByTags(), query.getGroupByTags(), query.getInterpolator());
   }
 
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.appender.kafka;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for {@link BoundedRingBuffer}.
+ */
+public class BoundedRingBufferTest {
+
+  @Test
+  public void testBounded() {
+    BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(5);
+    Assert.assertEquals(8, buffer.capacity());
+    Assert.assertNull(buffer.poll());
+
+    for (int i = 0; i < 8; i++) {
+      Assert.assertTrue(buffer.offer(i));
+    }
+    Assert.assertFalse(buffer.offer(8));
+    Assert.assertEquals(8, buffer.size());
+
+    // Wrap around the buffer a few times
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals(Integer.valueOf(i), buffer.poll());
+      Assert.assertTrue(buffer.offer(i + 8));
+    }
+    for (int i = 20; i < 28; i++) {
+      Assert.assertEquals(Integer.valueOf(i), buffer.poll());
+    }
+    Assert.assertTrue(buffer.isEmpty());
+  }
+
+  @Test
+  public void testConcurrentProducers() throws InterruptedException {
+    final BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(64);
+    final int producers = 4;
+    final int count = 10000;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < producers; i++) {
+      final int base = i * count;
+      Thread t = new Thread() {
+        @Override
+        public void run() {
+          try {
+            startLatch.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          for (int j = 0; j < count; j++) {
+            while (!buffer.offer(base + j)) {
+              Thread.yield();
+            }
+          }
+        }
+      };
+      t.start();
+      threads.add(t);
+    }
+
+    startLatch.countDown();
+
+    // Each producer's elements must come out in order and nothing is lost
+    int[] next = new int[producers];
+    int received = 0;
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while (received < producers * count && System.nanoTime() < deadline) {
+      Integer value = buffer.poll();
+      if (value == null) {
+        Thread.yield();
+        continue;
+      }
+      int producer = value / count;
+      Assert.assertEquals(next[producer]++, value % count);
+      received++;
+    }
+    Assert.assertEquals(producers * count, received);
+
+    for (Thread t : threads) {
+      t.join();
+    }
+  }
+}
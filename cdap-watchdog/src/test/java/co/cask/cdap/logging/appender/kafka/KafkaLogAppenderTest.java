@@ -0,0 +1,237 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.appender.kafka;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.logging.appender.LogMessage;
+import co.cask.cdap.logging.context.GenericLoggingContext;
+import co.cask.cdap.logging.serialize.LoggingEventSerializer;
+import co.cask.cdap.proto.id.NamespaceId;
+import com.google.common.base.Supplier;
+import kafka.producer.KeyedMessage;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for the {@link QueueFullPolicy} handling of {@link KafkaLogAppender}.
+ */
+public class KafkaLogAppenderTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  // Queue of size 4, with the high watermark at 3
+  private static final int QUEUE_SIZE = 4;
+
+  @Test
+  public void testBlock() throws Exception {
+    BlockingLogProducer producer = new BlockingLogProducer();
+    final KafkaLogAppender appender = createAppender(QueueFullPolicy.BLOCK, producer);
+    appender.start();
+    try {
+      fillQueue(appender, producer);
+
+      // The next append blocks until there is room in the queue
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          append(appender, QUEUE_SIZE + 1, Level.INFO);
+        }
+      };
+      thread.start();
+      thread.join(200);
+      Assert.assertTrue(thread.isAlive());
+
+      producer.unblock();
+      thread.join(10000);
+      Assert.assertFalse(thread.isAlive());
+    } finally {
+      producer.unblock();
+      appender.stop();
+    }
+
+    assertPublished(producer, 0, 1, 2, 3, 4, 5);
+    Assert.assertEquals(0L, appender.getDroppedCount());
+    Assert.assertEquals(0L, appender.getSpilledCount());
+  }
+
+  @Test
+  public void testDrop() throws Exception {
+    BlockingLogProducer producer = new BlockingLogProducer();
+    KafkaLogAppender appender = createAppender(QueueFullPolicy.DROP, producer);
+    appender.start();
+    try {
+      append(appender, 0, Level.INFO);
+      Assert.assertTrue(producer.awaitPublishStarted());
+      for (int i = 1; i < 4; i++) {
+        append(appender, i, Level.INFO);
+      }
+
+      // Past the high watermark, messages below WARN are dropped, while WARN and above still go to the queue
+      append(appender, 4, Level.INFO);
+      append(appender, 5, Level.DEBUG);
+      append(appender, 6, Level.WARN);
+      Assert.assertEquals(2L, appender.getDroppedCount());
+
+      // Once the queue is full, all messages are dropped
+      append(appender, 7, Level.ERROR);
+      Assert.assertEquals(3L, appender.getDroppedCount());
+    } finally {
+      producer.unblock();
+      appender.stop();
+    }
+
+    assertPublished(producer, 0, 1, 2, 3, 6);
+    Assert.assertEquals(0L, appender.getSpilledCount());
+  }
+
+  @Test
+  public void testSpill() throws Exception {
+    BlockingLogProducer producer = new BlockingLogProducer();
+    KafkaLogAppender appender = createAppender(QueueFullPolicy.SPILL, producer);
+    appender.start();
+    try {
+      fillQueue(appender, producer);
+
+      // Messages are spilled when the queue is full, and published in order once the queue drains
+      for (int i = QUEUE_SIZE + 1; i < QUEUE_SIZE + 4; i++) {
+        append(appender, i, Level.INFO);
+      }
+      Assert.assertEquals(3L, appender.getSpilledCount());
+      Assert.assertEquals(0L, appender.getDroppedCount());
+    } finally {
+      producer.unblock();
+      appender.stop();
+    }
+
+    assertPublished(producer, 0, 1, 2, 3, 4, 5, 6, 7);
+  }
+
+  private KafkaLogAppender createAppender(QueueFullPolicy policy, final LogProducer producer) throws IOException {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.Logging.LOG_PUBLISH_QUEUE_FULL_POLICY, policy.name().toLowerCase());
+    cConf.setInt(Constants.Logging.LOG_PUBLISH_QUEUE_SIZE, QUEUE_SIZE);
+    cConf.setInt(Constants.Logging.LOG_PUBLISH_BATCH_SIZE, 1);
+    cConf.set(Constants.Logging.LOG_PUBLISH_SPILL_DIR, TEMP_FOLDER.newFolder().getAbsolutePath());
+    return new KafkaLogAppender(cConf, new Supplier<LogProducer>() {
+      @Override
+      public LogProducer get() {
+        return producer;
+      }
+    });
+  }
+
+  /**
+   * Appends one message, which is taken by the background publisher and blocked by the producer, and then
+   * appends messages until the queue is full.
+   */
+  private void fillQueue(KafkaLogAppender appender, BlockingLogProducer producer) throws InterruptedException {
+    append(appender, 0, Level.INFO);
+    Assert.assertTrue(producer.awaitPublishStarted());
+    for (int i = 1; i <= QUEUE_SIZE; i++) {
+      append(appender, i, Level.INFO);
+    }
+  }
+
+  private static void append(KafkaLogAppender appender, int i, Level level) {
+    LoggingEvent event = new LoggingEvent();
+    event.setLevel(level);
+    event.setLoggerName("test.logger");
+    event.setMessage(Integer.toString(i));
+    event.setTimeStamp(System.currentTimeMillis());
+    event.setCallerData(new StackTraceElement[0]);
+    appender.append(new LogMessage(event, new GenericLoggingContext(NamespaceId.DEFAULT.getNamespace(),
+                                                                    "app", "entity")));
+  }
+
+  /**
+   * Asserts that exactly the given messages were published, in the given order.
+   */
+  private void assertPublished(BlockingLogProducer producer, int... expected) throws IOException {
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    List<String> published = new ArrayList<>();
+    for (KeyedMessage<String, byte[]> message : producer.getPublished()) {
+      published.add(serializer.fromBytes(ByteBuffer.wrap(message.message())).getFormattedMessage());
+    }
+    List<String> expectedMessages = new ArrayList<>();
+    for (int i : expected) {
+      expectedMessages.add(Integer.toString(i));
+    }
+    Assert.assertEquals(expectedMessages, published);
+  }
+
+  /**
+   * A {@link LogProducer} that records the published messages, and blocks publishing until it is unblocked.
+   */
+  private static final class BlockingLogProducer implements LogProducer {
+
+    private final List<KeyedMessage<String, byte[]>> published = new CopyOnWriteArrayList<>();
+    private final CountDownLatch publishStarted = new CountDownLatch(1);
+    private final CountDownLatch unblocked = new CountDownLatch(1);
+
+    boolean awaitPublishStarted() throws InterruptedException {
+      return publishStarted.await(10, TimeUnit.SECONDS);
+    }
+
+    void unblock() {
+      unblocked.countDown();
+    }
+
+    List<KeyedMessage<String, byte[]>> getPublished() {
+      return published;
+    }
+
+    @Override
+    public void publish(List<KeyedMessage<String, byte[]>> messages) {
+      publishStarted.countDown();
+      boolean interrupted = false;
+      while (true) {
+        try {
+          if (!unblocked.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Publish not unblocked");
+          }
+          break;
+        } catch (InterruptedException e) {
+          // Keep waiting, the same as a Kafka producer ignoring interrupts while sending
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      published.addAll(messages);
+    }
+
+    @Override
+    public void stop() {
+      // no-op
+    }
+  }
+}
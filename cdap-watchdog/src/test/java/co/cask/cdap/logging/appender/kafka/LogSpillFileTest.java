@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.appender.kafka;
+
+import co.cask.cdap.api.common.Bytes;
+import kafka.producer.KeyedMessage;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit test for {@link LogSpillFile}.
+ */
+public class LogSpillFileTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSpill() throws Exception {
+    File file = new File(TEMP_FOLDER.newFolder(), "spill.dat");
+    // Each entry takes 8 bytes of lengths, 1 byte of key and 4 bytes of payload
+    try (LogSpillFile spillFile = new LogSpillFile(file, 13 * 5)) {
+      Assert.assertTrue(spillFile.isEmpty());
+
+      for (int i = 0; i < 5; i++) {
+        Assert.assertTrue(spillFile.append("k", Bytes.toBytes(i)));
+      }
+      // Exceeded the size limit
+      Assert.assertFalse(spillFile.append("k", Bytes.toBytes(5)));
+      Assert.assertFalse(spillFile.isEmpty());
+
+      List<KeyedMessage<String, byte[]>> buffer = new ArrayList<>();
+      Assert.assertEquals(3, spillFile.drain("topic", buffer, 3));
+      Assert.assertEquals(2, spillFile.drain("topic", buffer, 10));
+      Assert.assertTrue(spillFile.isEmpty());
+      Assert.assertEquals(0L, file.length());
+
+      for (int i = 0; i < 5; i++) {
+        KeyedMessage<String, byte[]> message = buffer.get(i);
+        Assert.assertEquals("topic", message.topic());
+        Assert.assertEquals("k", message.key());
+        Assert.assertEquals(i, Bytes.toInt(message.message()));
+      }
+
+      // Space is reclaimed after draining
+      Assert.assertTrue(spillFile.append("k", Bytes.toBytes(5)));
+    }
+    Assert.assertFalse(file.exists());
+  }
+
+  @Test
+  public void testWrapAround() throws Exception {
+    File file = new File(TEMP_FOLDER.newFolder(), "spill.dat");
+    try (LogSpillFile spillFile = new LogSpillFile(file, 13 * 5 + 5)) {
+      for (int i = 0; i < 5; i++) {
+        Assert.assertTrue(spillFile.append("k", Bytes.toBytes(i)));
+      }
+
+      // Space of drained entries is reused before the file is fully drained, with entries wrapping around
+      List<KeyedMessage<String, byte[]>> buffer = new ArrayList<>();
+      Assert.assertEquals(2, spillFile.drain("topic", buffer, 2));
+      for (int i = 5; i < 7; i++) {
+        Assert.assertTrue(spillFile.append("k", Bytes.toBytes(i)));
+      }
+      Assert.assertFalse(spillFile.append("k", Bytes.toBytes(7)));
+
+      Assert.assertEquals(5, spillFile.drain("topic", buffer, 10));
+      Assert.assertTrue(spillFile.isEmpty());
+      for (int i = 0; i < 7; i++) {
+        Assert.assertEquals(i, Bytes.toInt(buffer.get(i).message()));
+      }
+    }
+  }
+}
@@ -26,6 +26,8 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
 
 /**
  * Unit-test for {@link TimeEventQueue}.
@@ -143,6 +145,82 @@ public class TimeEventQueueTest {
     Assert.assertTrue(eventQueue.isEmpty());
   }
 
+  @Test
+  public void testRandomAddRemove() {
+    TimeEventQueue<String, Long> eventQueue = new TimeEventQueue<>(ImmutableSet.of(0, 1, 2));
+    // Expected events, sorted by event time, then by partition, then by offset
+    TreeMap<String, String> expected = new TreeMap<>();
+    long[] nextOffsets = new long[3];
+    Random random = new Random(0);
+
+    for (int round = 0; round < 50; round++) {
+      // Add events with increasing offsets and random timestamps
+      int count = random.nextInt(200);
+      for (int i = 0; i < count; i++) {
+        int partition = random.nextInt(3);
+        long offset = nextOffsets[partition]++;
+        long timestamp = random.nextInt(1000);
+        String event = String.format("%04d-%d-%06d", timestamp, partition, offset);
+        eventQueue.add(event, timestamp, 10, partition, offset);
+        expected.put(event, event);
+        // Adding the same event again has no effect
+        eventQueue.add(event, timestamp, 10, partition, offset);
+      }
+      Assert.assertEquals(expected.size(), eventQueue.size());
+      Assert.assertEquals(expected.size() * 10, eventQueue.getEventSize());
+
+      // Iterate the queue and randomly remove events, which may skip some events
+      Iterator<String> expectedItor = expected.keySet().iterator();
+      TimeEventQueue.EventIterator<String, Long> iterator = eventQueue.iterator();
+      int limit = random.nextInt(expected.size() + 1);
+      for (int i = 0; i < limit; i++) {
+        Assert.assertTrue(iterator.hasNext());
+        String event = iterator.next();
+        Assert.assertEquals(expectedItor.next(), event);
+        Assert.assertEquals(Integer.parseInt(event.substring(5, 6)), iterator.getPartition());
+        Assert.assertEquals(Long.parseLong(event.substring(7)), iterator.getOffset().longValue());
+        if (random.nextInt(4) != 0) {
+          iterator.remove();
+          expectedItor.remove();
+        }
+      }
+
+      // The smallest offset of each partition should be the smallest offset among the remaining events
+      for (int partition = 0; partition < 3; partition++) {
+        Long smallest = null;
+        for (String event : expected.keySet()) {
+          if (Integer.parseInt(event.substring(5, 6)) == partition) {
+            long offset = Long.parseLong(event.substring(7));
+            smallest = smallest == null ? offset : Math.min(smallest, offset);
+          }
+        }
+        Assert.assertEquals(smallest == null, eventQueue.isEmpty(partition));
+        if (smallest != null) {
+          Assert.assertEquals(smallest, eventQueue.getSmallestOffset(partition));
+        }
+      }
+      if (!expected.isEmpty()) {
+        Assert.assertEquals(expected.firstKey(), eventQueue.first());
+      }
+    }
+
+    // Remove everything
+    Iterator<String> iterator = eventQueue.iterator();
+    while (iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+    Assert.assertTrue(eventQueue.isEmpty());
+    Assert.assertEquals(0, eventQueue.getEventSize());
+  }
+
+  @Test (expected = IllegalArgumentException.class)
+  public void testDuplicateOffset() {
+    TimeEventQueue<String, Integer> eventQueue = new TimeEventQueue<>(Collections.singleton(1));
+    eventQueue.add("test", 1L, 10, 1, 0);
+    eventQueue.add("test2", 2L, 10, 1, 0);
+  }
+
   @Test (expected = IllegalArgumentException.class)
   public void testInvalidPartition() {
     TimeEventQueue<String, Integer> eventQueue = new TimeEventQueue<>(Collections.singleton(1));
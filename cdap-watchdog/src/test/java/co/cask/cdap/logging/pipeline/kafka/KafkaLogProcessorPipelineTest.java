@@ -24,6 +24,7 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.classic.spi.LoggingEvent;
 import ch.qos.logback.core.Appender;
 import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.LogbackException;
 import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
 import co.cask.cdap.api.metrics.MetricDataQuery;
 import co.cask.cdap.api.metrics.MetricStore;
@@ -62,12 +63,17 @@ import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
 import co.cask.cdap.security.authorization.AuthorizationTestModule;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.AbstractModule;
 import com.google.inject.Injector;
 import org.apache.tephra.TransactionSystemClient;
 import org.apache.tephra.runtime.TransactionModules;
+import org.apache.twill.common.Cancellable;
 import org.apache.twill.filesystem.LocationFactory;
+import org.apache.twill.kafka.client.BrokerInfo;
+import org.apache.twill.kafka.client.BrokerService;
 import org.apache.twill.kafka.client.Compression;
 import org.apache.twill.kafka.client.KafkaPublisher;
 import org.junit.Assert;
@@ -97,7 +103,11 @@ import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -261,6 +271,131 @@ public class KafkaLogProcessorPipelineTest {
     Assert.assertTrue(appender.getFlushCount() >= 20);
   }
 
+  @Test
+  public void testStalledPartition() throws Exception {
+    String topic = "testStalledPartition";
+    LoggerContext loggerContext = createLoggerContext("WARN", ImmutableMap.of("test.logger", "INFO"),
+                                                      TestAppender.class.getName());
+    final TestAppender appender = getAppender(loggerContext.getLogger(Logger.ROOT_LOGGER_NAME),
+                                              "Test", TestAppender.class);
+    TestCheckpointManager checkpointManager = new TestCheckpointManager();
+    KafkaPipelineConfig config = new KafkaPipelineConfig(topic, ImmutableSet.of(0, 1), 1024L, 100L, 1048576, 200L);
+    KAFKA_TESTER.createTopic(topic, 2);
+
+    // Stall the fetcher of partition 1
+    TestBrokerService brokerService = new TestBrokerService(KAFKA_TESTER.getBrokerService());
+    CountDownLatch stallLatch = brokerService.stall(1);
+
+    loggerContext.start();
+    KafkaLogProcessorPipeline pipeline = new KafkaLogProcessorPipeline(
+      new LogProcessorPipelineContext(CConfiguration.create(), "testStalledPartition",
+                                      loggerContext, NO_OP_METRICS_CONTEXT, 0),
+      checkpointManager, brokerService, config);
+
+    pipeline.startAndWait();
+
+    long now = System.currentTimeMillis();
+    publishLog(topic, ImmutableList.of(createLoggingEvent("test.logger", Level.INFO, "stalled", now - 1000)), 1);
+    publishLog(topic, ImmutableList.of(
+      createLoggingEvent("test.logger", Level.INFO, "0", now - 500),
+      createLoggingEvent("test.logger", Level.INFO, "1", now - 400),
+      createLoggingEvent("test.logger", Level.INFO, "2", now - 300)
+    ), 0);
+
+    // Events of partition 0 should get appended while the fetcher of partition 1 is stalled
+    Tasks.waitFor(3, new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        return appender.getEvents().size();
+      }
+    }, 5, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(Integer.toString(i), appender.getEvents().poll().getMessage());
+    }
+
+    // Once the fetcher is no longer stalled, the event of partition 1 should get appended
+    stallLatch.countDown();
+    Tasks.waitFor(1, new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        return appender.getEvents().size();
+      }
+    }, 5, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+    Assert.assertEquals("stalled", appender.getEvents().poll().getMessage());
+
+    pipeline.stopAndWait();
+    loggerContext.stop();
+  }
+
+  @Test
+  public void testFullQueueBlocksFetcher() throws Exception {
+    String topic = "testFullQueue";
+    LoggerContext loggerContext = createLoggerContext("WARN", ImmutableMap.of("test.logger", "INFO"),
+                                                      TestAppender.class.getName());
+    final TestAppender appender = getAppender(loggerContext.getLogger(Logger.ROOT_LOGGER_NAME),
+                                              "Test", TestAppender.class);
+    TestCheckpointManager checkpointManager = new TestCheckpointManager();
+    // Use a small event queue and Kafka fetch size, so that the published events neither fit in the queue
+    // nor are fetched at once
+    KafkaPipelineConfig config = new KafkaPipelineConfig(topic, Collections.singleton(0), 1024L, 100L, 4096, 200L);
+    KAFKA_TESTER.createTopic(topic, 1);
+
+    final TestBrokerService brokerService = new TestBrokerService(KAFKA_TESTER.getBrokerService());
+
+    // Fail all appends, so that the event queue cannot be drained
+    appender.setAppendFailure(true);
+    loggerContext.start();
+    KafkaLogProcessorPipeline pipeline = new KafkaLogProcessorPipeline(
+      new LogProcessorPipelineContext(CConfiguration.create(), "testFullQueue",
+                                      loggerContext, NO_OP_METRICS_CONTEXT, 0),
+      checkpointManager, brokerService, config);
+
+    pipeline.startAndWait();
+
+    int eventCount = 100;
+    List<ILoggingEvent> events = new ArrayList<>(eventCount);
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < eventCount; i++) {
+      events.add(createLoggingEvent("test.logger", Level.INFO, Integer.toString(i), now - 1000 + i));
+    }
+    publishLog(topic, events);
+
+    // Once the event queue and the fetched buffer are full, the fetcher should get blocked and stop fetching
+    Tasks.waitFor(true, new Callable<Boolean>() {
+      private int lastFetchCount = -1;
+
+      @Override
+      public Boolean call() throws Exception {
+        int fetchCount = brokerService.getFetchCount();
+        boolean blocked = fetchCount > 0 && fetchCount == lastFetchCount;
+        lastFetchCount = fetchCount;
+        return blocked;
+      }
+    }, 10, TimeUnit.SECONDS, 500, TimeUnit.MILLISECONDS);
+    Assert.assertTrue(appender.getEvents().isEmpty());
+
+    // After the appender recovered, all events should get appended exactly once and in order
+    appender.setAppendFailure(false);
+    Tasks.waitFor(eventCount, new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        return appender.getEvents().size();
+      }
+    }, 10, TimeUnit.SECONDS, 100, TimeUnit.MILLISECONDS);
+
+    for (int i = 0; i < eventCount; i++) {
+      Assert.assertEquals(Integer.toString(i), appender.getEvents().poll().getMessage());
+    }
+    Assert.assertTrue(appender.getEvents().isEmpty());
+
+    pipeline.stopAndWait();
+    loggerContext.stop();
+
+    // The checkpoint should be right after the last message, which has offset eventCount - 1
+    Assert.assertEquals(eventCount, checkpointManager.getSavedCheckpoint(0).getNextOffset());
+  }
+
   @Test
   public void testMetricsAppender() throws Exception {
     Injector injector = KAFKA_TESTER.getInjector();
@@ -523,14 +658,26 @@ public class KafkaLogProcessorPipelineTest {
     publishLog(topic, events, new GenericLoggingContext(NamespaceId.DEFAULT.getNamespace(), "app", "entity"));
   }
 
+  /**
+   * Publishes multiple log events to the given partition.
+   */
+  private void publishLog(String topic, Iterable<ILoggingEvent> events, int partition) {
+    publishLog(topic, events, new GenericLoggingContext(NamespaceId.DEFAULT.getNamespace(), "app", "entity"),
+               partition);
+  }
+
   private void publishLog(String topic, Iterable<ILoggingEvent> events, LoggingContext context) {
+    publishLog(topic, events, context, context.getLogPartition());
+  }
+
+  private void publishLog(String topic, Iterable<ILoggingEvent> events, LoggingContext context, Object partitionKey) {
     KafkaPublisher.Preparer preparer = KAFKA_TESTER.getKafkaClient()
       .getPublisher(KafkaPublisher.Ack.LEADER_RECEIVED, Compression.NONE)
       .prepare(topic);
 
     LoggingEventSerializer serializer = new LoggingEventSerializer();
     for (ILoggingEvent event : events) {
-      preparer.add(ByteBuffer.wrap(serializer.toBytes(new LogMessage(event, context))), context.getLogPartition());
+      preparer.add(ByteBuffer.wrap(serializer.toBytes(new LogMessage(event, context))), partitionKey);
     }
     preparer.send();
   }
@@ -580,14 +727,27 @@ public class KafkaLogProcessorPipelineTest {
   public static final class TestAppender extends AppenderBase<ILoggingEvent> implements Flushable, Syncable {
 
     private final AtomicInteger flushCount = new AtomicInteger();
+    private volatile boolean appendFailure;
     private Queue<ILoggingEvent> pending;
     private Queue<ILoggingEvent> persisted;
 
+    @Override
+    public void doAppend(ILoggingEvent event) throws LogbackException {
+      if (appendFailure) {
+        throw new LogbackException("Failed to append event");
+      }
+      super.doAppend(event);
+    }
+
     @Override
     protected void append(ILoggingEvent event) {
       pending.add(event);
     }
 
+    void setAppendFailure(boolean appendFailure) {
+      this.appendFailure = appendFailure;
+    }
+
     Queue<ILoggingEvent> getEvents() {
       return persisted;
     }
@@ -624,9 +784,19 @@ public class KafkaLogProcessorPipelineTest {
 
   private static final class TestCheckpointManager implements CheckpointManager {
 
+    private final Map<Integer, Checkpoint> savedCheckpoints = new ConcurrentHashMap<>();
+
     @Override
     public void saveCheckpoints(Map<Integer, ? extends Checkpoint> checkpoints) throws Exception {
+      for (Map.Entry<Integer, ? extends Checkpoint> entry : checkpoints.entrySet()) {
+        Checkpoint checkpoint = entry.getValue();
+        savedCheckpoints.put(entry.getKey(), new Checkpoint(checkpoint.getNextOffset(), checkpoint.getNextEventTime(),
+                                                            checkpoint.getMaxEventTime()));
+      }
+    }
 
+    Checkpoint getSavedCheckpoint(int partition) {
+      return savedCheckpoints.get(partition);
     }
 
     @Override
@@ -639,4 +809,75 @@ public class KafkaLogProcessorPipelineTest {
       return new Checkpoint(-1, -1, -1);
     }
   }
+
+  /**
+   * A {@link BrokerService} that counts the leader lookups made by the fetchers of the pipeline for every fetch,
+   * and can stall the fetcher of a partition.
+   */
+  private static final class TestBrokerService extends AbstractIdleService implements BrokerService {
+
+    private final BrokerService delegate;
+    private final AtomicInteger fetchCount = new AtomicInteger();
+    private final ConcurrentMap<Integer, CountDownLatch> stalls = new ConcurrentHashMap<>();
+
+    TestBrokerService(BrokerService delegate) {
+      this.delegate = delegate;
+    }
+
+    /**
+     * Stalls the fetcher of the given partition until the returned latch is released.
+     */
+    CountDownLatch stall(int partition) {
+      CountDownLatch latch = new CountDownLatch(1);
+      stalls.put(partition, latch);
+      return latch;
+    }
+
+    int getFetchCount() {
+      return fetchCount.get();
+    }
+
+    @Override
+    protected void startUp() throws Exception {
+      // no-op
+    }
+
+    @Override
+    protected void shutDown() throws Exception {
+      // no-op
+    }
+
+    @Override
+    public BrokerInfo getLeader(String topic, int partition) {
+      // Only the fetcher threads are affected, so that the pipeline can initialize the offsets
+      if (Thread.currentThread().getName().startsWith("fetcher-")) {
+        fetchCount.incrementAndGet();
+        CountDownLatch latch = stalls.get(partition);
+        if (latch != null) {
+          try {
+            latch.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+          }
+        }
+      }
+      return delegate.getLeader(topic, partition);
+    }
+
+    @Override
+    public Iterable<BrokerInfo> getBrokers() {
+      return delegate.getBrokers();
+    }
+
+    @Override
+    public String getBrokerList() {
+      return delegate.getBrokerList();
+    }
+
+    @Override
+    public Cancellable addChangeListener(BrokerChangeListener listener, Executor executor) {
+      return delegate.addChangeListener(listener, executor);
+    }
+  }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.collect;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link AggregatedMetricsEmitter}.
+ */
+public class AggregatedMetricsEmitterTest {
+
+  @Test
+  public void testIncrementThenGauge() {
+    AggregatedMetricsEmitter emitter = new AggregatedMetricsEmitter("metric");
+    emitter.increment(5);
+    emitter.gauge(10);
+
+    // the gauge overrides the increments made before it
+    MetricValue value = emitter.emit();
+    Assert.assertEquals(MetricType.GAUGE, value.getType());
+    Assert.assertEquals(10L, value.getValue());
+
+    value = emitter.emit();
+    Assert.assertEquals(MetricType.COUNTER, value.getType());
+    Assert.assertEquals(0L, value.getValue());
+  }
+
+  @Test
+  public void testGaugeThenIncrement() {
+    AggregatedMetricsEmitter emitter = new AggregatedMetricsEmitter("metric");
+    emitter.gauge(10);
+    emitter.increment(5);
+    emitter.increment(2);
+
+    // increments made after the gauge are applied on top of it
+    MetricValue value = emitter.emit();
+    Assert.assertEquals(MetricType.GAUGE, value.getType());
+    Assert.assertEquals(17L, value.getValue());
+  }
+
+  @Test
+  public void testTransfer() {
+    AggregatedMetricsEmitter emitter = new AggregatedMetricsEmitter("metric");
+    emitter.increment(3);
+    emitter.distribution(7);
+    emitter.retire();
+    Assert.assertTrue(emitter.isRetired());
+
+    AggregatedMetricsEmitter replacement = new AggregatedMetricsEmitter("metric");
+    emitter.transferTo(replacement);
+
+    // everything recorded got moved, nothing is left on the retired emitter
+    Assert.assertEquals(0L, emitter.emit().getValue());
+    List<MetricValue> values = new ArrayList<>();
+    emitter.emitDistribution(values);
+    Assert.assertTrue(values.isEmpty());
+
+    Assert.assertEquals(3L, replacement.emit().getValue());
+    replacement.emitDistribution(values);
+    Assert.assertFalse(values.isEmpty());
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.collect;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Unit tests for {@link DistributionSketch}.
+ */
+public class DistributionSketchTest {
+
+  @Test
+  public void testBuckets() {
+    long[] values = { 0, 1, 7, 8, 9, 15, 16, 17, 100, 1000, 123456789L, Long.MAX_VALUE };
+    int lastBucket = -1;
+    for (long value : values) {
+      int bucket = DistributionSketch.getBucket(value);
+      Assert.assertTrue(bucket >= lastBucket);
+      Assert.assertTrue(bucket < DistributionSketch.NUM_BUCKETS);
+      long upper = DistributionSketch.getBucketUpperBound(bucket);
+      // The value is within the bucket and the bucket width is at most 1/8 of the value
+      Assert.assertTrue(value <= upper);
+      Assert.assertTrue(upper - value <= value / 8);
+      if (bucket > 0) {
+        Assert.assertTrue(value > DistributionSketch.getBucketUpperBound(bucket - 1));
+      }
+      lastBucket = bucket;
+    }
+    Assert.assertEquals(0, DistributionSketch.getBucket(-5));
+    Assert.assertEquals(DistributionSketch.NUM_BUCKETS - 1, DistributionSketch.getBucket(Long.MAX_VALUE));
+    Assert.assertEquals(Long.MAX_VALUE, DistributionSketch.getBucketUpperBound(DistributionSketch.NUM_BUCKETS - 1));
+  }
+
+  @Test
+  public void testNames() {
+    Assert.assertEquals(0.5d, DistributionSketch.parseQuantile("system.latency.p50"), 0.0d);
+    Assert.assertEquals(0.99d, DistributionSketch.parseQuantile("system.latency.p99"), 0.0d);
+    Assert.assertEquals(0.999d, DistributionSketch.parseQuantile("system.latency.p999"), 0.0d);
+    Assert.assertNull(DistributionSketch.parseQuantile("system.latency"));
+    Assert.assertNull(DistributionSketch.parseQuantile("system.latency.p"));
+    Assert.assertNull(DistributionSketch.parseQuantile("system.latency.p5"));
+    Assert.assertNull(DistributionSketch.parseQuantile("system.latency.pages"));
+    Assert.assertEquals("system.latency", DistributionSketch.getDistributionName("system.latency.p99"));
+
+    String bucketName = DistributionSketch.getBucketMetricName("system.latency", 42);
+    Assert.assertEquals(42, DistributionSketch.parseBucket(bucketName));
+    Assert.assertEquals("system.latency", DistributionSketch.getDistributionNameOfBucket(bucketName));
+    Assert.assertEquals(-1, DistributionSketch.parseBucket("system.latency"));
+    Assert.assertEquals(-1, DistributionSketch.parseBucket("system.latency.bucket.x"));
+  }
+
+  @Test
+  public void testPercentile() {
+    DistributionSketch sketch = new DistributionSketch("latency");
+    for (int i = 1; i <= 1000; i++) {
+      sketch.add(i);
+    }
+
+    List<MetricValue> values = new ArrayList<>();
+    sketch.drainTo(values);
+
+    // Merge the emitted buckets the same way the metrics store does and compute percentiles
+    NavigableMap<Integer, Long> buckets = new TreeMap<>();
+    long total = 0;
+    for (MetricValue value : values) {
+      Assert.assertEquals(MetricType.DISTRIBUTION, value.getType());
+      Assert.assertEquals("latency", DistributionSketch.getDistributionNameOfBucket(value.getName()));
+      int bucket = DistributionSketch.parseBucket(value.getName());
+      Assert.assertTrue(bucket >= 0);
+      buckets.put(bucket, value.getValue());
+      total += value.getValue();
+    }
+    Assert.assertEquals(1000L, total);
+
+    assertWithin(500, DistributionSketch.getPercentile(buckets, 0.5d));
+    assertWithin(990, DistributionSketch.getPercentile(buckets, 0.99d));
+    assertWithin(999, DistributionSketch.getPercentile(buckets, 0.999d));
+
+    // Draining resets the sketch
+    values.clear();
+    sketch.drainTo(values);
+    Assert.assertTrue(values.isEmpty());
+    Assert.assertEquals(0L, DistributionSketch.getPercentile(new TreeMap<Integer, Long>(), 0.5d));
+  }
+
+  private void assertWithin(long expected, long actual) {
+    Assert.assertTrue("Expected " + expected + " but got " + actual,
+                      actual >= expected && actual <= expected + expected / 8);
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.collect;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Unit tests for {@link StripedLongCounter}.
+ */
+public class StripedLongCounterTest {
+
+  @Test
+  public void testSingleThread() {
+    StripedLongCounter counter = new StripedLongCounter();
+    counter.add(5);
+    counter.add(-2);
+    Assert.assertEquals(3L, counter.sum());
+    Assert.assertEquals(3L, counter.sumThenReset());
+    Assert.assertEquals(0L, counter.sum());
+  }
+
+  @Test
+  public void testConcurrentUpdates() throws Exception {
+    final int threadCount = 8;
+    final int increments = 100000;
+    final StripedLongCounter counter = new StripedLongCounter();
+    final CyclicBarrier barrier = new CyclicBarrier(threadCount + 1);
+    final AtomicBoolean failed = new AtomicBoolean();
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      Thread t = new Thread() {
+        @Override
+        public void run() {
+          try {
+            barrier.await();
+            for (int j = 0; j < increments; j++) {
+              counter.add(1);
+            }
+          } catch (Exception e) {
+            failed.set(true);
+          }
+        }
+      };
+      t.start();
+      threads.add(t);
+    }
+
+    // Keep draining while the threads are updating. No update should be lost or counted twice.
+    barrier.await();
+    long total = 0;
+    boolean alive = true;
+    while (alive) {
+      total += counter.sumThenReset();
+      alive = false;
+      for (Thread t : threads) {
+        alive = alive || t.isAlive();
+      }
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+    total += counter.sumThenReset();
+
+    Assert.assertFalse(failed.get());
+    Assert.assertEquals((long) threadCount * increments, total);
+  }
+}
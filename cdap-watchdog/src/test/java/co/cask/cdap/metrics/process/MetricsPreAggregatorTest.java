@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2017 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.process;
+
+import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricValues;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit test for {@link MetricsPreAggregator}.
+ */
+public class MetricsPreAggregatorTest {
+
+  @Test
+  public void testMerge() {
+    Map<String, String> tags1 = ImmutableMap.of("ns", "ns1", "app", "app1");
+    Map<String, String> tags2 = ImmutableMap.of("ns", "ns1", "app", "app2");
+
+    MetricsPreAggregator aggregator = new MetricsPreAggregator();
+    Assert.assertTrue(aggregator.isEmpty());
+
+    aggregator.add(new MetricValues(tags1, 10L, ImmutableList.of(new MetricValue("c", MetricType.COUNTER, 1),
+                                                                  new MetricValue("g", MetricType.GAUGE, 5),
+                                                                  new MetricValue("d.bucket.3",
+                                                                                  MetricType.DISTRIBUTION, 1))));
+    aggregator.add(new MetricValues(new HashMap<>(tags1), 10L,
+                                    ImmutableList.of(new MetricValue("c", MetricType.COUNTER, 2),
+                                                     new MetricValue("g", MetricType.GAUGE, 3),
+                                                     new MetricValue("d.bucket.3", MetricType.DISTRIBUTION, 2))));
+    // Different timestamp and different tags are not merged
+    aggregator.add(new MetricValues(tags1, "c", 11L, 4, MetricType.COUNTER));
+    aggregator.add(new MetricValues(tags2, "c", 10L, 8, MetricType.COUNTER));
+
+    Assert.assertEquals(4, aggregator.getInputCount());
+    Assert.assertEquals(5, aggregator.size());
+    Assert.assertEquals(10L, aggregator.getLastTimestamp());
+
+    Deque<MetricValues> result = aggregator.getMetricValues();
+    Assert.assertEquals(3, result.size());
+
+    MetricValues first = result.pollFirst();
+    Assert.assertEquals(tags1, first.getTags());
+    Assert.assertEquals(10L, first.getTimestamp());
+    Map<String, Long> values = new HashMap<>();
+    for (MetricValue value : first.getMetrics()) {
+      values.put(value.getName(), value.getValue());
+    }
+    // Counters and distribution buckets are summed up and gauge keeps the latest value
+    Assert.assertEquals(ImmutableMap.of("c", 3L, "g", 3L, "d.bucket.3", 3L), values);
+
+    MetricValues second = result.pollFirst();
+    Assert.assertEquals(11L, second.getTimestamp());
+    Assert.assertEquals(4L, second.getMetrics().iterator().next().getValue());
+
+    MetricValues third = result.pollFirst();
+    Assert.assertEquals(tags2, third.getTags());
+    Assert.assertEquals(8L, third.getMetrics().iterator().next().getValue());
+
+    aggregator.clear();
+    Assert.assertTrue(aggregator.isEmpty());
+    Assert.assertEquals(0, aggregator.size());
+    Assert.assertTrue(aggregator.getMetricValues().isEmpty());
+  }
+}